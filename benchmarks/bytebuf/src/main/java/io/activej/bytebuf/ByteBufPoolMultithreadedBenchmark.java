@@ -7,6 +7,10 @@ import io.activej.launcher.Launcher;
 
 import static io.activej.config.converter.ConfigConverters.ofInteger;
 
+/**
+ * Run with {@code -DByteBufPool.magazineSize=<size>} to compare
+ * global slabs with thread-local magazines
+ */
 public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 
 	static final class ByteBufPoolAbuser implements Runnable {
@@ -103,6 +107,11 @@ public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 		long avgRps = Math.round((iterations / avgTime * 1000L * threads));
 		System.out.println("Time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
 				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + avgRps);
+		if (ByteBufPool.USE_MAGAZINES) {
+			ByteBufPool.ByteBufPoolStats stats = ByteBufPool.getStats();
+			System.out.println("Magazine size: " + ByteBufPool.MAGAZINE_SIZE + "; Hit rate: " + stats.getMagazineHitRate() +
+					"; Spills: " + stats.getMagazineSpills());
+		}
 	}
 
 	private long round() throws InterruptedException {
@@ -12,7 +12,10 @@ import io.activej.launcher.Launcher;
 import io.activej.promise.Promise;
 import io.activej.service.ServiceGraphModule;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static io.activej.config.converter.ConfigConverters.ofInteger;
 
@@ -21,6 +24,8 @@ public class DatastreamBenchmark extends Launcher {
 	private static final int TOTAL_ELEMENTS = 100_000_000;
 	private static final int WARMUP_ROUNDS = 3;
 	private static final int BENCHMARK_ROUNDS = 10;
+	private static final int BATCH_SIZE = 256;
+	private static final int STAGES = 4;
 
 	static final class IntegerStreamSupplier extends AbstractStreamSupplier<Integer> {
 		private Integer integer;
@@ -40,6 +45,32 @@ public class DatastreamBenchmark extends Launcher {
 		}
 	}
 
+	static final class BatchedIntegerStreamSupplier extends AbstractStreamSupplier<Integer> {
+		private final List<Integer> batch;
+		private final int batchSize;
+		private final int limit;
+		private int integer;
+
+		public BatchedIntegerStreamSupplier(int limit, int batchSize) {
+			this.batch = new ArrayList<>(batchSize);
+			this.batchSize = batchSize;
+			this.limit = limit;
+		}
+
+		@Override
+		protected void onResumed() {
+			while (integer < limit) {
+				int batchEnd = Math.min(limit, integer + batchSize);
+				while (integer < batchEnd) {
+					batch.add(++integer);
+				}
+				sendAll(batch);
+				batch.clear();
+			}
+			sendEndOfStream();
+		}
+	}
+
 	//region fields
 	@Inject
 	Eventloop eventloop;
@@ -95,23 +126,35 @@ public class DatastreamBenchmark extends Launcher {
 	private int warmupRounds;
 	private int benchmarkRounds;
 	private int totalElements;
+	private int batchSize;
+	private int stages;
 
 	@Override
 	protected void onStart() {
 		warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
 		benchmarkRounds = config.get(ofInteger(), "benchmark.benchmarkRounds", BENCHMARK_ROUNDS);
 		totalElements = config.get(ofInteger(), "benchmark.totalElements", TOTAL_ELEMENTS);
+		batchSize = config.get(ofInteger(), "benchmark.batchSize", BATCH_SIZE);
+		stages = config.get(ofInteger(), "benchmark.stages", STAGES);
 	}
 
 	@Override
 	protected void run() throws Exception {
+		System.out.println("Benchmarking item by item streaming ...");
+		benchmark(() -> inputProvider.get());
+
+		System.out.println("Benchmarking batched streaming, batch size: " + batchSize + " ...");
+		benchmark(() -> new BatchedIntegerStreamSupplier(totalElements, batchSize));
+	}
+
+	private void benchmark(Supplier<StreamSupplier<Integer>> inputSupplier) throws Exception {
 		long time = 0;
 		long bestTime = -1;
 		long worstTime = -1;
 
 		System.out.println("Warming up ...");
 		for (int i = 0; i < warmupRounds; i++) {
-			long roundTime = round();
+			long roundTime = round(inputSupplier);
 			long rps = totalElements * 1000L / roundTime;
 			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; OPS : " + rps);
 		}
@@ -119,7 +162,7 @@ public class DatastreamBenchmark extends Launcher {
 		System.out.println("Start benchmarking...");
 
 		for (int i = 0; i < benchmarkRounds; i++) {
-			long roundTime = round();
+			long roundTime = round(inputSupplier);
 
 			time += roundTime;
 
@@ -140,17 +183,17 @@ public class DatastreamBenchmark extends Launcher {
 				bestTime + "ms; Worst time: " + worstTime + "ms; Operations per second: " + requestsPerSecond);
 	}
 
-	private long round() throws Exception {
-		return eventloop.submit(this::roundCall).get();
+	private long round(Supplier<StreamSupplier<Integer>> inputSupplier) throws Exception {
+		return eventloop.submit(() -> roundCall(inputSupplier.get())).get();
 	}
 
-	private Promise<Long> roundCall() {
-		StreamSupplier<Integer> input = inputProvider.get();
-		StreamFilter<Integer, Integer> mapper = mapperProvider.get();
+	private Promise<Long> roundCall(StreamSupplier<Integer> input) {
+		for (int i = 0; i < stages; i++) {
+			input = input.transformWith(mapperProvider.get());
+		}
 		StreamConsumer<Integer> output = outputProvider.get();
 		long start = System.currentTimeMillis();
 		return input
-				.transformWith(mapper)
 				.streamTo(output)
 				.map($ -> System.currentTimeMillis() - start);
 	}
@@ -0,0 +1,157 @@
+package io.activej.datastream;
+
+import io.activej.config.Config;
+import io.activej.datastream.processor.StreamReducer;
+import io.activej.datastream.processor.StreamReducers;
+import io.activej.eventloop.Eventloop;
+import io.activej.inject.annotation.Inject;
+import io.activej.inject.annotation.Provides;
+import io.activej.inject.module.Module;
+import io.activej.launcher.Launcher;
+import io.activej.promise.Promise;
+import io.activej.service.ServiceGraphModule;
+
+import java.util.function.Function;
+
+import static io.activej.config.converter.ConfigConverters.ofInteger;
+
+/**
+ * Merges sorted streams of integers with a {@link StreamReducer},
+ * comparing a loser tree with a binary heap for different numbers of inputs.
+ * <p>
+ * Each input supplies runs of {@code benchmark.runLength} consecutive keys
+ * interleaved with the runs of other inputs, a run length of 1 interleaves single keys.
+ */
+@SuppressWarnings("WeakerAccess")
+public class StreamReducerBenchmark extends Launcher {
+	private static final int TOTAL_ELEMENTS = 20_000_000;
+	private static final int[] INPUTS = {2, 10, 100, 1000};
+	private static final int[] RUN_LENGTHS = {1, 100};
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int BENCHMARK_ROUNDS = 5;
+
+	static final class RunsStreamSupplier extends AbstractStreamSupplier<Integer> {
+		private final int index;
+		private final int inputs;
+		private final int runLength;
+		private final int limit;
+		private int count;
+
+		public RunsStreamSupplier(int index, int inputs, int runLength, int limit) {
+			this.index = index;
+			this.inputs = inputs;
+			this.runLength = runLength;
+			this.limit = limit;
+		}
+
+		@Override
+		protected void onResumed() {
+			while (count < limit && isReady()) {
+				int run = count / runLength;
+				send((run * inputs + index) * runLength + count % runLength);
+				count++;
+			}
+			if (count == limit) {
+				sendEndOfStream();
+			}
+		}
+	}
+
+	//region fields
+	@Inject
+	Eventloop eventloop;
+
+	@Inject
+	Config config;
+
+	@Provides
+	Eventloop eventloop() {
+		return Eventloop.create().withCurrentThread();
+	}
+
+	@Provides
+	Config config() {
+		return Config.create()
+				.overrideWith(Config.ofSystemProperties("config"));
+	}
+	//endregion
+
+	@Override
+	protected Module getModule() {
+		return ServiceGraphModule.create();
+	}
+
+	private int warmupRounds;
+	private int benchmarkRounds;
+	private int totalElements;
+
+	@Override
+	protected void onStart() {
+		warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
+		benchmarkRounds = config.get(ofInteger(), "benchmark.benchmarkRounds", BENCHMARK_ROUNDS);
+		totalElements = config.get(ofInteger(), "benchmark.totalElements", TOTAL_ELEMENTS);
+	}
+
+	@Override
+	protected void run() throws Exception {
+		for (int runLength : RUN_LENGTHS) {
+			for (int inputs : INPUTS) {
+				for (boolean loserTree : new boolean[]{false, true}) {
+					System.out.println("Benchmarking " + (loserTree ? "loser tree" : "binary heap") +
+							", inputs: " + inputs + ", run length: " + runLength + " ...");
+					benchmark(inputs, runLength, loserTree);
+				}
+			}
+		}
+	}
+
+	private void benchmark(int inputs, int runLength, boolean loserTree) throws Exception {
+		long time = 0;
+		long bestTime = -1;
+		long worstTime = -1;
+
+		for (int i = 0; i < warmupRounds; i++) {
+			round(inputs, runLength, loserTree);
+		}
+
+		for (int i = 0; i < benchmarkRounds; i++) {
+			long roundTime = round(inputs, runLength, loserTree);
+
+			time += roundTime;
+
+			if (bestTime == -1 || roundTime < bestTime) {
+				bestTime = roundTime;
+			}
+
+			if (worstTime == -1 || roundTime > worstTime) {
+				worstTime = roundTime;
+			}
+		}
+		double avgTime = (double) time / benchmarkRounds;
+		long requestsPerSecond = (long) (totalElements / avgTime * 1000);
+		System.out.println("Time: " + time + "ms; Average time: " + avgTime + "ms; Best time: " +
+				bestTime + "ms; Worst time: " + worstTime + "ms; Operations per second: " + requestsPerSecond);
+	}
+
+	private long round(int inputs, int runLength, boolean loserTree) throws Exception {
+		return eventloop.submit(() -> roundCall(inputs, runLength, loserTree)).get();
+	}
+
+	private Promise<Long> roundCall(int inputs, int runLength, boolean loserTree) {
+		StreamReducer<Integer, Integer, Void> reducer = StreamReducer.<Integer, Integer, Void>create()
+				.withLoserTree(loserTree);
+		for (int i = 0; i < inputs; i++) {
+			new RunsStreamSupplier(i, inputs, runLength, totalElements / inputs)
+					.streamTo(reducer.newInput(Function.identity(), StreamReducers.mergeReducer()));
+		}
+		long start = System.currentTimeMillis();
+		return reducer.getOutput()
+				.streamTo(StreamConsumer.skip())
+				.map($ -> System.currentTimeMillis() - start);
+	}
+
+	public static void main(String[] args) throws Exception {
+		StreamReducerBenchmark benchmark = new StreamReducerBenchmark();
+		benchmark.launch(args);
+	}
+}
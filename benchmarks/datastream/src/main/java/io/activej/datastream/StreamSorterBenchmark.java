@@ -0,0 +1,198 @@
+package io.activej.datastream;
+
+import io.activej.config.Config;
+import io.activej.csp.process.frames.FrameFormats;
+import io.activej.datastream.processor.StreamSorter;
+import io.activej.datastream.processor.StreamSorterStorageImpl;
+import io.activej.eventloop.Eventloop;
+import io.activej.inject.annotation.Inject;
+import io.activej.inject.annotation.Provides;
+import io.activej.inject.module.Module;
+import io.activej.launcher.Launcher;
+import io.activej.promise.Promise;
+import io.activej.service.ServiceGraphModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static io.activej.config.converter.ConfigConverters.ofInteger;
+import static io.activej.config.converter.ConfigConverters.ofLong;
+import static io.activej.serializer.BinarySerializers.LONG_SERIALIZER;
+
+/**
+ * Sorts a stream of random {@code long} records using an external storage.
+ * <p>
+ * The default number of records is kept small,
+ * set {@code -Dconfig.benchmark.totalElements=2000000000} to sort billions of records
+ */
+@SuppressWarnings("WeakerAccess")
+public class StreamSorterBenchmark extends Launcher {
+	private static final long TOTAL_ELEMENTS = 50_000_000L;
+	private static final int ITEMS_IN_MEMORY = 5_000_000;
+	private static final int MAX_MERGE_FAN_IN = 16;
+	private static final int WARMUP_ROUNDS = 1;
+	private static final int BENCHMARK_ROUNDS = 3;
+
+	static final class RandomLongStreamSupplier extends AbstractStreamSupplier<Long> {
+		private final long limit;
+		private long count;
+		private long state = 0x9E3779B97F4A7C15L;
+
+		public RandomLongStreamSupplier(long limit) {
+			this.limit = limit;
+		}
+
+		@Override
+		protected void onResumed() {
+			while (count < limit && isReady()) {
+				count++;
+				state ^= state << 13;
+				state ^= state >>> 7;
+				state ^= state << 17;
+				send(state);
+			}
+			if (count == limit) {
+				sendEndOfStream();
+			}
+		}
+	}
+
+	//region fields
+	@Inject
+	Eventloop eventloop;
+
+	@Inject
+	Config config;
+
+	@Provides
+	Eventloop eventloop() {
+		return Eventloop.create().withCurrentThread();
+	}
+
+	@Provides
+	Config config() {
+		return Config.create()
+				.overrideWith(Config.ofSystemProperties("config"));
+	}
+	//endregion
+
+	@Override
+	protected Module getModule() {
+		return ServiceGraphModule.create();
+	}
+
+	private int warmupRounds;
+	private int benchmarkRounds;
+	private long totalElements;
+	private int itemsInMemory;
+	private int maxMergeFanIn;
+
+	private ExecutorService ioExecutor;
+	private ForkJoinPool sortingPool;
+	private Path storagePath;
+
+	@Override
+	protected void onStart() throws IOException {
+		warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
+		benchmarkRounds = config.get(ofInteger(), "benchmark.benchmarkRounds", BENCHMARK_ROUNDS);
+		totalElements = config.get(ofLong(), "benchmark.totalElements", TOTAL_ELEMENTS);
+		itemsInMemory = config.get(ofInteger(), "benchmark.itemsInMemory", ITEMS_IN_MEMORY);
+		maxMergeFanIn = config.get(ofInteger(), "benchmark.maxMergeFanIn", MAX_MERGE_FAN_IN);
+
+		ioExecutor = Executors.newCachedThreadPool();
+		sortingPool = new ForkJoinPool();
+		storagePath = Files.createTempDirectory("sorter-benchmark");
+	}
+
+	@Override
+	protected void run() throws Exception {
+		System.out.println("Benchmarking single threaded sort ...");
+		benchmark(sorter -> sorter);
+
+		System.out.println("Benchmarking parallel sort with key prefixes, parallelism: " + sortingPool.getParallelism() +
+				", max merge fan-in: " + maxMergeFanIn + " ...");
+		benchmark(sorter -> sorter
+				.withSortingExecutor(sortingPool)
+				.withParallelSort(true)
+				.withKeyPrefix(Long::longValue)
+				.withMaxPendingRuns(sortingPool.getParallelism())
+				.withMaxMergeFanIn(maxMergeFanIn));
+	}
+
+	@Override
+	protected void onStop() throws IOException {
+		ioExecutor.shutdown();
+		sortingPool.shutdown();
+		try (Stream<Path> files = Files.list(storagePath)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(storagePath);
+	}
+
+	private void benchmark(UnaryOperator<StreamSorter<Long, Long>> sorterConfigurer) throws Exception {
+		long time = 0;
+		long bestTime = -1;
+		long worstTime = -1;
+
+		System.out.println("Warming up ...");
+		for (int i = 0; i < warmupRounds; i++) {
+			long roundTime = round(sorterConfigurer);
+			long rps = totalElements * 1000L / roundTime;
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; OPS : " + rps);
+		}
+
+		System.out.println("Start benchmarking...");
+
+		for (int i = 0; i < benchmarkRounds; i++) {
+			long roundTime = round(sorterConfigurer);
+
+			time += roundTime;
+
+			if (bestTime == -1 || roundTime < bestTime) {
+				bestTime = roundTime;
+			}
+
+			if (worstTime == -1 || roundTime > worstTime) {
+				worstTime = roundTime;
+			}
+
+			long rps = totalElements * 1000L / roundTime;
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; OPS : " + rps);
+		}
+		double avgTime = (double) time / benchmarkRounds;
+		long requestsPerSecond = (long) (totalElements / avgTime * 1000);
+		System.out.println("Time: " + time + "ms; Average time: " + avgTime + "ms; Best time: " +
+				bestTime + "ms; Worst time: " + worstTime + "ms; Operations per second: " + requestsPerSecond);
+	}
+
+	private long round(UnaryOperator<StreamSorter<Long, Long>> sorterConfigurer) throws Exception {
+		return eventloop.submit(() -> roundCall(sorterConfigurer)).get();
+	}
+
+	private Promise<Long> roundCall(UnaryOperator<StreamSorter<Long, Long>> sorterConfigurer) {
+		StreamSorterStorageImpl<Long> storage = StreamSorterStorageImpl.create(ioExecutor, LONG_SERIALIZER,
+				FrameFormats.sizePrefixed(), storagePath);
+		StreamSorter<Long, Long> sorter = sorterConfigurer.apply(
+				StreamSorter.create(storage, Function.identity(), Comparator.naturalOrder(), false, itemsInMemory));
+		long start = System.currentTimeMillis();
+		return new RandomLongStreamSupplier(totalElements)
+				.transformWith(sorter)
+				.streamTo(StreamConsumer.skip())
+				.map($ -> System.currentTimeMillis() - start);
+	}
+
+	public static void main(String[] args) throws Exception {
+		StreamSorterBenchmark benchmark = new StreamSorterBenchmark();
+		benchmark.launch(args);
+	}
+}
@@ -0,0 +1,81 @@
+package io.activej.eventloop;
+
+import io.activej.eventloop.concurrent.ConcurrentTaskQueue;
+import io.activej.eventloop.concurrent.ConcurrentTaskQueueLinked;
+import io.activej.eventloop.concurrent.ConcurrentTaskQueueMpsc;
+import io.activej.eventloop.concurrent.ConcurrentTaskQueueMpscChunked;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures throughput of tasks submitted to a running {@link Eventloop}
+ * from multiple producer threads with different queues of concurrent tasks.
+ * <p>
+ * Run with {@code -t <threads>} to change the number of producers.
+ */
+@State(Scope.Benchmark)
+public class ConcurrentTaskQueueBenchmark {
+	@Param({"linked", "mpsc", "mpscChunked"})
+	String queueType;
+
+	private Eventloop eventloop;
+	private Thread eventloopThread;
+	private final LongAdder executed = new LongAdder();
+	private final Runnable task = executed::increment;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ConcurrentTaskQueue queue;
+		switch (queueType) {
+			case "linked":
+				queue = ConcurrentTaskQueueLinked.create();
+				break;
+			case "mpsc":
+				queue = ConcurrentTaskQueueMpsc.create();
+				break;
+			case "mpscChunked":
+				queue = ConcurrentTaskQueueMpscChunked.create();
+				break;
+			default:
+				throw new IllegalArgumentException(queueType);
+		}
+		eventloop = Eventloop.create().withConcurrentTaskQueue(queue);
+		eventloop.keepAlive(true);
+		eventloopThread = new Thread(eventloop);
+		eventloopThread.start();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		eventloop.execute(() -> eventloop.keepAlive(false));
+		eventloopThread.join();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void submit() {
+		eventloop.execute(task);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(ConcurrentTaskQueueBenchmark.class.getSimpleName())
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.Throughput)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
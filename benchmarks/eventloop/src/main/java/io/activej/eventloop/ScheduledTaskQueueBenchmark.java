@@ -0,0 +1,90 @@
+package io.activej.eventloop;
+
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.eventloop.schedule.ScheduledTaskQueue;
+import io.activej.eventloop.schedule.ScheduledTaskQueueHeap;
+import io.activej.eventloop.schedule.ScheduledTaskQueueTimingWheel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scheduled task queues under a timeout-like workload:
+ * most of the scheduled tasks are cancelled before they are due,
+ * while time advances by a millisecond per each batch of operations.
+ */
+@State(Scope.Benchmark)
+public class ScheduledTaskQueueBenchmark {
+	private static final Runnable NOOP = () -> {};
+
+	@Param({"heap", "wheel"})
+	String queueType;
+
+	@Param({"10000", "1000000"})
+	int pendingTasks;
+
+	@Param({"30000"})
+	int timeoutMillis;
+
+	private ScheduledTaskQueue queue;
+	private ScheduledRunnable[] ring;
+	private int position;
+	private long now;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		queue = queueType.equals("heap") ? ScheduledTaskQueueHeap.create() : ScheduledTaskQueueTimingWheel.create();
+		ring = new ScheduledRunnable[pendingTasks];
+		now = System.currentTimeMillis();
+		for (int i = 0; i < pendingTasks; i++) {
+			ring[i] = schedule();
+		}
+		position = 0;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(1000)
+	public void scheduleAndCancel(Blackhole blackhole) {
+		for (int i = 0; i < 1000; i++) {
+			ring[position].cancel();
+			ring[position] = schedule();
+			if (++position == ring.length) {
+				position = 0;
+			}
+		}
+		now++;
+		ScheduledRunnable task;
+		while ((task = queue.poll(now)) != null) {
+			blackhole.consume(task);
+		}
+		blackhole.consume(queue.getNextTimestamp());
+	}
+
+	private ScheduledRunnable schedule() {
+		ScheduledRunnable task = ScheduledRunnable.create(now + ThreadLocalRandom.current().nextInt(timeoutMillis), NOOP);
+		queue.add(task, now);
+		return task;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(ScheduledTaskQueueBenchmark.class.getSimpleName())
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -14,13 +14,25 @@ import io.activej.promise.SettablePromise;
 import io.activej.service.ServiceGraphModule;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 
 import static io.activej.config.converter.ConfigConverters.*;
+import static io.activej.http.HttpHeaders.*;
 import static io.activej.inject.module.Modules.combine;
 import static java.lang.Math.min;
 
+/**
+ * Measures throughput of an HTTP server under a keep-alive workload of GET requests with typical browser headers.
+ * <p>
+ * Besides requests per second, reports bytes allocated by the server thread per request.
+ * Set {@code -Dconfig.server.lazyHeaders=true} to compare with lazy parsing of request headers.
+ */
 public class HttpServerWorkloadBenchmark extends Launcher {
+	private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private static final HttpHeader X_REQUEST_ID = HttpHeaders.of("X-Request-Id");
+
 	private static final int KEEP_ALIVE = 30;
 	private static final int TOTAL_REQUESTS = 1_000_000;
 	private static final int WARMUP_ROUNDS = 3;
@@ -34,6 +46,7 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 	private int measureRounds;
 	private int activeRequestsMax;
 	private int activeRequestsMin;
+	private long allocatedBytes;
 
 	@Provides
 	@Named("server")
@@ -62,10 +75,11 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 
 	@Provides
 	AsyncHttpServer server() {
-		return AsyncHttpServer.create(serverEventloop,
-				request ->
-						HttpResponse.ok200().withPlainText("Response!!"))
+		AsyncHttpServer server = AsyncHttpServer.create(serverEventloop,
+						request ->
+								HttpResponse.ok200().withPlainText("Response!!"))
 				.withListenAddresses(config.get(ofList(ofInetSocketAddress()), "address"));
+		return config.get(ofBoolean(), "server.lazyHeaders", false) ? server.withLazyHeaders() : server;
 	}
 
 	@Provides
@@ -111,9 +125,12 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 		for (int i = 0; i < warmupRounds; i++) {
 			long roundTime = round();
 			long rps = totalRequests * 1000L / roundTime;
-			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; RPS : " + rps);
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; RPS : " + rps +
+					"; Allocated: " + allocatedBytes / totalRequests + " bytes/request");
 		}
 
+		long allocatedAllRounds = 0;
+
 		System.out.println("Start benchmarking GET Request");
 		for (int i = 0; i < measureRounds; i++) {
 			long roundTime = round();
@@ -127,18 +144,30 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 				worstTime = roundTime;
 			}
 
+			allocatedAllRounds += allocatedBytes;
+
 			long rps = totalRequests * 1000L / roundTime;
-			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + " ms; RPS : " + rps);
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + " ms; RPS : " + rps +
+					"; Allocated: " + allocatedBytes / totalRequests + " bytes/request");
 		}
 
 		double avgTime = (double) timeAllRounds / measureRounds;
 		long requestsPerSecond = (long) (totalRequests / avgTime * 1000);
 		System.out.println("Time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
-				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + requestsPerSecond);
+				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + requestsPerSecond +
+				"; Allocated by server: " + allocatedAllRounds / ((long) totalRequests * measureRounds) + " bytes/request");
 	}
 
 	private long round() throws Exception {
-		return clientEventloop.submit(this::roundGet).get();
+		long allocatedBefore = serverAllocatedBytes();
+		long roundTime = clientEventloop.submit(this::roundGet).get();
+		allocatedBytes = serverAllocatedBytes() - allocatedBefore;
+		return roundTime;
+	}
+
+	private long serverAllocatedBytes() {
+		Thread serverThread = serverEventloop.getEventloopThread();
+		return serverThread != null ? THREAD_MX_BEAN.getThreadAllocatedBytes(serverThread.getId()) : 0;
 	}
 
 	int sent;
@@ -183,7 +212,13 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 	}
 
 	private void doGet(Callback<HttpResponse> callback) {
-		client.request(HttpRequest.get(address)).run(callback);
+		client.request(HttpRequest.get(address)
+						.withHeader(USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0")
+						.withHeader(ACCEPT, "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+						.withHeader(ACCEPT_LANGUAGE, "en-US,en;q=0.5")
+						.withHeader(ACCEPT_ENCODING, "gzip, deflate, br")
+						.withHeader(X_REQUEST_ID, "f81d4fae-7dec-11d0-a765-00a0c91e6bf6"))
+				.run(callback);
 	}
 
 	public static void main(String[] args) throws Exception {
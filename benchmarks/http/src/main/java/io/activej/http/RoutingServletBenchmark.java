@@ -0,0 +1,112 @@
+package io.activej.http;
+
+import io.activej.promise.Promise;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.activej.http.HttpMethod.GET;
+import static io.activej.http.HttpMethod.POST;
+
+/**
+ * Compares routing of requests by a {@link RoutingServlet} tree and by its compiled form
+ * over a large table of routes, each route having static parts as well as path parameters.
+ */
+@State(Scope.Benchmark)
+public class RoutingServletBenchmark {
+	private static final int REQUESTS = 1024;
+
+	@Param({"tree", "compiled"})
+	String mode;
+
+	@Param({"100", "5000"})
+	int resources;
+
+	private AsyncServlet servlet;
+	private HttpRequest[] requests;
+	private int[] positions;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Promise<HttpResponse> response = Promise.of(HttpResponse.ok200());
+		AsyncServlet plain = request -> response;
+		AsyncServlet byId = request -> {
+			request.getPathParameter("id");
+			return response;
+		};
+		AsyncServlet byIdAndChild = request -> {
+			request.getPathParameter("id");
+			request.getPathParameter("child");
+			return response;
+		};
+
+		RoutingServlet routingServlet = RoutingServlet.create();
+		for (int i = 0; i < resources; i++) {
+			String prefix = "/api/v" + (i % 3) + "/resource" + i;
+			routingServlet
+					.map(GET, prefix, plain)
+					.map(POST, prefix, plain)
+					.map(GET, prefix + "/:id", byId)
+					.map(GET, prefix + "/:id/children/:child", byIdAndChild)
+					.map(GET, prefix + "/:id/settings/general", byId)
+					.map(GET, prefix + "/static/*", plain);
+		}
+		servlet = mode.equals("compiled") ? routingServlet.compile() : routingServlet;
+
+		Random random = new Random(0);
+		requests = new HttpRequest[REQUESTS];
+		positions = new int[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++) {
+			int resource = random.nextInt(resources);
+			String prefix = "http://example.com/api/v" + (resource % 3) + "/resource" + resource;
+			String url;
+			switch (random.nextInt(4)) {
+				case 0:
+					url = prefix + "/" + random.nextInt(1_000_000);
+					break;
+				case 1:
+					url = prefix + "/" + random.nextInt(1_000_000) + "/children/" + random.nextInt(1_000);
+					break;
+				case 2:
+					url = prefix + "/" + random.nextInt(1_000_000) + "/settings/general";
+					break;
+				default:
+					url = prefix + "/static/css/main.css";
+					break;
+			}
+			requests[i] = HttpRequest.get(url);
+			positions[i] = requests[i].getPos();
+		}
+	}
+
+	@Benchmark
+	public void route(Blackhole blackhole) throws Exception {
+		int i = index++ & (REQUESTS - 1);
+		HttpRequest request = requests[i];
+		request.setPos(positions[i]);
+		blackhole.consume(servlet.serveAsync(request));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(RoutingServletBenchmark.class.getSimpleName())
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,123 @@
+package io.activej.rpc;
+
+import io.activej.async.callback.Callback;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import io.activej.rpc.client.RpcClient;
+import io.activej.rpc.server.RpcServer;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static io.activej.rpc.client.sender.RpcStrategies.server;
+import static java.lang.Math.min;
+
+/**
+ * Measures a cost of a single RPC call between a client and a server running in the same eventloop.
+ * <p>
+ * Allocations per call are reported by a GC profiler as {@code gc.alloc.rate.norm},
+ * which includes allocations of both a client and a server.
+ */
+@State(Scope.Benchmark)
+public class RpcClientAllocationBenchmark {
+	private static final int REQUESTS = 100_000;
+	private static final int PORT = 25566;
+
+	@Param({"100", "10000"})
+	int activeRequests;
+
+	private Eventloop eventloop;
+	private Thread eventloopThread;
+	private RpcServer rpcServer;
+	private RpcClient rpcClient;
+
+	private int sent;
+	private int completed;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		eventloop = Eventloop.create();
+		eventloop.keepAlive(true);
+		eventloopThread = new Thread(eventloop);
+		eventloopThread.start();
+
+		rpcServer = RpcServer.create(eventloop)
+				.withMessageTypes(Integer.class)
+				.withHandler(Integer.class, Promise::of)
+				.withListenPort(PORT);
+		rpcClient = RpcClient.create(eventloop)
+				.withMessageTypes(Integer.class)
+				.withStrategy(server(new InetSocketAddress(PORT)));
+
+		eventloop.submit(() -> {
+			rpcServer.listen();
+			return rpcClient.start();
+		}).get();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException, ExecutionException {
+		eventloop.submit(() -> rpcClient.stop()
+				.then(rpcServer::close)
+				.whenComplete(() -> eventloop.keepAlive(false))).get();
+		eventloopThread.join();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void calls() throws ExecutionException, InterruptedException {
+		eventloop.submit(this::round).get();
+	}
+
+	private Promise<Void> round() {
+		SettablePromise<Void> promise = new SettablePromise<>();
+		sent = 0;
+		completed = 0;
+
+		Callback<Integer> callback = new Callback<Integer>() {
+			@Override
+			public void accept(Integer result, @Nullable Exception e) {
+				if (e != null) {
+					promise.trySetException(e);
+					return;
+				}
+				if (++completed == REQUESTS) {
+					promise.set(null);
+				} else if (sent != REQUESTS) {
+					rpcClient.sendRequest(sent++, this);
+				}
+			}
+		};
+
+		for (int i = 0; i < min(activeRequests, REQUESTS); i++) {
+			rpcClient.sendRequest(sent++, callback);
+		}
+		return promise;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(RpcClientAllocationBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.forks(1)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(2L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.Throughput)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -21,6 +21,7 @@ import io.activej.common.function.FunctionEx;
 import io.activej.common.initializer.WithInitializer;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
+import io.activej.csp.file.ChannelFileSupplier;
 import io.activej.fs.ActiveFs;
 import io.activej.fs.exception.FileNotFoundException;
 import io.activej.fs.exception.FsException;
@@ -88,9 +89,15 @@ public final class ActiveFsServlet implements WithInitializer<ActiveFsServlet> {
 					long offset = getNumberParameterOr(request, "offset", 0);
 					long limit = getNumberParameterOr(request, "limit", Long.MAX_VALUE);
 					return fs.download(name, offset, limit)
-							.map(res -> HttpResponse.ok200()
-											.withHeader(ACCEPT_RANGES, "bytes")
-											.withBodyStream(res),
+							.map(res -> {
+										HttpResponse response = HttpResponse.ok200()
+												.withHeader(ACCEPT_RANGES, "bytes");
+										if (res instanceof ChannelFileSupplier) {
+											// a known length allows file contents to be sent without chunked encoding
+											response.addHeader(CONTENT_LENGTH, Long.toString(((ChannelFileSupplier) res).getRemaining()));
+										}
+										return response.withBodyStream(res);
+									},
 									errorResponseFn());
 				})
 				.map(GET, "/" + LIST, request -> {
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An open-addressing hash table of callbacks of active requests, keyed by request cookies.
+ * <p>
+ * Cookies are not boxed and no entries are allocated per request.
+ * As cookies are sequential, a cookie itself is used as a hash,
+ * so that requests which are in flight at the same time occupy adjacent slots.
+ * Collisions are resolved by linear probing, removed entries are backward-shifted.
+ */
+final class ActiveRequests {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int[] cookies = new int[INITIAL_CAPACITY];
+	private @Nullable Callback<?>[] callbacks = new Callback<?>[INITIAL_CAPACITY];
+	private int mask = INITIAL_CAPACITY - 1;
+	private int size;
+
+	public void put(int cookie, Callback<?> cb) {
+		if (size >= (mask + 1) >>> 1) {
+			resize((mask + 1) << 1);
+		}
+		int slot = cookie & mask;
+		while (callbacks[slot] != null) {
+			if (cookies[slot] == cookie) {
+				callbacks[slot] = cb;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		cookies[slot] = cookie;
+		callbacks[slot] = cb;
+		size++;
+	}
+
+	public @Nullable Callback<?> remove(int cookie) {
+		int slot = cookie & mask;
+		Callback<?> cb;
+		while ((cb = callbacks[slot]) != null) {
+			if (cookies[slot] == cookie) {
+				shiftBack(slot);
+				size--;
+				return cb;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes all the callbacks from this table
+	 *
+	 * @return removed callbacks
+	 */
+	public List<Callback<?>> removeAll() {
+		List<Callback<?>> result = new ArrayList<>(size);
+		for (int i = 0; i < callbacks.length; i++) {
+			Callback<?> cb = callbacks[i];
+			if (cb != null) {
+				result.add(cb);
+				callbacks[i] = null;
+			}
+		}
+		size = 0;
+		return result;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private void shiftBack(int slot) {
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (callbacks[next] == null) break;
+			int ideal = cookies[next] & mask;
+			if (((next - ideal) & mask) >= ((next - slot) & mask)) {
+				cookies[slot] = cookies[next];
+				callbacks[slot] = callbacks[next];
+				slot = next;
+			}
+		}
+		callbacks[slot] = null;
+	}
+
+	private void resize(int capacity) {
+		int[] oldCookies = cookies;
+		Callback<?>[] oldCallbacks = callbacks;
+		cookies = new int[capacity];
+		callbacks = new Callback<?>[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < oldCallbacks.length; i++) {
+			Callback<?> cb = oldCallbacks[i];
+			if (cb == null) continue;
+			int slot = oldCookies[i] & mask;
+			while (callbacks[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			cookies[slot] = oldCookies[i];
+			callbacks[slot] = cb;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ActiveRequests{size=" + size + ", capacity=" + (mask + 1) + '}';
+	}
+}
@@ -114,6 +114,7 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 	private MemSize defaultPacketSize = DEFAULT_PACKET_SIZE;
 	private @Nullable FrameFormat frameFormat;
 	private Duration autoFlushInterval = Duration.ZERO;
+	private int maxBatchSize = Integer.MAX_VALUE;
 	private Duration keepAliveInterval = Duration.ZERO;
 
 	private List<Class<?>> messageTypes;
@@ -231,6 +232,21 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 		return this;
 	}
 
+	/**
+	 * Sets a maximum number of requests that are batched together.
+	 * Requests sent within an auto flush interval (by default, within a single eventloop tick)
+	 * are serialized into a single buffer and are written to a socket at once.
+	 * A batch is flushed earlier if it reaches a default packet size or a given number of requests.
+	 *
+	 * @param maxBatchSize a maximum number of requests in a batch
+	 * @return the RPC client with batching settings
+	 */
+	public RpcClient withMaxBatchSize(int maxBatchSize) {
+		Checks.checkArgument(maxBatchSize > 0, "Max batch size should be positive");
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+
 	public RpcClient withKeepAlive(Duration keepAliveInterval) {
 		this.keepAliveInterval = keepAliveInterval;
 		return this;
@@ -358,7 +374,7 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 							asyncTcpSocketImpl :
 							wrapClientSocket(asyncTcpSocketImpl, sslContext, sslExecutor);
 					RpcStream stream = new RpcStream(socket, serializer, defaultPacketSize,
-							autoFlushInterval, frameFormat, false); // , statsSerializer, statsDeserializer, statsCompressor, statsDecompressor);
+							autoFlushInterval, maxBatchSize, frameFormat, false); // , statsSerializer, statsDeserializer, statsCompressor, statsDecompressor);
 					RpcClientConnection connection = new RpcClientConnection(eventloop, this, address, stream, keepAliveInterval.toMillis());
 					stream.setListener(connection);
 
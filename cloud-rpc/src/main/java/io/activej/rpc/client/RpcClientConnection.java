@@ -38,9 +38,6 @@ import org.slf4j.Logger;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static io.activej.common.Checks.checkState;
@@ -61,7 +58,7 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 	private final RpcClient rpcClient;
 	private final RpcStream stream;
 	private final InetSocketAddress address;
-	private final Map<Integer, Callback<?>> activeRequests = new HashMap<>();
+	private final ActiveRequests activeRequests = new ActiveRequests();
 
 	private ArrayList<RpcMessage> initialBuffer = new ArrayList<>();
 
@@ -315,6 +312,15 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		overloaded = true;
 	}
 
+	@Override
+	public void onSenderFlush(int messages, int bytes) {
+		// jmx
+		connectionStats.getBatchSize().recordValue(messages);
+		connectionStats.getBatchBytes().recordValue(bytes);
+		rpcClient.getGeneralRequestsStats().getBatchSize().recordValue(messages);
+		rpcClient.getGeneralRequestsStats().getBatchBytes().recordValue(bytes);
+	}
+
 	private void doClose() {
 		if (isClosed()) return;
 		downstreamDataAcceptor = null;
@@ -322,11 +328,8 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		rpcClient.removeConnection(address);
 
 		while (!activeRequests.isEmpty()) {
-			for (Integer cookie : new HashSet<>(activeRequests.keySet())) {
-				Callback<?> cb = activeRequests.remove(cookie);
-				if (cb != null) {
-					cb.accept(null, new AsyncCloseException("Connection closed"));
-				}
+			for (Callback<?> cb : activeRequests.removeAll()) {
+				cb.accept(null, new AsyncCloseException("Connection closed"));
 			}
 		}
 	}
@@ -34,6 +34,8 @@ public final class RpcRequestStats implements JmxRefreshable, WithInitializer<Rp
 	private final EventStats expiredRequests;
 	private final ValueStats responseTime;
 	private final ValueStats overdues;
+	private final ValueStats batchSize;
+	private final ValueStats batchBytes;
 	private final ExceptionStats serverExceptions;
 
 	private RpcRequestStats(Duration smoothingWindow) {
@@ -43,6 +45,8 @@ public final class RpcRequestStats implements JmxRefreshable, WithInitializer<Rp
 		expiredRequests = EventStats.create(smoothingWindow);
 		responseTime = ValueStats.create(smoothingWindow).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
 		overdues = ValueStats.create(smoothingWindow).withHistogram(POWERS_OF_TWO).withRate().withUnit("milliseconds");
+		batchSize = ValueStats.create(smoothingWindow).withHistogram(POWERS_OF_TWO).withRate().withUnit("messages");
+		batchBytes = ValueStats.create(smoothingWindow).withHistogram(POWERS_OF_TWO).withUnit("bytes");
 		serverExceptions = ExceptionStats.create();
 	}
 
@@ -58,6 +62,8 @@ public final class RpcRequestStats implements JmxRefreshable, WithInitializer<Rp
 		expiredRequests.refresh(timestamp);
 		responseTime.refresh(timestamp);
 		overdues.refresh(timestamp);
+		batchSize.refresh(timestamp);
+		batchBytes.refresh(timestamp);
 	}
 
 	@JmxAttribute(extraSubAttributes = "totalCount")
@@ -97,6 +103,22 @@ public final class RpcRequestStats implements JmxRefreshable, WithInitializer<Rp
 		return overdues;
 	}
 
+	@JmxAttribute(
+			description = "number of messages which are written to a socket at once",
+			extraSubAttributes = "histogram"
+	)
+	public ValueStats getBatchSize() {
+		return batchSize;
+	}
+
+	@JmxAttribute(
+			description = "size of batches of messages which are written to a socket at once (in bytes)",
+			extraSubAttributes = "histogram"
+	)
+	public ValueStats getBatchBytes() {
+		return batchBytes;
+	}
+
 	@JmxAttribute
 	public ExceptionStats getServerExceptions() {
 		return serverExceptions;
@@ -72,6 +72,15 @@ public final class RpcStream {
 		void onSenderReady(@NotNull StreamDataAcceptor<RpcMessage> acceptor);
 
 		void onSenderSuspended();
+
+		/**
+		 * Called when a batch of serialized messages is flushed to a socket
+		 *
+		 * @param messages a number of messages in a batch
+		 * @param bytes    a size of a batch in bytes
+		 */
+		default void onSenderFlush(int messages, int bytes) {
+		}
 	}
 
 	private final boolean server;
@@ -81,12 +90,26 @@ public final class RpcStream {
 			BinarySerializer<RpcMessage> messageSerializer,
 			MemSize initialBufferSize,
 			Duration autoFlushInterval, @Nullable FrameFormat frameFormat, boolean server) {
+		this(socket, messageSerializer, initialBufferSize, autoFlushInterval, Integer.MAX_VALUE, frameFormat, server);
+	}
+
+	/**
+	 * Messages sent within an auto flush interval are serialized into a single buffer
+	 * and are written to a socket at once. A buffer is flushed earlier
+	 * if it is full or if it contains {@code maxBatchSize} messages.
+	 */
+	public RpcStream(AsyncTcpSocket socket,
+			BinarySerializer<RpcMessage> messageSerializer,
+			MemSize initialBufferSize,
+			Duration autoFlushInterval, int maxBatchSize, @Nullable FrameFormat frameFormat, boolean server) {
 		this.server = server;
 		this.socket = socket;
 
 		ChannelSerializer<RpcMessage> serializer = ChannelSerializer.create(messageSerializer)
 				.withInitialBufferSize(initialBufferSize)
 				.withAutoFlushInterval(autoFlushInterval)
+				.withMaxBatchSize(maxBatchSize)
+				.withFlushListener((messages, bytes) -> listener.onSenderFlush(messages, bytes))
 				.withSerializationErrorHandler((message, e) -> listener.onSerializationError(message, e));
 		ChannelDeserializer<RpcMessage> deserializer = ChannelDeserializer.create(messageSerializer);
 
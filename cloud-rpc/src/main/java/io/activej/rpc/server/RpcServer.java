@@ -48,6 +48,7 @@ import java.util.*;
 
 import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
+import static io.activej.jmx.stats.JmxHistogram.POWERS_OF_TWO;
 import static java.util.Arrays.asList;
 
 /**
@@ -85,6 +86,7 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	private MemSize initialBufferSize = DEFAULT_INITIAL_BUFFER_SIZE;
 	private @Nullable FrameFormat frameFormat;
 	private Duration autoFlushInterval = Duration.ZERO;
+	private int maxBatchSize = Integer.MAX_VALUE;
 
 	private final Map<Class<?>, RpcRequestHandler<?, ?>> handlers = new LinkedHashMap<>();
 	private ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
@@ -104,6 +106,8 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	private final EventStats successfulRequests = EventStats.create(SMOOTHING_WINDOW);
 	private final EventStats failedRequests = EventStats.create(SMOOTHING_WINDOW);
 	private final ValueStats requestHandlingTime = ValueStats.create(SMOOTHING_WINDOW).withUnit("milliseconds");
+	private final ValueStats batchSize = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withRate().withUnit("messages");
+	private final ValueStats batchBytes = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("bytes");
 	private final ExceptionStats lastRequestHandlingException = ExceptionStats.create();
 	private final ExceptionStats lastProtocolError = ExceptionStats.create();
 	private boolean monitoring;
@@ -176,6 +180,21 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 		return this;
 	}
 
+	/**
+	 * Sets a maximum number of responses that are batched together.
+	 * Responses sent within an auto flush interval are serialized into a single buffer
+	 * and are written to a socket at once. A batch is flushed earlier
+	 * if it reaches a default packet size or a given number of responses.
+	 *
+	 * @param maxBatchSize a maximum number of responses in a batch
+	 * @return the RPC server with batching settings
+	 */
+	public RpcServer withMaxBatchSize(int maxBatchSize) {
+		checkArgument(maxBatchSize > 0, "Max batch size should be positive");
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+
 	/**
 	 * Adds a handler for a specified request-response pair.
 	 *
@@ -197,7 +216,7 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	@Override
 	protected void serve(AsyncTcpSocket socket, InetAddress remoteAddress) {
 		RpcStream stream = new RpcStream(socket, serializer, initialBufferSize,
-				autoFlushInterval, frameFormat, true); // , statsSerializer, statsDeserializer, statsCompressor, statsDecompressor);
+				autoFlushInterval, maxBatchSize, frameFormat, true); // , statsSerializer, statsDeserializer, statsCompressor, statsDecompressor);
 		RpcServerConnection connection = new RpcServerConnection(this, remoteAddress, handlers, stream);
 		stream.setListener(connection);
 		add(connection);
@@ -323,6 +342,16 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 		return requestHandlingTime;
 	}
 
+	@JmxAttribute(description = "number of responses which are written to a socket at once", extraSubAttributes = "histogram")
+	public ValueStats getBatchSize() {
+		return batchSize;
+	}
+
+	@JmxAttribute(description = "size of batches of responses which are written to a socket at once (in bytes)", extraSubAttributes = "histogram")
+	public ValueStats getBatchBytes() {
+		return batchBytes;
+	}
+
 	@JmxAttribute(description = "exception that occurred because of business logic error " +
 			"(in RpcRequestHandler implementation)")
 	public ExceptionStats getLastRequestHandlingException() {
@@ -36,6 +36,8 @@ import org.slf4j.LoggerFactory;
 import java.net.InetAddress;
 import java.util.Map;
 
+import static io.activej.jmx.stats.JmxHistogram.POWERS_OF_TWO;
+
 public final class RpcServerConnection implements RpcStream.Listener, JmxRefreshable {
 	private static final Logger logger = LoggerFactory.getLogger(RpcServerConnection.class);
 
@@ -51,6 +53,7 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 	private final InetAddress remoteAddress;
 	private final ExceptionStats lastRequestHandlingException = ExceptionStats.create();
 	private final ValueStats requestHandlingTime = ValueStats.create(RpcServer.SMOOTHING_WINDOW).withUnit("milliseconds");
+	private final ValueStats batchSize = ValueStats.create(RpcServer.SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withRate().withUnit("messages");
 	private final EventStats successfulRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
 	private final EventStats failedRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
 	private boolean monitoring = false;
@@ -149,6 +152,13 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 		stream.receiverSuspend();
 	}
 
+	@Override
+	public void onSenderFlush(int messages, int bytes) {
+		batchSize.recordValue(messages);
+		rpcServer.getBatchSize().recordValue(messages);
+		rpcServer.getBatchBytes().recordValue(bytes);
+	}
+
 	private void sendError(RpcMessage errorMessage, Object messageData, @Nullable Exception e) {
 		downstreamDataAcceptor.accept(errorMessage);
 		lastRequestHandlingException.recordException(e, messageData);
@@ -192,6 +202,11 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 		return requestHandlingTime;
 	}
 
+	@JmxAttribute(extraSubAttributes = "histogram")
+	public ValueStats getBatchSize() {
+		return batchSize;
+	}
+
 	@JmxAttribute
 	public ExceptionStats getLastRequestHandlingException() {
 		return lastRequestHandlingException;
@@ -207,6 +222,7 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 		successfulRequests.refresh(timestamp);
 		failedRequests.refresh(timestamp);
 		requestHandlingTime.refresh(timestamp);
+		batchSize.refresh(timestamp);
 	}
 
 	@Override
@@ -0,0 +1,72 @@
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public final class ActiveRequestsTest {
+
+	@Test
+	public void testPutAndRemove() {
+		ActiveRequests activeRequests = new ActiveRequests();
+		Callback<?> cb1 = (result, e) -> {};
+		Callback<?> cb2 = (result, e) -> {};
+
+		activeRequests.put(1, cb1);
+		activeRequests.put(65, cb2);
+		assertEquals(2, activeRequests.size());
+
+		assertNull(activeRequests.remove(2));
+		assertSame(cb1, activeRequests.remove(1));
+		assertNull(activeRequests.remove(1));
+		assertSame(cb2, activeRequests.remove(65));
+		assertTrue(activeRequests.isEmpty());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(0);
+		ActiveRequests activeRequests = new ActiveRequests();
+		Map<Integer, Callback<?>> expected = new HashMap<>();
+		List<Integer> cookies = new ArrayList<>();
+		int cookie = Integer.MAX_VALUE - 50_000; // cookies overflow during the test
+
+		for (int i = 0; i < 200_000; i++) {
+			if (cookies.isEmpty() || random.nextInt(100) < 52) {
+				cookie++;
+				Callback<?> cb = (result, e) -> {};
+				activeRequests.put(cookie, cb);
+				expected.put(cookie, cb);
+				cookies.add(cookie);
+			} else {
+				int index = random.nextInt(10) == 0 ? random.nextInt(cookies.size()) : 0;
+				Integer removed = cookies.remove(index);
+				assertSame(expected.remove(removed), activeRequests.remove(removed));
+			}
+			assertEquals(expected.size(), activeRequests.size());
+		}
+
+		for (Map.Entry<Integer, Callback<?>> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), activeRequests.remove(entry.getKey()));
+		}
+		assertTrue(activeRequests.isEmpty());
+	}
+
+	@Test
+	public void testRemoveAll() {
+		ActiveRequests activeRequests = new ActiveRequests();
+		Set<Callback<?>> expected = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			Callback<?> cb = (result, e) -> {};
+			activeRequests.put(i * 7, cb);
+			expected.add(cb);
+		}
+
+		assertEquals(expected, new HashSet<>(activeRequests.removeAll()));
+		assertTrue(activeRequests.isEmpty());
+		assertNull(activeRequests.remove(7));
+	}
+}
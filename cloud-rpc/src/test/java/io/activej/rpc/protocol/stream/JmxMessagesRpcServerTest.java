@@ -2,7 +2,9 @@ package io.activej.rpc.protocol.stream;
 
 import io.activej.csp.process.frames.LZ4FrameFormat;
 import io.activej.eventloop.Eventloop;
+import io.activej.jmx.stats.ValueStats;
 import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.rpc.client.RpcClient;
 import io.activej.rpc.server.RpcServer;
 import io.activej.test.rules.ByteBufRule;
@@ -15,6 +17,8 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static io.activej.promise.TestUtils.await;
 import static io.activej.rpc.client.RpcClient.DEFAULT_PACKET_SIZE;
@@ -85,4 +89,26 @@ public class JmxMessagesRpcServerTest {
 						.whenComplete(client::stop)));
 		assertTrue(server.getLastProtocolError().getTotal() > 0);
 	}
+
+	@Test
+	public void testBatchSize() {
+		RpcClient client = RpcClient.create(Eventloop.getCurrentEventloop())
+				.withMessageTypes(String.class)
+				.withStreamProtocol(DEFAULT_PACKET_SIZE, FRAME_FORMAT)
+				.withMaxBatchSize(4)
+				.withStrategy(server(new InetSocketAddress("localhost", listenPort)));
+		List<String> responses = await(client.start()
+				.then(() -> Promises.toList(IntStream.range(0, 10)
+						.mapToObj(i -> client.<String, String>sendRequest("msg" + i, 1000))))
+				.whenComplete(client::stop));
+
+		assertEquals(10, responses.size());
+		ValueStats clientBatchSize = client.getGeneralRequestsStats().getBatchSize();
+		clientBatchSize.refresh(System.currentTimeMillis());
+		assertEquals(3, clientBatchSize.getCount());
+		assertEquals(4, clientBatchSize.getAbsoluteMax(), 0);
+		assertEquals(2, clientBatchSize.getAbsosuteMin(), 0);
+		assertTrue(server.getBatchSize().getCount() > 0);
+		assertEquals(server.getBatchSize().getCount(), server.getBatchBytes().getCount());
+	}
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.bytebuf;
+
+import io.activej.common.recycle.Recyclable;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Represents a pooled off-heap buffer, which is a wrapper over a direct {@link ByteBuffer}.
+ * <p>
+ * Unlike {@link ByteBuf}, it has no backing byte array, so it is meant to be used as
+ * a staging buffer for NIO channels: the JDK copies heap buffers into a temporary
+ * direct buffer on each channel read or write anyway, while a pooled direct buffer
+ * lets the data be copied exactly once, in as large chunks as needed.
+ * <p>
+ * Positions are managed by the {@link ByteBuffer} returned from {@link #buffer()}.
+ * A {@code ByteBufDirect} is allocated with {@link ByteBufPool#allocateDirect(int)}
+ * and should be recycled exactly once.
+ */
+public final class ByteBufDirect implements Recyclable {
+	final ByteBuffer buffer;
+
+	/**
+	 * Is 1 while this {@code ByteBufDirect} is in use, 0 when it is in a pool
+	 * and -1 if it has been recycled while recycle checks are enabled
+	 */
+	int refs;
+
+	ByteBufDirect(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Returns an underlying direct {@link ByteBuffer}.
+	 * Its position is 0 and its limit is equal to its capacity right after allocation.
+	 *
+	 * @return an underlying direct {@link ByteBuffer}
+	 */
+	@Contract(pure = true)
+	public @NotNull ByteBuffer buffer() {
+		if (ByteBuf.CHECK_RECYCLE && isRecycled()) throw ByteBufPool.onByteBufDirectRecycled(this);
+		return buffer;
+	}
+
+	/**
+	 * Copies readable bytes of a given {@link ByteBuf} into this buffer,
+	 * as many as fit into its remaining space.
+	 * Head of a given {@link ByteBuf} is left unchanged.
+	 *
+	 * @param buf a {@link ByteBuf} to copy bytes from
+	 * @return a number of copied bytes
+	 */
+	public int put(@NotNull ByteBuf buf) {
+		ByteBuffer buffer = buffer();
+		int length = Math.min(buf.readRemaining(), buffer.remaining());
+		buffer.put(buf.array(), buf.head(), length);
+		return length;
+	}
+
+	/**
+	 * Copies bytes from a position to a limit of this buffer
+	 * into a writable part of a given {@link ByteBuf}, moving its tail.
+	 *
+	 * @param buf a {@link ByteBuf} to copy bytes to,
+	 *            should have enough space to store all the remaining bytes
+	 */
+	public void drainTo(@NotNull ByteBuf buf) {
+		ByteBuffer buffer = buffer();
+		int length = buffer.remaining();
+		buffer.get(buf.array(), buf.tail(), length);
+		buf.moveTail(length);
+	}
+
+	public int capacity() {
+		return buffer.capacity();
+	}
+
+	@Override
+	public void recycle() {
+		if (ByteBuf.CHECK_RECYCLE && isRecycled()) throw ByteBufPool.onByteBufDirectRecycled(this);
+		if (refs > 0 && --refs == 0) {
+			if (ByteBuf.CHECK_RECYCLE) refs = -1;
+			ByteBufPool.recycleDirect(this);
+		}
+	}
+
+	@Contract(pure = true)
+	boolean isRecycled() {
+		return refs < 0;
+	}
+
+	@Override
+	public String toString() {
+		return "ByteBufDirect{" + buffer + '}';
+	}
+}
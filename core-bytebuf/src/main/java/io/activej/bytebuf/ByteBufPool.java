@@ -20,12 +20,17 @@ import io.activej.bytebuf.ByteBuf.ByteBufSlice;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.MemSize;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 
 import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.MemSize.kilobytes;
 import static java.lang.Integer.numberOfLeadingZeros;
 import static java.lang.Math.max;
 import static java.lang.System.currentTimeMillis;
@@ -86,6 +91,25 @@ public final class ByteBufPool {
 	 */
 	static final boolean CLEAR_ON_RECYCLE = ApplicationSettings.getBoolean(ByteBufPool.class, "clearOnRecycle", false);
 
+	/**
+	 * Defines the number of ByteBufs of each slab which are cached in a thread-local magazine.
+	 * Allocations and recycles that happen in the same thread are served by the magazine
+	 * without touching global slabs, magazines are refilled from and spilled to global slabs
+	 * in batches of half of the magazine size. A thread may return the contents of its magazine
+	 * with {@link #flushMagazine()}, magazines of terminated threads are returned to global slabs
+	 * when a new magazine is created or when magazines stats are collected.
+	 * By default, set at 0, which disables thread-local magazines.
+	 */
+	static final int MAGAZINE_SIZE = ApplicationSettings.getInt(ByteBufPool.class, "magazineSize", 0);
+	static final boolean USE_MAGAZINES = MAGAZINE_SIZE > 0;
+
+	/**
+	 * Defines the maximum size of ByteBufs which are cached in thread-local magazines.
+	 * By default, set at 64 KB.
+	 */
+	private static final int MAGAZINE_MAX_BUF_SIZE = ApplicationSettings.getMemSize(ByteBufPool.class, "magazineMaxBufSize", kilobytes(64)).toInt();
+	private static final int MAGAZINE_MAX_SLAB = 32 - numberOfLeadingZeros(MAGAZINE_MAX_BUF_SIZE - 1);
+
 	static final boolean USE_WATCHDOG = ApplicationSettings.getBoolean(ByteBufPool.class, "useWatchdog", false);
 	static final Duration WATCHDOG_INTERVAL = ApplicationSettings.getDuration(ByteBufPool.class, "watchdogInterval", Duration.ofSeconds(2));
 	static final Duration WATCHDOG_SMOOTHING_WINDOW = ApplicationSettings.getDuration(ByteBufPool.class, "watchdogSmoothingWindow", Duration.ofSeconds(10));
@@ -106,6 +130,14 @@ public final class ByteBufPool {
 	static final AtomicInteger[] created;
 	static final AtomicInteger[] reused;
 
+	/**
+	 * Slabs of pooled off-heap {@link ByteBufDirect ByteBufDirects}, which are
+	 * allocated rarely (only for channel I/O), so a plain lock-free queue is used
+	 */
+	static final ConcurrentLinkedQueue<ByteBufDirect>[] directSlabs;
+	static final AtomicInteger[] directCreated;
+	static final AtomicInteger[] directReused;
+
 	private static final ByteBufPoolStats stats = new ByteBufPoolStats();
 
 	/**
@@ -161,16 +193,33 @@ public final class ByteBufPool {
 
 	private static final Map<ByteBuf, Entry> allocateRegistry = Collections.synchronizedMap(new WeakHashMap<>());
 	private static final Map<ByteBuf, Entry> recycleRegistry = Collections.synchronizedMap(new WeakHashMap<>());
+	private static final Map<ByteBufDirect, Entry> directAllocateRegistry = Collections.synchronizedMap(new WeakHashMap<>());
+	private static final Map<ByteBufDirect, Entry> directRecycleRegistry = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private static final ThreadLocal<Magazines> magazines = ThreadLocal.withInitial(Magazines::new);
+	private static final Set<Magazines> magazinesRegistry = new HashSet<>();
+
+	/**
+	 * Is incremented on {@link #clear()}, so that each thread drops the contents of its magazine
+	 */
+	private static volatile int magazinesGeneration;
 
 	static {
 		slabs = new ByteBufConcurrentQueue[NUMBER_OF_SLABS];
 		slabStats = new SlabStats[NUMBER_OF_SLABS];
 		created = new AtomicInteger[NUMBER_OF_SLABS];
 		reused = new AtomicInteger[NUMBER_OF_SLABS];
+		//noinspection unchecked
+		directSlabs = new ConcurrentLinkedQueue[NUMBER_OF_SLABS];
+		directCreated = new AtomicInteger[NUMBER_OF_SLABS];
+		directReused = new AtomicInteger[NUMBER_OF_SLABS];
 		for (int i = 0; i < NUMBER_OF_SLABS; i++) {
 			slabs[i] = new ByteBufConcurrentQueue();
 			created[i] = new AtomicInteger();
 			reused[i] = new AtomicInteger();
+			directSlabs[i] = new ConcurrentLinkedQueue<>();
+			directCreated[i] = new AtomicInteger();
+			directReused[i] = new AtomicInteger();
 		}
 		if (USE_WATCHDOG) {
 			for (int i = 0; i < NUMBER_OF_SLABS; i++) {
@@ -219,8 +268,9 @@ public final class ByteBufPool {
 			}
 		}
 		int index = 32 - numberOfLeadingZeros(size - 1); // index==32 for size==0
-		ByteBufConcurrentQueue queue = slabs[index];
-		ByteBuf buf = queue.poll();
+		ByteBuf buf = USE_MAGAZINES && index <= MAGAZINE_MAX_SLAB ?
+				magazines.get().poll(index) :
+				slabs[index].poll();
 		if (buf != null) {
 			if (ByteBuf.CHECK_RECYCLE && buf.refs != -1) throw onByteBufRecycled(buf);
 			buf.tail = 0;
@@ -245,10 +295,18 @@ public final class ByteBufPool {
 	}
 
 	private static Entry buildRegistryEntry(@NotNull ByteBuf buf) {
+		return buildRegistryEntry(buf.array.length);
+	}
+
+	private static Entry buildRegistryEntry(@NotNull ByteBufDirect buf) {
+		return buildRegistryEntry(buf.capacity());
+	}
+
+	private static Entry buildRegistryEntry(int size) {
 		Thread thread = currentThread();
 		StackTraceElement[] stackTrace = thread.getStackTrace();
-		return new Entry(buf.array.length, currentTimeMillis(), thread,
-				Arrays.copyOfRange(stackTrace, 4, stackTrace.length));
+		return new Entry(size, currentTimeMillis(), thread,
+				Arrays.copyOfRange(stackTrace, 5, stackTrace.length));
 	}
 
 	static AssertionError onByteBufRecycled(@NotNull ByteBuf buf) {
@@ -302,13 +360,67 @@ public final class ByteBufPool {
 	 */
 	static void recycle(@NotNull ByteBuf buf) {
 		int slab = 32 - numberOfLeadingZeros(buf.array.length - 1);
-		ByteBufConcurrentQueue queue = slabs[slab];
 		if (CLEAR_ON_RECYCLE) Arrays.fill(buf.array(), (byte) 0);
 		if (REGISTRY) {
 			recycleRegistry.put(buf, buildRegistryEntry(buf));
 			allocateRegistry.remove(buf);
 		}
-		queue.offer(buf);
+		if (USE_MAGAZINES && slab <= MAGAZINE_MAX_SLAB) {
+			magazines.get().offer(slab, buf);
+		} else {
+			slabs[slab].offer(buf);
+		}
+	}
+
+	/**
+	 * Allocates an off-heap byte buffer from the pool of direct buffers
+	 * with size of <code>ceil(log<sub>2</sub>(size))<sup>2</sup></code>
+	 * (rounds up to the nearest power of 2) bytes.
+	 * <p>
+	 * Direct buffers are pooled separately from heap {@link ByteBuf ByteBufs},
+	 * but are tracked by the same stats and registry.
+	 *
+	 * @param size returned buffer capacity is guaranteed to be bigger or equal to requested size
+	 * @return direct byte buffer from this pool
+	 */
+	public static @NotNull ByteBufDirect allocateDirect(int size) {
+		assert size >= 0 : "Allocating ByteBufDirect with negative size";
+		int index = 32 - numberOfLeadingZeros(size - 1); // index==32 for size==0
+		ByteBufDirect buf = directSlabs[index].poll();
+		if (buf != null) {
+			if (ByteBuf.CHECK_RECYCLE && buf.refs != -1) throw onByteBufDirectRecycled(buf);
+			buf.buffer.clear();
+			if (STATS) directReused[index].incrementAndGet();
+		} else {
+			buf = new ByteBufDirect(ByteBuffer.allocateDirect(index == 32 ? 0 : 1 << index));
+			if (STATS) directCreated[index].incrementAndGet();
+		}
+		buf.refs = 1;
+		if (REGISTRY) directAllocateRegistry.put(buf, buildRegistryEntry(buf));
+		return buf;
+	}
+
+	/**
+	 * Returns provided ByteBufDirect to the pool of direct buffers to the appropriate slab.
+	 *
+	 * @param buf the ByteBufDirect to be recycled
+	 */
+	static void recycleDirect(@NotNull ByteBufDirect buf) {
+		int slab = 32 - numberOfLeadingZeros(buf.capacity() - 1);
+		if (REGISTRY) {
+			directRecycleRegistry.put(buf, buildRegistryEntry(buf));
+			directAllocateRegistry.remove(buf);
+		}
+		directSlabs[slab].offer(buf);
+	}
+
+	static AssertionError onByteBufDirectRecycled(@NotNull ByteBufDirect buf) {
+		Entry allocated = directAllocateRegistry.get(buf);
+		Entry recycled = directRecycleRegistry.get(buf);
+		return new AssertionError("Attempt to use recycled ByteBufDirect" +
+				(REGISTRY && (allocated != null || recycled != null) ?
+						"\nAllocated: " + allocated + "\nRecycled: " + recycled :
+						""));
 	}
 
 	public static @NotNull ByteBuf ensureWriteRemaining(@NotNull ByteBuf buf, int newWriteRemaining) {
@@ -395,18 +507,37 @@ public final class ByteBufPool {
 		return append(to, from, 0, from.length);
 	}
 
+	/**
+	 * Returns ByteBufs cached in the thread-local magazine of the current thread to global slabs.
+	 * Should be called by a thread which recycles ByteBufs before it goes idle for a long time.
+	 */
+	public static void flushMagazine() {
+		if (USE_MAGAZINES) {
+			magazines.get().flush();
+		}
+	}
+
 	/**
 	 * Clears all the slabs and stats.
 	 */
 	public static void clear() {
+		if (USE_MAGAZINES) {
+			//noinspection NonAtomicOperationOnVolatileField
+			magazinesGeneration++;
+		}
 		for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; i++) {
 			slabs[i].clear();
 			created[i].set(0);
 			reused[i].set(0);
 			if (USE_WATCHDOG) slabStats[i].clear();
+			directSlabs[i].clear();
+			directCreated[i].set(0);
+			directReused[i].set(0);
 		}
 		allocateRegistry.clear();
 		recycleRegistry.clear();
+		directAllocateRegistry.clear();
+		directRecycleRegistry.clear();
 	}
 
 	public static @NotNull ByteBufPoolStats getStats() {
@@ -432,6 +563,26 @@ public final class ByteBufPool {
 
 		List<Entry> queryUnrecycledBufs(int limit);
 
+		int getMagazineItems();
+
+		long getMagazineHits();
+
+		long getMagazineMisses();
+
+		double getMagazineHitRate();
+
+		long getMagazineSpills();
+
+		int getDirectCreatedItems();
+
+		int getDirectReusedItems();
+
+		int getDirectPoolItems();
+
+		long getDirectPoolSizeKB();
+
+		List<Entry> queryUnrecycledDirectBufs(int limit);
+
 		void clear();
 
 		void clearRegistry();
@@ -465,7 +616,7 @@ public final class ByteBufPool {
 
 		@Override
 		public int getPoolItems() {
-			return stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum();
+			return getMagazineItems() + stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum();
 		}
 
 		@SuppressWarnings("StringConcatenationInsideStringBufferAppend")
@@ -473,7 +624,7 @@ public final class ByteBufPool {
 			StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; ++i) {
 				int createdItems = created[i].get();
-				int poolItems = slabs[i].size();
+				int poolItems = magazineItems(i) + slabs[i].size();
 				if (createdItems != poolItems) {
 					sb.append(String.format("Slab %d (%d) ", i, (1 << i)))
 							.append(" created: " + createdItems)
@@ -488,7 +639,7 @@ public final class ByteBufPool {
 			long result = 0;
 			for (int i = 0; i < slabs.length - 1; i++) {
 				long slabSize = 1L << i;
-				result += slabSize * slabs[i].size();
+				result += slabSize * (magazineItems(i) + slabs[i].size());
 			}
 			return result;
 		}
@@ -518,6 +669,75 @@ public final class ByteBufPool {
 			return totalEvicted;
 		}
 
+		@Override
+		public int getMagazineItems() {
+			int result = 0;
+			for (int i = 0; i <= MAGAZINE_MAX_SLAB; i++) {
+				result += magazineItems(i);
+			}
+			return result;
+		}
+
+		@Override
+		public long getMagazineHits() {
+			return sumMagazines(m -> m.hits);
+		}
+
+		@Override
+		public long getMagazineMisses() {
+			return sumMagazines(m -> m.misses);
+		}
+
+		@Override
+		public double getMagazineHitRate() {
+			long hits = getMagazineHits();
+			long total = hits + getMagazineMisses();
+			return total == 0 ? 0.0 : (double) hits / total;
+		}
+
+		@Override
+		public long getMagazineSpills() {
+			return sumMagazines(m -> m.spills);
+		}
+
+		@Override
+		public int getDirectCreatedItems() {
+			return stream(directCreated).mapToInt(AtomicInteger::get).sum();
+		}
+
+		@Override
+		public int getDirectReusedItems() {
+			return stream(directReused).mapToInt(AtomicInteger::get).sum();
+		}
+
+		@Override
+		public int getDirectPoolItems() {
+			return stream(directSlabs).mapToInt(ConcurrentLinkedQueue::size).sum();
+		}
+
+		public long getDirectPoolSize() {
+			long result = 0;
+			for (int i = 0; i < directSlabs.length - 1; i++) {
+				result += (1L << i) * directSlabs[i].size();
+			}
+			return result;
+		}
+
+		@Override
+		public long getDirectPoolSizeKB() {
+			return getDirectPoolSize() / 1024;
+		}
+
+		public Map<ByteBufDirect, Entry> getUnrecycledDirectBufs() {
+			return new HashMap<>(directAllocateRegistry);
+		}
+
+		@Override
+		public List<Entry> queryUnrecycledDirectBufs(int limit) {
+			if (limit < 1) throw new IllegalArgumentException("Limit must be >= 1");
+			return getUnrecycledDirectBufs().values().stream().sorted(comparingLong(Entry::getTimestamp)).limit(limit).collect(toList());
+		}
+
 		public Map<ByteBuf, Entry> getUnrecycledBufs() {
 			return new HashMap<>(allocateRegistry);
 		}
@@ -533,6 +753,7 @@ public final class ByteBufPool {
 		public List<String> getPoolSlabs() {
 			List<String> result = new ArrayList<>(slabs.length + 1);
 			String header = "SlotSize,Created,Reused,InPool,Total(Kb)";
+			if (USE_MAGAZINES) header += ",InMagazines";
 			if (USE_WATCHDOG) header += ",RealMin,EstMean,Error,Evicted";
 			result.add(header);
 			for (int i = 0; i < slabs.length; i++) {
@@ -540,11 +761,15 @@ public final class ByteBufPool {
 				long slabSize = idx == 32 ? 0 : 1L << idx;
 				ByteBufConcurrentQueue slab = slabs[idx];
 				int count = slab.size();
+				int magazineCount = magazineItems(idx);
 				String slabInfo = slabSize + "," +
 						(STATS ? created[idx] : "-") + "," +
 						(STATS ? reused[idx] : "-") + "," +
 						count + "," +
-						slabSize * count / 1024;
+						slabSize * (count + magazineCount) / 1024;
+				if (USE_MAGAZINES) {
+					slabInfo += "," + magazineCount;
+				}
 				if (USE_WATCHDOG){
 					SlabStats slabStat = slabStats[idx];
 					slabInfo += "," + slab.realMin.get() + "," +
@@ -567,8 +792,170 @@ public final class ByteBufPool {
 		public void clearRegistry() {
 			allocateRegistry.clear();
 			recycleRegistry.clear();
+			directAllocateRegistry.clear();
+			directRecycleRegistry.clear();
+		}
+	}
+
+	// region magazines
+
+	/**
+	 * Thread-local stacks of ByteBufs, one stack per slab.
+	 * <p>
+	 * Stacks are only modified by an owner thread, other threads
+	 * may only read (possibly stale) sizes and counters for stats,
+	 * or flush the stacks once the owner thread has terminated.
+	 */
+	private static final class Magazines {
+		final Thread owner = currentThread();
+		final ByteBuf[][] stacks = new ByteBuf[MAGAZINE_MAX_SLAB + 1][];
+		final int[] sizes = new int[MAGAZINE_MAX_SLAB + 1];
+		int generation = magazinesGeneration;
+
+		long hits;
+		long misses;
+		long spills;
+
+		Magazines() {
+			synchronized (magazinesRegistry) {
+				flushTerminated();
+				magazinesRegistry.add(this);
+			}
+		}
+
+		@Nullable ByteBuf poll(int index) {
+			ensureGeneration();
+			int size = sizes[index];
+			if (size == 0) {
+				misses++;
+				size = refill(index);
+				if (size == 0) return null;
+			} else {
+				hits++;
+			}
+			ByteBuf[] stack = stacks[index];
+			ByteBuf buf = stack[--size];
+			stack[size] = null;
+			sizes[index] = size;
+			return buf;
+		}
+
+		void offer(int index, ByteBuf buf) {
+			ensureGeneration();
+			ByteBuf[] stack = stacks[index];
+			if (stack == null) {
+				stack = new ByteBuf[MAGAZINE_SIZE];
+				stacks[index] = stack;
+			}
+			int size = sizes[index];
+			if (size == MAGAZINE_SIZE) {
+				size = spill(index);
+			}
+			stack[size] = buf;
+			sizes[index] = size + 1;
+		}
+
+		private int refill(int index) {
+			ByteBuf[] stack = stacks[index];
+			if (stack == null) {
+				stack = new ByteBuf[MAGAZINE_SIZE];
+				stacks[index] = stack;
+			}
+			ByteBufConcurrentQueue slab = slabs[index];
+			int batch = max(1, MAGAZINE_SIZE / 2);
+			int size = 0;
+			while (size < batch) {
+				ByteBuf buf = slab.poll();
+				if (buf == null) break;
+				stack[size++] = buf;
+			}
+			return size;
+		}
+
+		private int spill(int index) {
+			ByteBuf[] stack = stacks[index];
+			ByteBufConcurrentQueue slab = slabs[index];
+			int size = sizes[index];
+			int newSize = size - max(1, MAGAZINE_SIZE / 2);
+			for (int i = newSize; i < size; i++) {
+				slab.offer(stack[i]);
+				stack[i] = null;
+			}
+			spills++;
+			return newSize;
+		}
+
+		void flush() {
+			ensureGeneration();
+			for (int index = 0; index < stacks.length; index++) {
+				ByteBuf[] stack = stacks[index];
+				int size = sizes[index];
+				for (int i = 0; i < size; i++) {
+					slabs[index].offer(stack[i]);
+					stack[i] = null;
+				}
+				sizes[index] = 0;
+			}
+		}
+
+		private void ensureGeneration() {
+			int currentGeneration = magazinesGeneration;
+			if (generation == currentGeneration) return;
+			generation = currentGeneration;
+			for (int i = 0; i < stacks.length; i++) {
+				if (stacks[i] != null) {
+					Arrays.fill(stacks[i], null);
+				}
+				sizes[i] = 0;
+			}
+			hits = misses = spills = 0;
+		}
+	}
+
+	/**
+	 * Returns the contents of magazines of terminated threads to global slabs, should be called under lock
+	 */
+	private static void flushTerminated() {
+		for (Iterator<Magazines> iterator = magazinesRegistry.iterator(); iterator.hasNext(); ) {
+			Magazines magazines = iterator.next();
+			// isAlive() returning false guarantees visibility of all the changes made by the owner thread
+			if (!magazines.owner.isAlive()) {
+				magazines.flush();
+				iterator.remove();
+			}
+		}
+	}
+
+	private static int magazineItems(int index) {
+		if (!USE_MAGAZINES || index > MAGAZINE_MAX_SLAB) return 0;
+		int currentGeneration = magazinesGeneration;
+		int result = 0;
+		synchronized (magazinesRegistry) {
+			flushTerminated();
+			for (Magazines magazines : magazinesRegistry) {
+				if (magazines.generation == currentGeneration) {
+					result += magazines.sizes[index];
+				}
+			}
+		}
+		return result;
+	}
+
+	private static long sumMagazines(ToLongFunction<Magazines> fn) {
+		if (!USE_MAGAZINES) return 0;
+		int currentGeneration = magazinesGeneration;
+		long result = 0;
+		synchronized (magazinesRegistry) {
+			flushTerminated();
+			for (Magazines magazines : magazinesRegistry) {
+				if (magazines.generation == currentGeneration) {
+					result += fn.applyAsLong(magazines);
+				}
+			}
 		}
+		return result;
 	}
+	// endregion
 
 	// region watchdog
 	private static final class SlabStats {
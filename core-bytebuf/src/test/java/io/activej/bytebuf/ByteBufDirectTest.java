@@ -0,0 +1,97 @@
+package io.activej.bytebuf;
+
+import io.activej.bytebuf.ByteBufPool.ByteBufPoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static io.activej.bytebuf.ByteBufTest.initByteBufPool;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class ByteBufDirectTest {
+	static {
+		initByteBufPool();
+	}
+
+	private final ByteBufPoolStats stats = ByteBufPool.getStats();
+
+	@Before
+	public void setUp() {
+		ByteBufPool.clear();
+	}
+
+	@After
+	public void checkByteBufPool() {
+		assertEquals(stats.getDirectCreatedItems(), stats.getDirectPoolItems());
+		assertTrue(stats.getUnrecycledDirectBufs().isEmpty());
+	}
+
+	@Test
+	public void testAllocate() {
+		ByteBufDirect buf = ByteBufPool.allocateDirect(100);
+		ByteBuffer buffer = buf.buffer();
+		assertTrue(buffer.isDirect());
+		assertEquals(128, buf.capacity());
+		assertEquals(0, buffer.position());
+		assertEquals(128, buffer.limit());
+		assertEquals(1, stats.getUnrecycledDirectBufs().size());
+		buf.recycle();
+
+		assertEquals(1, stats.getDirectPoolItems());
+		assertEquals(0, stats.getDirectPoolSizeKB());
+	}
+
+	@Test
+	public void testReuse() {
+		ByteBufDirect buf = ByteBufPool.allocateDirect(1000);
+		buf.buffer().put(new byte[500]).flip();
+		buf.recycle();
+
+		ByteBufDirect reallocated = ByteBufPool.allocateDirect(600);
+		assertSame(buf, reallocated);
+		assertEquals(0, reallocated.buffer().position());
+		assertEquals(1024, reallocated.buffer().limit());
+		assertEquals(1, stats.getDirectReusedItems());
+		reallocated.recycle();
+
+		ByteBufDirect another = ByteBufPool.allocateDirect(2000);
+		assertNotSame(buf, another);
+		another.recycle();
+		assertEquals(2, stats.getDirectCreatedItems());
+	}
+
+	@Test
+	public void testCopy() {
+		ByteBuf source = ByteBuf.wrapForReading("Hello, World!".getBytes(UTF_8));
+		ByteBufDirect direct = ByteBufPool.allocateDirect(8);
+		assertEquals(8, direct.put(source));
+		assertEquals(0, source.head());
+		source.moveHead(8);
+		direct.buffer().flip();
+
+		ByteBuf target = ByteBufPool.allocate(16);
+		direct.drainTo(target);
+		direct.buffer().clear();
+		assertEquals(5, direct.put(source));
+		direct.buffer().flip();
+		direct.drainTo(target);
+		direct.recycle();
+
+		assertEquals("Hello, World!", target.asString(UTF_8));
+	}
+
+	@Test
+	public void testDoubleRecycle() {
+		ByteBufDirect buf = ByteBufPool.allocateDirect(10);
+		buf.recycle();
+		try {
+			buf.recycle();
+			fail();
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage().startsWith("Attempt to use recycled ByteBufDirect"));
+		}
+	}
+}
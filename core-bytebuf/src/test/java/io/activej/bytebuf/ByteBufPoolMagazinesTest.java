@@ -0,0 +1,122 @@
+package io.activej.bytebuf;
+
+import io.activej.bytebuf.ByteBufPool.ByteBufPoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufTest.initByteBufPool;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Is run in a separate surefire execution with {@code ByteBufPool.magazineSize} set
+ */
+public class ByteBufPoolMagazinesTest {
+	static {
+		initByteBufPool();
+	}
+
+	private final ByteBufPoolStats stats = ByteBufPool.getStats();
+
+	@Before
+	public void setUp() {
+		assumeTrue("Thread-local magazines are disabled", ByteBufPool.USE_MAGAZINES);
+		ByteBufPool.clear();
+	}
+
+	@After
+	public void checkByteBufPool() {
+		assertEquals(stats.getPoolItemsString(), stats.getCreatedItems(), stats.getPoolItems());
+	}
+
+	@Test
+	public void testSameThreadReuse() {
+		ByteBuf buf = ByteBufPool.allocate(100);
+		buf.recycle();
+		assertEquals(1, stats.getMagazineItems());
+		assertTrue(ByteBufPool.slabs[7].isEmpty());
+
+		ByteBuf buf2 = ByteBufPool.allocate(100);
+		assertSame(buf, buf2);
+		assertEquals(1, stats.getMagazineHits());
+		buf2.recycle();
+	}
+
+	@Test
+	public void testSpillAndRefill() {
+		List<ByteBuf> bufs = new ArrayList<>();
+		for (int i = 0; i < ByteBufPool.MAGAZINE_SIZE * 2; i++) {
+			bufs.add(ByteBufPool.allocate(100));
+		}
+		bufs.forEach(ByteBuf::recycle);
+		assertTrue(stats.getMagazineSpills() > 0);
+		assertFalse(ByteBufPool.slabs[7].isEmpty());
+		assertEquals(ByteBufPool.MAGAZINE_SIZE * 2, stats.getPoolItems());
+
+		bufs.clear();
+		for (int i = 0; i < ByteBufPool.MAGAZINE_SIZE * 2; i++) {
+			bufs.add(ByteBufPool.allocate(100));
+		}
+		assertEquals(ByteBufPool.MAGAZINE_SIZE * 2, stats.getCreatedItems());
+		assertEquals(0, stats.getPoolItems());
+		bufs.forEach(ByteBuf::recycle);
+	}
+
+	@Test
+	public void testCrossThreadRecycle() throws InterruptedException {
+		int count = ByteBufPool.MAGAZINE_SIZE * 4;
+		List<ByteBuf> bufs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			bufs.add(ByteBufPool.allocate(1000));
+		}
+
+		Thread thread = new Thread(() -> {
+			bufs.forEach(ByteBuf::recycle);
+			ByteBufPool.flushMagazine();
+		});
+		thread.start();
+		thread.join();
+		assertEquals(count, ByteBufPool.slabs[10].size());
+		assertEquals(count, stats.getPoolItems());
+
+		// buffers spilled by another thread are reused by this thread
+		List<ByteBuf> reallocated = new ArrayList<>();
+		for (int i = 0; i < count / 2; i++) {
+			reallocated.add(ByteBufPool.allocate(1000));
+		}
+		assertEquals(count, stats.getCreatedItems());
+		reallocated.forEach(ByteBuf::recycle);
+	}
+
+	@Test
+	public void testTerminatedThreadMagazine() throws InterruptedException {
+		int count = ByteBufPool.MAGAZINE_SIZE / 2;
+		List<ByteBuf> bufs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			bufs.add(ByteBufPool.allocate(1000));
+		}
+
+		// buffers stay in the magazine of a thread, which terminates without flushing it
+		Thread thread = new Thread(() -> bufs.forEach(ByteBuf::recycle));
+		thread.start();
+		thread.join();
+		assertTrue(ByteBufPool.slabs[10].isEmpty());
+
+		assertEquals(0, stats.getMagazineItems());
+		assertEquals(count, ByteBufPool.slabs[10].size());
+		assertEquals(count, stats.getPoolItems());
+	}
+
+	@Test
+	public void testClear() {
+		ByteBufPool.allocate(100).recycle();
+		assertEquals(1, stats.getMagazineItems());
+		ByteBufPool.clear();
+		assertEquals(0, stats.getMagazineItems());
+		assertEquals(0, stats.getPoolItems());
+	}
+}
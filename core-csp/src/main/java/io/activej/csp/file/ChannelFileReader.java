@@ -21,15 +21,26 @@ import io.activej.async.file.AsyncFileService;
 import io.activej.async.file.ExecutorAsyncFileService;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.ApplicationSettings;
 import io.activej.common.MemSize;
 import io.activej.common.initializer.WithInitializer;
 import io.activej.csp.AbstractChannelSupplier;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelSupplier;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.FileSystemException;
 import java.nio.file.Files;
@@ -37,19 +48,33 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 import static io.activej.common.Checks.checkArgument;
 import static java.nio.file.StandardOpenOption.READ;
 
 /**
  * This supplier allows you to asynchronously read binary data from a file.
+ * <p>
+ * File contents may also be sent directly to a plain TCP socket
+ * using {@link #transferTo(AsyncTcpSocket)}.
  */
-public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> implements WithInitializer<ChannelFileReader> {
+public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> implements ChannelFileSupplier, WithInitializer<ChannelFileReader> {
 	private static final Logger logger = LoggerFactory.getLogger(ChannelFileReader.class);
 
 	private static final OpenOption[] DEFAULT_OPTIONS = new OpenOption[]{READ};
 
 	public static final MemSize DEFAULT_BUFFER_SIZE = MemSize.kilobytes(8);
+	public static final MemSize DEFAULT_MAPPING_WINDOW_SIZE = MemSize.megabytes(64);
+
+	/**
+	 * Whether file contents are sent to {@link AsyncTcpSocketNio} with {@link FileChannel#transferTo},
+	 * otherwise they are read into buffers and written to a socket
+	 */
+	private static final boolean ZERO_COPY_TRANSFER = ApplicationSettings.getBoolean(ChannelFileReader.class, "zeroCopyTransfer", true);
+
+	private static final @Nullable Consumer<ByteBuffer> UNMAPPER = createUnmapper();
 
 	private final AsyncFileService fileService;
 	private final FileChannel channel;
@@ -58,6 +83,11 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> im
 	private long position = 0;
 	private long limit = Long.MAX_VALUE;
 
+	private long mappingWindowSize;
+	private boolean prefetch;
+	private @Nullable MappedByteBuffer window;
+	private @Nullable Promise<MappedByteBuffer> nextWindow;
+
 	private ChannelFileReader(AsyncFileService fileService, FileChannel channel) {
 		this.fileService = fileService;
 		this.channel = channel;
@@ -118,16 +148,107 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> im
 		return this;
 	}
 
+	/**
+	 * Enables a memory-mapped mode with a default window size
+	 *
+	 * @see #withMemoryMapping(MemSize)
+	 */
+	public ChannelFileReader withMemoryMapping() {
+		return withMemoryMapping(DEFAULT_MAPPING_WINDOW_SIZE);
+	}
+
+	/**
+	 * Enables a memory-mapped mode, in which a file is mapped into memory by windows of a given size.
+	 * Chunks of data are copied from a mapped window right on an eventloop thread,
+	 * so that only a single call to a file service is made per window, rather than per chunk.
+	 * Windows are unmapped as soon as they are read or when this reader is closed.
+	 * <p>
+	 * Note that, unless prefetching is enabled, reading pages which are not
+	 * in a page cache blocks an eventloop thread.
+	 *
+	 * @param windowSize a size of a mapped window
+	 * @see #withPrefetch(boolean)
+	 */
+	public ChannelFileReader withMemoryMapping(MemSize windowSize) {
+		checkArgument(windowSize.toLong() > 0 && windowSize.toLong() <= Integer.MAX_VALUE,
+				"Window size should be positive and should not exceed 2GB");
+		this.mappingWindowSize = windowSize.toLong();
+		return this;
+	}
+
+	/**
+	 * Sets whether mapped windows are loaded into physical memory by a file service.
+	 * If so, a next window is also mapped and loaded in advance, while a current one is being read.
+	 * Has effect only in a memory-mapped mode.
+	 */
+	public ChannelFileReader withPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+		return this;
+	}
+
 	public long getPosition() {
 		return position;
 	}
 
+	public long getLimit() {
+		return limit;
+	}
+
+	@Override
+	public long getRemaining() throws IOException {
+		return Math.min(limit, Math.max(0, channel.size() - position));
+	}
+
+	@Override
+	public Promise<Void> transferTo(AsyncTcpSocket socket) {
+		return transferTo(this, socket);
+	}
+
+	/**
+	 * Returned supplier is a {@link ChannelFileSupplier} as well
+	 */
+	@Override
+	public ChannelSupplier<ByteBuf> withEndOfStream(UnaryOperator<Promise<Void>> fn) {
+		return new EndOfStreamSupplier(fn);
+	}
+
+	private Promise<Void> transferTo(ChannelSupplier<ByteBuf> self, AsyncTcpSocket socket) {
+		if (!ZERO_COPY_TRANSFER || !(socket instanceof AsyncTcpSocketNio)) {
+			return self.streamTo(ChannelConsumer.of(socket::write));
+		}
+		if (isClosed()) {
+			return Promise.ofException(getException());
+		}
+		long remaining;
+		try {
+			remaining = getRemaining();
+		} catch (IOException e) {
+			self.closeEx(e);
+			return Promise.ofException(e);
+		}
+		return ((AsyncTcpSocketNio) socket).transferFrom(channel, position, remaining)
+				.then(
+						$ -> {
+							position += remaining;
+							limit = 0;
+							return self.get();
+						},
+						e -> {
+							self.closeEx(e);
+							return Promise.ofException(e);
+						})
+				.toVoid();
+	}
+
 	@Override
 	protected Promise<ByteBuf> doGet() {
 		if (limit == 0) {
 			close();
 			return Promise.of(null);
 		}
+		if (mappingWindowSize != 0) {
+			return doGetMapped();
+		}
 		ByteBuf buf = ByteBufPool.allocateExact((int) Math.min(bufferSize, limit));
 		return fileService.read(channel, position, buf.array(), buf.head(), buf.writeRemaining())
 				.then(
@@ -152,8 +273,83 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> im
 						});
 	}
 
+	private Promise<ByteBuf> doGetMapped() {
+		MappedByteBuffer window = this.window;
+		if (window != null) {
+			if (window.hasRemaining()) {
+				int size = (int) Math.min(Math.min(bufferSize, window.remaining()), limit);
+				ByteBuf buf = ByteBufPool.allocateExact(size);
+				window.get(buf.array(), buf.tail(), size);
+				buf.moveTail(size);
+				position += size;
+				if (limit != Long.MAX_VALUE) {
+					limit -= size;
+				}
+				return Promise.of(buf);
+			}
+			this.window = null;
+			unmap(window);
+		}
+
+		Promise<MappedByteBuffer> nextWindow = this.nextWindow;
+		this.nextWindow = null;
+		try {
+			if (nextWindow == null) {
+				nextWindow = mapWindow(position);
+			}
+		} catch (IOException e) {
+			closeEx(e);
+			return Promise.ofException(getException());
+		}
+		if (nextWindow == null) { // nothing to map, assuming end of file
+			close();
+			return Promise.of(null);
+		}
+		return nextWindow
+				.then(
+						mapped -> {
+							if (isClosed()) {
+								unmap(mapped);
+								return Promise.ofException(getException());
+							}
+							this.window = mapped;
+							if (prefetch) {
+								try {
+									this.nextWindow = mapWindow(position + mapped.remaining());
+								} catch (IOException e) {
+									closeEx(e);
+									return Promise.ofException(getException());
+								}
+							}
+							return doGetMapped();
+						},
+						e -> {
+							closeEx(e);
+							return Promise.ofException(getException());
+						});
+	}
+
+	private @Nullable Promise<MappedByteBuffer> mapWindow(long windowPosition) throws IOException {
+		long size = Math.min(mappingWindowSize, channel.size() - windowPosition);
+		if (limit != Long.MAX_VALUE) {
+			size = Math.min(size, position + limit - windowPosition);
+		}
+		if (size <= 0) {
+			return null;
+		}
+		return fileService.map(channel, windowPosition, size, prefetch);
+	}
+
 	@Override
 	protected void onClosed(@NotNull Exception e) {
+		if (window != null) {
+			unmap(window);
+			window = null;
+		}
+		if (nextWindow != null) {
+			nextWindow.whenResult(ChannelFileReader::unmap);
+			nextWindow = null;
+		}
 		try {
 			if (!channel.isOpen()) {
 				throw new AsyncCloseException("File has been closed");
@@ -173,4 +369,77 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> im
 				(limit == Long.MAX_VALUE ? "" : ", limit=" + limit) +
 				'}';
 	}
+
+	private static void unmap(MappedByteBuffer buffer) {
+		if (UNMAPPER != null) {
+			UNMAPPER.accept(buffer);
+		}
+	}
+
+	/**
+	 * Mapped buffers are only unmapped by GC, unless they are explicitly cleaned,
+	 * which is only possible with {@code sun.misc.Unsafe#invokeCleaner} (Java 9+)
+	 */
+	private static @Nullable Consumer<ByteBuffer> createUnmapper() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			return buffer -> {
+				try {
+					invokeCleaner.invoke(unsafe, buffer);
+				} catch (ReflectiveOperationException e) {
+					logger.warn("Failed to unmap a buffer", e);
+				}
+			};
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			logger.debug("Mapped buffers will be unmapped by GC", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Same as a supplier returned by {@link ChannelSupplier#withEndOfStream},
+	 * which also retains an ability to transfer file contents to a socket
+	 */
+	private final class EndOfStreamSupplier extends AbstractChannelSupplier<ByteBuf> implements ChannelFileSupplier {
+		private final SettablePromise<Void> endOfStream = new SettablePromise<>();
+		private final Promise<Void> newEndOfStream;
+
+		EndOfStreamSupplier(UnaryOperator<Promise<Void>> fn) {
+			super(ChannelFileReader.this);
+			this.newEndOfStream = fn.apply(endOfStream);
+		}
+
+		@Override
+		protected Promise<ByteBuf> doGet() {
+			return ChannelFileReader.this.get()
+					.then((item, e) -> {
+						if (e == null) {
+							if (item != null) return Promise.of(item);
+							endOfStream.trySet(null);
+						} else {
+							endOfStream.trySetException(e);
+						}
+						return newEndOfStream.map($ -> null);
+					});
+		}
+
+		@Override
+		public long getRemaining() throws IOException {
+			return ChannelFileReader.this.getRemaining();
+		}
+
+		@Override
+		public Promise<Void> transferTo(AsyncTcpSocket socket) {
+			return ChannelFileReader.this.transferTo(this, socket);
+		}
+
+		@Override
+		protected void onClosed(@NotNull Exception e) {
+			endOfStream.trySetException(e);
+		}
+	}
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.csp.file;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelSupplier;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+
+import java.io.IOException;
+
+/**
+ * A {@link ChannelSupplier} of file contents which is able to send
+ * the remaining contents directly to a socket, bypassing heap buffers when possible.
+ *
+ * @see ChannelFileReader
+ */
+public interface ChannelFileSupplier extends ChannelSupplier<ByteBuf> {
+	/**
+	 * Returns a number of bytes that are yet to be supplied
+	 */
+	long getRemaining() throws IOException;
+
+	/**
+	 * Sends all the remaining contents to a given socket.
+	 * End of stream is not sent to a socket, this supplier
+	 * reaches its end of stream once the contents are sent.
+	 *
+	 * @param socket a socket to send contents to
+	 * @return promise of completed transfer
+	 */
+	Promise<Void> transferTo(AsyncTcpSocket socket);
+
+	/**
+	 * Sends all the data of a given supplier to a socket, without sending end of stream.
+	 * Suppliers of file contents are transferred with {@link #transferTo(AsyncTcpSocket)}.
+	 */
+	static Promise<Void> streamTo(ChannelSupplier<ByteBuf> supplier, AsyncTcpSocket socket) {
+		if (supplier instanceof ChannelFileSupplier) {
+			return ((ChannelFileSupplier) supplier).transferTo(socket);
+		}
+		return supplier.streamTo(ChannelConsumer.of(socket::write));
+	}
+}
@@ -19,6 +19,9 @@ package io.activej.csp.file;
 import io.activej.async.file.AsyncFileService;
 import io.activej.async.file.ExecutorAsyncFileService;
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufDirect;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.ApplicationSettings;
 import io.activej.common.initializer.WithInitializer;
 import io.activej.csp.AbstractChannelConsumer;
 import io.activej.promise.Promise;
@@ -27,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
@@ -44,6 +48,12 @@ public final class ChannelFileWriter extends AbstractChannelConsumer<ByteBuf> im
 
 	private static final OpenOption[] DEFAULT_OPTIONS = new OpenOption[]{WRITE, CREATE_NEW, APPEND};
 
+	/**
+	 * Enables copying of data into pooled off-heap {@link ByteBufDirect} buffers
+	 * on an eventloop thread, so that a file is written directly from them
+	 */
+	private static final boolean USE_DIRECT_BUFFERS = ApplicationSettings.getBoolean(ChannelFileWriter.class, "useDirectBuffers", false);
+
 	private final AsyncFileService fileService;
 	private final FileChannel channel;
 
@@ -129,8 +139,20 @@ public final class ChannelFileWriter extends AbstractChannelConsumer<ByteBuf> im
 		long p = position;
 		position += buf.readRemaining();
 
-		byte[] array = buf.asArray();
-		return fileService.write(channel, p, array, 0, array.length)
+		Promise<Integer> write;
+		if (USE_DIRECT_BUFFERS) {
+			ByteBufDirect direct = ByteBufPool.allocateDirect(buf.readRemaining());
+			ByteBuffer buffer = direct.buffer();
+			direct.put(buf);
+			buffer.flip();
+			buf.recycle();
+			write = fileService.write(channel, p, buffer)
+					.whenComplete(direct::recycle);
+		} else {
+			write = fileService.write(channel, p, buf.array(), buf.head(), buf.readRemaining())
+					.whenComplete(buf::recycle);
+		}
+		return write
 				.then(($, e2) -> {
 					if (isClosed()) return Promise.ofException(getException());
 					if (e2 != null) {
@@ -32,4 +32,11 @@ public interface Messaging<I, O> extends AsyncCloseable {
 	ChannelSupplier<ByteBuf> receiveBinaryStream();
 
 	ChannelConsumer<ByteBuf> sendBinaryStream();
+
+	/**
+	 * Sends all the data of a given supplier as a binary stream, followed by end of stream
+	 */
+	default Promise<Void> sendBinaryStream(ChannelSupplier<ByteBuf> supplier) {
+		return supplier.streamTo(sendBinaryStream());
+	}
 }
@@ -26,6 +26,7 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
 import io.activej.csp.binary.ByteBufsCodec;
+import io.activej.csp.file.ChannelFileSupplier;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
@@ -118,6 +119,23 @@ public final class MessagingWithBinaryStreaming<I, O> extends AbstractAsyncClose
 						}));
 	}
 
+	/**
+	 * Contents of files are sent with {@link ChannelFileSupplier#transferTo}
+	 */
+	@Override
+	public Promise<Void> sendBinaryStream(ChannelSupplier<ByteBuf> supplier) {
+		if (!(supplier instanceof ChannelFileSupplier)) {
+			return supplier.streamTo(sendBinaryStream());
+		}
+		return ((ChannelFileSupplier) supplier).transferTo(socket)
+				.then(() -> socket.write(null))
+				.whenResult(() -> {
+					writeDone = true;
+					closeIfDone();
+				})
+				.whenException(this::closeEx);
+	}
+
 	@Override
 	public ChannelSupplier<ByteBuf> receiveBinaryStream() {
 		return ChannelSuppliers.concat(ChannelSupplier.ofIterator(bufs.asIterator()), ChannelSupplier.ofSocket(socket))
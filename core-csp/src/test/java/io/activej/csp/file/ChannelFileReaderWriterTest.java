@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static io.activej.promise.TestUtils.await;
@@ -56,6 +57,48 @@ public final class ChannelFileReaderWriterTest {
 		assertArrayEquals(Files.readAllBytes(Paths.get("test_data/in.dat")), byteBuf.asArray());
 	}
 
+	@Test
+	public void streamMemoryMappedFileReader() throws IOException {
+		byte[] data = new byte[100_000];
+		ThreadLocalRandom.current().nextBytes(data);
+		Path path = temporaryFolder.newFile().toPath();
+		Files.write(path, data);
+
+		for (boolean prefetch : new boolean[]{false, true}) {
+			ByteBuf byteBuf = await(ChannelFileReader.open(newCachedThreadPool(), path)
+					.then(cfr -> cfr.withBufferSize(MemSize.kilobytes(3))
+							.withMemoryMapping(MemSize.kilobytes(16))
+							.withPrefetch(prefetch)
+							.withOffset(1000)
+							.withLimit(90_000)
+							.toCollector(ByteBufs.collector())));
+
+			assertArrayEquals(Arrays.copyOfRange(data, 1000, 91_000), byteBuf.asArray());
+		}
+
+		ByteBuf byteBuf = await(ChannelFileReader.open(newCachedThreadPool(), path)
+				.then(cfr -> cfr.withMemoryMapping()
+						.toCollector(ByteBufs.collector())));
+
+		assertArrayEquals(data, byteBuf.asArray());
+	}
+
+	@Test
+	public void closeMemoryMappedFileReader() throws IOException {
+		Path path = temporaryFolder.newFile().toPath();
+		Files.write(path, new byte[100_000]);
+
+		ChannelFileReader reader = await(ChannelFileReader.open(newCachedThreadPool(), path))
+				.withBufferSize(MemSize.kilobytes(1))
+				.withMemoryMapping(MemSize.kilobytes(16))
+				.withPrefetch(true);
+
+		await(reader.get()).recycle();
+		reader.close();
+
+		awaitException(reader.get());
+	}
+
 	@Test
 	public void streamFileWriter() throws IOException {
 		Path tempPath = temporaryFolder.getRoot().toPath().resolve("out.dat");
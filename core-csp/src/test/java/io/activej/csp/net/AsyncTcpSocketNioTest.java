@@ -0,0 +1,139 @@
+package io.activej.csp.net;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufs;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelSupplier;
+import io.activej.csp.file.ChannelFileReader;
+import io.activej.csp.file.ChannelFileSupplier;
+import io.activej.net.SimpleServer;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.copyOfRange;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class AsyncTcpSocketNioTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testLargeEcho() throws IOException {
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		byte[] data = new byte[3 * 1024 * 1024 + 17];
+		new Random(0).nextBytes(data);
+
+		SimpleServer.create(
+				socket -> ChannelSupplier.ofSocket(socket)
+						.streamTo(ChannelConsumer.ofSocket(socket)))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf result = await(AsyncTcpSocketNio.connect(address)
+				.then(socket -> socket.write(ByteBuf.wrapForReading(data))
+						.then(() -> socket.write(null))
+						.combine(ChannelSupplier.ofSocket(socket).toCollector(ByteBufs.collector()), ($, buf) -> buf)
+						.whenComplete(socket::close)));
+
+		assertArrayEquals(data, result.asArray());
+	}
+
+	@Test
+	public void testGatheringWrites() throws IOException {
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		byte[] data = new byte[1024 * 1024];
+		new Random(1).nextBytes(data);
+
+		SimpleServer.create(
+				socket -> ChannelSupplier.ofSocket(socket)
+						.streamTo(ChannelConsumer.ofSocket(socket)))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf result = await(AsyncTcpSocketNio.connect(address)
+				.then(socket -> {
+					Random random = new Random(2);
+					ByteBufs bufs = new ByteBufs();
+					Promise<Void> lastWrite = Promise.complete();
+					int position = 0;
+					while (position != data.length) {
+						int length = Math.min(random.nextInt(300), data.length - position);
+						bufs.add(ByteBuf.wrap(data, position, position + length));
+						position += length;
+						if (random.nextInt(100) == 0) {
+							lastWrite = socket.writeAll(bufs);
+						}
+					}
+					return lastWrite
+							.then(() -> socket.writeAll(bufs))
+							.then(() -> socket.write(null))
+							.combine(ChannelSupplier.ofSocket(socket).toCollector(ByteBufs.collector()), ($, buf) -> buf)
+							.whenComplete(socket::close);
+				}));
+
+		assertArrayEquals(data, result.asArray());
+	}
+
+	@Test
+	public void testFileTransfer() throws IOException {
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		byte[] data = new byte[2 * 1024 * 1024 + 3];
+		new Random(3).nextBytes(data);
+		Path file = temporaryFolder.newFile().toPath();
+		Files.write(file, data);
+		int offset = 11;
+		int limit = data.length - 2 * offset;
+		SettablePromise<Void> endOfStream = new SettablePromise<>();
+		ChannelSupplier<ByteBuf> supplier = ChannelFileReader.openBlocking(newSingleThreadExecutor(), file)
+				.withOffset(offset)
+				.withLimit(limit)
+				.withEndOfStream(eos -> eos.whenComplete(endOfStream::trySet));
+
+		SimpleServer.create(
+				socket -> {
+					socket.write(ByteBuf.wrapForReading("header".getBytes(UTF_8)));
+					ChannelFileSupplier.streamTo(supplier, socket);
+					socket.write(ByteBuf.wrapForReading("trailer".getBytes(UTF_8)))
+							.then(() -> socket.write(null));
+				})
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf result = await(AsyncTcpSocketNio.connect(address)
+				.then(socket -> ChannelSupplier.ofSocket(socket).toCollector(ByteBufs.collector())
+						.whenComplete(socket::close)));
+		await(endOfStream);
+
+		byte[] bytes = result.asArray();
+		assertEquals("header", new String(bytes, 0, 6, UTF_8));
+		assertArrayEquals(copyOfRange(data, offset, offset + limit), copyOfRange(bytes, 6, 6 + limit));
+		assertEquals("trailer", new String(bytes, 6 + limit, bytes.length - 6 - limit, UTF_8));
+	}
+}
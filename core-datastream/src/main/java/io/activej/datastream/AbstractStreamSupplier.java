@@ -24,6 +24,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayDeque;
+import java.util.List;
 
 import static io.activej.common.Checks.checkState;
 
@@ -153,6 +154,18 @@ public abstract class AbstractStreamSupplier<T> implements StreamSupplier<T> {
 		dataAcceptorBuffered.accept(item);
 	}
 
+	/**
+	 * Sends given batch of items through this supplier, see {@link StreamDataAcceptor#acceptAll(List)}.
+	 * <p>
+	 * A list may be reused by a caller after this method returns.
+	 * Just like {@link #send(Object)}, this method stores items to an internal buffer
+	 * if supplier is in a suspended state, and must never be called when supplier
+	 * reaches {@link #sendEndOfStream() end of stream}.
+	 */
+	public final void sendAll(List<T> items) {
+		dataAcceptorBuffered.acceptAll(items);
+	}
+
 	/**
 	 * Puts this supplier in closed state with no error.
 	 * This operation is final and cannot be undone.
@@ -60,7 +60,17 @@ public final class StreamConsumerToList<T> extends AbstractStreamConsumer<T> imp
 
 	@Override
 	protected void onStarted() {
-		resume(list::add);
+		resume(new StreamDataAcceptor<T>() {
+			@Override
+			public void accept(T item) {
+				list.add(item);
+			}
+
+			@Override
+			public void acceptAll(List<T> items) {
+				list.addAll(items);
+			}
+		});
 	}
 
 	@Override
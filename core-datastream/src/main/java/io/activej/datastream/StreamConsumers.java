@@ -45,7 +45,15 @@ final class StreamConsumers {
 	static final class Skip<T> extends AbstractStreamConsumer<T> {
 		@Override
 		protected void onStarted() {
-			resume(item -> {});
+			resume(new StreamDataAcceptor<T>() {
+				@Override
+				public void accept(T item) {
+				}
+
+				@Override
+				public void acceptAll(List<T> items) {
+				}
+			});
 		}
 
 		@Override
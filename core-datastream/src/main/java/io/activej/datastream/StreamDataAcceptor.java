@@ -16,8 +16,15 @@
 
 package io.activej.datastream;
 
+import java.util.List;
+
 /**
  * A callback that receives actual data from stream suppliers.
+ * <p>
+ * Items may be supplied either one by one or in batches. Suppliers which produce
+ * items in batches pass them to {@link #acceptAll(List)}, and acceptors which can
+ * process a whole batch at once override it, so that a batch passes through
+ * a chain of processors with a single call per processor.
  */
 @FunctionalInterface
 public interface StreamDataAcceptor<T> {
@@ -26,4 +33,20 @@ public interface StreamDataAcceptor<T> {
 	 * when it is not suspended and not closed.
 	 */
 	void accept(T item);
+
+	/**
+	 * This is called with a batch of supplied items by the stream supplier
+	 * when it is not suspended and not closed.
+	 * <p>
+	 * A list of items is only valid during this call, it may be reused by a supplier
+	 * afterwards, so it should never be retained by an acceptor.
+	 * <p>
+	 * By default, items are passed to {@link #accept(Object)} one by one.
+	 * An implementation should override this method if it can handle a batch more efficiently.
+	 */
+	default void acceptAll(List<T> items) {
+		for (int i = 0, size = items.size(); i < size; i++) {
+			accept(items.get(i));
+		}
+	}
 }
@@ -30,11 +30,17 @@ import io.activej.datastream.StreamSupplier;
 import io.activej.serializer.BinarySerializer;
 import io.activej.serializer.CorruptedDataException;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.common.Checks.checkArgument;
 import static java.lang.String.format;
 
 /**
  * An adapter that converts a {@link ChannelSupplier} of {@link ByteBuf ByteBufs} to a {@link StreamSupplier} of some type,
  * that is deserialized from incoming binary data using given {@link BinarySerializer}.
+ * <p>
+ * Deserialized items are sent one by one, unless batching is enabled with {@link #withBatchSize(int)}.
  */
 public final class ChannelDeserializer<T> extends AbstractStreamSupplier<T>
 		implements WithChannelToStream<ChannelDeserializer<T>, ByteBuf, T>, WithInitializer<ChannelDeserializer<T>> {
@@ -43,6 +49,9 @@ public final class ChannelDeserializer<T> extends AbstractStreamSupplier<T>
 
 	private final ByteBufs bufs = new ByteBufs();
 
+	private int batchSize = 1;
+	private final List<T> batch = new ArrayList<>();
+
 	private boolean explicitEndOfStream = false;
 
 	private ChannelDeserializer(BinarySerializer<T> valueSerializer) {
@@ -56,6 +65,18 @@ public final class ChannelDeserializer<T> extends AbstractStreamSupplier<T>
 		return new ChannelDeserializer<>(valueSerializer);
 	}
 
+	/**
+	 * Sets a maximum number of deserialized items which are sent downstream at once,
+	 * see {@link io.activej.datastream.StreamDataAcceptor#acceptAll}
+	 *
+	 * @param batchSize a maximum size of a batch, {@code 1} by default to send items one by one
+	 */
+	public ChannelDeserializer<T> withBatchSize(int batchSize) {
+		checkArgument(batchSize > 0, "Batch size should be positive");
+		this.batchSize = batchSize;
+		return this;
+	}
+
 	public ChannelDeserializer<T> withExplicitEndOfStream() {
 		return withExplicitEndOfStream(true);
 	}
@@ -82,12 +103,15 @@ public final class ChannelDeserializer<T> extends AbstractStreamSupplier<T>
 		try {
 			endOfStream = process();
 		} catch (CorruptedDataException e) {
+			batch.clear();
 			closeEx(new MalformedDataException("Data is corrupted", e));
 			return;
 		} catch (Exception e) {
+			batch.clear();
 			closeEx(new UnknownFormatException(format("Parse exception, %s : %s", this, bufs), e));
 			return;
 		}
+		sendBatch();
 
 		if (endOfStream) {
 			assert bufs.hasRemainingBytes(1);
@@ -156,7 +180,7 @@ public final class ChannelDeserializer<T> extends AbstractStreamSupplier<T>
 
 				if (firstBufRemaining >= messageSize) {
 					T item = valueSerializer.decode(array, pos + headerSize);
-					send(item);
+					addToBatch(item);
 					if (firstBufRemaining != messageSize) {
 						firstBuf.moveHead(messageSize);
 					} else {
@@ -186,12 +210,33 @@ public final class ChannelDeserializer<T> extends AbstractStreamSupplier<T>
 
 		bufs.consume(messageSize, buf -> {
 			T item = valueSerializer.decode(buf.array(), buf.head() + headerSize);
-			send(item);
+			addToBatch(item);
 		});
 
 		return 1;
 	}
 
+	private void addToBatch(T item) {
+		if (batchSize == 1) {
+			send(item);
+			return;
+		}
+		batch.add(item);
+		if (batch.size() >= batchSize) {
+			sendBatch();
+		}
+	}
+
+	private void sendBatch() {
+		if (batch.isEmpty()) return;
+		if (batch.size() == 1) {
+			send(batch.get(0));
+		} else {
+			sendAll(batch);
+		}
+		batch.clear();
+	}
+
 	private static int readEncodedSize(byte[] array, int pos, byte b) {
 		if (b < 0) {
 			int dataSize = b & 0x7f;
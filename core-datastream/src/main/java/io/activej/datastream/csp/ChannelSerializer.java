@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.util.ArrayDeque;
+import java.util.List;
 import java.util.function.BiConsumer;
 
 import static io.activej.common.Checks.checkArgument;
@@ -68,6 +69,8 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 	private byte @Nullable [] explicitEndOfStream;
 
 	private @Nullable Duration autoFlushInterval;
+	private int maxBatchSize = Integer.MAX_VALUE;
+	private @Nullable FlushListener flushListener;
 	private BiConsumer<T, Exception> serializationErrorHandler = ($, e) -> closeEx(e);
 
 	private Input input;
@@ -108,6 +111,27 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 		return this;
 	}
 
+	/**
+	 * Sets a maximum number of items that are serialized into a single buffer.
+	 * Once a buffer contains this many items, it is flushed right away,
+	 * without waiting for an auto flush
+	 * <p>
+	 * By default, a number of items in a buffer is only limited by its size
+	 */
+	public ChannelSerializer<T> withMaxBatchSize(int maxBatchSize) {
+		checkArgument(maxBatchSize > 0, "Max batch size should be positive");
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+
+	/**
+	 * Sets a listener that is notified of each buffer flushed by this serializer
+	 */
+	public ChannelSerializer<T> withFlushListener(@Nullable FlushListener flushListener) {
+		this.flushListener = flushListener;
+		return this;
+	}
+
 	/**
 	 * Enables skipping of serialization errors.
 	 * <p>
@@ -218,6 +242,7 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 		private final BinarySerializer<T> serializer;
 
 		private ByteBuf buf = null;
+		private int items;
 		private int estimatedDataSize;
 		private int estimatedHeaderSize;
 		private int requiredRemainingSize;
@@ -237,6 +262,28 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 
 		@Override
 		public void accept(T item) {
+			if (encode(item) && ++items >= maxBatchSize) {
+				flush();
+			}
+		}
+
+		/**
+		 * Serializes a whole batch into the current buffer, the buffer is checked
+		 * for a flush only once, so it may hold more than a maximum batch size of items
+		 */
+		@Override
+		public void acceptAll(List<T> items) {
+			for (int i = 0, size = items.size(); i < size; i++) {
+				if (encode(items.get(i))) {
+					this.items++;
+				}
+			}
+			if (this.items >= maxBatchSize) {
+				flush();
+			}
+		}
+
+		private boolean encode(T item) {
 			int positionBegin;
 			int positionData;
 			int positionEnd;
@@ -253,7 +300,7 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 					continue;
 				} catch (Exception e) {
 					onSerializationError(item, e);
-					return;
+					return false;
 				}
 				break;
 			}
@@ -263,6 +310,7 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 				reestimate(positionBegin, positionData, dataSize);
 			}
 			writeSize(buf.array(), positionBegin, dataSize);
+			return true;
 		}
 
 		private void writeSize(byte[] buf, int pos, int size) {
@@ -354,6 +402,10 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 		private void flush() {
 			if (buf == null) return;
 			if (buf.canRead()) {
+				if (flushListener != null) {
+					flushListener.onFlush(items, buf.readRemaining());
+				}
+				items = 0;
 				if (!bufs.isEmpty()) {
 					suspend();
 				}
@@ -371,6 +423,19 @@ public final class ChannelSerializer<T> extends AbstractStreamConsumer<T>
 		}
 	}
 
+	/**
+	 * A listener of buffers which are flushed by a serializer
+	 */
+	public interface FlushListener {
+		/**
+		 * Called when a buffer is flushed
+		 *
+		 * @param items a number of items in a buffer
+		 * @param bytes a size of a buffer in bytes
+		 */
+		void onFlush(int items, int bytes);
+	}
+
 	private static int varIntSize(int value) {
 		return 1 + (31 - Integer.numberOfLeadingZeros(value)) / 7;
 	}
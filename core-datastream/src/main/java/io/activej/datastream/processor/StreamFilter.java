@@ -19,6 +19,8 @@ package io.activej.datastream.processor;
 import io.activej.datastream.*;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -45,7 +47,24 @@ public abstract class StreamFilter<I, O> implements StreamTransformer<I, O> {
 		return new StreamFilter<T, T>() {
 			@Override
 			protected @NotNull StreamDataAcceptor<T> onResumed(@NotNull StreamDataAcceptor<T> output) {
-				return item -> { if (predicate.test(item)) output.accept(item);};
+				return new StreamDataAcceptor<T>() {
+					private final ArrayList<T> filtered = new ArrayList<>();
+
+					@Override
+					public void accept(T item) {
+						if (predicate.test(item)) output.accept(item);
+					}
+
+					@Override
+					public void acceptAll(List<T> items) {
+						for (int i = 0, size = items.size(); i < size; i++) {
+							T item = items.get(i);
+							if (predicate.test(item)) filtered.add(item);
+						}
+						output.acceptAll(filtered);
+						filtered.clear();
+					}
+				};
 			}
 		};
 	}
@@ -54,7 +73,23 @@ public abstract class StreamFilter<I, O> implements StreamTransformer<I, O> {
 		return new StreamFilter<I, O>() {
 			@Override
 			protected @NotNull StreamDataAcceptor<I> onResumed(@NotNull StreamDataAcceptor<O> output) {
-				return item -> output.accept(function.apply(item));
+				return new StreamDataAcceptor<I>() {
+					private final ArrayList<O> mapped = new ArrayList<>();
+
+					@Override
+					public void accept(I item) {
+						output.accept(function.apply(item));
+					}
+
+					@Override
+					public void acceptAll(List<I> items) {
+						for (int i = 0, size = items.size(); i < size; i++) {
+							mapped.add(function.apply(items.get(i)));
+						}
+						output.acceptAll(mapped);
+						mapped.clear();
+					}
+				};
 			}
 		};
 	}
@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.datastream.processor;
+
+import io.activej.common.initializer.WithInitializer;
+import io.activej.datastream.*;
+import io.activej.datastream.dsl.HasStreamInputs;
+import io.activej.datastream.dsl.HasStreamOutput;
+import io.activej.datastream.processor.StreamLeftJoin.LeftJoiner;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static io.activej.common.Checks.checkArgument;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Represents an object which has left and right consumers and one supplier. It joins unsorted streams:
+ * first, items of the 'right' (build) input are collected into a hash table, only then
+ * items of the 'left' (probe) input are received and joined with the matching right items.
+ * The right input is usually the smaller one, for example a dimension table.
+ * <p>
+ * If {@link #withSpilling spilling} is enabled and the right input does not fit in memory,
+ * both inputs are split into partitions by hashes of their keys and written to the storages
+ * (a grace hash join). Then the partitions are joined one by one.
+ * <p>
+ * Left items are joined using a {@link LeftJoiner}, depending on the {@link JoinType}.
+ * The order of the left items is preserved unless the inputs are spilled.
+ */
+public final class StreamHashJoin<K, L, R, V> implements HasStreamInputs, HasStreamOutput<V>, WithInitializer<StreamHashJoin<K, L, R, V>> {
+	private static final Logger logger = getLogger(StreamHashJoin.class);
+
+	public static final int DEFAULT_PARTITIONS = 16;
+
+	public enum JoinType {
+		/**
+		 * {@link LeftJoiner#onInnerJoin} is called for each matching pair of left and right items
+		 */
+		INNER,
+		/**
+		 * Same as {@link #INNER}, and {@link LeftJoiner#onOuterJoin} is called for each left item without a match
+		 */
+		LEFT,
+		/**
+		 * {@link LeftJoiner#onInnerJoin} is called once for each left item that has a match,
+		 * with the first matching right item
+		 */
+		SEMI,
+		/**
+		 * {@link LeftJoiner#onOuterJoin} is called for each left item without a match
+		 */
+		ANTI
+	}
+
+	private final Function<L, K> leftKeyFunction;
+	private final Function<R, K> rightKeyFunction;
+	private final LeftJoiner<K, L, R, V> joiner;
+	private final JoinType joinType;
+
+	private @Nullable StreamSorterStorage<L> leftStorage;
+	private @Nullable StreamSorterStorage<R> rightStorage;
+	private int itemsInMemory = Integer.MAX_VALUE;
+	private int partitions = DEFAULT_PARTITIONS;
+
+	private HashMap<K, List<R>> table = new HashMap<>();
+	private int tableSize;
+
+	private @Nullable Spiller<L> leftSpiller;
+	private @Nullable Spiller<R> rightSpiller;
+
+	private final Left left;
+	private final Right right;
+	private final Output output;
+
+	private @Nullable AbstractStreamConsumer<L> probe;
+	private @Nullable StreamDataAcceptor<L> probeAcceptor;
+
+	private StreamHashJoin(@NotNull Function<L, K> leftKeyFunction, @NotNull Function<R, K> rightKeyFunction,
+			@NotNull LeftJoiner<K, L, R, V> joiner, @NotNull JoinType joinType) {
+		this.leftKeyFunction = leftKeyFunction;
+		this.rightKeyFunction = rightKeyFunction;
+		this.joiner = joiner;
+		this.joinType = joinType;
+		this.left = new Left();
+		this.right = new Right();
+		this.output = new Output();
+	}
+
+	/**
+	 * Creates a new instance of StreamHashJoin
+	 *
+	 * @param leftKeyFunction  function for counting keys of left stream
+	 * @param rightKeyFunction function for counting keys of right stream
+	 * @param joiner           joiner which will join streams
+	 * @param joinType         type of join
+	 */
+	public static <K, L, R, V> StreamHashJoin<K, L, R, V> create(Function<L, K> leftKeyFunction, Function<R, K> rightKeyFunction,
+			LeftJoiner<K, L, R, V> joiner, JoinType joinType) {
+		return new StreamHashJoin<>(leftKeyFunction, rightKeyFunction, joiner, joinType);
+	}
+
+	/**
+	 * Enables spilling of the inputs to the storages once the hash table
+	 * holds {@code itemsInMemory} right items.
+	 * A single partition of the right input is always joined in memory
+	 */
+	public StreamHashJoin<K, L, R, V> withSpilling(StreamSorterStorage<L> leftStorage, StreamSorterStorage<R> rightStorage,
+			int itemsInMemory) {
+		checkArgument(itemsInMemory > 0, "Number of items in memory should be positive");
+		this.leftStorage = leftStorage;
+		this.rightStorage = rightStorage;
+		this.itemsInMemory = itemsInMemory;
+		return this;
+	}
+
+	/**
+	 * Sets the number of partitions the inputs are split into when they are spilled
+	 */
+	public StreamHashJoin<K, L, R, V> withPartitions(int partitions) {
+		checkArgument(partitions > 1, "Number of partitions should be greater than 1");
+		this.partitions = partitions;
+		return this;
+	}
+
+	private int partition(K key) {
+		int h = Objects.hashCode(key);
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return Math.floorMod(h, partitions);
+	}
+
+	private void build(R item) {
+		table.computeIfAbsent(rightKeyFunction.apply(item), $ -> new ArrayList<>(1)).add(item);
+		tableSize++;
+	}
+
+	private void probe(L item, StreamDataAcceptor<V> acceptor) {
+		K key = leftKeyFunction.apply(item);
+		List<R> matches = table.get(key);
+		switch (joinType) {
+			case INNER:
+				if (matches != null) {
+					for (R match : matches) {
+						joiner.onInnerJoin(key, item, match, acceptor);
+					}
+				}
+				break;
+			case LEFT:
+				if (matches != null) {
+					for (R match : matches) {
+						joiner.onInnerJoin(key, item, match, acceptor);
+					}
+				} else {
+					joiner.onOuterJoin(key, item, acceptor);
+				}
+				break;
+			case SEMI:
+				if (matches != null) {
+					joiner.onInnerJoin(key, item, matches.get(0), acceptor);
+				}
+				break;
+			case ANTI:
+				if (matches == null) {
+					joiner.onOuterJoin(key, item, acceptor);
+				}
+				break;
+		}
+	}
+
+	private void setProbe(@Nullable AbstractStreamConsumer<L> probe, @Nullable StreamDataAcceptor<L> probeAcceptor) {
+		this.probe = probe;
+		this.probeAcceptor = probeAcceptor;
+		if (probe != null && output.isReady()) {
+			probe.resume(probeAcceptor);
+		}
+	}
+
+	/**
+	 * Removes the spilled partitions which have not been joined yet,
+	 * once all the spills which are in progress complete
+	 */
+	private Promise<Void> cleanup() {
+		return Promises.all(
+				left.getSpillsCompleted().then(() -> leftSpiller != null ? leftSpiller.cleanup() : Promise.complete()),
+				right.getSpillsCompleted().then(() -> rightSpiller != null ? rightSpiller.cleanup() : Promise.complete()));
+	}
+
+	private final class Spiller<T> {
+		private final StreamSorterStorage<T> storage;
+		private final Function<T, K> keyFunction;
+		private final List<List<Integer>> partitionIds = new ArrayList<>();
+		private final List<Integer> remainingIds = new ArrayList<>();
+
+		private List<List<T>> buckets = new ArrayList<>();
+		private int buffered;
+
+		Spiller(StreamSorterStorage<T> storage, Function<T, K> keyFunction) {
+			this.storage = storage;
+			this.keyFunction = keyFunction;
+			for (int i = 0; i < partitions; i++) {
+				partitionIds.add(new ArrayList<>());
+				buckets.add(new ArrayList<>());
+			}
+		}
+
+		boolean add(T item) {
+			buckets.get(partition(keyFunction.apply(item))).add(item);
+			return ++buffered >= itemsInMemory;
+		}
+
+		Promise<Void> flush() {
+			logger.trace("Spilling {} items", buffered);
+			List<List<T>> buckets = this.buckets;
+			this.buckets = new ArrayList<>();
+			this.buffered = 0;
+			List<Promise<Void>> writes = new ArrayList<>();
+			for (int i = 0; i < partitions; i++) {
+				this.buckets.add(new ArrayList<>());
+				List<T> bucket = buckets.get(i);
+				if (bucket.isEmpty()) continue;
+				List<Integer> ids = partitionIds.get(i);
+				writes.add(storage.newPartitionId()
+						.then(partitionId -> {
+							ids.add(partitionId);
+							remainingIds.add(partitionId);
+							return StreamSupplier.ofIterable(bucket).streamTo(storage.writeStream(partitionId));
+						}));
+			}
+			return Promises.all(writes);
+		}
+
+		List<Integer> getPartitionIds(int partition) {
+			return partitionIds.get(partition);
+		}
+
+		StreamSupplier<T> read(int partition) {
+			return StreamSupplier.concat(partitionIds.get(partition).stream().map(storage::readStream).collect(toList()));
+		}
+
+		Promise<Void> cleanup(int partition) {
+			List<Integer> ids = partitionIds.get(partition);
+			if (ids.isEmpty()) return Promise.complete();
+			remainingIds.removeAll(ids);
+			return storage.cleanup(ids);
+		}
+
+		Promise<Void> cleanup() {
+			if (remainingIds.isEmpty()) return Promise.complete();
+			List<Integer> ids = new ArrayList<>(remainingIds);
+			remainingIds.clear();
+			return storage.cleanup(ids);
+		}
+	}
+
+	private abstract class Input<T> extends AbstractStreamConsumer<T> implements StreamDataAcceptor<T> {
+		private Promise<Void> spilled = Promise.complete();
+		private Promise<Void> spillsCompleted = Promise.complete();
+		private int activeSpills;
+
+		protected final void spill(Spiller<T> spiller) {
+			activeSpills++;
+			suspend();
+			Promise<Void> spill = spiller.flush()
+					.whenResult(() -> {
+						if (--activeSpills == 0) {
+							onSpilled();
+						}
+					})
+					.whenException(this::closeEx);
+			spilled = spilled.both(spill);
+			spillsCompleted = spillsCompleted.both(spill.toTry().toVoid());
+		}
+
+		protected void onSpilled() {
+			resume(this);
+		}
+
+		protected final Promise<Void> getSpilled() {
+			return spilled;
+		}
+
+		/**
+		 * Unlike {@link #getSpilled()}, completes successfully even if some spills fail
+		 */
+		protected final Promise<Void> getSpillsCompleted() {
+			return spillsCompleted;
+		}
+
+		protected final void acknowledgeOnOutput() {
+			output.getAcknowledgement()
+					.then((ackRes, e) -> cleanup()
+							.then(($, e1) -> Promise.of(ackRes, e)))
+					.whenResult(this::acknowledge)
+					.whenException(this::closeEx);
+		}
+
+		@Override
+		protected void onError(Exception e) {
+			output.closeEx(e);
+		}
+	}
+
+	private final class Right extends Input<R> {
+		private boolean skipped;
+
+		@Override
+		protected void onStarted() {
+			resume(this);
+		}
+
+		/**
+		 * Called when the left input ends before the build has finished,
+		 * the join is empty then and the rest of the right input is not needed
+		 */
+		void skip() {
+			if (isEndOfStream()) return;
+			skipped = true;
+			table = new HashMap<>();
+			tableSize = 0;
+			getSpilled()
+					.whenResult(output::sendEndOfStream)
+					.whenException(this::closeEx);
+			acknowledgeOnOutput();
+		}
+
+		@Override
+		public void accept(R item) {
+			if (skipped) return;
+			if (rightSpiller != null) {
+				if (rightSpiller.add(item)) {
+					spill(rightSpiller);
+				}
+				return;
+			}
+			build(item);
+			if (tableSize >= itemsInMemory && rightStorage != null) {
+				startSpilling();
+			}
+		}
+
+		private void startSpilling() {
+			assert leftStorage != null && rightStorage != null;
+			logger.info("Right input does not fit in memory, spilling both inputs");
+			leftSpiller = new Spiller<>(leftStorage, leftKeyFunction);
+			rightSpiller = new Spiller<>(rightStorage, rightKeyFunction);
+			for (List<R> items : table.values()) {
+				for (R item : items) {
+					rightSpiller.add(item);
+				}
+			}
+			table = new HashMap<>();
+			tableSize = 0;
+			spill(rightSpiller);
+		}
+
+		@Override
+		protected void onEndOfStream() {
+			if (skipped) return;
+			if (rightSpiller != null && rightSpiller.buffered != 0) {
+				spill(rightSpiller);
+			}
+			getSpilled()
+					.whenResult(left::onBuilt)
+					.whenException(this::closeEx);
+			acknowledgeOnOutput();
+		}
+	}
+
+	private final class Left extends Input<L> {
+		private boolean built;
+
+		void onBuilt() {
+			built = true;
+			if (isEndOfStream()) {
+				// the left input has ended without items while the right input was being spilled
+				output.sendEndOfStream();
+			} else if (leftSpiller != null) {
+				resume(this);
+			} else {
+				setProbe(this, this);
+			}
+		}
+
+		@Override
+		protected void onSpilled() {
+			if (!isEndOfStream()) {
+				resume(this);
+			}
+		}
+
+		@Override
+		public void accept(L item) {
+			assert built;
+			if (leftSpiller == null) {
+				probe(item, output.getBufferedDataAcceptor());
+			} else if (leftSpiller.add(item)) {
+				spill(leftSpiller);
+			}
+		}
+
+		@Override
+		protected void onEndOfStream() {
+			if (!built) {
+				right.skip();
+			} else if (leftSpiller == null) {
+				setProbe(null, null);
+				output.sendEndOfStream();
+			} else {
+				if (leftSpiller.buffered != 0) {
+					spill(leftSpiller);
+				}
+				getSpilled()
+						.whenResult(() -> output.joinPartition(0))
+						.whenException(this::closeEx);
+			}
+			acknowledgeOnOutput();
+		}
+	}
+
+	private final class PartitionProbe extends AbstractStreamConsumer<L> implements StreamDataAcceptor<L> {
+		@Override
+		protected void onStarted() {
+			setProbe(this, this);
+		}
+
+		@Override
+		public void accept(L item) {
+			probe(item, output.getBufferedDataAcceptor());
+		}
+
+		@Override
+		protected void onEndOfStream() {
+			setProbe(null, null);
+			acknowledge();
+		}
+
+		@Override
+		protected void onError(Exception e) {
+			output.closeEx(e);
+		}
+	}
+
+	private final class Output extends AbstractStreamSupplier<V> {
+		void joinPartition(int partition) {
+			assert leftSpiller != null && rightSpiller != null;
+			if (partition == partitions) {
+				sendEndOfStream();
+				return;
+			}
+			table = new HashMap<>();
+			tableSize = 0;
+			boolean skip = leftSpiller.getPartitionIds(partition).isEmpty() ||
+					rightSpiller.getPartitionIds(partition).isEmpty() && (joinType == JoinType.INNER || joinType == JoinType.SEMI);
+			(skip ?
+					Promise.complete() :
+					rightSpiller.read(partition)
+							.streamTo(StreamConsumer.ofConsumer(StreamHashJoin.this::build))
+							.then(() -> {
+								if (tableSize > itemsInMemory) {
+									logger.warn("Partition {} of right input does not fit in memory: {} items", partition, tableSize);
+								}
+								return leftSpiller.read(partition)
+										.streamTo(new PartitionProbe());
+							}))
+					.then(() -> leftSpiller.cleanup(partition).both(rightSpiller.cleanup(partition)))
+					.whenResult(() -> joinPartition(partition + 1))
+					.whenException(this::closeEx);
+		}
+
+		@Override
+		protected void onResumed() {
+			if (probe != null) {
+				probe.resume(probeAcceptor);
+			}
+		}
+
+		@Override
+		protected void onSuspended() {
+			if (probe != null) {
+				probe.suspend();
+			}
+		}
+
+		@Override
+		protected void onError(Exception e) {
+			left.closeEx(e);
+			right.closeEx(e);
+			if (probe != null) {
+				probe.closeEx(e);
+			}
+		}
+
+		@Override
+		protected void onCleanup() {
+			table = new HashMap<>();
+			cleanup();
+		}
+	}
+
+	/**
+	 * Returns left (probe) stream
+	 */
+	public StreamConsumer<L> getLeft() {
+		return left;
+	}
+
+	/**
+	 * Returns right (build) stream
+	 */
+	public StreamConsumer<R> getRight() {
+		return right;
+	}
+
+	@Override
+	public List<? extends StreamConsumer<?>> getInputs() {
+		return asList(left, right);
+	}
+
+	@Override
+	public StreamSupplier<V> getOutput() {
+		return output;
+	}
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.datastream.processor;
+
+import io.activej.common.initializer.WithInitializer;
+import io.activej.datastream.AbstractStreamConsumer;
+import io.activej.datastream.StreamConsumer;
+import io.activej.datastream.StreamDataAcceptor;
+import io.activej.datastream.StreamSupplier;
+import io.activej.datastream.processor.StreamReducers.ReducerToResult;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static io.activej.common.Checks.checkArgument;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Represents {@link StreamTransformer} which groups items of an unsorted stream by keys
+ * in a hash table and streams a result for each key once the input ends.
+ * <p>
+ * Whenever the hash table exceeds the limit of accumulators in memory, accumulators
+ * are split into partitions by hashes of their keys and each partition is written
+ * to the {@link StreamSorterStorage}. When the input ends, partitions are re-aggregated
+ * one by one, and a partition which does not fit in memory is split again,
+ * using different hashes, up to the {@link #withMaxLevels max number of levels}.
+ * <p>
+ * Accumulators of the reducer must be {@link ReducerToResult#combine combinable}.
+ * The output is not sorted by keys.
+ *
+ * @param <K> type of keys
+ * @param <I> type of input items
+ * @param <O> type of output items
+ * @param <A> type of accumulators
+ */
+public final class StreamHashReducer<K, I, O, A> implements StreamTransformer<I, O>, WithInitializer<StreamHashReducer<K, I, O, A>> {
+	private static final Logger logger = getLogger(StreamHashReducer.class);
+
+	public static final int DEFAULT_PARTITIONS = 16;
+	public static final int DEFAULT_MAX_LEVELS = 4;
+
+	private final StreamSorterStorage<A> storage;
+	private final Function<I, K> keyFunction;
+	private final Function<A, K> accumulatorKeyFunction;
+	private final ReducerToResult<K, I, O, A> reducer;
+	private final int itemsInMemory;
+
+	private int partitions = DEFAULT_PARTITIONS;
+	private int maxLevels = DEFAULT_MAX_LEVELS;
+
+	private final List<Integer> partitionIds = new ArrayList<>();
+	private Promise<Void> spillsCompleted = Promise.complete();
+	private final SettablePromise<StreamSupplier<O>> result = new SettablePromise<>();
+
+	private final Input input;
+	private final StreamSupplier<O> output;
+
+	private StreamHashReducer(StreamSorterStorage<A> storage, Function<I, K> keyFunction, Function<A, K> accumulatorKeyFunction,
+			ReducerToResult<K, I, O, A> reducer, int itemsInMemory) {
+		this.storage = storage;
+		this.keyFunction = keyFunction;
+		this.accumulatorKeyFunction = accumulatorKeyFunction;
+		this.reducer = reducer;
+		this.itemsInMemory = itemsInMemory;
+		this.input = new Input();
+		this.output = StreamSupplier.ofPromise(result);
+	}
+
+	/**
+	 * Creates a new instance of StreamHashReducer
+	 *
+	 * @param storage                storage for accumulators which do not fit in memory
+	 * @param keyFunction            function for searching a key of an input item
+	 * @param accumulatorKeyFunction function for searching a key of an accumulator
+	 *                               read back from the storage
+	 * @param reducer                reducer which creates, updates and combines accumulators
+	 * @param itemsInMemory          number of accumulators which can be kept in RAM
+	 */
+	public static <K, I, O, A> StreamHashReducer<K, I, O, A> create(StreamSorterStorage<A> storage,
+			Function<I, K> keyFunction, Function<A, K> accumulatorKeyFunction,
+			ReducerToResult<K, I, O, A> reducer, int itemsInMemory) {
+		checkArgument(itemsInMemory > 0, "Number of items in memory should be positive");
+		return new StreamHashReducer<>(storage, keyFunction, accumulatorKeyFunction, reducer, itemsInMemory);
+	}
+
+	/**
+	 * Sets the number of partitions the accumulators are split into when they are spilled to the storage
+	 */
+	public StreamHashReducer<K, I, O, A> withPartitions(int partitions) {
+		checkArgument(partitions > 1, "Number of partitions should be greater than 1");
+		this.partitions = partitions;
+		return this;
+	}
+
+	/**
+	 * Sets how many times a partition may be split again. A partition which
+	 * still does not fit in memory at the last level is aggregated in memory
+	 */
+	public StreamHashReducer<K, I, O, A> withMaxLevels(int maxLevels) {
+		checkArgument(maxLevels > 0, "Number of levels should be positive");
+		this.maxLevels = maxLevels;
+		return this;
+	}
+
+	private int partition(K key, int level) {
+		// a different seed on each level, so that keys of a partition are split between sub-partitions
+		int h = key.hashCode() ^ (level * 0x9E3779B9);
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return Math.floorMod(h, partitions);
+	}
+
+	private StreamSupplier<O> results(Map<K, A> map) {
+		Iterator<A> iterator = map.values().iterator();
+		return StreamSupplier.ofIterator(new Iterator<O>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public O next() {
+				return reducer.produceResult(iterator.next());
+			}
+		});
+	}
+
+	private Promise<StreamSupplier<O>> aggregatePartition(HashMap<K, A> map, List<Integer> files, int level) {
+		if (files.isEmpty()) {
+			return Promise.of(results(map));
+		}
+		PartitionAggregator aggregator = new PartitionAggregator(map, level);
+		return StreamSupplier.concat(files.stream().map(storage::readStream).collect(toList()))
+				.streamTo(aggregator)
+				.then(() -> {
+					partitionIds.removeAll(files);
+					return storage.cleanup(files);
+				})
+				.map($ -> aggregator.getResult());
+	}
+
+	private abstract class Aggregator<T> extends AbstractStreamConsumer<T> implements StreamDataAcceptor<T> {
+		protected HashMap<K, A> map;
+		protected final int level;
+
+		private List<Integer> @Nullable [] spilledPartitions;
+		private Promise<Void> spilled = Promise.complete();
+		private int activeSpills;
+
+		protected Aggregator(HashMap<K, A> map, int level) {
+			this.map = map;
+			this.level = level;
+		}
+
+		@Override
+		protected void onStarted() {
+			resume(this);
+		}
+
+		@Override
+		public final void accept(T item) {
+			aggregate(item);
+			if (map.size() >= itemsInMemory && level < maxLevels) {
+				spill();
+			}
+		}
+
+		protected abstract void aggregate(T item);
+
+		@SuppressWarnings("unchecked")
+		private void spill() {
+			if (spilledPartitions == null) {
+				spilledPartitions = new List[partitions];
+				for (int i = 0; i < partitions; i++) {
+					spilledPartitions[i] = new ArrayList<>();
+				}
+			}
+			List<A>[] buckets = new List[partitions];
+			for (Map.Entry<K, A> entry : map.entrySet()) {
+				int partition = partition(entry.getKey(), level);
+				if (buckets[partition] == null) {
+					buckets[partition] = new ArrayList<>();
+				}
+				buckets[partition].add(entry.getValue());
+			}
+			logger.trace("Spilling {} accumulators at level {}", map.size(), level);
+			map = new HashMap<>();
+
+			List<Promise<Void>> writes = new ArrayList<>();
+			for (int i = 0; i < partitions; i++) {
+				if (buckets[i] == null) continue;
+				List<A> bucket = buckets[i];
+				List<Integer> spilledPartition = spilledPartitions[i];
+				Promise<Void> write = storage.newPartitionId()
+						.then(partitionId -> {
+							partitionIds.add(partitionId);
+							spilledPartition.add(partitionId);
+							return StreamSupplier.ofIterable(bucket).streamTo(storage.writeStream(partitionId));
+						});
+				writes.add(write);
+				// each write is awaited, as the spill fails as soon as any of its writes fails
+				spillsCompleted = spillsCompleted.both(write.toTry().toVoid());
+			}
+
+			activeSpills++;
+			suspend();
+			Promise<Void> spill = Promises.all(writes)
+					.whenResult(() -> {
+						if (--activeSpills == 0) {
+							resume(this);
+						}
+					})
+					.whenException(this::closeEx);
+			spilled = spilled.both(spill);
+		}
+
+		protected final Promise<Void> getSpilled() {
+			return spilled;
+		}
+
+		protected final StreamSupplier<O> getResult() {
+			HashMap<K, A> map = this.map;
+			this.map = null;
+			List<Integer>[] spilledPartitions = this.spilledPartitions;
+			if (spilledPartitions == null) {
+				return results(map);
+			}
+			List<HashMap<K, A>> maps = new ArrayList<>(partitions);
+			for (int i = 0; i < partitions; i++) {
+				maps.add(new HashMap<>());
+			}
+			for (Map.Entry<K, A> entry : map.entrySet()) {
+				maps.get(partition(entry.getKey(), level)).put(entry.getKey(), entry.getValue());
+			}
+			List<Integer> nonEmpty = new ArrayList<>();
+			for (int i = 0; i < partitions; i++) {
+				if (!maps.get(i).isEmpty() || !spilledPartitions[i].isEmpty()) {
+					nonEmpty.add(i);
+				}
+			}
+			Iterator<Integer> partitionsIterator = nonEmpty.iterator();
+			return StreamSupplier.concat(new Iterator<StreamSupplier<O>>() {
+				@Override
+				public boolean hasNext() {
+					return partitionsIterator.hasNext();
+				}
+
+				@Override
+				public StreamSupplier<O> next() {
+					int i = partitionsIterator.next();
+					HashMap<K, A> partitionMap = maps.set(i, null);
+					return StreamSupplier.ofPromise(aggregatePartition(partitionMap, spilledPartitions[i], level + 1));
+				}
+			});
+		}
+	}
+
+	private final class PartitionAggregator extends Aggregator<A> {
+		PartitionAggregator(HashMap<K, A> map, int level) {
+			super(map, level);
+		}
+
+		@Override
+		protected void aggregate(A item) {
+			K key = accumulatorKeyFunction.apply(item);
+			A accumulator = map.get(key);
+			map.put(key, accumulator == null ? item : reducer.combine(accumulator, item));
+		}
+
+		@Override
+		protected void onEndOfStream() {
+			getSpilled()
+					.whenResult(this::acknowledge)
+					.whenException(this::closeEx);
+		}
+	}
+
+	private final class Input extends Aggregator<I> {
+		Input() {
+			super(new HashMap<>(), 0);
+		}
+
+		@Override
+		protected void aggregate(I item) {
+			K key = keyFunction.apply(item);
+			A accumulator = map.get(key);
+			if (accumulator == null) {
+				map.put(key, reducer.accumulate(reducer.createAccumulator(key), item));
+				return;
+			}
+			A newAccumulator = reducer.accumulate(accumulator, item);
+			if (newAccumulator != accumulator) {
+				map.put(key, newAccumulator);
+			}
+		}
+
+		@Override
+		protected void onEndOfStream() {
+			getSpilled()
+					.whenResult(() -> result.trySet(getResult()))
+					.whenException(this::closeEx);
+			output.getAcknowledgement()
+					.then((ackRes, e) -> cleanup()
+							.then(($, e1) -> Promise.of(ackRes, e)))
+					.whenResult(this::acknowledge)
+					.whenException(this::closeEx);
+		}
+
+		@Override
+		protected void onError(Exception e) {
+			result.trySetException(e);
+		}
+
+		@Override
+		protected void onCleanup() {
+			map = null;
+			cleanup();
+		}
+
+		/**
+		 * Removes the spilled partitions which have not been aggregated yet,
+		 * once all the spills which are in progress complete
+		 */
+		private Promise<Void> cleanup() {
+			return spillsCompleted.then(() -> {
+				if (partitionIds.isEmpty()) return Promise.complete();
+				List<Integer> ids = new ArrayList<>(partitionIds);
+				partitionIds.clear();
+				return storage.cleanup(ids);
+			});
+		}
+	}
+
+	@Override
+	public StreamConsumer<I> getInput() {
+		return input;
+	}
+
+	@Override
+	public StreamSupplier<O> getOutput() {
+		return output;
+	}
+}
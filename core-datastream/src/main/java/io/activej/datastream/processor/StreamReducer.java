@@ -28,6 +28,7 @@ import java.util.*;
 import java.util.function.Function;
 
 import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.Checks.checkState;
 
 /**
  * Applies aggregative functions to the elements from input streams.
@@ -36,6 +37,8 @@ import static io.activej.common.Checks.checkArgument;
  * <p>
  * Elements from stream to input must be sorted by keys. It is Stream Transformer
  * because it represents few consumers and one supplier.
+ * <p>
+ * Inputs are merged with a loser tree by default, see {@link #withLoserTree(boolean)}.
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 public final class StreamReducer<K, O, A> implements HasStreamInputs, HasStreamOutput<O>, WithInitializer<StreamReducer<K, O, A>> {
@@ -50,30 +53,46 @@ public final class StreamReducer<K, O, A> implements HasStreamInputs, HasStreamO
 	private @Nullable K key = null;
 	private @Nullable A accumulator;
 
-	private final PriorityQueue<Input<?>> priorityQueue;
+	private final Comparator<Input<?>> inputComparator;
+	private InputQueue priorityQueue;
 	private int streamsAwaiting;
 	private int streamsOpen;
 
-	private StreamReducer(@NotNull PriorityQueue<Input<?>> priorityQueue) {
+	private StreamReducer(@NotNull Comparator<Input<?>> inputComparator) {
 		this.output = new Output();
-		this.priorityQueue = priorityQueue;
+		this.inputComparator = inputComparator;
+		this.priorityQueue = new LoserTree(inputComparator);
 	}
 
 	public static <K, O, A> StreamReducer<K, O, A> create(Comparator<K> keyComparator) {
-		return new StreamReducer<>(new PriorityQueue<>(1, (input1, input2) -> {
+		return new StreamReducer<>((input1, input2) -> {
 			int compare = ((Comparator) keyComparator).compare(input1.headKey, input2.headKey);
 			if (compare != 0) return compare;
 			return input1.index - input2.index;
-		}));
+		});
 	}
 
 	@SuppressWarnings({"ComparatorCombinators", "Convert2Diamond"})
 	public static <K extends Comparable<K>, O, A> StreamReducer<K, O, A> create() {
-		return new StreamReducer<K, O, A>(new PriorityQueue<>(1, (input1, input2) -> {
+		return new StreamReducer<K, O, A>((input1, input2) -> {
 			int compare = input1.headKey.compareTo(input2.headKey);
 			if (compare != 0) return compare;
 			return input1.index - input2.index;
-		}));
+		});
+	}
+
+	/**
+	 * Chooses how the heads of inputs are merged.
+	 * <p>
+	 * A loser tree needs a single comparison per level of the tree to replace the smallest head,
+	 * and only one comparison per item while the same input keeps supplying the smallest keys.
+	 * Otherwise, a binary heap ({@link PriorityQueue}) is used.
+	 * Should be called before any input is added
+	 */
+	public StreamReducer<K, O, A> withLoserTree(boolean loserTree) {
+		checkState(inputs.isEmpty(), "Inputs have already been added");
+		this.priorityQueue = loserTree ? new LoserTree(inputComparator) : new HeapInputQueue(inputComparator);
+		return this;
 	}
 
 	public StreamReducer<K, O, A> withBufferSize(int bufferSize) {
@@ -107,7 +126,7 @@ public final class StreamReducer<K, O, A> implements HasStreamInputs, HasStreamO
 		private I headItem;
 		private K headKey;
 		private final int index;
-		private final PriorityQueue<Input<?>> priorityQueue;
+		private final InputQueue priorityQueue;
 		private final ArrayDeque<I> deque = new ArrayDeque<>();
 		private final int bufferSize;
 
@@ -280,4 +299,203 @@ public final class StreamReducer<K, O, A> implements HasStreamInputs, HasStreamO
 			priorityQueue.clear();
 		}
 	}
+
+	private interface InputQueue {
+		boolean offer(StreamReducer.Input input);
+
+		@Nullable StreamReducer.Input poll();
+
+		boolean isEmpty();
+
+		void clear();
+	}
+
+	private final class HeapInputQueue implements InputQueue {
+		private final PriorityQueue<Input<?>> queue;
+
+		HeapInputQueue(Comparator<Input<?>> comparator) {
+			this.queue = new PriorityQueue<>(1, comparator);
+		}
+
+		@Override
+		public boolean offer(Input input) {
+			return queue.offer(input);
+		}
+
+		@Override
+		public @Nullable Input<?> poll() {
+			return queue.poll();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		@Override
+		public void clear() {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * A tournament tree which keeps the loser of each match in its inner nodes.
+	 * Leaves are indexed by input indexes, an empty leaf loses to any input.
+	 * <p>
+	 * A polled input stays in its leaf until it is either offered again, in which case only
+	 * its path to the root is replayed, or until the queue is accessed otherwise.
+	 * Any other input that is offered invalidates the tree, so that it is rebuilt on the next poll.
+	 */
+	private final class LoserTree implements InputQueue {
+		private final Comparator<Input<?>> comparator;
+
+		private Input<?>[] leaves = new StreamReducer.Input[0];
+		private int[] tree = new int[0];
+		private int[] winners = new int[0];
+		private int size;
+		private boolean dirty;
+
+		private int polled = -1;
+		private int lastPolled = -1;
+		private boolean repeatedWinner;
+		private int runnerUp = -1;
+		private boolean runnerUpValid;
+
+		LoserTree(Comparator<Input<?>> comparator) {
+			this.comparator = comparator;
+		}
+
+		@Override
+		public boolean offer(Input input) {
+			int leaf = input.index;
+			if (leaf >= leaves.length) {
+				grow(leaf + 1);
+			}
+			size++;
+			if (leaf == polled) {
+				polled = -1;
+				if (!dirty) {
+					update(leaf);
+				}
+				return true;
+			}
+			removePolled();
+			leaves[leaf] = input;
+			dirty = true;
+			return true;
+		}
+
+		@Override
+		public @Nullable Input<?> poll() {
+			removePolled();
+			if (size == 0) {
+				return null;
+			}
+			if (dirty) {
+				build();
+			}
+			int winner = tree[0];
+			repeatedWinner = winner == lastPolled;
+			lastPolled = winner;
+			polled = winner;
+			size--;
+			return leaves[winner];
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		@Override
+		public void clear() {
+			Arrays.fill(leaves, null);
+			size = 0;
+			polled = -1;
+			lastPolled = -1;
+			dirty = true;
+		}
+
+		private void update(int leaf) {
+			if (!runnerUpValid && repeatedWinner) {
+				runnerUp = findRunnerUp(leaf);
+				runnerUpValid = true;
+			}
+			// run detection: the input still beats the best of the others, so the tree stays the same
+			if (runnerUpValid && less(leaf, runnerUp)) {
+				return;
+			}
+			replay(leaf);
+		}
+
+		private void removePolled() {
+			if (polled == -1) return;
+			leaves[polled] = null;
+			if (!dirty) {
+				replay(polled);
+			}
+			polled = -1;
+		}
+
+		private void replay(int leaf) {
+			runnerUpValid = false;
+			int winner = leaf;
+			for (int node = (leaf + leaves.length) >>> 1; node > 0; node >>>= 1) {
+				int loser = tree[node];
+				if (less(loser, winner)) {
+					tree[node] = winner;
+					winner = loser;
+				}
+			}
+			tree[0] = winner;
+		}
+
+		private int findRunnerUp(int winner) {
+			int best = -1;
+			for (int node = (winner + leaves.length) >>> 1; node > 0; node >>>= 1) {
+				int loser = tree[node];
+				if (best == -1 || less(loser, best)) {
+					best = loser;
+				}
+			}
+			return best;
+		}
+
+		private void build() {
+			int n = leaves.length;
+			for (int i = 0; i < n; i++) {
+				winners[n + i] = i;
+			}
+			for (int node = n - 1; node > 0; node--) {
+				int left = winners[2 * node];
+				int right = winners[2 * node + 1];
+				if (less(left, right)) {
+					winners[node] = left;
+					tree[node] = right;
+				} else {
+					winners[node] = right;
+					tree[node] = left;
+				}
+			}
+			tree[0] = n == 1 ? 0 : winners[1];
+			dirty = false;
+			runnerUpValid = false;
+		}
+
+		private void grow(int capacity) {
+			leaves = Arrays.copyOf(leaves, capacity);
+			tree = new int[capacity];
+			winners = new int[2 * capacity];
+			dirty = true;
+		}
+
+		private boolean less(int leaf1, int leaf2) {
+			if (leaf2 == -1) return true;
+			Input<?> input1 = leaves[leaf1];
+			Input<?> input2 = leaves[leaf2];
+			if (input2 == null) return input1 != null;
+			if (input1 == null) return false;
+			return comparator.compare(input1, input2) < 0;
+		}
+	}
 }
@@ -23,28 +23,38 @@ import io.activej.datastream.StreamConsumer;
 import io.activej.datastream.StreamDataAcceptor;
 import io.activej.datastream.StreamSupplier;
 import io.activej.promise.Promise;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.datastream.processor.StreamReducers.deduplicateReducer;
 import static io.activej.datastream.processor.StreamReducers.mergeReducer;
+import static java.util.stream.Collectors.toList;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Represent {@link StreamTransformer} which receives data and saves it in
  * collection, when it receives end of stream it sorts it and streams to destination.
+ * <p>
+ * Whenever the number of items in memory exceeds the limit, they are sorted
+ * as a separate run and written to the {@link StreamSorterStorage}, while the input
+ * keeps being received. When the input ends, the runs are merged, at most
+ * {@link #withMaxMergeFanIn max fan-in} runs at a time.
  *
  * @param <K> type of keys
  * @param <T> type of objects
  */
 public final class StreamSorter<K, T> implements StreamTransformer<T, T>, WithInitializer<StreamSorter<K, T>> {
 	private static final Logger logger = getLogger(StreamSorter.class);
+
+	public static final int DEFAULT_MAX_PENDING_RUNS = 2;
+	public static final int DEFAULT_MAX_MERGE_FAN_IN = Integer.MAX_VALUE;
+
 	private final AsyncAccumulator<? extends List<Integer>> temporaryStreamsAccumulator;
 	private final StreamSorterStorage<T> storage;
 	private final Function<T, K> keyFunction;
@@ -57,6 +67,10 @@ public final class StreamSorter<K, T> implements StreamTransformer<T, T>, WithIn
 	private final StreamSupplier<T> output;
 
 	private Executor sortingExecutor = Runnable::run;
+	private boolean parallelSort;
+	private @Nullable ToLongFunction<K> keyPrefixFunction;
+	private int maxPendingRuns = DEFAULT_MAX_PENDING_RUNS;
+	private int maxMergeFanIn = DEFAULT_MAX_MERGE_FAN_IN;
 
 	private StreamSorter(StreamSorterStorage<T> storage,
 			Function<T, K> keyFunction, Comparator<K> keyComparator, boolean deduplicate,
@@ -80,31 +94,157 @@ public final class StreamSorter<K, T> implements StreamTransformer<T, T>, WithIn
 						.then(streamIds -> {
 							ArrayList<T> sortedList = input.list;
 							input.list = null;
-							return Promise.ofBlocking(sortingExecutor, () -> sortedList.sort(itemComparator))
-									.map($ -> {
+							return Promise.ofBlocking(sortingExecutor, () -> sort(sortedList))
+									.combine(reducePartitions(new ArrayList<>(streamIds)), ($, reducedIds) -> {
 										StreamSupplier<T> listSupplier = StreamSupplier.ofIterator(deduplicate ?
 												new DistinctIterator<>(sortedList, keyFunction, keyComparator) :
 												sortedList.iterator());
-										logger.info("Items in memory: {}, files: {}", sortedList.size(), streamIds.size());
-										if (streamIds.isEmpty()) {
+										logger.info("Items in memory: {}, files: {}", sortedList.size(), reducedIds.size());
+										if (reducedIds.isEmpty()) {
 											return listSupplier;
 										}
-										StreamReducer<K, T, Void> streamMerger = StreamReducer.create(keyComparator);
-										listSupplier.streamTo(streamMerger.newInput(keyFunction, deduplicate ? deduplicateReducer() : mergeReducer()));
-										for (Integer streamId : streamIds) {
-											StreamSupplier.ofPromise(storage.read(streamId))
-													.streamTo(streamMerger.newInput(keyFunction, deduplicate ? deduplicateReducer() : mergeReducer()));
+										List<StreamSupplier<T>> suppliers = new ArrayList<>();
+										suppliers.add(listSupplier);
+										for (Integer streamId : reducedIds) {
+											suppliers.add(storage.readStream(streamId));
 										}
-										return streamMerger.getOutput();
+										return merge(suppliers);
 									});
 						}));
 	}
 
+	/**
+	 * Sets an executor which sorts the runs.
+	 * <p>
+	 * If {@link #withParallelSort parallel sort} is enabled and
+	 * the executor is a {@link java.util.concurrent.ForkJoinPool},
+	 * each run is sorted by all the threads of that pool
+	 */
 	public StreamSorter<K, T> withSortingExecutor(Executor executor) {
 		sortingExecutor = executor;
 		return this;
 	}
 
+	/**
+	 * Sorts each run with {@link Arrays#parallelSort(Object[], Comparator)}
+	 * instead of a single threaded sort
+	 */
+	public StreamSorter<K, T> withParallelSort(boolean parallelSort) {
+		this.parallelSort = parallelSort;
+		return this;
+	}
+
+	/**
+	 * Sets a function which maps a key to its {@code long} prefix (a normalized key).
+	 * Items are compared by their prefixes first and the key comparator
+	 * is only called for items with equal prefixes.
+	 * <p>
+	 * The prefix has to be consistent with the key comparator:
+	 * if {@code prefix(k1) < prefix(k2)} then {@code keyComparator.compare(k1, k2) < 0}
+	 */
+	public StreamSorter<K, T> withKeyPrefix(ToLongFunction<K> keyPrefixFunction) {
+		this.keyPrefixFunction = keyPrefixFunction;
+		return this;
+	}
+
+	/**
+	 * Sets the number of runs that may be sorted and written to the storage
+	 * while the input keeps being received. The input is suspended
+	 * when there are more runs pending
+	 */
+	public StreamSorter<K, T> withMaxPendingRuns(int maxPendingRuns) {
+		checkArgument(maxPendingRuns > 0, "Number of pending runs should be positive");
+		this.maxPendingRuns = maxPendingRuns;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of streams merged at once.
+	 * If there are more runs in the storage, they are first merged
+	 * into bigger runs, {@code maxMergeFanIn} runs at a time
+	 */
+	public StreamSorter<K, T> withMaxMergeFanIn(int maxMergeFanIn) {
+		checkArgument(maxMergeFanIn > 1, "Merge fan-in should be greater than 1");
+		this.maxMergeFanIn = maxMergeFanIn;
+		return this;
+	}
+
+	private StreamSupplier<T> merge(List<StreamSupplier<T>> suppliers) {
+		StreamReducer<K, T, Void> streamMerger = StreamReducer.create(keyComparator);
+		for (StreamSupplier<T> supplier : suppliers) {
+			supplier.streamTo(streamMerger.newInput(keyFunction, distinct ? deduplicateReducer() : mergeReducer()));
+		}
+		return streamMerger.getOutput();
+	}
+
+	private Promise<List<Integer>> reducePartitions(List<Integer> partitionIds) {
+		// one more input of the final merge is taken by the items in memory
+		if (partitionIds.size() < maxMergeFanIn) {
+			return Promise.of(partitionIds);
+		}
+		List<Integer> group = new ArrayList<>(partitionIds.subList(0, maxMergeFanIn));
+		List<Integer> rest = new ArrayList<>(partitionIds.subList(maxMergeFanIn, partitionIds.size()));
+		return storage.newPartitionId()
+				.then(partitionId -> {
+					input.partitionIds.add(partitionId);
+					logger.trace("Merging partitions {} into partition {}", group, partitionId);
+					return merge(group.stream().map(storage::readStream).collect(toList()))
+							.streamTo(storage.writeStream(partitionId))
+							.then(() -> storage.cleanup(group))
+							.then(() -> {
+								input.partitionIds.removeAll(group);
+								rest.add(partitionId);
+								return reducePartitions(rest);
+							});
+				});
+	}
+
+	@SuppressWarnings("unchecked")
+	private void sort(ArrayList<T> list) {
+		if (keyPrefixFunction == null) {
+			if (!parallelSort) {
+				list.sort(itemComparator);
+				return;
+			}
+			T[] items = (T[]) list.toArray();
+			Arrays.parallelSort(items, itemComparator);
+			for (int i = 0; i < items.length; i++) {
+				list.set(i, items[i]);
+			}
+			return;
+		}
+		PrefixedItem<K, T>[] items = new PrefixedItem[list.size()];
+		for (int i = 0; i < items.length; i++) {
+			T item = list.get(i);
+			K key = keyFunction.apply(item);
+			items[i] = new PrefixedItem<>(keyPrefixFunction.applyAsLong(key), key, item);
+		}
+		Comparator<PrefixedItem<K, T>> comparator = (item1, item2) -> {
+			int result = Long.compare(item1.prefix, item2.prefix);
+			return result != 0 ? result : keyComparator.compare(item1.key, item2.key);
+		};
+		if (parallelSort) {
+			Arrays.parallelSort(items, comparator);
+		} else {
+			Arrays.sort(items, comparator);
+		}
+		for (int i = 0; i < items.length; i++) {
+			list.set(i, items[i].item);
+		}
+	}
+
+	private static final class PrefixedItem<K, T> {
+		final long prefix;
+		final K key;
+		final T item;
+
+		PrefixedItem(long prefix, K key, T item) {
+			this.prefix = prefix;
+			this.key = key;
+			this.item = item;
+		}
+	}
+
 	private static final class DistinctIterator<K, T> implements Iterator<T> {
 		private final ArrayList<T> sortedList;
 		private final Function<T, K> keyFunction;
@@ -180,7 +320,7 @@ public final class StreamSorter<K, T> implements StreamTransformer<T, T>, WithIn
 			list = new ArrayList<>(itemsInMemory);
 
 			temporaryStreamsAccumulator.addPromise(
-					Promise.ofBlocking(sortingExecutor, () -> sortedList.sort(itemComparator))
+					Promise.ofBlocking(sortingExecutor, () -> sort(sortedList))
 							.then($ -> {
 								Iterator<T> iterator = distinct ?
 										new DistinctIterator<>(sortedList, keyFunction, keyComparator) :
@@ -197,7 +337,7 @@ public final class StreamSorter<K, T> implements StreamTransformer<T, T>, WithIn
 		}
 
 		private void suspendOrResume() {
-			if (temporaryStreamsAccumulator.getActivePromises() > 2) {
+			if (temporaryStreamsAccumulator.getActivePromises() > maxPendingRuns) {
 				suspend();
 			} else {
 				resume(this);
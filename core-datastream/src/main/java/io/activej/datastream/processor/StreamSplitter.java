@@ -54,7 +54,19 @@ public final class StreamSplitter<I, O> implements HasStreamInput<I>, HasStreamO
 	}
 
 	public static <I, O> StreamSplitter<I, O> create(BiConsumer<I, StreamDataAcceptor<O>[]> action) {
-		return create(acceptors -> item -> action.accept(item, acceptors));
+		return create(acceptors -> new StreamDataAcceptor<I>() {
+			@Override
+			public void accept(I item) {
+				action.accept(item, acceptors);
+			}
+
+			@Override
+			public void acceptAll(List<I> items) {
+				for (int i = 0, size = items.size(); i < size; i++) {
+					action.accept(items.get(i), acceptors);
+				}
+			}
+		});
 	}
 
 	public static <I, O> StreamSplitter<I, O> create(Function<StreamDataAcceptor<O>[], StreamDataAcceptor<I>> acceptorFactory) {
@@ -24,6 +24,7 @@ import io.activej.jmx.stats.StatsUtils;
 import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
+import java.util.List;
 
 public final class StreamStatsDetailed<T> extends StreamStatsBasic<T> implements JmxStatsWithReset {
 	private final @Nullable StreamStatsSizeCounter<Object> sizeCounter;
@@ -44,9 +45,18 @@ public final class StreamStatsDetailed<T> extends StreamStatsBasic<T> implements
 	@Override
 	public StreamDataAcceptor<T> createDataAcceptor(StreamDataAcceptor<T> actualDataAcceptor) {
 		return sizeCounter == null ?
-				item -> {
-					count++;
-					actualDataAcceptor.accept(item);
+				new StreamDataAcceptor<T>() {
+					@Override
+					public void accept(T item) {
+						count++;
+						actualDataAcceptor.accept(item);
+					}
+
+					@Override
+					public void acceptAll(List<T> items) {
+						count += items.size();
+						actualDataAcceptor.acceptAll(items);
+					}
 				} :
 				item -> {
 					count++;
@@ -1,19 +1,26 @@
 package io.activej.datastream.csp;
 
 import io.activej.common.MemSize;
+import io.activej.datastream.AbstractStreamConsumer;
 import io.activej.datastream.StreamConsumerToList;
+import io.activej.datastream.StreamDataAcceptor;
 import io.activej.datastream.StreamSupplier;
+import io.activej.datastream.processor.StreamFilter;
 import io.activej.serializer.BinarySerializers;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
+import static io.activej.datastream.TestStreamTransformers.randomlySuspending;
 import static io.activej.promise.TestUtils.await;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
@@ -61,4 +68,102 @@ public final class ChannelSerializerDeserializerTest {
 			assertArrayEquals(byteArrays.get(i), deserialized.get(i));
 		}
 	}
+
+	@Test
+	public void maxBatchSize() {
+		List<Integer> ints = IntStream.range(0, 1000).boxed().collect(toList());
+		List<Integer> batches = new ArrayList<>();
+		int[] totalBytes = {0};
+
+		StreamConsumerToList<Integer> consumer = StreamConsumerToList.create();
+
+		await(StreamSupplier.ofIterable(ints)
+				.transformWith(ChannelSerializer.create(BinarySerializers.INT_SERIALIZER)
+						.withMaxBatchSize(300)
+						.withFlushListener((items, bytes) -> {
+							batches.add(items);
+							totalBytes[0] += bytes;
+						}))
+				.transformWith(ChannelDeserializer.create(BinarySerializers.INT_SERIALIZER))
+				.streamTo(consumer));
+
+		assertEquals(ints, consumer.getList());
+		assertEquals(asList(300, 300, 300, 100), batches);
+		assertEquals(1000 * (1 + 4), totalBytes[0]);
+	}
+
+	@Test
+	public void serializeBatches() {
+		List<Integer> ints = IntStream.range(0, 1000).boxed().collect(toList());
+		List<Integer> flushes = new ArrayList<>();
+
+		StreamConsumerToList<Integer> consumer = StreamConsumerToList.create();
+
+		await(StreamSupplier.ofIterable(ints)
+				.transformWith(ChannelSerializer.create(BinarySerializers.INT_SERIALIZER))
+				.transformWith(ChannelDeserializer.create(BinarySerializers.INT_SERIALIZER).withBatchSize(256))
+				.transformWith(ChannelSerializer.create(BinarySerializers.INT_SERIALIZER)
+						.withMaxBatchSize(100)
+						.withFlushListener((items, bytes) -> flushes.add(items)))
+				.transformWith(ChannelDeserializer.create(BinarySerializers.INT_SERIALIZER))
+				.streamTo(consumer));
+
+		assertEquals(ints, consumer.getList());
+		// a whole batch is serialized before a buffer is flushed
+		assertEquals(asList(256, 256, 256, 232), flushes);
+	}
+
+	@Test
+	public void batches() {
+		List<Integer> ints = IntStream.range(0, 1000).boxed().collect(toList());
+		List<Integer> batches = new ArrayList<>();
+		List<Integer> result = new ArrayList<>();
+
+		await(StreamSupplier.ofIterable(ints)
+				.transformWith(ChannelSerializer.create(BinarySerializers.INT_SERIALIZER))
+				.transformWith(ChannelDeserializer.create(BinarySerializers.INT_SERIALIZER).withBatchSize(300))
+				.transformWith(StreamFilter.create(i -> i % 2 == 0))
+				.transformWith(StreamFilter.mapper(i -> i / 2))
+				.streamTo(new AbstractStreamConsumer<Integer>() {
+					@Override
+					protected void onStarted() {
+						resume(new StreamDataAcceptor<Integer>() {
+							@Override
+							public void accept(Integer item) {
+								batches.add(1);
+								result.add(item);
+							}
+
+							@Override
+							public void acceptAll(List<Integer> items) {
+								batches.add(items.size());
+								result.addAll(items);
+							}
+						});
+					}
+
+					@Override
+					protected void onEndOfStream() {
+						acknowledge();
+					}
+				}));
+
+		assertEquals(IntStream.range(0, 500).boxed().collect(toList()), result);
+		assertEquals(asList(150, 150, 150, 50), batches);
+	}
+
+	@Test
+	public void batchesWithSuspends() {
+		List<Integer> ints = IntStream.range(0, 10_000).boxed().collect(toList());
+
+		StreamConsumerToList<Integer> consumer = StreamConsumerToList.create();
+
+		await(StreamSupplier.ofIterable(ints)
+				.transformWith(ChannelSerializer.create(BinarySerializers.INT_SERIALIZER).withMaxBatchSize(1000))
+				.transformWith(ChannelDeserializer.create(BinarySerializers.INT_SERIALIZER).withBatchSize(64))
+				.transformWith(StreamFilter.mapper(i -> i + 1))
+				.streamTo(consumer.transformWith(randomlySuspending())));
+
+		assertEquals(IntStream.range(1, 10_001).boxed().collect(toList()), consumer.getList());
+	}
 }
@@ -3,6 +3,7 @@ package io.activej.datastream.processor;
 import io.activej.datastream.StreamConsumer;
 import io.activej.datastream.StreamSupplier;
 import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.test.ExpectedException;
 
 import java.util.List;
@@ -16,6 +17,7 @@ public final class FailingStreamSorterStorageStub<T> implements StreamSorterStor
 
 	boolean failNewPartition;
 	boolean failWrite;
+	int successfulWrites = -1;
 	boolean failRead;
 	boolean failCleanup;
 
@@ -41,6 +43,15 @@ public final class FailingStreamSorterStorageStub<T> implements StreamSorterStor
 		return this;
 	}
 
+	/**
+	 * Fails the writes after the given number of successful ones. The successful
+	 * writes are delayed, so that they are still in progress when a write fails
+	 */
+	public FailingStreamSorterStorageStub<T> withFailWrite(int successfulWrites){
+		this.successfulWrites = successfulWrites;
+		return this;
+	}
+
 	public FailingStreamSorterStorageStub<T> withFailRead(){
 		this.failRead = true;
 		return this;
@@ -64,6 +75,11 @@ public final class FailingStreamSorterStorageStub<T> implements StreamSorterStor
 	@Override
 	public Promise<StreamConsumer<T>> write(int partition) {
 		checkNotNull(storage);
+		if (successfulWrites == 0) failWrite = true;
+		if (successfulWrites > 0) {
+			successfulWrites--;
+			return Promises.delay(10L).then(() -> storage.write(partition));
+		}
 		return failWrite ? Promise.ofException(STORAGE_EXCEPTION) : storage.write(partition);
 	}
 
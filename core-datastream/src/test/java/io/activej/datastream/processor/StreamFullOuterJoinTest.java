@@ -0,0 +1,104 @@
+package io.activej.datastream.processor;
+
+import io.activej.datastream.StreamConsumerToList;
+import io.activej.datastream.StreamSupplier;
+import io.activej.datastream.processor.StreamFullOuterJoin.ValueFullOuterJoiner;
+import io.activej.test.ExpectedException;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static io.activej.datastream.TestStreamTransformers.oneByOne;
+import static io.activej.datastream.TestStreamTransformers.randomlySuspending;
+import static io.activej.datastream.TestUtils.assertClosedWithError;
+import static io.activej.datastream.TestUtils.assertEndOfStream;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class StreamFullOuterJoinTest {
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	// left items reference right items by their tens
+	private static final ValueFullOuterJoiner<Integer, Integer, Integer, String> JOINER = new ValueFullOuterJoiner<Integer, Integer, Integer, String>() {
+		@Override
+		public String doInnerJoin(Integer key, Integer left, Integer right) {
+			return left + ":" + right;
+		}
+
+		@Override
+		public String doLeftJoin(Integer key, Integer left) {
+			return left + ":null";
+		}
+
+		@Override
+		public String doRightJoin(Integer key, Integer right) {
+			return "null:" + right;
+		}
+	};
+
+	@Test
+	public void testFullOuterJoin() {
+		assertEquals(asList("10:1", "20:null", "21:null", "null:3", "40:4", "41:4", "null:5", "null:6"),
+				join(asList(10, 20, 21, 40, 41), asList(1, 3, 4, 5, 6)));
+	}
+
+	@Test
+	public void testLeftRemainder() {
+		assertEquals(asList("null:1", "20:2", "30:null", "31:null"),
+				join(asList(20, 30, 31), asList(1, 2)));
+	}
+
+	@Test
+	public void testEmptyInputs() {
+		assertEquals(asList("null:1", "null:2"), join(emptyList(), asList(1, 2)));
+		assertEquals(asList("10:null", "20:null"), join(asList(10, 20), emptyList()));
+		assertEquals(emptyList(), join(emptyList(), emptyList()));
+	}
+
+	@Test
+	public void testWithError() {
+		ExpectedException exception = new ExpectedException();
+		StreamSupplier<Integer> leftSupplier = StreamSupplier.of(10, 20);
+		StreamSupplier<Integer> rightSupplier = StreamSupplier.closingWithError(exception);
+		StreamFullOuterJoin<Integer, Integer, Integer, String> join = create();
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+
+		Exception e = awaitException(
+				leftSupplier.streamTo(join.getLeft()),
+				rightSupplier.streamTo(join.getRight()),
+				join.getOutput().streamTo(consumer));
+
+		assertSame(exception, e);
+		assertClosedWithError(exception, consumer);
+		assertClosedWithError(exception, join.getLeft());
+		assertClosedWithError(exception, join.getRight());
+	}
+
+	private static List<String> join(List<Integer> left, List<Integer> right) {
+		StreamSupplier<Integer> leftSupplier = StreamSupplier.ofIterable(left);
+		StreamSupplier<Integer> rightSupplier = StreamSupplier.ofIterable(right);
+		StreamFullOuterJoin<Integer, Integer, Integer, String> join = create();
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+
+		await(
+				leftSupplier.streamTo(join.getLeft().transformWith(oneByOne())),
+				rightSupplier.streamTo(join.getRight().transformWith(randomlySuspending())),
+				join.getOutput().streamTo(consumer.transformWith(randomlySuspending())));
+
+		assertEndOfStream(leftSupplier);
+		assertEndOfStream(rightSupplier, consumer);
+		return consumer.getList();
+	}
+
+	private static StreamFullOuterJoin<Integer, Integer, Integer, String> create() {
+		return StreamFullOuterJoin.create(Integer::compareTo, (Integer item) -> item / 10, (Integer item) -> item, JOINER);
+	}
+}
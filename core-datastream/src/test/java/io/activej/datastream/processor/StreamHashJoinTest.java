@@ -0,0 +1,203 @@
+package io.activej.datastream.processor;
+
+import io.activej.csp.process.frames.FrameFormat;
+import io.activej.csp.process.frames.FrameFormats;
+import io.activej.datastream.AbstractStreamSupplier;
+import io.activej.datastream.StreamConsumerToList;
+import io.activej.datastream.StreamSupplier;
+import io.activej.datastream.processor.StreamHashJoin.JoinType;
+import io.activej.datastream.processor.StreamLeftJoin.ValueLeftJoiner;
+import io.activej.promise.Promises;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static io.activej.datastream.TestStreamTransformers.randomlySuspending;
+import static io.activej.datastream.TestUtils.assertClosedWithError;
+import static io.activej.datastream.TestUtils.assertEndOfStream;
+import static io.activej.datastream.processor.FailingStreamSorterStorageStub.STORAGE_EXCEPTION;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.serializer.BinarySerializers.INT_SERIALIZER;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public final class StreamHashJoinTest {
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private static final FrameFormat FRAME_FORMAT = FrameFormats.sizePrefixed();
+
+	// left items reference right items by their tens
+	private static final ValueLeftJoiner<Integer, Integer, Integer, String> JOINER = new ValueLeftJoiner<Integer, Integer, Integer, String>() {
+		@Override
+		public String doInnerJoin(Integer key, Integer left, Integer right) {
+			return left + ":" + right;
+		}
+
+		@Override
+		public String doOuterJoin(Integer key, Integer left) {
+			return left + ":null";
+		}
+	};
+
+	private static final List<Integer> LEFT = asList(35, 12, 21, 47, 14, 30);
+	private static final List<Integer> RIGHT = asList(3, 1, 5, 1);
+
+	@Test
+	public void testInnerJoin() {
+		assertEquals(asList("35:3", "12:1", "12:1", "14:1", "14:1", "30:3"), join(JoinType.INNER));
+	}
+
+	@Test
+	public void testLeftJoin() {
+		assertEquals(asList("35:3", "12:1", "12:1", "21:null", "47:null", "14:1", "14:1", "30:3"), join(JoinType.LEFT));
+	}
+
+	@Test
+	public void testSemiJoin() {
+		assertEquals(asList("35:3", "12:1", "14:1", "30:3"), join(JoinType.SEMI));
+	}
+
+	@Test
+	public void testAntiJoin() {
+		assertEquals(asList("21:null", "47:null"), join(JoinType.ANTI));
+	}
+
+	@Test
+	public void testSpilling() throws IOException {
+		Random random = new Random(1);
+		List<Integer> left = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			left.add(random.nextInt(10_000));
+		}
+		List<Integer> right = new ArrayList<>();
+		for (int key = 0; key < 1_000; key++) {
+			if (random.nextBoolean()) {
+				right.add(key);
+			}
+		}
+		Collections.shuffle(right, random);
+
+		List<String> expected = new ArrayList<>();
+		Set<Integer> rightKeys = new HashSet<>(right);
+		for (Integer item : left) {
+			expected.add(item + ":" + (rightKeys.contains(item / 10) ? String.valueOf(item / 10) : "null"));
+		}
+
+		Path leftPath = tempFolder.newFolder().toPath();
+		Path rightPath = tempFolder.newFolder().toPath();
+		StreamHashJoin<Integer, Integer, Integer, String> join = StreamHashJoin.create(
+						(Integer item) -> item / 10, (Integer item) -> item, JOINER, JoinType.LEFT)
+				.withSpilling(storage(leftPath), storage(rightPath), 50)
+				.withPartitions(4);
+
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+		await(StreamSupplier.ofIterable(left).streamTo(join.getLeft().transformWith(randomlySuspending())),
+				StreamSupplier.ofIterable(right).streamTo(join.getRight().transformWith(randomlySuspending())),
+				join.getOutput().streamTo(consumer.transformWith(randomlySuspending())));
+
+		List<String> actual = new ArrayList<>(consumer.getList());
+		Collections.sort(actual);
+		Collections.sort(expected);
+		assertEquals(expected, actual);
+		assertNoFiles(leftPath);
+		assertNoFiles(rightPath);
+	}
+
+	@Test
+	public void testEmptyLeftWithSpilledRight() throws IOException {
+		List<Integer> right = new ArrayList<>();
+		for (int key = 0; key < 1_000; key++) {
+			right.add(key);
+		}
+		// the left input ends without items once the right input has started spilling, but before it ends
+		AbstractStreamSupplier<Integer> leftSupplier = new AbstractStreamSupplier<Integer>() {};
+		StreamSupplier<Integer> rightSupplier = StreamSupplier.concat(
+				StreamSupplier.ofIterable(right.subList(0, 500)),
+				StreamSupplier.ofPromise(Promises.delay(10L)
+						.map($ -> {
+							leftSupplier.sendEndOfStream();
+							return StreamSupplier.ofIterable(right.subList(500, 1_000));
+						})));
+
+		Path leftPath = tempFolder.newFolder().toPath();
+		Path rightPath = tempFolder.newFolder().toPath();
+		StreamHashJoin<Integer, Integer, Integer, String> join = StreamHashJoin.create(
+						(Integer item) -> item / 10, (Integer item) -> item, JOINER, JoinType.LEFT)
+				.withSpilling(storage(leftPath), storage(rightPath), 50)
+				.withPartitions(4);
+
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+		await(leftSupplier.streamTo(join.getLeft()),
+				rightSupplier.streamTo(join.getRight()),
+				join.getOutput().streamTo(consumer));
+
+		assertTrue(consumer.getList().isEmpty());
+		assertNoFiles(leftPath);
+		assertNoFiles(rightPath);
+	}
+
+	@Test
+	public void testErrorOnSpilling() throws IOException {
+		FailingStreamSorterStorageStub<Integer> failingStorage = FailingStreamSorterStorageStub.<Integer>create().withFailWrite();
+		failingStorage.setStorage(storage(tempFolder.newFolder().toPath()));
+		StreamHashJoin<Integer, Integer, Integer, String> join = StreamHashJoin.create(
+						(Integer item) -> item / 10, (Integer item) -> item, JOINER, JoinType.INNER)
+				.withSpilling(storage(tempFolder.newFolder().toPath()), failingStorage, 2);
+
+		StreamSupplier<Integer> leftSupplier = StreamSupplier.ofIterable(LEFT);
+		StreamSupplier<Integer> rightSupplier = StreamSupplier.ofIterable(RIGHT);
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+		Exception exception = awaitException(leftSupplier.streamTo(join.getLeft()),
+				rightSupplier.streamTo(join.getRight()),
+				join.getOutput().streamTo(consumer));
+
+		assertSame(STORAGE_EXCEPTION, exception);
+		assertClosedWithError(STORAGE_EXCEPTION, consumer);
+		assertClosedWithError(rightSupplier);
+		assertTrue(consumer.getList().isEmpty());
+	}
+
+	private static List<String> join(JoinType joinType) {
+		StreamHashJoin<Integer, Integer, Integer, String> join = StreamHashJoin.create(
+				(Integer item) -> item / 10, (Integer item) -> item, JOINER, joinType);
+
+		StreamSupplier<Integer> leftSupplier = StreamSupplier.ofIterable(LEFT);
+		StreamSupplier<Integer> rightSupplier = StreamSupplier.ofIterable(RIGHT);
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+		await(leftSupplier.streamTo(join.getLeft()),
+				rightSupplier.streamTo(join.getRight()),
+				join.getOutput().streamTo(consumer.transformWith(randomlySuspending())));
+
+		assertEndOfStream(leftSupplier);
+		assertEndOfStream(rightSupplier, consumer);
+		return consumer.getList();
+	}
+
+	private static StreamSorterStorage<Integer> storage(Path path) {
+		return StreamSorterStorageImpl.create(Executors.newSingleThreadExecutor(), INT_SERIALIZER, FRAME_FORMAT, path);
+	}
+
+	private static void assertNoFiles(Path path) throws IOException {
+		try (Stream<Path> list = Files.list(path)) {
+			assertFalse(list.findAny().isPresent());
+		}
+	}
+}
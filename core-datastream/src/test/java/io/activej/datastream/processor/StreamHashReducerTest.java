@@ -0,0 +1,155 @@
+package io.activej.datastream.processor;
+
+import io.activej.csp.process.frames.FrameFormat;
+import io.activej.csp.process.frames.FrameFormats;
+import io.activej.datastream.StreamConsumerToList;
+import io.activej.datastream.StreamSupplier;
+import io.activej.datastream.processor.StreamReducers.ReducerToResult;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static io.activej.datastream.TestStreamTransformers.randomlySuspending;
+import static io.activej.datastream.TestUtils.assertClosedWithError;
+import static io.activej.datastream.TestUtils.assertEndOfStream;
+import static io.activej.datastream.processor.FailingStreamSorterStorageStub.STORAGE_EXCEPTION;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.serializer.BinarySerializers.LONG_SERIALIZER;
+import static org.junit.Assert.*;
+
+public final class StreamHashReducerTest {
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private static final FrameFormat FRAME_FORMAT = FrameFormats.sizePrefixed();
+
+	// counts items by keys, an accumulator holds a key in its high and a count in its low 32 bits
+	private static final ReducerToResult<Integer, Integer, String, Long> COUNT_REDUCER = new ReducerToResult<Integer, Integer, String, Long>() {
+		@Override
+		public Long createAccumulator(Integer key) {
+			return (long) key << 32;
+		}
+
+		@Override
+		public Long accumulate(Long accumulator, Integer value) {
+			return accumulator + 1;
+		}
+
+		@Override
+		public Long combine(Long accumulator, Long anotherAccumulator) {
+			return accumulator + (int) (long) anotherAccumulator;
+		}
+
+		@Override
+		public String produceResult(Long accumulator) {
+			return keyOf(accumulator) + ":" + (int) (long) accumulator;
+		}
+	};
+
+	@Test
+	public void testInMemory() throws IOException {
+		Path path = tempFolder.newFolder().toPath();
+		StreamHashReducer<Integer, Integer, String, Long> reducer = create(storage(path), 10);
+
+		StreamSupplier<Integer> supplier = StreamSupplier.of(3, 1, 3, 2, 5, 1, 4, 3, 2);
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+		await(supplier.transformWith(reducer)
+				.streamTo(consumer.transformWith(randomlySuspending())));
+
+		assertEquals(new HashSet<>(Arrays.asList("1:2", "2:2", "3:3", "4:1", "5:1")), new HashSet<>(consumer.getList()));
+		assertEndOfStream(supplier, consumer);
+		assertNoFiles(path);
+	}
+
+	@Test
+	public void testSpillingAndRecursiveRepartitioning() throws IOException {
+		Random random = new Random(1);
+		List<Integer> items = new ArrayList<>();
+		Map<Integer, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 20_000; i++) {
+			// keys that differ only in high bits are still split between partitions
+			int key = random.nextInt(2_000) << 20;
+			items.add(key);
+			expected.merge(key, 1, Integer::sum);
+		}
+
+		Path path = tempFolder.newFolder().toPath();
+		StreamHashReducer<Integer, Integer, String, Long> reducer = create(storage(path), 100)
+				.withPartitions(4)
+				.withMaxLevels(3);
+
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+		await(StreamSupplier.ofIterable(items).transformWith(reducer)
+				.streamTo(consumer.transformWith(randomlySuspending())));
+
+		Map<Integer, Integer> actual = new HashMap<>();
+		for (String result : consumer.getList()) {
+			int separator = result.indexOf(':');
+			assertNull(actual.put(Integer.parseInt(result.substring(0, separator)), Integer.parseInt(result.substring(separator + 1))));
+		}
+		assertEquals(expected, actual);
+		assertNoFiles(path);
+	}
+
+	@Test
+	public void testErrorsOnStorage() throws IOException {
+		for (FailingStreamSorterStorageStub<Long> storage : Arrays.asList(
+				FailingStreamSorterStorageStub.<Long>create().withFailNewPartition(),
+				FailingStreamSorterStorageStub.<Long>create().withFailWrite(),
+				// a write fails while another write of the same spill is still in progress
+				FailingStreamSorterStorageStub.<Long>create().withFailWrite(2),
+				FailingStreamSorterStorageStub.<Long>create().withFailRead())) {
+			Path path = tempFolder.newFolder().toPath();
+			storage.setStorage(storage(path));
+			StreamHashReducer<Integer, Integer, String, Long> reducer = create(storage, 2);
+
+			StreamSupplier<Integer> supplier = StreamSupplier.of(3, 1, 3, 2, 5, 1, 4, 3, 2);
+			StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+			Exception exception = awaitException(supplier.transformWith(reducer)
+					.streamTo(consumer.transformWith(randomlySuspending())));
+
+			assertSame(STORAGE_EXCEPTION, exception);
+			assertClosedWithError(STORAGE_EXCEPTION, consumer);
+			assertClosedWithError(supplier);
+			assertTrue(consumer.getList().isEmpty());
+			assertNoFiles(path);
+		}
+	}
+
+	private StreamSorterStorage<Long> storage(Path path) {
+		Executor executor = Executors.newSingleThreadExecutor();
+		return StreamSorterStorageImpl.create(executor, LONG_SERIALIZER, FRAME_FORMAT, path);
+	}
+
+	private static StreamHashReducer<Integer, Integer, String, Long> create(StreamSorterStorage<Long> storage, int itemsInMemory) {
+		return StreamHashReducer.create(storage, key -> key, StreamHashReducerTest::keyOf, COUNT_REDUCER, itemsInMemory);
+	}
+
+	private static Integer keyOf(Long accumulator) {
+		return (int) (accumulator >>> 32);
+	}
+
+	private static void assertNoFiles(Path path) throws IOException {
+		try (Stream<Path> list = Files.list(path)) {
+			assertFalse(list.findAny().isPresent());
+		}
+	}
+}
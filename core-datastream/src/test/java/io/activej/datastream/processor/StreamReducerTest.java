@@ -6,12 +6,13 @@ import io.activej.datastream.StreamSupplier;
 import io.activej.datastream.processor.StreamReducers.Reducer;
 import io.activej.datastream.processor.StreamReducers.ReducerToAccumulator;
 import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.test.ExpectedException;
 import io.activej.test.rules.EventloopRule;
 import org.junit.ClassRule;
 import org.junit.Test;
 
-import java.util.Objects;
+import java.util.*;
 
 import static io.activej.datastream.TestStreamTransformers.decorate;
 import static io.activej.datastream.TestStreamTransformers.randomlySuspending;
@@ -22,6 +23,7 @@ import static io.activej.promise.TestUtils.awaitException;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 
@@ -394,4 +396,51 @@ public class StreamReducerTest {
 		assertEndOfStream(source3);
 	}
 
+
+	@Test
+	public void testLoserTreeMergesLikeHeap() {
+		Random random = new Random(1);
+		List<List<String>> sources = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			List<String> source = new ArrayList<>();
+			int key = random.nextInt(100);
+			int size = random.nextInt(200);
+			for (int j = 0; j < size; j++) {
+				// long runs of consecutive keys alternate with gaps and duplicates
+				key += random.nextInt(10) == 0 ? random.nextInt(100) : random.nextInt(2);
+				source.add(key + ":" + i);
+			}
+			sources.add(source);
+		}
+
+		List<String> merged = merge(sources, true);
+		assertEquals(merge(sources, false), merged);
+
+		List<String> expected = sources.stream().flatMap(List::stream).collect(toList());
+		expected.sort(Comparator.comparing(StreamReducerTest::keyOf)
+				.thenComparing(item -> Integer.parseInt(item.substring(item.indexOf(':') + 1))));
+		assertEquals(expected, merged);
+	}
+
+	private static List<String> merge(List<List<String>> sources, boolean loserTree) {
+		StreamReducer<Integer, String, Void> streamReducer = StreamReducer.<Integer, String, Void>create()
+				.withBufferSize(3)
+				.withLoserTree(loserTree);
+		StreamConsumerToList<String> consumer = StreamConsumerToList.create();
+		List<Promise<Void>> promises = new ArrayList<>();
+		for (List<String> source : sources) {
+			promises.add(StreamSupplier.ofIterable(source)
+					.streamTo(streamReducer.newInput(StreamReducerTest::keyOf, StreamReducers.<Integer, String>mergeReducer())
+							.transformWith(randomlySuspending())));
+		}
+		promises.add(streamReducer.getOutput()
+				.streamTo(consumer.transformWith(randomlySuspending())));
+		await(Promises.all(promises));
+		return consumer.getList();
+	}
+
+	private static Integer keyOf(String item) {
+		return Integer.parseInt(item.substring(0, item.indexOf(':')));
+	}
+
 }
@@ -20,11 +20,10 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -35,6 +34,7 @@ import static io.activej.datastream.processor.FailingStreamSorterStorageStub.STO
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static io.activej.serializer.BinarySerializers.INT_SERIALIZER;
+import static io.activej.serializer.BinarySerializers.LONG_SERIALIZER;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 
@@ -225,6 +225,57 @@ public final class StreamSorterTest {
 		});
 	}
 
+	@Test
+	public void testMultiLevelMerge() throws IOException {
+		Random random = new Random(1);
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			items.add(random.nextInt(100));
+		}
+
+		Executor executor = Executors.newSingleThreadExecutor();
+		Path path = tempFolder.newFolder().toPath();
+		StreamSorterStorage<Integer> storage = StreamSorterStorageImpl.create(executor, INT_SERIALIZER, FRAME_FORMAT, path);
+		StreamSorter<Integer, Integer> sorter = StreamSorter.create(storage, Function.identity(), Integer::compareTo, false, 7)
+				.withMaxMergeFanIn(3)
+				.withMaxPendingRuns(4);
+
+		StreamConsumerToList<Integer> consumerToList = StreamConsumerToList.create();
+		await(StreamSupplier.ofIterable(items).transformWith(sorter)
+				.streamTo(consumerToList.transformWith(randomlySuspending())));
+
+		List<Integer> expected = new ArrayList<>(items);
+		Collections.sort(expected);
+		assertEquals(expected, consumerToList.getList());
+		try (Stream<Path> list = Files.list(path)) {
+			assertFalse(list.findAny().isPresent());
+		}
+	}
+
+	@Test
+	public void testParallelSortWithKeyPrefix() throws IOException {
+		Random random = new Random(1);
+		List<Long> items = new ArrayList<>();
+		for (int i = 0; i < 50_000; i++) {
+			items.add(random.nextLong() % 10_000);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		StreamSorterStorage<Long> storage = StreamSorterStorageImpl.create(pool, LONG_SERIALIZER, FRAME_FORMAT, tempFolder.newFolder().toPath());
+		StreamSorter<Long, Long> sorter = StreamSorter.create(storage, Function.identity(), Long::compareTo, true, 20_000)
+				.withSortingExecutor(pool)
+				.withParallelSort(true)
+				.withKeyPrefix(Long::longValue)
+				.withMaxMergeFanIn(2);
+
+		StreamConsumerToList<Long> consumerToList = StreamConsumerToList.create();
+		await(StreamSupplier.ofIterable(items).transformWith(sorter)
+				.streamTo(consumerToList));
+		pool.shutdown();
+
+		assertEquals(new ArrayList<>(new TreeSet<>(items)), consumerToList.getList());
+	}
+
 	private void doTestFailingStorage(FailingStreamSorterStorageStub<Integer> failingStorage, StreamSorterValidator<Integer, Integer> validator) throws IOException {
 		StreamSupplier<Integer> source = StreamSupplier.of(3, 1, 3, 2, 5, 1, 4, 3, 2);
 
@@ -4,6 +4,8 @@ import io.activej.datastream.AbstractStreamConsumer;
 import io.activej.datastream.StreamConsumerToList;
 import io.activej.datastream.StreamDataAcceptor;
 import io.activej.datastream.StreamSupplier;
+import io.activej.datastream.csp.ChannelDeserializer;
+import io.activej.datastream.csp.ChannelSerializer;
 import io.activej.eventloop.Eventloop;
 import io.activej.promise.Promise;
 import io.activej.test.ExpectedException;
@@ -19,7 +21,9 @@ import static io.activej.datastream.TestStreamTransformers.oneByOne;
 import static io.activej.datastream.TestUtils.*;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.serializer.BinarySerializers.INT_SERIALIZER;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 
@@ -53,6 +57,32 @@ public class StreamSplitterTest {
 		assertSuppliersEndOfStream(streamConcat.getOutputs());
 	}
 
+	@Test
+	public void testBatches() {
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			items.add(i);
+		}
+		StreamSupplier<Integer> source = StreamSupplier.ofIterable(items)
+				.transformWith(ChannelSerializer.create(INT_SERIALIZER))
+				.transformWith(ChannelDeserializer.create(INT_SERIALIZER).withBatchSize(64));
+		StreamSplitter<Integer, Integer> streamSharder = StreamSplitter.create(
+				(item, acceptors) -> acceptors[item % acceptors.length].accept(item));
+		StreamConsumerToList<Integer> consumerToList1 = StreamConsumerToList.create();
+		StreamConsumerToList<Integer> consumerToList2 = StreamConsumerToList.create();
+
+		await(
+				source.streamTo(streamSharder.getInput()),
+				streamSharder.newOutput().streamTo(consumerToList1),
+				streamSharder.newOutput().streamTo(consumerToList2.transformWith(oneByOne()))
+		);
+
+		assertEquals(items.stream().filter(item -> item % 2 == 0).collect(toList()), consumerToList1.getList());
+		assertEquals(items.stream().filter(item -> item % 2 == 1).collect(toList()), consumerToList2.getList());
+		assertEndOfStream(streamSharder.getInput());
+		assertSuppliersEndOfStream(streamSharder.getOutputs());
+	}
+
 	@Test
 	public void testConsumerDisconnectWithError() {
 		StreamSupplier<Integer> source = StreamSupplier.of(1, 2, 3, 4, 5);
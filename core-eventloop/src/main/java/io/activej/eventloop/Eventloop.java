@@ -28,6 +28,8 @@ import io.activej.common.initializer.WithInitializer;
 import io.activej.common.inspector.BaseInspector;
 import io.activej.common.time.CurrentTimeProvider;
 import io.activej.common.time.Stopwatch;
+import io.activej.eventloop.concurrent.ConcurrentTaskQueue;
+import io.activej.eventloop.concurrent.ConcurrentTaskQueueLinked;
 import io.activej.eventloop.executor.EventloopExecutor;
 import io.activej.eventloop.inspector.EventloopInspector;
 import io.activej.eventloop.inspector.EventloopStats;
@@ -36,6 +38,8 @@ import io.activej.eventloop.jmx.EventloopJmxBeanWithStats;
 import io.activej.eventloop.net.DatagramSocketSettings;
 import io.activej.eventloop.net.ServerSocketSettings;
 import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.eventloop.schedule.ScheduledTaskQueue;
+import io.activej.eventloop.schedule.ScheduledTaskQueueHeap;
 import io.activej.eventloop.schedule.Scheduler;
 import io.activej.eventloop.util.RunnableWithContext;
 import io.activej.jmx.api.attribute.JmxAttribute;
@@ -54,7 +58,7 @@ import java.nio.channels.spi.SelectorProvider;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -91,6 +95,8 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	public static final Duration DEFAULT_SMOOTHING_WINDOW = Duration.ofMinutes(1);
 	public static final Duration DEFAULT_IDLE_INTERVAL = Duration.ofSeconds(1);
 
+	private static final int CONCURRENT_TASKS_BATCH_SIZE = 256;
+
 	/**
 	 * Collection of local tasks which were added from this thread.
 	 */
@@ -101,19 +107,32 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	/**
 	 * Collection of concurrent tasks which were added from other threads.
 	 */
-	private final ConcurrentLinkedQueue<Runnable> concurrentTasks = new ConcurrentLinkedQueue<>();
+	private ConcurrentTaskQueue concurrentTasks = ConcurrentTaskQueueLinked.create();
+
+	private final Runnable[] concurrentTasksBatch = new Runnable[CONCURRENT_TASKS_BATCH_SIZE];
+
+	/**
+	 * Amount of times other threads had to wait for a free space in a bounded queue of concurrent tasks
+	 */
+	private final AtomicInteger concurrentTasksOverflows = new AtomicInteger(0);
+
+	/**
+	 * Indicates that {@link Selector#wakeup()} has already been called since the last {@code select()},
+	 * so that other threads do not issue redundant wakeup system calls for every submitted task
+	 */
+	private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
 
 	/**
 	 * Collection of scheduled tasks that are scheduled
 	 * to be executed at particular timestamp.
 	 */
-	private final PriorityQueue<ScheduledRunnable> scheduledTasks = new PriorityQueue<>();
+	private ScheduledTaskQueue scheduledTasks = ScheduledTaskQueueHeap.create();
 
 	/**
 	 * Collection of background tasks,
 	 * if eventloop contains only background tasks, it will be closed.
 	 */
-	private final PriorityQueue<ScheduledRunnable> backgroundTasks = new PriorityQueue<>();
+	private ScheduledTaskQueue backgroundTasks = ScheduledTaskQueueHeap.create();
 
 	/**
 	 * Amount of concurrent operations in other threads,
@@ -291,6 +310,41 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return this;
 	}
 
+	/**
+	 * Sets a {@link ConcurrentTaskQueue} which stores tasks submitted to this {@link Eventloop} from other threads
+	 * <p>
+	 * By default, an unbounded {@link ConcurrentTaskQueueLinked} is used.
+	 * Array-based queues ({@link io.activej.eventloop.concurrent.ConcurrentTaskQueueMpsc},
+	 * {@link io.activej.eventloop.concurrent.ConcurrentTaskQueueMpscChunked}) avoid allocation
+	 * of a node per submitted task.
+	 * <p>
+	 * If a bounded queue is full, a submitting thread waits until the eventloop drains the queue
+	 *
+	 * @param concurrentTasks a queue of concurrent tasks
+	 * @return this {@link Eventloop}
+	 */
+	public @NotNull Eventloop withConcurrentTaskQueue(@NotNull ConcurrentTaskQueue concurrentTasks) {
+		checkState(this.concurrentTasks.isEmpty(), "Concurrent tasks have already been submitted");
+		this.concurrentTasks = concurrentTasks;
+		return this;
+	}
+
+	/**
+	 * Sets a factory of {@link ScheduledTaskQueue}s which store scheduled and background tasks of this {@link Eventloop}
+	 * <p>
+	 * By default, a binary heap ({@link ScheduledTaskQueueHeap}) is used.
+	 * A {@link io.activej.eventloop.schedule.ScheduledTaskQueueTimingWheel} may be used instead
+	 * when a lot of tasks are scheduled and cancelled (e.g. timeouts)
+	 *
+	 * @param queueFactory a factory of scheduled task queues
+	 * @return this {@link Eventloop}
+	 */
+	public @NotNull Eventloop withScheduledTaskQueue(@NotNull Supplier<? extends ScheduledTaskQueue> queueFactory) {
+		this.scheduledTasks = transferTasks(scheduledTasks, queueFactory.get());
+		this.backgroundTasks = transferTasks(backgroundTasks, queueFactory.get());
+		return this;
+	}
+
 	/**
 	 * Register this {@link Eventloop} to an inner {@link ThreadLocal}.
 	 * <p>
@@ -526,10 +580,15 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 			try {
 				long selectTimeout = getSelectTimeout();
 				if (inspector != null) inspector.onUpdateSelectorSelectTimeout(selectTimeout);
-				if (selectTimeout <= 0) {
-					lastSelectedKeys = selector.selectNow();
-				} else {
-					lastSelectedKeys = selector.select(selectTimeout);
+				try {
+					if (selectTimeout <= 0) {
+						lastSelectedKeys = selector.selectNow();
+					} else {
+						lastSelectedKeys = selector.select(selectTimeout);
+					}
+				} finally {
+					// a failed select must not swallow subsequent wakeups
+					wakeupPending.set(false);
 				}
 				cancelledKeys = 0;
 			} catch (ClosedChannelException e) {
@@ -581,16 +640,12 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return Math.min(getTimeBeforeExecution(scheduledTasks), getTimeBeforeExecution(backgroundTasks));
 	}
 
-	private long getTimeBeforeExecution(PriorityQueue<ScheduledRunnable> taskQueue) {
-		while (!taskQueue.isEmpty()) {
-			ScheduledRunnable first = taskQueue.peek();
-			if (first.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			return first.getTimestamp() - currentTimeMillis();
+	private long getTimeBeforeExecution(ScheduledTaskQueue taskQueue) {
+		long nextTimestamp = taskQueue.getNextTimestamp();
+		if (nextTimestamp == Long.MAX_VALUE) {
+			return idleInterval.toMillis();
 		}
-		return idleInterval.toMillis();
+		return nextTimestamp - currentTimeMillis();
 	}
 
 	/**
@@ -709,24 +764,30 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 
 		Stopwatch sw = monitoring ? Stopwatch.createUnstarted() : null;
 
+		Runnable[] batch = this.concurrentTasksBatch;
 		while (true) {
-			Runnable runnable = this.concurrentTasks.poll();
-			if (runnable == null) {
+			int batchSize = this.concurrentTasks.drainTo(batch);
+			if (batchSize == 0) {
 				break;
 			}
 
-			if (sw != null) {
-				sw.reset();
-				sw.start();
-			}
+			for (int i = 0; i < batchSize; i++) {
+				Runnable runnable = batch[i];
+				batch[i] = null;
 
-			try {
-				executeTask(runnable);
-				if (sw != null && inspector != null) inspector.onUpdateConcurrentTaskDuration(runnable, sw);
-			} catch (Throwable e) {
-				onFatalError(e, runnable);
+				if (sw != null) {
+					sw.reset();
+					sw.start();
+				}
+
+				try {
+					executeTask(runnable);
+					if (sw != null && inspector != null) inspector.onUpdateConcurrentTaskDuration(runnable, sw);
+				} catch (Throwable e) {
+					onFatalError(e, runnable);
+				}
 			}
-			concurrentTasks++;
+			concurrentTasks += batchSize;
 		}
 
 		if (concurrentTasks != 0) {
@@ -734,6 +795,10 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 			if (inspector != null) inspector.onUpdateConcurrentTasksStats(concurrentTasks, loopTime);
 		}
 
+		if (inspector != null && concurrentTasksOverflows.get() != 0) {
+			inspector.onUpdateConcurrentTasksOverflows(concurrentTasksOverflows.getAndSet(0));
+		}
+
 		return concurrentTasks;
 	}
 
@@ -748,7 +813,7 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return executeScheduledTasks(backgroundTasks);
 	}
 
-	private int executeScheduledTasks(PriorityQueue<ScheduledRunnable> taskQueue) {
+	private int executeScheduledTasks(ScheduledTaskQueue taskQueue) {
 		long startTimestamp = timestamp;
 		boolean background = taskQueue == backgroundTasks;
 
@@ -756,17 +821,9 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		Stopwatch sw = monitoring ? Stopwatch.createUnstarted() : null;
 
 		for (; ; ) {
-			ScheduledRunnable peeked = taskQueue.peek();
+			ScheduledRunnable peeked = taskQueue.poll(currentTimeMillis());
 			if (peeked == null)
 				break;
-			if (peeked.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			if (peeked.getTimestamp() > currentTimeMillis()) {
-				break;
-			}
-			taskQueue.poll();
 
 			Runnable runnable = peeked.getRunnable();
 			if (sw != null) {
@@ -1098,12 +1155,30 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	 */
 	@Override
 	public void execute(@NotNull @Async.Schedule Runnable runnable) {
-		concurrentTasks.offer(runnable);
-		if (selector != null) {
+		if (!concurrentTasks.offer(runnable)) {
+			onConcurrentTasksOverflow(runnable);
+		}
+		Selector selector = this.selector;
+		if (selector != null && !wakeupPending.getAndSet(true)) {
 			selector.wakeup();
 		}
 	}
 
+	private void onConcurrentTasksOverflow(Runnable runnable) {
+		concurrentTasksOverflows.incrementAndGet();
+		if (Thread.currentThread() == eventloopThread) {
+			localTasks.addLast(runnable);
+			return;
+		}
+		while (!concurrentTasks.offer(runnable)) {
+			Selector selector = this.selector;
+			if (selector != null) {
+				selector.wakeup();
+			}
+			Thread.yield();
+		}
+	}
+
 	/**
 	 * Schedules new task. Returns {@link ScheduledRunnable} with this runnable.
 	 *
@@ -1135,11 +1210,19 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 
 	private @NotNull ScheduledRunnable addScheduledTask(long timestamp, Runnable runnable, boolean background) {
 		ScheduledRunnable scheduledTask = ScheduledRunnable.create(timestamp, runnable);
-		PriorityQueue<ScheduledRunnable> taskQueue = background ? backgroundTasks : scheduledTasks;
-		taskQueue.offer(scheduledTask);
+		ScheduledTaskQueue taskQueue = background ? backgroundTasks : scheduledTasks;
+		taskQueue.add(scheduledTask, currentTimeMillis());
 		return scheduledTask;
 	}
 
+	private @NotNull ScheduledTaskQueue transferTasks(ScheduledTaskQueue from, ScheduledTaskQueue to) {
+		while (true) {
+			ScheduledRunnable task = from.poll(Long.MAX_VALUE);
+			if (task == null) return to;
+			to.add(task, currentTimeMillis());
+		}
+	}
+
 	/**
 	 * Notifies the eventloop about concurrent operation in other threads.
 	 * Eventloop will not exit until all external tasks are complete.
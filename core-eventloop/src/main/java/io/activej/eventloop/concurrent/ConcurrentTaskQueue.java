@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A multi-producer single-consumer queue of tasks which are submitted
+ * to an {@link io.activej.eventloop.Eventloop} from other threads.
+ * <p>
+ * Tasks may be offered from any thread, while they are only polled from an eventloop thread.
+ *
+ * @see ConcurrentTaskQueueLinked
+ * @see ConcurrentTaskQueueMpsc
+ * @see ConcurrentTaskQueueMpscChunked
+ */
+public interface ConcurrentTaskQueue {
+	/**
+	 * Adds a task to this queue, may be called from any thread
+	 *
+	 * @param task a task to be added
+	 * @return {@code true} if a task has been added,
+	 * or {@code false} if a queue is bounded and is full
+	 */
+	boolean offer(@NotNull Runnable task);
+
+	/**
+	 * Removes and returns a next task, may only be called from a consumer thread
+	 *
+	 * @return a next task or {@code null} if there are no tasks available
+	 */
+	@Nullable Runnable poll();
+
+	/**
+	 * Removes up to {@code batch.length} tasks at once and puts them into a given array,
+	 * may only be called from a consumer thread
+	 *
+	 * @param batch an array to be filled with tasks
+	 * @return a number of tasks put into the array
+	 */
+	default int drainTo(@Nullable Runnable @NotNull [] batch) {
+		int i = 0;
+		while (i < batch.length) {
+			Runnable task = poll();
+			if (task == null) break;
+			batch[i++] = task;
+		}
+		return i;
+	}
+
+	boolean isEmpty();
+
+	int size();
+}
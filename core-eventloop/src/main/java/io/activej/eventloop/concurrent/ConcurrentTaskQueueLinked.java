@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A default unbounded {@link ConcurrentTaskQueue} which is backed by a {@link ConcurrentLinkedQueue}.
+ * <p>
+ * A new linked node is allocated for each offered task.
+ */
+public final class ConcurrentTaskQueueLinked implements ConcurrentTaskQueue {
+	private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+	private ConcurrentTaskQueueLinked() {
+	}
+
+	public static ConcurrentTaskQueueLinked create() {
+		return new ConcurrentTaskQueueLinked();
+	}
+
+	@Override
+	public boolean offer(@NotNull Runnable task) {
+		return queue.offer(task);
+	}
+
+	@Override
+	public @Nullable Runnable poll() {
+		return queue.poll();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentTaskQueueLinked{size=" + queue.size() + '}';
+	}
+}
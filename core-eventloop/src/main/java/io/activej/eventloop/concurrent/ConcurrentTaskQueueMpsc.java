@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * A bounded lock-free {@link ConcurrentTaskQueue} which is backed by a ring buffer.
+ * <p>
+ * No memory is allocated when offering a task. Producers claim slots with a CAS
+ * on a producer index, a consumer publishes its progress with an ordered write
+ * once per polled task or once per drained batch.
+ * <p>
+ * When the queue is full, {@link #offer(Runnable)} returns {@code false}.
+ */
+public final class ConcurrentTaskQueueMpsc implements ConcurrentTaskQueue {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final PaddedAtomicLong producerIndex = new PaddedAtomicLong();
+	private final PaddedAtomicLong consumerIndex = new PaddedAtomicLong();
+	private final AtomicReferenceArray<Runnable> buffer;
+	private final int capacity;
+	private final int mask;
+
+	private ConcurrentTaskQueueMpsc(int capacity) {
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.buffer = new AtomicReferenceArray<>(capacity);
+	}
+
+	public static ConcurrentTaskQueueMpsc create() {
+		return create(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new bounded queue
+	 *
+	 * @param capacity a capacity of the queue, should be a power of 2
+	 */
+	public static ConcurrentTaskQueueMpsc create(int capacity) {
+		checkArgument(capacity >= 2 && Integer.bitCount(capacity) == 1, "Capacity should be a power of 2");
+		return new ConcurrentTaskQueueMpsc(capacity);
+	}
+
+	@Override
+	public boolean offer(@NotNull Runnable task) {
+		while (true) {
+			long index = producerIndex.get();
+			if (index - consumerIndex.get() >= capacity) {
+				return false;
+			}
+			if (producerIndex.compareAndSet(index, index + 1)) {
+				buffer.lazySet((int) index & mask, task);
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public @Nullable Runnable poll() {
+		long index = consumerIndex.get();
+		int offset = (int) index & mask;
+		Runnable task = buffer.get(offset);
+		if (task == null) {
+			// either the queue is empty, or a producer has claimed a slot but has not written it yet
+			return null;
+		}
+		buffer.lazySet(offset, null);
+		consumerIndex.lazySet(index + 1);
+		return task;
+	}
+
+	@Override
+	public int drainTo(@Nullable Runnable @NotNull [] batch) {
+		long index = consumerIndex.get();
+		int i = 0;
+		while (i < batch.length) {
+			int offset = (int) (index + i) & mask;
+			Runnable task = buffer.get(offset);
+			if (task == null) break;
+			buffer.lazySet(offset, null);
+			batch[i++] = task;
+		}
+		if (i != 0) {
+			consumerIndex.lazySet(index + i);
+		}
+		return i;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return consumerIndex.get() == producerIndex.get();
+	}
+
+	@Override
+	public int size() {
+		long consumer = consumerIndex.get();
+		long producer = producerIndex.get();
+		return (int) Math.min(producer - consumer, capacity);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentTaskQueueMpsc{size=" + size() + ", capacity=" + capacity + '}';
+	}
+}
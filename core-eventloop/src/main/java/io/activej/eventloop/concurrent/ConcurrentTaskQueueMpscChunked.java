@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * An unbounded lock-free {@link ConcurrentTaskQueue} which is backed by a linked list of array chunks.
+ * <p>
+ * Producers claim slots with a single atomic increment of a producer index,
+ * a new chunk is allocated once per {@code chunkSize} offered tasks
+ * instead of a linked node per task.
+ */
+public final class ConcurrentTaskQueueMpscChunked implements ConcurrentTaskQueue {
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	private static final AtomicReferenceFieldUpdater<ConcurrentTaskQueueMpscChunked, Chunk> PRODUCER_CHUNK =
+			AtomicReferenceFieldUpdater.newUpdater(ConcurrentTaskQueueMpscChunked.class, Chunk.class, "producerChunk");
+
+	private final PaddedAtomicLong producerIndex = new PaddedAtomicLong();
+	private final PaddedAtomicLong consumerIndex = new PaddedAtomicLong();
+	private final int chunkBits;
+	private final int mask;
+
+	private volatile Chunk producerChunk;
+	private volatile Chunk consumerChunk;
+
+	private ConcurrentTaskQueueMpscChunked(int chunkSize) {
+		this.chunkBits = Integer.numberOfTrailingZeros(chunkSize);
+		this.mask = chunkSize - 1;
+		Chunk first = new Chunk(0, chunkSize);
+		this.producerChunk = first;
+		this.consumerChunk = first;
+	}
+
+	public static ConcurrentTaskQueueMpscChunked create() {
+		return create(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new unbounded queue
+	 *
+	 * @param chunkSize a number of tasks in a single chunk, should be a power of 2
+	 */
+	public static ConcurrentTaskQueueMpscChunked create(int chunkSize) {
+		checkArgument(chunkSize >= 2 && Integer.bitCount(chunkSize) == 1, "Chunk size should be a power of 2");
+		return new ConcurrentTaskQueueMpscChunked(chunkSize);
+	}
+
+	@Override
+	public boolean offer(@NotNull Runnable task) {
+		long index = producerIndex.getAndIncrement();
+		long chunkIndex = index >>> chunkBits;
+
+		Chunk chunk = producerChunk;
+		if (chunk.index > chunkIndex) {
+			// a consumer cannot pass a slot which has not been written yet
+			chunk = consumerChunk;
+		}
+		while (chunk.index < chunkIndex) {
+			Chunk next = chunk.next;
+			if (next == null) {
+				Chunk newChunk = new Chunk(chunk.index + 1, mask + 1);
+				next = Chunk.NEXT.compareAndSet(chunk, null, newChunk) ? newChunk : chunk.next;
+			}
+			chunk = next;
+		}
+
+		Chunk currentProducerChunk = producerChunk;
+		if (currentProducerChunk.index < chunk.index) {
+			PRODUCER_CHUNK.compareAndSet(this, currentProducerChunk, chunk);
+		}
+
+		chunk.slots.lazySet((int) index & mask, task);
+		return true;
+	}
+
+	@Override
+	public @Nullable Runnable poll() {
+		long index = consumerIndex.get();
+		Chunk chunk = consumerChunkFor(index);
+		if (chunk == null) return null;
+		int offset = (int) index & mask;
+		Runnable task = chunk.slots.get(offset);
+		if (task == null) return null;
+		chunk.slots.lazySet(offset, null);
+		consumerIndex.lazySet(index + 1);
+		return task;
+	}
+
+	@Override
+	public int drainTo(@Nullable Runnable @NotNull [] batch) {
+		long index = consumerIndex.get();
+		int i = 0;
+		while (i < batch.length) {
+			Chunk chunk = consumerChunkFor(index + i);
+			if (chunk == null) break;
+			int offset = (int) (index + i) & mask;
+			Runnable task = chunk.slots.get(offset);
+			if (task == null) break;
+			chunk.slots.lazySet(offset, null);
+			batch[i++] = task;
+		}
+		if (i != 0) {
+			consumerIndex.lazySet(index + i);
+		}
+		return i;
+	}
+
+	private @Nullable Chunk consumerChunkFor(long index) {
+		Chunk chunk = consumerChunk;
+		if (chunk.index == index >>> chunkBits) return chunk;
+		Chunk next = chunk.next;
+		if (next == null) {
+			// a producer has claimed a slot in a next chunk, but has not linked the chunk yet
+			return null;
+		}
+		consumerChunk = next;
+		return next;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return consumerIndex.get() == producerIndex.get();
+	}
+
+	@Override
+	public int size() {
+		long consumer = consumerIndex.get();
+		long producer = producerIndex.get();
+		return (int) Math.min(producer - consumer, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentTaskQueueMpscChunked{size=" + size() + ", chunkSize=" + (mask + 1) + '}';
+	}
+
+	private static final class Chunk {
+		static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+				AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+		final long index;
+		final AtomicReferenceArray<Runnable> slots;
+		volatile @Nullable Chunk next;
+
+		Chunk(long index, int size) {
+			this.index = index;
+			this.slots = new AtomicReferenceArray<>(size);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link AtomicLong} which occupies a cache line on its own,
+ * so that producer and consumer indices of a queue do not falsely share cache lines
+ */
+@SuppressWarnings("unused")
+final class PaddedAtomicLong extends AtomicLong {
+	private long p1, p2, p3, p4, p5, p6, p7;
+	private long p8, p9, p10, p11, p12, p13, p14, p15;
+}
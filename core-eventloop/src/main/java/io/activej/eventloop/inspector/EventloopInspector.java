@@ -40,6 +40,8 @@ public interface EventloopInspector extends BaseInspector<EventloopInspector> {
 
 	void onUpdateConcurrentTasksStats(int newConcurrentTasks, long loopTime);
 
+	void onUpdateConcurrentTasksOverflows(int overflows);
+
 	void onUpdateScheduledTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw, boolean background);
 
 	void onUpdateScheduledTasksStats(int scheduledTasks, long loopTime, boolean background);
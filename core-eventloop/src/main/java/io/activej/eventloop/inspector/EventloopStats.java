@@ -132,13 +132,18 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 
 	@Override
 	public void onUpdateConcurrentTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw) {
-		updateTaskDuration(tasks.concurrent.oneTaskTime, tasks.concurrent.longestTask, runnable, sw);
+		updateTaskDuration(tasks.concurrent.getOneTaskTime(), tasks.concurrent.getLongestTask(), runnable, sw);
 	}
 
 	@Override
 	public void onUpdateConcurrentTasksStats(int newConcurrentTasks, long loopTime) {
-		if (newConcurrentTasks != 0) tasks.concurrent.loopTime.recordValue((int) loopTime);
-		tasks.concurrent.tasksPerLoop.recordValue(newConcurrentTasks);
+		if (newConcurrentTasks != 0) tasks.concurrent.getLoopTime().recordValue((int) loopTime);
+		tasks.concurrent.getTasksPerLoop().recordValue(newConcurrentTasks);
+	}
+
+	@Override
+	public void onUpdateConcurrentTasksOverflows(int overflows) {
+		tasks.concurrent.overflows.recordEvents(overflows);
 	}
 
 	@Override
@@ -240,13 +245,13 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 	// region helper classes for stats grouping
 	public static final class Tasks {
 		private final TaskStats local;
-		private final TaskStats concurrent;
+		private final ConcurrentTaskStats concurrent;
 		private final ScheduledTaskStats scheduled;
 		private final ScheduledTaskStats background;
 
 		Tasks() {
 			local = new TaskStats();
-			concurrent = new TaskStats();
+			concurrent = new ConcurrentTaskStats();
 			scheduled = new ScheduledTaskStats();
 			background = new ScheduledTaskStats();
 		}
@@ -257,7 +262,7 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 		}
 
 		@JmxAttribute
-		public TaskStats getConcurrent() {
+		public ConcurrentTaskStats getConcurrent() {
 			return concurrent;
 		}
 
@@ -312,6 +317,19 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 		}
 	}
 
+	public static final class ConcurrentTaskStats extends TaskStats {
+		private final EventStats overflows;
+
+		ConcurrentTaskStats() {
+			overflows = EventStats.create(DEFAULT_SMOOTHING_WINDOW).withRateUnit("tasks");
+		}
+
+		@JmxAttribute(description = "number of tasks which have been submitted while a bounded queue of concurrent tasks was full")
+		public EventStats getOverflows() {
+			return overflows;
+		}
+	}
+
 	public static final class ScheduledTaskStats extends TaskStats {
 		private final ValueStats overdues;
 
@@ -163,6 +163,11 @@ public final class ThrottlingController implements EventloopJmxBean, EventloopIn
 		this.concurrentTasksSize = concurrentTasksSize;
 	}
 
+	@Override
+	public void onUpdateConcurrentTasksOverflows(int overflows) {
+
+	}
+
 	@Override
 	public void onUpdateScheduledTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw, boolean background) {
 
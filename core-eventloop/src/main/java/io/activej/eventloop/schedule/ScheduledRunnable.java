@@ -18,6 +18,7 @@ package io.activej.eventloop.schedule;
 
 import io.activej.common.initializer.WithInitializer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class ScheduledRunnable implements Comparable<ScheduledRunnable>, WithInitializer<ScheduledRunnable> {
 	private final long timestamp;
@@ -25,6 +26,11 @@ public final class ScheduledRunnable implements Comparable<ScheduledRunnable>, W
 	private boolean cancelled;
 	private boolean complete;
 
+	// intrusive links, used by ScheduledTaskQueueTimingWheel for O(1) removal on cancel
+	@Nullable ScheduledTaskQueueTimingWheel.Bucket bucket;
+	@Nullable ScheduledRunnable prev;
+	@Nullable ScheduledRunnable next;
+
 	// region builders
 	private ScheduledRunnable(long timestamp, @NotNull Runnable runnable) {
 		this.timestamp = timestamp;
@@ -40,6 +46,9 @@ public final class ScheduledRunnable implements Comparable<ScheduledRunnable>, W
 	public void cancel() {
 		cancelled = true;
 		runnable = null;
+		if (bucket != null) {
+			bucket.remove(this);
+		}
 	}
 
 	@SuppressWarnings("AssignmentToNull") // runnable has been completed
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A queue of {@link ScheduledRunnable}s that is used by an {@link io.activej.eventloop.Eventloop}
+ * to store scheduled and background tasks.
+ * <p>
+ * Implementations are not thread-safe and are only accessed from an eventloop thread.
+ *
+ * @see ScheduledTaskQueueHeap
+ * @see ScheduledTaskQueueTimingWheel
+ */
+public interface ScheduledTaskQueue {
+	/**
+	 * Adds a task to this queue
+	 *
+	 * @param task a task to be added
+	 * @param now  current time of an eventloop
+	 */
+	void add(@NotNull ScheduledRunnable task, long now);
+
+	/**
+	 * Removes and returns a next non-cancelled task which is due at a given time
+	 *
+	 * @param now current time of an eventloop
+	 * @return a next task which should be executed,
+	 * or {@code null} if there are no tasks due at a given time
+	 */
+	@Nullable ScheduledRunnable poll(long now);
+
+	/**
+	 * Returns a lower bound of a timestamp of a next task.
+	 * An eventloop wakes up no later than at the returned timestamp.
+	 *
+	 * @return a lower bound of a timestamp of a next task,
+	 * or {@link Long#MAX_VALUE} if there are no tasks in this queue
+	 */
+	long getNextTimestamp();
+
+	boolean isEmpty();
+
+	int size();
+}
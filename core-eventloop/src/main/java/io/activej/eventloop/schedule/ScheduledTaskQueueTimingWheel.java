@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import io.activej.common.initializer.WithInitializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.Checks.checkState;
+
+/**
+ * A {@link ScheduledTaskQueue} which is backed by a hierarchical timing wheel.
+ * <p>
+ * Both insertion and cancellation cost O(1), cancelled tasks are unlinked
+ * from the wheel immediately. Tasks are fired with a precision of a single tick,
+ * never before their timestamps.
+ * <p>
+ * Each level of the wheel consists of {@code wheelSize} buckets, a bucket on level {@code n}
+ * spans {@code wheelSize^n} ticks. Tasks which are further in the future than the whole
+ * wheel covers are kept in the top level and are re-inserted on each of its revolutions.
+ */
+public final class ScheduledTaskQueueTimingWheel implements ScheduledTaskQueue, WithInitializer<ScheduledTaskQueueTimingWheel> {
+	public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(1);
+	public static final int DEFAULT_WHEEL_SIZE = 256;
+	public static final int DEFAULT_LEVELS = 4;
+
+	private long tickMillis = DEFAULT_TICK_DURATION.toMillis();
+	private int wheelBits = Integer.numberOfTrailingZeros(DEFAULT_WHEEL_SIZE);
+	private int levels = DEFAULT_LEVELS;
+
+	private Bucket[][] wheel;
+	private int[] levelSizes;
+	private final Bucket ready = new Bucket(-1);
+
+	private long currentTick;
+	private int size;
+
+	// region builders
+	private ScheduledTaskQueueTimingWheel() {
+	}
+
+	public static ScheduledTaskQueueTimingWheel create() {
+		return new ScheduledTaskQueueTimingWheel();
+	}
+
+	/**
+	 * Sets a duration of a single tick of this wheel, which is a precision of task execution
+	 *
+	 * @param tickDuration a duration of a single tick, at least 1 millisecond
+	 * @return this {@link ScheduledTaskQueueTimingWheel}
+	 */
+	public ScheduledTaskQueueTimingWheel withTickDuration(@NotNull Duration tickDuration) {
+		checkState(wheel == null, "Timing wheel has already been initialized");
+		checkArgument(tickDuration.toMillis() >= 1, "Tick duration should be at least 1 millisecond");
+		this.tickMillis = tickDuration.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a number of buckets on each level of this wheel
+	 *
+	 * @param wheelSize a number of buckets, should be a power of 2
+	 * @return this {@link ScheduledTaskQueueTimingWheel}
+	 */
+	public ScheduledTaskQueueTimingWheel withWheelSize(int wheelSize) {
+		checkState(wheel == null, "Timing wheel has already been initialized");
+		checkArgument(wheelSize >= 2 && Integer.bitCount(wheelSize) == 1, "Wheel size should be a power of 2");
+		this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+		return this;
+	}
+
+	/**
+	 * Sets a number of levels of this wheel
+	 *
+	 * @param levels a number of levels
+	 * @return this {@link ScheduledTaskQueueTimingWheel}
+	 */
+	public ScheduledTaskQueueTimingWheel withLevels(int levels) {
+		checkState(wheel == null, "Timing wheel has already been initialized");
+		checkArgument(levels >= 1, "There should be at least one level");
+		this.levels = levels;
+		return this;
+	}
+	// endregion
+
+	@Override
+	public void add(@NotNull ScheduledRunnable task, long now) {
+		if (wheel == null) {
+			initialize();
+			currentTick = Math.floorDiv(now, tickMillis);
+		} else if (size == 0) {
+			currentTick = Math.floorDiv(now, tickMillis);
+		}
+		place(task);
+	}
+
+	@Override
+	public @Nullable ScheduledRunnable poll(long now) {
+		if (size == 0) return null;
+		if (ready.size == 0) {
+			advance(Math.floorDiv(now, tickMillis));
+		}
+		return ready.pollFirst();
+	}
+
+	@Override
+	public long getNextTimestamp() {
+		if (size == 0) return Long.MAX_VALUE;
+		if (ready.size != 0) return currentTick * tickMillis;
+		int wheelSize = 1 << wheelBits;
+		int mask = wheelSize - 1;
+		long nextTick = Long.MAX_VALUE;
+		for (int level = 0; level < levels; level++) {
+			if (levelSizes[level] == 0) continue;
+			int shift = wheelBits * level;
+			long levelTick = currentTick >> shift;
+			for (int i = 1; i <= wheelSize; i++) {
+				if (wheel[level][(int) ((levelTick + i) & mask)].size != 0) {
+					nextTick = Math.min(nextTick, (levelTick + i) << shift);
+					break;
+				}
+			}
+		}
+		return nextTick * tickMillis;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private void initialize() {
+		int wheelSize = 1 << wheelBits;
+		wheel = new Bucket[levels][wheelSize];
+		levelSizes = new int[levels];
+		for (int level = 0; level < levels; level++) {
+			for (int i = 0; i < wheelSize; i++) {
+				wheel[level][i] = new Bucket(level);
+			}
+		}
+	}
+
+	private long toTick(long timestamp) {
+		return -Math.floorDiv(-timestamp, tickMillis);
+	}
+
+	private void place(ScheduledRunnable task) {
+		long tick = toTick(task.getTimestamp());
+		if (tick <= currentTick) {
+			ready.addLast(task);
+			return;
+		}
+		long delta = tick - currentTick;
+		int level = 0;
+		while (level < levels - 1 && (delta >> (wheelBits * (level + 1))) != 0) {
+			level++;
+		}
+		int mask = (1 << wheelBits) - 1;
+		wheel[level][(int) ((tick >> (wheelBits * level)) & mask)].addLast(task);
+	}
+
+	private void advance(long targetTick) {
+		int mask = (1 << wheelBits) - 1;
+		while (currentTick < targetTick) {
+			if (size == ready.size) {
+				currentTick = targetTick;
+				return;
+			}
+
+			// skip ticks while lower levels of the wheel are empty
+			int emptyLevels = 0;
+			while (levelSizes[emptyLevels] == 0) emptyLevels++;
+			if (emptyLevels != 0) {
+				long skipTo = currentTick | ((1L << (wheelBits * emptyLevels)) - 1);
+				if (skipTo >= targetTick) {
+					currentTick = targetTick;
+					return;
+				}
+				currentTick = skipTo;
+			}
+
+			currentTick++;
+			int index = (int) (currentTick & mask);
+			if (index == 0) {
+				cascade(1);
+			}
+			Bucket bucket = wheel[0][index];
+			while (bucket.size != 0) {
+				ready.addLast(bucket.pollFirst());
+			}
+		}
+	}
+
+	private void cascade(int level) {
+		if (level >= levels) return;
+		int mask = (1 << wheelBits) - 1;
+		int index = (int) ((currentTick >> (wheelBits * level)) & mask);
+		if (index == 0) {
+			cascade(level + 1);
+		}
+		Bucket bucket = wheel[level][index];
+		ScheduledRunnable task = bucket.detachAll();
+		while (task != null) {
+			ScheduledRunnable next = task.next;
+			task.next = null;
+			place(task);
+			task = next;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ScheduledTaskQueueTimingWheel{size=" + size + ", tickMillis=" + tickMillis + '}';
+	}
+
+	final class Bucket {
+		private final int level;
+		private @Nullable ScheduledRunnable head;
+		private @Nullable ScheduledRunnable tail;
+		private int size;
+
+		Bucket(int level) {
+			this.level = level;
+		}
+
+		void addLast(ScheduledRunnable task) {
+			task.bucket = this;
+			task.prev = tail;
+			task.next = null;
+			if (tail == null) {
+				head = task;
+			} else {
+				tail.next = task;
+			}
+			tail = task;
+			onSizeChanged(1);
+		}
+
+		@Nullable ScheduledRunnable pollFirst() {
+			ScheduledRunnable task = head;
+			if (task != null) {
+				remove(task);
+			}
+			return task;
+		}
+
+		void remove(ScheduledRunnable task) {
+			assert task.bucket == this;
+			if (task.prev == null) {
+				head = task.next;
+			} else {
+				task.prev.next = task.next;
+			}
+			if (task.next == null) {
+				tail = task.prev;
+			} else {
+				task.next.prev = task.prev;
+			}
+			task.bucket = null;
+			task.prev = null;
+			task.next = null;
+			onSizeChanged(-1);
+		}
+
+		/**
+		 * Unlinks all the tasks from this bucket, the tasks remain
+		 * chained through {@link ScheduledRunnable#next} links
+		 */
+		@Nullable ScheduledRunnable detachAll() {
+			ScheduledRunnable first = head;
+			for (ScheduledRunnable task = first; task != null; task = task.next) {
+				task.bucket = null;
+				task.prev = null;
+			}
+			onSizeChanged(-this.size);
+			head = null;
+			tail = null;
+			return first;
+		}
+
+		private void onSizeChanged(int delta) {
+			this.size += delta;
+			ScheduledTaskQueueTimingWheel.this.size += delta;
+			if (level >= 0) {
+				levelSizes[level] += delta;
+			}
+		}
+	}
+}
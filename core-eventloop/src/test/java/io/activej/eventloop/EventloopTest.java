@@ -6,9 +6,12 @@ import io.activej.eventloop.util.RunnableWithContext;
 import org.junit.Test;
 
 import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public final class EventloopTest {
 	@Test
@@ -41,4 +44,21 @@ public final class EventloopTest {
 		Duration smoothingWindow = Eventloop.create().withInspector(EventloopStats.create()).getSmoothingWindow();
 		assertEquals(Eventloop.DEFAULT_SMOOTHING_WINDOW, smoothingWindow);
 	}
+
+	@Test
+	public void testConcurrentTasksWakeUpIdleEventloop() throws InterruptedException {
+		Eventloop eventloop = Eventloop.create().withIdleInterval(Duration.ofHours(1));
+		eventloop.keepAlive(true);
+		Thread eventloopThread = new Thread(eventloop);
+		eventloopThread.start();
+
+		for (int i = 0; i < 100; i++) {
+			CountDownLatch latch = new CountDownLatch(1);
+			eventloop.execute(latch::countDown);
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		}
+
+		eventloop.execute(() -> eventloop.keepAlive(false));
+		eventloopThread.join();
+	}
 }
@@ -0,0 +1,151 @@
+package io.activej.eventloop.concurrent;
+
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.inspector.EventloopStats;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public final class ConcurrentTaskQueueTest {
+	private static final int PRODUCERS = 4;
+	private static final int TASKS_PER_PRODUCER = 10_000;
+
+	@Parameter()
+	public String testName;
+
+	@Parameter(1)
+	public Supplier<ConcurrentTaskQueue> queueFactory;
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> getParameters() {
+		return Arrays.asList(
+				new Object[]{"Linked", (Supplier<ConcurrentTaskQueue>) ConcurrentTaskQueueLinked::create},
+				new Object[]{"Mpsc", (Supplier<ConcurrentTaskQueue>) () -> ConcurrentTaskQueueMpsc.create(16)},
+				new Object[]{"Mpsc chunked", (Supplier<ConcurrentTaskQueue>) () -> ConcurrentTaskQueueMpscChunked.create(16)}
+		);
+	}
+
+	@Test
+	public void testFifo() {
+		ConcurrentTaskQueue queue = queueFactory.get();
+		assertTrue(queue.isEmpty());
+		Runnable[] tasks = new Runnable[10];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = () -> {};
+			assertTrue(queue.offer(tasks[i]));
+		}
+		assertEquals(10, queue.size());
+
+		for (int i = 0; i < 3; i++) {
+			assertSame(tasks[i], queue.poll());
+		}
+		Runnable[] batch = new Runnable[4];
+		assertEquals(4, queue.drainTo(batch));
+		for (int i = 0; i < 4; i++) {
+			assertSame(tasks[3 + i], batch[i]);
+		}
+		assertEquals(3, queue.drainTo(batch));
+		assertSame(tasks[9], batch[2]);
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testMultipleProducers() throws InterruptedException {
+		ConcurrentTaskQueue queue = queueFactory.get();
+		Thread[] producers = new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++) {
+			int producer = p;
+			producers[p] = new Thread(() -> {
+				for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+					Runnable task = new Task(producer, i);
+					while (!queue.offer(task)) {
+						Thread.yield();
+					}
+				}
+			});
+			producers[p].start();
+		}
+
+		int[] lastSeen = new int[PRODUCERS];
+		Arrays.fill(lastSeen, -1);
+		Runnable[] batch = new Runnable[8];
+		int received = 0;
+		while (received != PRODUCERS * TASKS_PER_PRODUCER) {
+			int n = queue.drainTo(batch);
+			if (n == 0) {
+				// let producers run on machines with few CPUs
+				Thread.yield();
+				continue;
+			}
+			for (int i = 0; i < n; i++) {
+				Task task = (Task) requireNonNull(batch[i]);
+				assertEquals(lastSeen[task.producer] + 1, task.index);
+				lastSeen[task.producer] = task.index;
+			}
+			received += n;
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testEventloop() throws InterruptedException {
+		EventloopStats stats = EventloopStats.create();
+		Eventloop eventloop = Eventloop.create()
+				.withConcurrentTaskQueue(queueFactory.get())
+				.withInspector(stats);
+		eventloop.keepAlive(true);
+		Thread eventloopThread = new Thread(eventloop);
+		eventloopThread.start();
+
+		AtomicInteger executed = new AtomicInteger();
+		Thread[] producers = new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++) {
+			producers[p] = new Thread(() -> {
+				for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+					eventloop.execute(executed::incrementAndGet);
+				}
+			});
+			producers[p].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		eventloop.execute(() -> eventloop.keepAlive(false));
+		eventloopThread.join();
+
+		assertEquals(PRODUCERS * TASKS_PER_PRODUCER, executed.get());
+		if (testName.equals("Linked") || testName.equals("Mpsc chunked")) {
+			assertEquals(0, stats.getTasks().getConcurrent().getOverflows().getTotalCount());
+		}
+	}
+
+	private static final class Task implements Runnable {
+		final int producer;
+		final int index;
+
+		Task(int producer, int index) {
+			this.producer = producer;
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package io.activej.eventloop.schedule;
+
+import io.activej.eventloop.Eventloop;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public final class ScheduledTaskQueueTest {
+	private static final long START = 1_600_000_000_000L;
+
+	@Parameter()
+	public String testName;
+
+	@Parameter(1)
+	public Supplier<ScheduledTaskQueue> queueFactory;
+
+	/**
+	 * A maximum delay of tasks which are scheduled without cascading between levels of a wheel
+	 */
+	@Parameter(2)
+	public long horizon;
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> getParameters() {
+		return Arrays.asList(
+				new Object[]{"Heap", (Supplier<ScheduledTaskQueue>) ScheduledTaskQueueHeap::create, Long.MAX_VALUE},
+				new Object[]{"Timing wheel", (Supplier<ScheduledTaskQueue>) ScheduledTaskQueueTimingWheel::create,
+						horizon(256, 4, 1)},
+				new Object[]{"Small timing wheel", (Supplier<ScheduledTaskQueue>) () -> ScheduledTaskQueueTimingWheel.create()
+						.withWheelSize(4)
+						.withLevels(2),
+						horizon(4, 2, 1)},
+				new Object[]{"Coarse timing wheel", (Supplier<ScheduledTaskQueue>) () -> ScheduledTaskQueueTimingWheel.create()
+						.withTickDuration(Duration.ofMillis(10)),
+						horizon(256, 4, 10)}
+		);
+	}
+
+	private static long horizon(int wheelSize, int levels, long tickMillis) {
+		return (long) Math.pow(wheelSize, levels) * tickMillis;
+	}
+
+	@Test
+	public void testOrder() {
+		ScheduledTaskQueue queue = queueFactory.get();
+		ScheduledRunnable task3 = add(queue, START + 300, START);
+		ScheduledRunnable task1 = add(queue, START + 100, START);
+		ScheduledRunnable task2 = add(queue, START + 200, START);
+		assertEquals(3, queue.size());
+
+		assertNull(queue.poll(START + 99));
+		assertSame(task1, queue.poll(START + 250));
+		assertSame(task2, queue.poll(START + 250));
+		assertNull(queue.poll(START + 250));
+		assertSame(task3, queue.poll(START + 1000));
+		assertNull(queue.poll(START + 1000));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testCancel() {
+		ScheduledTaskQueue queue = queueFactory.get();
+		ScheduledRunnable task1 = add(queue, START + 100, START);
+		ScheduledRunnable task2 = add(queue, START + 200, START);
+		task1.cancel();
+
+		assertSame(task2, queue.poll(START + 1000));
+		assertNull(queue.poll(START + 1000));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testNextTimestampIsLowerBound() {
+		ScheduledTaskQueue queue = queueFactory.get();
+		assertEquals(Long.MAX_VALUE, queue.getNextTimestamp());
+		add(queue, START + 70_000, START);
+		add(queue, START + 5_000, START);
+		long now = START;
+		while (!queue.isEmpty()) {
+			long next = queue.getNextTimestamp();
+			assertTrue(next <= START + 70_000);
+			now = Math.max(now, next);
+			ScheduledRunnable task = queue.poll(now);
+			if (task != null) {
+				assertTrue(task.getTimestamp() <= now);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomized() {
+		Random random = new Random(0);
+		ScheduledTaskQueue queue = queueFactory.get();
+		List<ScheduledRunnable> active = new ArrayList<>();
+		Set<ScheduledRunnable> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+		// long delays exceed the horizon of a wheel a few times, so that tasks are re-cascaded but not on every revolution
+		int maxDelay = (int) Math.min(10_000_000 / 4, horizon) * 4;
+		int maxShortDelay = (int) Math.min(1000, horizon);
+		long now = START;
+		for (int i = 0; i < 100_000; i++) {
+			int action = random.nextInt(10);
+			if (action < 5) {
+				long delay = random.nextInt(4) == 0 ? random.nextInt(maxDelay) : random.nextInt(maxShortDelay);
+				ScheduledRunnable task = add(queue, now + delay, now);
+				active.add(task);
+				expected.add(task);
+			} else if (action < 7 && !active.isEmpty()) {
+				ScheduledRunnable task = active.remove(random.nextInt(active.size()));
+				if (expected.remove(task)) {
+					task.cancel();
+				}
+			} else {
+				now += random.nextInt(random.nextInt(100) == 0 ? maxDelay / 10 + 1 : maxShortDelay / 10 + 1);
+				while (true) {
+					ScheduledRunnable task = queue.poll(now);
+					if (task == null) break;
+					assertFalse(task.isCancelled());
+					assertTrue(task.getTimestamp() <= now);
+					assertTrue(expected.remove(task));
+				}
+				for (ScheduledRunnable task : expected) {
+					assertTrue(task.getTimestamp() > now - 10);
+				}
+			}
+		}
+		while (!queue.isEmpty()) {
+			now = Math.max(now, queue.getNextTimestamp());
+			ScheduledRunnable task = queue.poll(now);
+			if (task != null) {
+				assertTrue(expected.remove(task));
+			}
+		}
+		assertTrue(expected.isEmpty());
+	}
+
+	@Test
+	public void testEventloop() {
+		List<Integer> executed = new ArrayList<>();
+		Eventloop eventloop = Eventloop.create().withCurrentThread().withScheduledTaskQueue(queueFactory);
+		eventloop.delay(30, () -> executed.add(3));
+		eventloop.delay(10, () -> executed.add(1));
+		ScheduledRunnable cancelled = eventloop.delay(20, () -> executed.add(2));
+		eventloop.delayBackground(1000, () -> executed.add(-1));
+		cancelled.cancel();
+		eventloop.run();
+		assertEquals(Arrays.asList(1, 3), executed);
+	}
+
+	private static ScheduledRunnable add(ScheduledTaskQueue queue, long timestamp, long now) {
+		ScheduledRunnable task = ScheduledRunnable.create(timestamp, () -> {});
+		queue.add(task, now);
+		return task;
+	}
+}
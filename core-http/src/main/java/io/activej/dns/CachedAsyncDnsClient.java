@@ -26,6 +26,7 @@ import io.activej.eventloop.Eventloop;
 import io.activej.eventloop.jmx.EventloopJmxBean;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -35,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import static io.activej.common.Checks.checkState;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
@@ -42,6 +44,10 @@ import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 /**
  * Implementation of {@link AsyncDnsClient} that asynchronously
  * connects to some DNS server and gets the response from it.
+ * <p>
+ * Responses are cached in a {@link DnsCache}. Entries that need refreshing are still served
+ * from the cache while being re-resolved in background. Concurrent queries for the same domain,
+ * including the ones made from other eventloops, share a single request to the DNS server.
  */
 public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxBean, WithInitializer<CachedAsyncDnsClient> {
 	private final Logger logger = LoggerFactory.getLogger(CachedAsyncDnsClient.class);
@@ -54,6 +60,14 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 	private final Map<DnsQuery, Promise<DnsResponse>> pending = new HashMap<>();
 	private final Set<DnsQuery> refreshingNow = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+	// region JMX
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LongAdder staleHits = new LongAdder();
+	private final LongAdder refreshes = new LongAdder();
+	private final LongAdder coalescedQueries = new LongAdder();
+	// endregion
+
 	private CachedAsyncDnsClient(Eventloop eventloop, AsyncDnsClient client, DnsCache cache) {
 		this.eventloop = eventloop;
 		this.client = client;
@@ -90,6 +104,9 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 			return this;
 		}
 		return new AsyncDnsClient() {
+			// queries of this eventloop which wait for an answer from the main one
+			private final Map<DnsQuery, Promise<DnsResponse>> pendingLocally = new HashMap<>();
+
 			@Override
 			public Promise<DnsResponse> resolve(DnsQuery query) {
 				if (CHECK) checkState(anotherEventloop.inEventloopThread());
@@ -99,22 +116,30 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 					return Promise.of(fromQuery);
 				}
 
-				DnsQueryCacheResult cacheResult = cache.tryToResolve(query);
+				DnsQueryCacheResult cacheResult = tryToResolve(query);
 				if (cacheResult != null) {
-					if (cacheResult.doesNeedRefreshing() && !refreshingNow.add(query)) {
+					if (cacheResult.doesNeedRefreshing() && refreshingNow.add(query)) {
 						eventloop.execute(() -> refresh(query));
 					}
 					return cacheResult.getResponseAsPromise();
 				}
 
+				Promise<DnsResponse> pendingPromise = pendingLocally.get(query);
+				if (pendingPromise != null) {
+					coalescedQueries.increment();
+					return pendingPromise;
+				}
+
 				anotherEventloop.startExternalTask(); // keep other eventloop alive while we wait for an answer in main one
-				return Promise.ofCallback(cb ->
+				Promise<DnsResponse> promise = Promise.ofCallback(cb ->
 						eventloop.execute(() ->
-								CachedAsyncDnsClient.this.resolve(query)
+								resolveRemotely(query)
 										.run((result, e) -> {
 											anotherEventloop.execute(wrapContext(cb, () -> cb.accept(result, e)));
 											anotherEventloop.completeExternalTask();
 										})));
+				pendingLocally.put(query, promise);
+				return promise.whenComplete(() -> pendingLocally.remove(query));
 			}
 
 			@Override
@@ -133,17 +158,40 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		}
 	}
 
-	private void refresh(DnsQuery query) {
-		if (!refreshingNow.add(query)) {
-			logger.trace("{} needs refreshing, but it does so right now", query);
-			return;
+	private @Nullable DnsQueryCacheResult tryToResolve(DnsQuery query) {
+		DnsQueryCacheResult cacheResult = cache.tryToResolve(query);
+		if (cacheResult == null) {
+			cacheMisses.increment();
+		} else if (cacheResult.isStale()) {
+			staleHits.increment();
+		} else {
+			cacheHits.increment();
 		}
+		return cacheResult;
+	}
+
+	/**
+	 * Should be called in the main eventloop after the query has been added to {@link #refreshingNow}
+	 */
+	private void refresh(DnsQuery query) {
 		logger.trace("Refreshing {}", query);
-		client.resolve(query)
-				.run((response, e) -> {
-					addToCache(query, response, e);
-					refreshingNow.remove(query);
-				});
+		refreshes.increment();
+		resolveRemotely(query)
+				.whenComplete(() -> refreshingNow.remove(query));
+	}
+
+	private Promise<DnsResponse> resolveRemotely(DnsQuery query) {
+		Promise<DnsResponse> promise = pending.get(query);
+		if (promise != null) {
+			coalescedQueries.increment();
+			return promise;
+		}
+		cache.performCleanup();
+		Promise<DnsResponse> resolve = client.resolve(query);
+		resolve.run((response, e) -> addToCache(query, response, e));
+		if (resolve.isComplete()) return resolve;
+		pending.put(query, resolve);
+		return resolve.whenComplete(() -> pending.remove(query));
 	}
 
 	@Override
@@ -159,21 +207,18 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		}
 
 		logger.trace("Resolving {}", query);
-		DnsQueryCacheResult cacheResult = cache.tryToResolve(query);
+		DnsQueryCacheResult cacheResult = tryToResolve(query);
 		if (cacheResult != null) {
 			if (cacheResult.doesNeedRefreshing()) {
-				refresh(query);
+				if (refreshingNow.add(query)) {
+					refresh(query);
+				} else {
+					logger.trace("{} needs refreshing, but it does so right now", query);
+				}
 			}
 			return cacheResult.getResponseAsPromise();
 		}
-		cache.performCleanup();
-		Promise<DnsResponse> promise = pending.get(query);
-		if (promise != null) return promise;
-		Promise<DnsResponse> resolve = client.resolve(query);
-		resolve.run((response, e) -> addToCache(query, response, e));
-		if (resolve.isComplete()) return resolve;
-		pending.put(query, resolve);
-		return resolve.whenComplete(() -> pending.remove(query));
+		return resolveRemotely(query);
 	}
 
 	@Override
@@ -191,6 +236,31 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		return cache;
 	}
 
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public long getStaleHits() {
+		return staleHits.sum();
+	}
+
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public long getRefreshes() {
+		return refreshes.sum();
+	}
+
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public long getCoalescedQueries() {
+		return coalescedQueries.sum();
+	}
+
 	@JmxOperation
 	public List<String> getResolvedDomains() {
 		return cache.getResolvedDomains();
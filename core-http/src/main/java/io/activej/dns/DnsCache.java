@@ -43,6 +43,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 
 /**
@@ -56,6 +57,7 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 	public static final Duration DEFAULT_TIMED_OUT_EXPIRATION = Duration.ofSeconds(1);
 	public static final Duration DEFAULT_HARD_EXPIRATION_DELTA = Duration.ofMinutes(1);
 	public static final Duration DEFAULT_MAX_TTL = null;
+	public static final double DEFAULT_REFRESH_AHEAD_RATIO = 1.0;
 
 	private final Map<DnsQuery, CachedDnsQueryResult> cache = new ConcurrentHashMap<>();
 	private final Eventloop eventloop;
@@ -64,6 +66,8 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 	private long timedOutExpiration = DEFAULT_TIMED_OUT_EXPIRATION.toMillis();
 	private long hardExpirationDelta = DEFAULT_HARD_EXPIRATION_DELTA.toMillis();
 	private long maxTtl = Long.MAX_VALUE;
+	private double refreshAheadRatio = DEFAULT_REFRESH_AHEAD_RATIO;
+	private boolean negativeCaching = true;
 
 	private final AtomicBoolean cleaningUpNow = new AtomicBoolean(false);
 	private final PriorityQueue<CachedDnsQueryResult> expirations = new PriorityQueue<>();
@@ -113,6 +117,29 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 		return this;
 	}
 
+	/**
+	 * Sets a fraction of a time to live after which a resolved entry is refreshed in background.
+	 * Until the refresh completes the entry is still served from the cache,
+	 * so that frequently resolved domains never miss the cache.
+	 * <p>
+	 * Default ratio is {@code 1.0}, which means that entries are refreshed once their time to live expires
+	 *
+	 * @param refreshAheadRatio a fraction of a time to live, should be in range {@code (0, 1]}
+	 */
+	public DnsCache withRefreshAheadRatio(double refreshAheadRatio) {
+		checkArgument(refreshAheadRatio > 0 && refreshAheadRatio <= 1, "Refresh ahead ratio should be in range (0, 1]");
+		this.refreshAheadRatio = refreshAheadRatio;
+		return this;
+	}
+
+	/**
+	 * @param negativeCaching whether failed responses should be cached
+	 */
+	public DnsCache withNegativeCaching(boolean negativeCaching) {
+		this.negativeCaching = negativeCaching;
+		return this;
+	}
+
 	/**
 	 * Tries to get status of the entry for some query from the cache.
 	 *
@@ -140,13 +167,22 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 			return null;
 		} else if (isSoftExpired(cachedResult)) {
 			logger.trace("{} soft TTL expired", query);
-			return new DnsQueryCacheResult(result, true);
+			return new DnsQueryCacheResult(result, true, true);
+		} else if (now.currentTimeMillis() >= cachedResult.refreshTime) {
+			logger.trace("{} needs refreshing ahead of expiration", query);
+			return new DnsQueryCacheResult(result, true, false);
 		}
-		return new DnsQueryCacheResult(result, false);
+		return new DnsQueryCacheResult(result, false, false);
 	}
 
+	/**
+	 * Failed responses are never served after their expiration,
+	 * as a domain may become resolvable in the meantime
+	 */
 	private boolean isExpired(CachedDnsQueryResult cachedResult) {
-		return now.currentTimeMillis() >= cachedResult.expirationTime + hardExpirationDelta;
+		assert cachedResult.response != null;
+		long delta = cachedResult.response.isSuccessful() ? hardExpirationDelta : 0;
+		return now.currentTimeMillis() >= cachedResult.expirationTime + delta;
 	}
 
 	private boolean isSoftExpired(CachedDnsQueryResult cachedResult) {
@@ -160,20 +196,34 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 	 */
 	public void add(DnsQuery query, DnsResponse response) {
 		if (CHECK) checkState(eventloop.inEventloopThread(), "Concurrent cache adds are not allowed");
-		long expirationTime = now.currentTimeMillis();
+		long currentTime = now.currentTimeMillis();
+		long expirationTime;
+		long refreshTime;
 		if (response.isSuccessful()) {
 			assert response.getRecord() != null; // where are my advanced contracts so that the IDE would know it's true here without an assertion?
 			long minTtl = response.getRecord().getMinTtl() * 1000L;
 			if (minTtl == 0) {
 				return;
 			}
-			expirationTime += Math.min(minTtl, maxTtl);
+			long ttl = Math.min(minTtl, maxTtl);
+			expirationTime = currentTime + ttl;
+			refreshTime = currentTime + (long) (ttl * refreshAheadRatio);
 		} else {
-			expirationTime += response.getErrorCode() == ResponseErrorCode.TIMED_OUT ?
+			if (!negativeCaching) {
+				return;
+			}
+			CachedDnsQueryResult existing = cache.get(query);
+			if (existing != null && existing.response != null && existing.response.isSuccessful() && !isExpired(existing)) {
+				// failed refresh should not shadow a stale, but still usable response
+				logger.trace("Failed to refresh {}, keeping stale cache entry", query);
+				return;
+			}
+			expirationTime = currentTime + (response.getErrorCode() == ResponseErrorCode.TIMED_OUT ?
 					timedOutExpiration :
-					errorCacheExpiration;
+					errorCacheExpiration);
+			refreshTime = expirationTime;
 		}
-		CachedDnsQueryResult cachedResult = new CachedDnsQueryResult(response, expirationTime);
+		CachedDnsQueryResult cachedResult = new CachedDnsQueryResult(response, expirationTime, refreshTime);
 		CachedDnsQueryResult old = cache.put(query, cachedResult);
 		expirations.add(cachedResult);
 
@@ -195,6 +245,9 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 		while ((peeked = expirations.peek()) != null && peeked.expirationTime <= currentTime) {
 			DnsResponse response = peeked.response;
 			if (response != null) { // if it was not refreshed(so there is a newer response in the queue)
+				if (!isExpired(peeked)) {
+					break; // entry still may be served while it is being refreshed
+				}
 				DnsQuery query = response.getTransaction().getQuery();
 				cache.remove(query); // we drop it from cache
 				logger.trace("Cache entry expired for {}", query);
@@ -248,6 +301,27 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 		}
 	}
 
+	@JmxAttribute
+	public double getRefreshAheadRatio() {
+		return refreshAheadRatio;
+	}
+
+	@JmxAttribute
+	public void setRefreshAheadRatio(double refreshAheadRatio) {
+		checkArgument(refreshAheadRatio > 0 && refreshAheadRatio <= 1, "Refresh ahead ratio should be in range (0, 1]");
+		this.refreshAheadRatio = refreshAheadRatio;
+	}
+
+	@JmxAttribute
+	public boolean isNegativeCaching() {
+		return negativeCaching;
+	}
+
+	@JmxAttribute
+	public void setNegativeCaching(boolean negativeCaching) {
+		this.negativeCaching = negativeCaching;
+	}
+
 	@JmxAttribute(reducer = JmxReducerSum.class)
 	public int getDomainsCount() {
 		return cache.size();
@@ -381,12 +455,18 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 	public static final class DnsQueryCacheResult {
 		private final DnsResponse response;
 		private final boolean needsRefreshing;
+		private final boolean stale;
 
 		private @Nullable DnsQueryException exception;
 
 		public DnsQueryCacheResult(DnsResponse response, boolean needsRefreshing) {
+			this(response, needsRefreshing, needsRefreshing);
+		}
+
+		public DnsQueryCacheResult(DnsResponse response, boolean needsRefreshing, boolean stale) {
 			this.response = response;
 			this.needsRefreshing = needsRefreshing;
+			this.stale = stale;
 		}
 
 		public Promise<DnsResponse> getResponseAsPromise() {
@@ -402,15 +482,24 @@ public final class DnsCache implements WithInitializer<DnsCache> {
 		public boolean doesNeedRefreshing() {
 			return needsRefreshing;
 		}
+
+		/**
+		 * @return whether the time to live of a response has already expired
+		 */
+		public boolean isStale() {
+			return stale;
+		}
 	}
 
 	static final class CachedDnsQueryResult implements Comparable<CachedDnsQueryResult> {
 		@Nullable DnsResponse response;
 		final long expirationTime;
+		final long refreshTime;
 
-		CachedDnsQueryResult(@Nullable DnsResponse response, long expirationTime) {
+		CachedDnsQueryResult(@Nullable DnsResponse response, long expirationTime, long refreshTime) {
 			this.response = response;
 			this.expirationTime = expirationTime;
+			this.refreshTime = refreshTime;
 		}
 
 		@Override
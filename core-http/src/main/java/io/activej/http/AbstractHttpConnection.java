@@ -26,6 +26,7 @@ import io.activej.common.MemSize;
 import io.activej.common.recycle.Recyclable;
 import io.activej.csp.*;
 import io.activej.csp.binary.BinaryChannelSupplier;
+import io.activej.csp.file.ChannelFileSupplier;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.stream.*;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
@@ -125,6 +126,18 @@ public abstract class AbstractHttpConnection {
 
 	protected abstract void onHeader(HttpHeader header, byte[] array, int off, int len) throws MalformedHttpException;
 
+	/**
+	 * Is called for each received header before its name is resolved into an {@link HttpHeader}.
+	 * By default, resolves a header name and passes a header to {@link #onHeader}
+	 *
+	 * @param header a registered header with such name or {@code null} if there is no such registered header
+	 */
+	protected void onRawHeader(@Nullable HttpHeader header, int hashCodeCI, byte[] array,
+			int nameOffset, int nameLength, int valueOffset, int valueLength) throws MalformedHttpException {
+		onHeader(header != null ? header : HttpHeaders.of(hashCodeCI, array, nameOffset, nameLength),
+				array, valueOffset, valueLength);
+	}
+
 	protected abstract void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier);
 
 	protected abstract void onBodyReceived();
@@ -358,7 +371,8 @@ public abstract class AbstractHttpConnection {
 			pos++;
 		}
 		if (pos == limit) throw new MalformedHttpException("Header name is absent");
-		HttpHeader header = HttpHeaders.of(hashCodeCI, array, off, pos - off);
+		int nameLength = pos - off;
+		HttpHeader header = HttpHeaders.getRegistered(hashCodeCI, array, off, nameLength);
 		pos++;
 
 		// RFC 2616, section 19.3 Tolerant Applications
@@ -380,7 +394,7 @@ public abstract class AbstractHttpConnection {
 			flags |= equalsLowerCaseAscii(CONTENT_ENCODING_GZIP, array, pos, len) ? GZIPPED : 0;
 		}
 
-		onHeader(header, array, pos, len);
+		onRawHeader(header, hashCodeCI, array, off, nameLength, pos, len);
 	}
 
 	private void readBody() {
@@ -524,7 +538,7 @@ public abstract class AbstractHttpConnection {
 				bodyStream = deflater.getOutput().getSupplier();
 			}
 
-			if (httpMessage.headers.get(CONTENT_LENGTH) == null) {
+			if (!httpMessage.containsHeader(CONTENT_LENGTH)) {
 				httpMessage.addHeader(TRANSFER_ENCODING, ofBytes(TRANSFER_ENCODING_CHUNKED));
 				BufsConsumerChunkedEncoder chunker = BufsConsumerChunkedEncoder.create();
 				bodyStream.bindTo(chunker.getInput());
@@ -535,6 +549,15 @@ public abstract class AbstractHttpConnection {
 		ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize());
 		httpMessage.writeTo(buf);
 
+		if (bodyStream instanceof ChannelFileSupplier) {
+			if (writeBuf != null) {
+				socket.write(writeBuf);
+			}
+			socket.write(buf);
+			writeFile((ChannelFileSupplier) bodyStream);
+			return;
+		}
+
 		writeStream(ChannelSuppliers.concat(writeBuf != null ? ChannelSupplier.of(writeBuf, buf) : ChannelSupplier.of(buf), bodyStream));
 	}
 
@@ -558,6 +581,18 @@ public abstract class AbstractHttpConnection {
 				.whenResult(this::onBodySent);
 	}
 
+	private void writeFile(ChannelFileSupplier supplier) {
+		supplier.transferTo(socket)
+				.run(($, e) -> {
+					if (isClosed()) return;
+					if (e == null) {
+						onBodySent();
+					} else {
+						closeEx(translateToHttpException(e));
+					}
+				});
+	}
+
 	protected void switchPool(ConnectionsLinkedList newPool) {
 		//noinspection ConstantConditions
 		pool.removeNode(this);
@@ -25,6 +25,7 @@ final class AddressLinkedList {
 
 	private HttpClientConnection first;
 	private HttpClientConnection last;
+	private int size;
 
 	public boolean isEmpty() {
 		return first == null;
@@ -42,6 +43,8 @@ final class AddressLinkedList {
 			first = node.addressNext;
 		}
 		node.addressNext = node.addressPrev = null;
+		node.addressList = null;
+		size--;
 		return node;
 	}
 
@@ -56,6 +59,8 @@ final class AddressLinkedList {
 			first = node;
 		}
 		last = node;
+		node.addressList = this;
+		size++;
 	}
 
 	public void removeNode(HttpClientConnection node) {
@@ -72,13 +77,15 @@ final class AddressLinkedList {
 			last = node.addressPrev;
 		}
 		node.addressNext = node.addressPrev = null;
+		node.addressList = null;
+		size--;
+	}
+
+	public HttpClientConnection getFirstNode() {
+		return first;
 	}
 
 	public int size() {
-		int count = 0;
-		for (HttpClientConnection connection = first; connection != null; connection = connection.addressNext) {
-			count++;
-		}
-		return count;
+		return size;
 	}
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.promise.SettablePromise;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+
+/**
+ * A state of HTTP/1.1 connections of {@link AsyncHttpClient} to a single address
+ */
+final class AddressPool {
+	final InetSocketAddress address;
+
+	/**
+	 * Idle connections, which are in keep-alive pool
+	 */
+	final AddressLinkedList keepAlive = new AddressLinkedList();
+
+	/**
+	 * Connections which are sending requests or receiving responses
+	 */
+	final AddressLinkedList active = new AddressLinkedList();
+
+	/**
+	 * Requests which wait for a connection, as all the connections to this address are in use
+	 */
+	final ArrayDeque<PendingRequest> pending = new ArrayDeque<>();
+
+	/**
+	 * A number of open and currently connecting connections
+	 */
+	int connections;
+
+	/**
+	 * A number of requests which have not received a response yet, including pending ones
+	 */
+	int inFlight;
+
+	AddressPool(InetSocketAddress address) {
+		this.address = address;
+	}
+
+	int getActiveConnections() {
+		return connections - keepAlive.size();
+	}
+
+	boolean isUnused() {
+		return connections == 0 && inFlight == 0;
+	}
+
+	static final class PendingRequest {
+		final HttpRequest request;
+		final boolean isWebSocket;
+		final long timestamp;
+		final SettablePromise<Object> promise = new SettablePromise<>();
+
+		PendingRequest(HttpRequest request, boolean isWebSocket, long timestamp) {
+			this.request = request;
+			this.isWebSocket = isWebSocket;
+			this.timestamp = timestamp;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AddressPool{" +
+				"address=" + address +
+				", connections=" + connections +
+				", keepAlive=" + keepAlive.size() +
+				", inFlight=" + inFlight +
+				", pending=" + pending.size() +
+				'}';
+	}
+}
@@ -16,6 +16,7 @@
 
 package io.activej.http;
 
+import io.activej.async.exception.AsyncCloseException;
 import io.activej.async.exception.AsyncTimeoutException;
 import io.activej.async.service.EventloopService;
 import io.activej.common.ApplicationSettings;
@@ -32,14 +33,18 @@ import io.activej.eventloop.Eventloop;
 import io.activej.eventloop.jmx.EventloopJmxBeanWithStats;
 import io.activej.eventloop.net.SocketSettings;
 import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.http.AddressPool.PendingRequest;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxOperation;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
 import io.activej.jmx.stats.EventStats;
 import io.activej.jmx.stats.ExceptionStats;
+import io.activej.jmx.stats.ValueStats;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
+import io.activej.net.socket.tcp.AsyncTcpSocketSsl;
 import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -60,9 +65,11 @@ import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 import static io.activej.http.HttpUtils.translateToHttpException;
 import static io.activej.http.Protocol.*;
+import static io.activej.jmx.stats.JmxHistogram.POWERS_OF_TWO;
 import static io.activej.jmx.stats.MBeanFormat.formatListAsMultilineString;
 import static io.activej.net.socket.tcp.AsyncTcpSocketSsl.wrapClientSocket;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.util.Arrays.asList;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -85,14 +92,18 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 	public static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "maxBodySize", MemSize.ZERO);
 	public static final MemSize MAX_WEB_SOCKET_MESSAGE_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "maxWebSocketMessageSize", MemSize.megabytes(1));
 	public static final int MAX_KEEP_ALIVE_REQUESTS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxKeepAliveRequests", 0);
+	public static final int MAX_CONNECTIONS_PER_ADDRESS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxConnectionsPerAddress", 0);
+	public static final int MAX_PENDING_REQUESTS_PER_ADDRESS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxPendingRequestsPerAddress", 0);
 
 	private final @NotNull Eventloop eventloop;
 	private @NotNull AsyncDnsClient asyncDnsClient;
 	private @NotNull SocketSettings socketSettings = DEFAULT_SOCKET_SETTINGS;
 
-	final HashMap<InetSocketAddress, AddressLinkedList> addresses = new HashMap<>();
+	final HashMap<InetSocketAddress, AddressPool> addresses = new HashMap<>();
 	final ConnectionsLinkedList poolKeepAlive = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
+	private final HashMap<InetSocketAddress, Http2ClientConnection> http2Connections = new HashMap<>();
+	private final HashMap<InetSocketAddress, SettablePromise<@Nullable Http2ClientConnection>> http2Connects = new HashMap<>();
 	private int poolKeepAliveExpired;
 	private int poolReadWriteExpired;
 
@@ -105,8 +116,18 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 	int keepAliveTimeoutMillis = (int) KEEP_ALIVE_TIMEOUT.toMillis();
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxWebSocketMessageSize = MAX_WEB_SOCKET_MESSAGE_SIZE.toInt();
+	@Nullable WebSocketCompression webSocketCompression;
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
 
+	// per-address limits
+	private int maxConnectionsPerAddress = MAX_CONNECTIONS_PER_ADDRESS;
+	private int maxPendingRequestsPerAddress = MAX_PENDING_REQUESTS_PER_ADDRESS;
+	private int maxPipelinedRequests;
+
+	// HTTP/2
+	private boolean http2;
+	private boolean http2PriorKnowledge;
+
 	// SSL
 	private SSLContext sslContext;
 	private Executor sslExecutor;
@@ -137,6 +158,15 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		}
 
 		void onDisconnect(HttpClientConnection connection);
+
+		default void onAddressPoolUsage(InetSocketAddress address, int activeConnections, int pendingRequests) {
+		}
+
+		default void onPendingRequestDispatched(HttpRequest request, long waitMillis) {
+		}
+
+		default void onPendingRequestRejected(HttpRequest request, InetSocketAddress address) {
+		}
 	}
 
 	@SuppressWarnings("WeakerAccess")
@@ -155,6 +185,10 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		private final EventStats sslErrors = EventStats.create(SMOOTHING_WINDOW);
 		private long activeConnections;
 		private int connecting;
+		private final ValueStats addressActiveConnections = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("connections");
+		private final ValueStats addressPendingRequests = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("requests");
+		private final ValueStats pendingWaitTime = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
+		private final EventStats rejectedRequests = EventStats.create(SMOOTHING_WINDOW);
 
 		@Override
 		public void onRequest(HttpRequest request) {
@@ -221,6 +255,22 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 			activeConnections--;
 		}
 
+		@Override
+		public void onAddressPoolUsage(InetSocketAddress address, int activeConnections, int pendingRequests) {
+			addressActiveConnections.recordValue(activeConnections);
+			addressPendingRequests.recordValue(pendingRequests);
+		}
+
+		@Override
+		public void onPendingRequestDispatched(HttpRequest request, long waitMillis) {
+			pendingWaitTime.recordValue((int) waitMillis);
+		}
+
+		@Override
+		public void onPendingRequestRejected(HttpRequest request, InetSocketAddress address) {
+			rejectedRequests.recordEvent();
+		}
+
 		@JmxAttribute(extraSubAttributes = "totalCount", description = "all requests that were sent (both successful and failed)")
 		public EventStats getTotalRequests() {
 			return totalRequests;
@@ -259,7 +309,8 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		@JmxAttribute(reducer = JmxReducerSum.class)
 		public long getActiveRequests() {
 			return totalRequests.getTotalCount() -
-					(httpTimeouts.getTotalCount() + resolveErrors.getTotal() + connectErrors.getTotal() + responsesErrors + responses);
+					(httpTimeouts.getTotalCount() + resolveErrors.getTotal() + connectErrors.getTotal() + rejectedRequests.getTotalCount() +
+							responsesErrors + responses);
 		}
 
 		@JmxAttribute(reducer = JmxReducerSum.class)
@@ -281,6 +332,26 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		public int getConnecting() {
 			return connecting;
 		}
+
+		@JmxAttribute(description = "number of busy connections to a request address at the moment a request is sent")
+		public ValueStats getAddressActiveConnections() {
+			return addressActiveConnections;
+		}
+
+		@JmxAttribute(description = "number of requests which wait for a connection to a request address at the moment a request is sent")
+		public ValueStats getAddressPendingRequests() {
+			return addressPendingRequests;
+		}
+
+		@JmxAttribute(description = "time a request waits for a connection when all the connections to an address are busy")
+		public ValueStats getPendingWaitTime() {
+			return pendingWaitTime;
+		}
+
+		@JmxAttribute(extraSubAttributes = "totalCount", description = "requests which were rejected as there were too many pending requests to an address")
+		public EventStats getRejectedRequests() {
+			return rejectedRequests;
+		}
 	}
 
 	private int inetAddressIdx = 0;
@@ -357,6 +428,75 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		return this;
 	}
 
+	/**
+	 * Offers {@code permessage-deflate} compression of web socket messages during a web socket handshake
+	 */
+	public AsyncHttpClient withWebSocketCompression(@NotNull WebSocketCompression webSocketCompression) {
+		this.webSocketCompression = webSocketCompression;
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of HTTP/1.1 connections to a single address, including connecting ones.
+	 * <p>
+	 * Once all the connections to an address are busy, requests are pipelined (if pipelining is enabled)
+	 * or wait in a queue for a connection to be released.
+	 *
+	 * @param maxConnectionsPerAddress a maximum number of connections, 0 means no limit
+	 */
+	public AsyncHttpClient withMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+		checkArgument(maxConnectionsPerAddress >= 0, "Maximum number of connections per address should not be less than zero");
+		this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of requests which wait for a connection to a single address,
+	 * any other request to the address fails with {@link HttpException}
+	 *
+	 * @param maxPendingRequestsPerAddress a maximum number of pending requests, 0 means no limit
+	 */
+	public AsyncHttpClient withMaxPendingRequestsPerAddress(int maxPendingRequestsPerAddress) {
+		checkArgument(maxPendingRequestsPerAddress >= 0, "Maximum number of pending requests per address should not be less than zero");
+		this.maxPendingRequestsPerAddress = maxPendingRequestsPerAddress;
+		return this;
+	}
+
+	/**
+	 * Enables HTTP/1.1 pipelining of {@code GET} requests without a body.
+	 * <p>
+	 * A request is pipelined only when all the connections to its address are busy and no more connections
+	 * may be opened, see {@link #withMaxConnectionsPerAddress(int)}. A connection with the least number of
+	 * pipelined requests is chosen among the connections which have already been kept alive by a server.
+	 * If a server closes a connection, pipelined requests fail and may be retried.
+	 *
+	 * @param maxPipelinedRequests a maximum number of requests pipelined after the current one on a single connection
+	 */
+	public AsyncHttpClient withPipelining(int maxPipelinedRequests) {
+		checkArgument(maxPipelinedRequests > 0, "Maximum number of pipelined requests should be positive");
+		this.maxPipelinedRequests = maxPipelinedRequests;
+		return this;
+	}
+
+	/**
+	 * Enables HTTP/2 for secure requests, HTTP/2 is negotiated with a server via ALPN
+	 * and HTTP/1.1 is used if a server does not support HTTP/2.
+	 * <p>
+	 * Requests to the same address are multiplexed over a single HTTP/2 connection.
+	 */
+	public AsyncHttpClient withHttp2() {
+		this.http2 = true;
+		return this;
+	}
+
+	/**
+	 * Enables HTTP/2 for plain text requests, a server is assumed to support HTTP/2 (prior knowledge)
+	 */
+	public AsyncHttpClient withHttp2PriorKnowledge() {
+		this.http2PriorKnowledge = true;
+		return this;
+	}
+
 	public AsyncHttpClient withInspector(Inspector inspector) {
 		this.inspector = inspector;
 		return this;
@@ -392,29 +532,31 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		});
 	}
 
-	private @Nullable HttpClientConnection takeKeepAliveConnection(InetSocketAddress address) {
-		AddressLinkedList addresses = this.addresses.get(address);
-		if (addresses == null)
+	private @Nullable HttpClientConnection takeKeepAliveConnection(AddressPool addressPool) {
+		HttpClientConnection connection = addressPool.keepAlive.removeLastNode();
+		if (connection == null)
 			return null;
-		HttpClientConnection connection = addresses.removeLastNode();
-		assert connection != null;
 		assert connection.pool == poolKeepAlive;
-		assert connection.remoteAddress.equals(address);
 		connection.pool.removeNode(connection); // moving from keep-alive state to taken(null) state
-		if (addresses.isEmpty()) {
-			this.addresses.remove(address);
-		}
 		return connection;
 	}
 
 	void returnToKeepAlivePool(HttpClientConnection connection) {
 		assert !connection.isClosed();
-		AddressLinkedList addresses = this.addresses.get(connection.remoteAddress);
-		if (addresses == null) {
-			addresses = new AddressLinkedList();
-			this.addresses.put(connection.remoteAddress, addresses);
+		AddressPool addressPool = connection.addressPool;
+		if (connection.addressList != null) {
+			connection.addressList.removeNode(connection);
+		}
+
+		PendingRequest pendingRequest = addressPool.pending.pollFirst();
+		if (pendingRequest != null) {
+			//noinspection ConstantConditions
+			connection.pool.removeNode(connection); // moving to taken(null) state
+			sendPending(connection, pendingRequest);
+			return;
 		}
-		addresses.addLastNode(connection);
+
+		addressPool.keepAlive.addLastNode(connection);
 		connection.switchPool(poolKeepAlive);
 
 		if (expiredConnectionsCheck == null) {
@@ -422,6 +564,24 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		}
 	}
 
+	void onAddressConnectionClosed(AddressPool addressPool) {
+		addressPool.connections--;
+		if (!addressPool.pending.isEmpty() &&
+				(maxConnectionsPerAddress == 0 || addressPool.connections < maxConnectionsPerAddress)) {
+			PendingRequest pendingRequest = addressPool.pending.pollFirst();
+			onPendingRequestDispatched(pendingRequest);
+			connect(addressPool, pendingRequest.request, pendingRequest.isWebSocket)
+					.run(pendingRequest.promise);
+		}
+		releaseAddressPool(addressPool);
+	}
+
+	private void releaseAddressPool(AddressPool addressPool) {
+		if (addressPool.isUnused()) {
+			addresses.remove(addressPool.address, addressPool);
+		}
+	}
+
 	@Override
 	public Promise<HttpResponse> request(HttpRequest request) {
 		if (CHECK) checkArgument(request.getProtocol(), protocol -> protocol == HTTP || protocol == HTTPS);
@@ -478,24 +638,124 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 	}
 
 	private Promise<?> doSend(HttpRequest request, InetAddress[] inetAddresses, boolean isWebSocket) {
-		InetAddress inetAddress = inetAddresses[(inetAddressIdx++ & Integer.MAX_VALUE) % inetAddresses.length];
-		InetSocketAddress address = new InetSocketAddress(inetAddress, request.getUrl().getPort());
+		InetSocketAddress address = selectAddress(inetAddresses, request.getUrl().getPort());
 
-		HttpClientConnection keepAliveConnection = takeKeepAliveConnection(address);
-		if (keepAliveConnection != null) {
-			if (isWebSocket) {
-				return keepAliveConnection.sendWebSocketRequest(request);
-			} else {
-				return keepAliveConnection.send(request);
+		if (!isWebSocket && (request.getProtocol() == HTTPS ? http2 : http2PriorKnowledge)) {
+			return doSendHttp2(request, address);
+		}
+
+		return doSendHttp1(request, address, isWebSocket);
+	}
+
+	/**
+	 * Selects an address with the least number of requests in flight,
+	 * addresses with equal number of requests in flight are selected in a round-robin manner
+	 */
+	private InetSocketAddress selectAddress(InetAddress[] inetAddresses, int port) {
+		int length = inetAddresses.length;
+		int start = (inetAddressIdx++ & Integer.MAX_VALUE) % length;
+		InetSocketAddress selected = null;
+		int minInFlight = Integer.MAX_VALUE;
+		for (int i = 0; i < length; i++) {
+			InetSocketAddress address = new InetSocketAddress(inetAddresses[(start + i) % length], port);
+			AddressPool addressPool = addresses.get(address);
+			int inFlight = addressPool == null ? 0 : addressPool.inFlight;
+			if (inFlight < minInFlight) {
+				selected = address;
+				minInFlight = inFlight;
+				if (inFlight == 0) break;
 			}
 		}
+		return selected;
+	}
 
-		boolean isSecure = request.getProtocol().isSecure();
-		if (isSecure && sslContext == null) {
+	private Promise<?> doSendHttp1(HttpRequest request, InetSocketAddress address, boolean isWebSocket) {
+		if (request.getProtocol().isSecure() && sslContext == null) {
 			request.recycleBody();
 			throw new IllegalArgumentException("Cannot send Secure Request without SSL enabled");
 		}
 
+		AddressPool addressPool = addresses.computeIfAbsent(address, AddressPool::new);
+		addressPool.inFlight++;
+		Promise<?> promise = dispatch(addressPool, request, isWebSocket);
+		if (inspector != null) {
+			inspector.onAddressPoolUsage(address, addressPool.getActiveConnections(), addressPool.pending.size());
+		}
+		return promise
+				.whenComplete(() -> {
+					addressPool.inFlight--;
+					releaseAddressPool(addressPool);
+				});
+	}
+
+	private Promise<?> dispatch(AddressPool addressPool, HttpRequest request, boolean isWebSocket) {
+		HttpClientConnection keepAliveConnection = takeKeepAliveConnection(addressPool);
+		if (keepAliveConnection != null) {
+			return sendRequest(keepAliveConnection, request, isWebSocket);
+		}
+
+		if (maxConnectionsPerAddress == 0 || addressPool.connections < maxConnectionsPerAddress) {
+			return connect(addressPool, request, isWebSocket);
+		}
+
+		if (maxPipelinedRequests != 0 && !isWebSocket && request.getMethod() == HttpMethod.GET &&
+				request.body == null && request.bodyStream == null) {
+			HttpClientConnection connection = selectPipelinedConnection(addressPool);
+			if (connection != null) {
+				return connection.sendPipelined(request);
+			}
+		}
+
+		if (maxPendingRequestsPerAddress != 0 && addressPool.pending.size() >= maxPendingRequestsPerAddress) {
+			if (inspector != null) inspector.onPendingRequestRejected(request, addressPool.address);
+			request.recycleBody();
+			return Promise.ofException(new HttpException("Too many pending requests to " + addressPool.address));
+		}
+
+		PendingRequest pendingRequest = new PendingRequest(request, isWebSocket, eventloop.currentTimeMillis());
+		addressPool.pending.addLast(pendingRequest);
+		return pendingRequest.promise;
+	}
+
+	private @Nullable HttpClientConnection selectPipelinedConnection(AddressPool addressPool) {
+		HttpClientConnection selected = null;
+		int minPipelined = maxPipelinedRequests;
+		for (HttpClientConnection connection = addressPool.active.getFirstNode(); connection != null; connection = connection.addressNext) {
+			int pipelined = connection.getPipelinedRequests();
+			if (pipelined < minPipelined && connection.canPipeline()) {
+				selected = connection;
+				minPipelined = pipelined;
+			}
+		}
+		return selected;
+	}
+
+	private Promise<?> sendRequest(HttpClientConnection connection, HttpRequest request, boolean isWebSocket) {
+		connection.addressPool.active.addLastNode(connection);
+		if (isWebSocket) {
+			return connection.sendWebSocketRequest(request);
+		} else {
+			return connection.send(request);
+		}
+	}
+
+	private void sendPending(HttpClientConnection connection, PendingRequest pendingRequest) {
+		onPendingRequestDispatched(pendingRequest);
+		sendRequest(connection, pendingRequest.request, pendingRequest.isWebSocket)
+				.run(pendingRequest.promise);
+	}
+
+	private void onPendingRequestDispatched(PendingRequest pendingRequest) {
+		if (inspector != null) {
+			inspector.onPendingRequestDispatched(pendingRequest.request, eventloop.currentTimeMillis() - pendingRequest.timestamp);
+		}
+	}
+
+	private Promise<?> connect(AddressPool addressPool, HttpRequest request, boolean isWebSocket) {
+		InetSocketAddress address = addressPool.address;
+		boolean isSecure = request.getProtocol().isSecure();
+		addressPool.connections++;
+
 		if (inspector != null) inspector.onConnecting(request, address);
 
 		return AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
@@ -516,26 +776,213 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 											sslContext, sslExecutor) :
 									asyncTcpSocketImpl;
 
-							HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, address);
+							HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, addressPool);
 
 							if (inspector != null) inspector.onConnect(request, connection);
 
 							if (expiredConnectionsCheck == null)
 								scheduleExpiredConnectionsCheck();
 
-							if (isWebSocket) {
-								return connection.sendWebSocketRequest(request);
-							} else {
-								return connection.send(request);
-							}
+							return sendRequest(connection, request, isWebSocket);
 						},
 						e -> {
 							if (inspector != null) inspector.onConnectError(request, address, e);
 							request.recycleBody();
+							onAddressConnectionClosed(addressPool);
 							return Promise.ofException(translateToHttpException(e));
 						});
 	}
 
+	/**
+	 * Opens connections to each address a host of a given URL is resolved to in advance,
+	 * so that the subsequent requests to the host do not wait for connections to be established.
+	 * <p>
+	 * The connections are put into keep-alive pool and are subject to keep-alive timeout,
+	 * connections which are already idle in the pool count towards a given number of connections.
+	 *
+	 * @param url                   URL of a server
+	 * @param connectionsPerAddress a number of idle connections to each address of a server
+	 * @return promise which completes once all the connections are established
+	 */
+	public Promise<Void> prewarm(@NotNull String url, int connectionsPerAddress) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		checkState(keepAliveTimeoutMillis != 0, "Keep-alive is disabled");
+		HttpRequest request = HttpRequest.get(url);
+		checkArgument(!request.getProtocol().isSecure() || sslContext != null, "Cannot connect to a secure server without SSL enabled");
+		String host = request.getUrl().getHost();
+		assert host != null;
+
+		return asyncDnsClient.resolve4(host)
+				.then(dnsResponse -> {
+					if (!dnsResponse.isSuccessful()) {
+						return Promise.ofException(new HttpException(new DnsQueryException(dnsResponse)));
+					}
+					List<Promise<Void>> connects = new ArrayList<>();
+					//noinspection ConstantConditions - dnsResponse is successful (not null)
+					for (InetAddress inetAddress : dnsResponse.getRecord().getIps()) {
+						InetSocketAddress address = new InetSocketAddress(inetAddress, request.getUrl().getPort());
+						AddressPool addressPool = addresses.computeIfAbsent(address, AddressPool::new);
+						int count = connectionsPerAddress - addressPool.keepAlive.size();
+						if (maxConnectionsPerAddress != 0) {
+							count = Math.min(count, maxConnectionsPerAddress - addressPool.connections);
+						}
+						for (int i = 0; i < count; i++) {
+							connects.add(prewarmConnection(request, addressPool));
+						}
+						releaseAddressPool(addressPool);
+					}
+					return Promises.all(connects);
+				});
+	}
+
+	private Promise<Void> prewarmConnection(HttpRequest request, AddressPool addressPool) {
+		addressPool.connections++;
+		if (inspector != null) inspector.onConnecting(request, addressPool.address);
+
+		return connectSocket(request, addressPool.address, null)
+				.then(
+						asyncTcpSocket -> {
+							HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, addressPool);
+							if (inspector != null) inspector.onConnect(request, connection);
+
+							if (expiredConnectionsCheck == null)
+								scheduleExpiredConnectionsCheck();
+
+							connection.pool = poolKeepAlive;
+							poolKeepAlive.addLastNode(connection);
+							connection.returnToKeepAlive();
+							return Promise.complete();
+						},
+						e -> {
+							if (inspector != null) inspector.onConnectError(request, addressPool.address, e);
+							onAddressConnectionClosed(addressPool);
+							return Promise.ofException(translateToHttpException(e));
+						});
+	}
+
+	/**
+	 * Connects to a given address and performs TLS handshake for secure requests
+	 */
+	private Promise<AsyncTcpSocket> connectSocket(HttpRequest request, InetSocketAddress address, @Nullable List<String> applicationProtocols) {
+		boolean isSecure = request.getProtocol().isSecure();
+		String host = request.getUrl().getHost();
+		assert host != null;
+		int port = request.getUrl().getPort();
+
+		return AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
+				.then(asyncTcpSocketImpl -> {
+					AsyncTcpSocketNio.Inspector socketInspector = isSecure ? this.socketInspector : socketSslInspector;
+					if (socketInspector != null) {
+						socketInspector.onConnect(asyncTcpSocketImpl);
+						asyncTcpSocketImpl.setInspector(socketInspector);
+					}
+					if (!isSecure) {
+						return Promise.of((AsyncTcpSocket) asyncTcpSocketImpl);
+					}
+					AsyncTcpSocketSsl asyncTcpSocketSsl = applicationProtocols != null ?
+							wrapClientSocket(asyncTcpSocketImpl, host, port, sslContext, sslExecutor, applicationProtocols) :
+							wrapClientSocket(asyncTcpSocketImpl, host, port, sslContext, sslExecutor);
+					return asyncTcpSocketSsl.handshake()
+							.map($ -> (AsyncTcpSocket) asyncTcpSocketSsl)
+							.whenException(asyncTcpSocketSsl::close);
+				});
+	}
+
+	private Promise<HttpResponse> doSendHttp2(HttpRequest request, InetSocketAddress address) {
+		Http2ClientConnection connection = http2Connections.get(address);
+		if (connection != null) {
+			return connection.send(request);
+		}
+
+		SettablePromise<@Nullable Http2ClientConnection> connect = http2Connects.get(address);
+		if (connect == null) {
+			AddressPool addressPool = addresses.get(address);
+			if (maxConnectionsPerAddress != 0 && addressPool != null && addressPool.connections >= maxConnectionsPerAddress) {
+				// the server has negotiated HTTP/1.1 and there are no more connections allowed, wait for an existing one
+				//noinspection unchecked
+				return (Promise<HttpResponse>) doSendHttp1(request, address, false);
+			}
+			connect = new SettablePromise<>();
+			http2Connects.put(address, connect);
+			connectHttp2(request, address, connect);
+		}
+		return connect
+				.then(
+						http2Connection -> {
+							if (http2Connection == null) {
+								//noinspection unchecked
+								return (Promise<HttpResponse>) doSendHttp1(request, address, false);
+							}
+							if (!http2Connection.isAvailable()) {
+								return doSendHttp2(request, address);
+							}
+							return http2Connection.send(request);
+						},
+						e -> {
+							request.recycleBody();
+							return Promise.ofException(e);
+						});
+	}
+
+	/**
+	 * Connects to a given address, concurrent requests to the same address wait for a single connection.
+	 * If a server negotiates HTTP/1.1 during TLS handshake, the connection is put into keep-alive pool
+	 * and the requests are sent over HTTP/1.1. If the address already has a maximum number of connections,
+	 * the new connection is closed and the requests wait for one of the existing connections.
+	 */
+	private void connectHttp2(HttpRequest request, InetSocketAddress address, SettablePromise<@Nullable Http2ClientConnection> connect) {
+		boolean isSecure = request.getProtocol().isSecure();
+		if (isSecure && sslContext == null) {
+			http2Connects.remove(address);
+			connect.setException(new IllegalArgumentException("Cannot send Secure Request without SSL enabled"));
+			return;
+		}
+
+		if (inspector != null) inspector.onConnecting(request, address);
+
+		connectSocket(request, address, asList("h2", "http/1.1"))
+				.run((asyncTcpSocket, e) -> {
+					http2Connects.remove(address);
+					if (e != null) {
+						if (inspector != null) inspector.onConnectError(request, address, e);
+						connect.setException(translateToHttpException(e));
+						return;
+					}
+
+					if (expiredConnectionsCheck == null)
+						scheduleExpiredConnectionsCheck();
+
+					if (asyncTcpSocket instanceof AsyncTcpSocketSsl &&
+							!"h2".equals(((AsyncTcpSocketSsl) asyncTcpSocket).getApplicationProtocol())) {
+						AddressPool addressPool = addresses.computeIfAbsent(address, AddressPool::new);
+						if (maxConnectionsPerAddress != 0 && addressPool.connections >= maxConnectionsPerAddress) {
+							// the connection cannot be pooled, requests wait for one of the existing connections
+							asyncTcpSocket.close();
+							releaseAddressPool(addressPool);
+							connect.set(null);
+							return;
+						}
+						addressPool.connections++;
+						HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, addressPool);
+						if (inspector != null) inspector.onConnect(request, connection);
+						connection.pool = poolKeepAlive;
+						poolKeepAlive.addLastNode(connection);
+						connection.returnToKeepAlive();
+						connect.set(null);
+						return;
+					}
+
+					Http2ClientConnection connection = new Http2ClientConnection(eventloop, this, asyncTcpSocket, address);
+					http2Connections.put(address, connection);
+					connection.connect();
+					connect.set(connection);
+				});
+	}
+
+	void onHttp2ConnectionUnavailable(Http2ClientConnection connection) {
+		http2Connections.remove(connection.remoteAddress, connection);
+	}
+
 	@Override
 	public @NotNull Eventloop getEventloop() {
 		return eventloop;
@@ -562,8 +1009,14 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 
 		SettablePromise<Void> promise = new SettablePromise<>();
 
+		for (AddressPool addressPool : new ArrayList<>(addresses.values())) {
+			PendingRequest pendingRequest;
+			while ((pendingRequest = addressPool.pending.pollFirst()) != null) {
+				pendingRequest.request.recycleBody();
+				pendingRequest.promise.setException(new AsyncCloseException("Client is stopped"));
+			}
+		}
 		poolKeepAlive.closeAllConnections();
-		assert addresses.isEmpty();
 		keepAliveTimeoutMillis = 0;
 		if (getConnectionsCount() == 0) {
 			assert poolReadWrite.isEmpty();
@@ -606,11 +1059,12 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		if (addresses.isEmpty())
 			return "";
 		List<String> result = new ArrayList<>();
-		result.add("SocketAddress,ConnectionsCount");
-		for (Entry<InetSocketAddress, AddressLinkedList> entry : addresses.entrySet()) {
+		result.add("SocketAddress,ConnectionsCount,KeepAliveCount,InFlightRequests,PendingRequests");
+		for (Entry<InetSocketAddress, AddressPool> entry : addresses.entrySet()) {
 			InetSocketAddress address = entry.getKey();
-			AddressLinkedList connections = entry.getValue();
-			result.add(address + ", " + connections.size());
+			AddressPool addressPool = entry.getValue();
+			result.add(address + ", " + addressPool.connections + ", " + addressPool.keepAlive.size() + ", " +
+					addressPool.inFlight + ", " + addressPool.pending.size());
 		}
 		return formatListAsMultilineString(result);
 	}
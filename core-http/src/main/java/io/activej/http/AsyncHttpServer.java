@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -67,6 +68,11 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxWebSocketMessageSize = MAX_WEB_SOCKET_MESSAGE_SIZE.toInt();
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
+	boolean http2;
+	boolean lazyHeaders;
+	@Nullable WebSocketCompression webSocketCompression;
+	@Nullable ResponseCompressor compressor;
+	@Nullable ConcurrencyLimiter concurrencyLimiter;
 
 	final ConnectionsLinkedList poolNew = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
@@ -247,11 +253,63 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return this;
 	}
 
+	/**
+	 * Enables {@code permessage-deflate} compression of web socket messages,
+	 * if a client offers it during a web socket handshake
+	 */
+	public AsyncHttpServer withWebSocketCompression(@NotNull WebSocketCompression webSocketCompression) {
+		this.webSocketCompression = webSocketCompression;
+		return this;
+	}
+
 	public AsyncHttpServer withHttpErrorFormatter(@NotNull HttpExceptionFormatter httpExceptionFormatter) {
 		errorFormatter = httpExceptionFormatter;
 		return this;
 	}
 
+	/**
+	 * Enables HTTP/2 support.
+	 * <p>
+	 * Over TLS, HTTP/2 is negotiated via ALPN, while plain text connections
+	 * are switched to HTTP/2 once they start with HTTP/2 connection preface (prior knowledge).
+	 * HTTP/1 clients are served as usual.
+	 */
+	public AsyncHttpServer withHttp2() {
+		this.http2 = true;
+		return withSslApplicationProtocols(asList("h2", "http/1.1"));
+	}
+
+	/**
+	 * Enables lazy parsing of request headers.
+	 * <p>
+	 * Received headers are kept as offsets within a read buffer and are decoded
+	 * only once a servlet requests them. Headers which are requested by name via
+	 * {@link HttpMessage#getHeader(HttpHeader)} or {@link HttpMessage#getHeaderBuf(HttpHeader)}
+	 * are read directly from the buffer, any other access to request headers decodes all of them.
+	 */
+	public AsyncHttpServer withLazyHeaders() {
+		this.lazyHeaders = true;
+		return this;
+	}
+
+	/**
+	 * Enables compression of response bodies with a content coding negotiated by
+	 * {@code Accept-Encoding} request header, see {@link ResponseCompressor}
+	 */
+	public AsyncHttpServer withCompression(@NotNull ResponseCompressor compressor) {
+		this.compressor = compressor;
+		return this;
+	}
+
+	/**
+	 * Limits the number of concurrently served requests, excess requests are queued
+	 * or rejected before their bodies are read, see {@link ConcurrencyLimiter}
+	 */
+	public AsyncHttpServer withConcurrencyLimiter(@NotNull ConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+		return this;
+	}
+
 	public AsyncHttpServer withInspector(Inspector inspector) {
 		this.inspector = inspector;
 		return this;
@@ -389,6 +447,16 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return BaseInspector.lookup(inspector, JmxInspector.class);
 	}
 
+	@JmxAttribute
+	public @Nullable ResponseCompressor getCompression() {
+		return compressor;
+	}
+
+	@JmxAttribute
+	public @Nullable ConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
 	@Override
 	public String toString() {
 		return "AsyncHttpServer" + "{" + "new:" + poolNew.size() + " read/write:" + poolReadWrite.size() + " serving:" + poolServing.size() + " keep-alive:" + poolKeepAlive.size() + "}";
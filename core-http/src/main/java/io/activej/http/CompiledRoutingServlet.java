@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static io.activej.http.Protocol.WS;
+import static io.activej.http.Protocol.WSS;
+import static io.activej.http.RoutingServlet.WS_ORDINAL;
+import static io.activej.http.RoutingServlet.getOrDefault;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * An immutable snapshot of a {@link RoutingServlet} tree, which matches request paths on the raw url bytes.
+ * <p>
+ * The servlet tree is compiled into a radix tree: chains of path parts which have neither servlets
+ * nor path parameters mapped to them are collapsed into a single node. Static path parts of each node
+ * are kept in an open addressing hash table of raw bytes. Path parts are decoded only when
+ * they contain percent-encoded or non-ASCII characters, values of path parameters are captured
+ * as bounds of the raw url and are decoded only once they are requested.
+ *
+ * @see RoutingServlet#compile()
+ */
+final class CompiledRoutingServlet implements AsyncServlet {
+	private final Node root;
+
+	private CompiledRoutingServlet(Node root) {
+		this.root = root;
+	}
+
+	static CompiledRoutingServlet create(RoutingServlet servlet) {
+		return new CompiledRoutingServlet(compile(servlet, new String[0]));
+	}
+
+	@Override
+	public @NotNull Promise<HttpResponse> serve(@NotNull HttpRequest request) throws Exception {
+		Protocol protocol = request.getProtocol();
+		int ordinal = protocol == WS || protocol == WSS ? WS_ORDINAL : request.getMethod().ordinal();
+		Promise<HttpResponse> processed = root.tryServe(request, request.getUrl(), ordinal);
+		return processed != null ?
+				processed :
+				Promise.ofException(HttpError.notFound404());
+	}
+
+	private static Node compile(RoutingServlet servlet, String[] chain) {
+		Node node = new Node(chain, servlet.rootServlets.clone(), servlet.fallbackServlets.clone());
+		for (Entry<String, RoutingServlet> entry : servlet.routes.entrySet()) {
+			node.decodedRoutes.put(entry.getKey(), compileChild(entry.getValue()));
+		}
+		node.parameterKeys = new String[servlet.parameters.size()];
+		node.parameterNodes = new Node[servlet.parameters.size()];
+		int i = 0;
+		for (Entry<String, RoutingServlet> entry : servlet.parameters.entrySet()) {
+			node.parameterKeys[i] = entry.getKey();
+			node.parameterNodes[i] = compileChild(entry.getValue());
+			i++;
+		}
+		node.buildRoutesTable();
+		return node;
+	}
+
+	private static Node compileChild(RoutingServlet servlet) {
+		List<String> chain = new ArrayList<>();
+		while (isTransit(servlet)) {
+			Entry<String, RoutingServlet> route = servlet.routes.entrySet().iterator().next();
+			chain.add(route.getKey());
+			servlet = route.getValue();
+		}
+		return compile(servlet, chain.toArray(new String[0]));
+	}
+
+	private static boolean isTransit(RoutingServlet servlet) {
+		if (servlet.routes.size() != 1 || !servlet.parameters.isEmpty()) return false;
+		for (int i = 0; i < servlet.rootServlets.length; i++) {
+			if (servlet.rootServlets[i] != null || servlet.fallbackServlets[i] != null) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the end of a path part which starts at a given index.
+	 *
+	 * @return an index of the end of a path part if a path part can be compared
+	 * as raw bytes, or a bitwise complement of the index if a path part should be decoded
+	 */
+	private static int scanUrlPart(byte[] raw, int start, int pathEnd) {
+		boolean plain = true;
+		int i = start;
+		for (; i < pathEnd; i++) {
+			byte b = raw[i];
+			if (b == '/') break;
+			if (b < 0 || b == '%' || b == '+' || b == '&' || b == '#') {
+				plain = false;
+			}
+		}
+		return plain ? i : ~i;
+	}
+
+	private static boolean isAscii(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) >= 0x80) return false;
+		}
+		return true;
+	}
+
+	private static HttpError badPercentEncoding() {
+		return HttpError.badRequest400("Path contains bad percent encoding");
+	}
+
+	private static final class Node {
+		private final String[] chain;
+		private final byte[][] chainBytes;
+
+		private final AsyncServlet[] rootServlets;
+		private final AsyncServlet[] fallbackServlets;
+
+		private final Map<String, Node> decodedRoutes = new HashMap<>();
+		private byte[][] routeKeys;
+		private int[] routeHashes;
+		private Node[] routeNodes;
+		private int routeMask;
+
+		private String[] parameterKeys;
+		private Node[] parameterNodes;
+
+		Node(String[] chain, AsyncServlet[] rootServlets, AsyncServlet[] fallbackServlets) {
+			this.chain = chain;
+			this.chainBytes = new byte[chain.length][];
+			for (int i = 0; i < chain.length; i++) {
+				this.chainBytes[i] = isAscii(chain[i]) ? chain[i].getBytes(ISO_8859_1) : null;
+			}
+			this.rootServlets = rootServlets;
+			this.fallbackServlets = fallbackServlets;
+		}
+
+		void buildRoutesTable() {
+			int size = 0;
+			for (String key : decodedRoutes.keySet()) {
+				if (isAscii(key)) size++;
+			}
+			if (size == 0) return;
+			int capacity = Integer.highestOneBit(size * 2 - 1) << 1;
+			routeKeys = new byte[capacity][];
+			routeHashes = new int[capacity];
+			routeNodes = new Node[capacity];
+			routeMask = capacity - 1;
+			for (Entry<String, Node> entry : decodedRoutes.entrySet()) {
+				String key = entry.getKey();
+				if (!isAscii(key)) continue;
+				// for ASCII strings String.hashCode() is the same as a hash of raw bytes
+				int hash = key.hashCode();
+				int index = spread(hash) & routeMask;
+				while (routeKeys[index] != null) {
+					index = (index + 1) & routeMask;
+				}
+				routeKeys[index] = key.getBytes(ISO_8859_1);
+				routeHashes[index] = hash;
+				routeNodes[index] = entry.getValue();
+			}
+		}
+
+		@Nullable Node findRoute(byte[] raw, int start, int end) {
+			if (routeKeys == null) return null;
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + raw[i];
+			}
+			int index = spread(hash) & routeMask;
+			byte[] key;
+			while ((key = routeKeys[index]) != null) {
+				if (routeHashes[index] == hash && equals(key, raw, start, end)) {
+					return routeNodes[index];
+				}
+				index = (index + 1) & routeMask;
+			}
+			return null;
+		}
+
+		@Nullable Promise<HttpResponse> tryServeChain(HttpRequest request, UrlParser url, int ordinal) throws Exception {
+			for (int i = 0; i < chain.length; i++) {
+				if (!matchChainPart(i, url)) {
+					return null;
+				}
+			}
+			return tryServe(request, url, ordinal);
+		}
+
+		@Nullable Promise<HttpResponse> tryServe(HttpRequest request, UrlParser url, int ordinal) throws Exception {
+			int introPosition = url.pos;
+			int pathEnd = url.getPathEnd();
+			if (introPosition < pathEnd) {
+				byte[] raw = url.getRaw();
+				int start = introPosition + 1;
+				int end = scanUrlPart(raw, start, pathEnd);
+				if (end >= 0) {
+					url.skipUrlPart(end);
+					if (start != end) {
+						return tryServeRaw(request, url, ordinal, introPosition, start, end);
+					}
+				} else {
+					end = ~end;
+					url.skipUrlPart(end);
+					String urlPart = url.decodeUrlPart(start, end);
+					if (urlPart == null) {
+						throw badPercentEncoding();
+					}
+					if (!urlPart.isEmpty()) {
+						return tryServeDecoded(request, url, ordinal, introPosition, urlPart);
+					}
+				}
+			}
+
+			AsyncServlet servlet = getOrDefault(rootServlets, ordinal);
+			if (servlet != null) {
+				return servlet.serveAsync(request);
+			}
+			return tryServeFallback(request, url, ordinal, introPosition);
+		}
+
+		private @Nullable Promise<HttpResponse> tryServeRaw(HttpRequest request, UrlParser url, int ordinal,
+				int introPosition, int start, int end) throws Exception {
+			short position = url.pos;
+			Node transit = findRoute(url.getRaw(), start, end);
+			if (transit != null) {
+				Promise<HttpResponse> result = transit.tryServeChain(request, url, ordinal);
+				if (result != null) {
+					return result;
+				}
+				url.pos = position;
+			}
+			for (int i = 0; i < parameterKeys.length; i++) {
+				String key = parameterKeys[i];
+				request.putRawPathParameter(key, start, end);
+				Promise<HttpResponse> result = parameterNodes[i].tryServeChain(request, url, ordinal);
+				if (result != null) {
+					return result;
+				}
+				request.removeRawPathParameter(key);
+				url.pos = position;
+			}
+			return tryServeFallback(request, url, ordinal, introPosition);
+		}
+
+		private @Nullable Promise<HttpResponse> tryServeDecoded(HttpRequest request, UrlParser url, int ordinal,
+				int introPosition, String urlPart) throws Exception {
+			short position = url.pos;
+			Node transit = decodedRoutes.get(urlPart);
+			if (transit != null) {
+				Promise<HttpResponse> result = transit.tryServeChain(request, url, ordinal);
+				if (result != null) {
+					return result;
+				}
+				url.pos = position;
+			}
+			for (int i = 0; i < parameterKeys.length; i++) {
+				String key = parameterKeys[i];
+				request.putPathParameter(key, urlPart);
+				Promise<HttpResponse> result = parameterNodes[i].tryServeChain(request, url, ordinal);
+				if (result != null) {
+					return result;
+				}
+				request.removePathParameter(key);
+				url.pos = position;
+			}
+			return tryServeFallback(request, url, ordinal, introPosition);
+		}
+
+		private @Nullable Promise<HttpResponse> tryServeFallback(HttpRequest request, UrlParser url, int ordinal,
+				int introPosition) throws Exception {
+			AsyncServlet servlet = getOrDefault(fallbackServlets, ordinal);
+			if (servlet != null) {
+				url.pos = (short) introPosition;
+				return servlet.serveAsync(request);
+			}
+			return null;
+		}
+
+		private boolean matchChainPart(int index, UrlParser url) throws HttpError {
+			int pathEnd = url.getPathEnd();
+			if (url.pos >= pathEnd) return false;
+			byte[] raw = url.getRaw();
+			int start = url.pos + 1;
+			int end = scanUrlPart(raw, start, pathEnd);
+			if (end >= 0) {
+				url.skipUrlPart(end);
+				byte[] bytes = chainBytes[index];
+				return bytes != null && equals(bytes, raw, start, end);
+			}
+			end = ~end;
+			url.skipUrlPart(end);
+			String urlPart = url.decodeUrlPart(start, end);
+			if (urlPart == null) {
+				throw badPercentEncoding();
+			}
+			return urlPart.equals(chain[index]);
+		}
+
+		private static int spread(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+
+		private static boolean equals(byte[] key, byte[] raw, int start, int end) {
+			if (key.length != end - start) return false;
+			for (int i = 0; i < key.length; i++) {
+				if (key[i] != raw[start + i]) return false;
+			}
+			return true;
+		}
+	}
+}
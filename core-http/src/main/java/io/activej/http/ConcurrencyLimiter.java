@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.async.exception.AsyncCloseException;
+import io.activej.common.exception.MalformedDataException;
+import io.activej.common.initializer.WithInitializer;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.exception.FatalErrorHandlers.handleError;
+import static io.activej.http.HttpHeaders.RETRY_AFTER;
+
+/**
+ * A server-level limit of concurrently served requests, see {@link AsyncHttpServer#withConcurrencyLimiter}.
+ * <p>
+ * The limit adapts to the latency of a servlet. While the recent latency stays close to the long-term one,
+ * the limit slowly grows. Once requests start to queue up inside the servlet, latency grows and the limit
+ * is decreased proportionally (a gradient algorithm). Server errors of a servlet decrease the limit multiplicatively,
+ * while errors caused by clients (malformed or aborted requests, closed connections) do not affect the limit.
+ * <p>
+ * Requests above the limit are queued and served in order of their {@link Priority}. A request is rejected
+ * with {@code 503 Service Unavailable} once the queue is full or once it has waited in the queue for too long.
+ * Requests are limited as soon as their headers are received, so bodies of rejected requests are never parsed.
+ * Queued requests whose connections have been closed in the meantime are dropped without being served.
+ * <p>
+ * A limiter is not thread-safe, so an instance should only be used by servers
+ * which run in the eventloop the limiter is created with.
+ */
+public final class ConcurrencyLimiter implements WithInitializer<ConcurrencyLimiter> {
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 1000;
+	public static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+	public static final Duration DEFAULT_QUEUE_TIMEOUT = Duration.ofSeconds(1);
+	public static final double DEFAULT_LATENCY_TOLERANCE = 1.5;
+	public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+	private static final double SMOOTHING = 0.2;
+	private static final double SHORT_LATENCY_SMOOTHING = 0.1;
+	private static final double LONG_LATENCY_SMOOTHING = 0.002;
+
+	private static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+
+	/**
+	 * A priority class of a request
+	 */
+	public enum Priority {
+		/**
+		 * Served before any other queued requests, may push a {@link #NORMAL} request out of a full queue
+		 */
+		CRITICAL,
+		NORMAL,
+		/**
+		 * Never queued, rejected right away if a limit is reached
+		 */
+		SHEDDABLE
+	}
+
+	private final Eventloop eventloop;
+
+	private int minLimit = DEFAULT_MIN_LIMIT;
+	private int maxLimit = DEFAULT_MAX_LIMIT;
+	private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+	private long queueTimeoutMillis = DEFAULT_QUEUE_TIMEOUT.toMillis();
+	private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+	private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+	private final List<PriorityRoute> priorityRoutes = new ArrayList<>();
+	private Function<HttpRequest, Priority> priorityClassifier = request -> Priority.NORMAL;
+
+	private double limit = DEFAULT_INITIAL_LIMIT;
+	private int inFlight;
+	private double shortLatency;
+	private double longLatency;
+
+	private final ArrayDeque<QueuedRequest> criticalQueue = new ArrayDeque<>();
+	private final ArrayDeque<QueuedRequest> normalQueue = new ArrayDeque<>();
+
+	@VisibleForTesting
+	LongSupplier nanoTime = System::nanoTime;
+
+	// region JMX
+	private final EventStats servedRequests = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats queuedRequests = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats rejectedRequests = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats queueTimeouts = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats droppedRequests = EventStats.create(SMOOTHING_WINDOW);
+	// endregion
+
+	// region builders
+	private ConcurrencyLimiter(Eventloop eventloop) {
+		this.eventloop = eventloop;
+	}
+
+	public static ConcurrencyLimiter create(@NotNull Eventloop eventloop) {
+		return new ConcurrencyLimiter(eventloop);
+	}
+
+	/**
+	 * Sets an initial limit and the bounds the limit may adapt within
+	 *
+	 * @param initialLimit an initial limit of concurrently served requests
+	 * @param minLimit     a minimum limit
+	 * @param maxLimit     a maximum limit
+	 * @return this {@link ConcurrencyLimiter}
+	 */
+	public ConcurrencyLimiter withLimit(int initialLimit, int minLimit, int maxLimit) {
+		checkArgument(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit,
+				"Limits should satisfy 0 < minLimit <= initialLimit <= maxLimit");
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		return this;
+	}
+
+	/**
+	 * Sets a fixed limit of concurrently served requests
+	 *
+	 * @param limit a limit of concurrently served requests
+	 * @return this {@link ConcurrencyLimiter}
+	 */
+	public ConcurrencyLimiter withFixedLimit(int limit) {
+		return withLimit(limit, limit, limit);
+	}
+
+	/**
+	 * Sets a maximum number of requests waiting in a queue and a maximum time a request may wait in it
+	 *
+	 * @param maxQueueSize a maximum number of queued requests, 0 to reject all the requests above the limit
+	 * @param queueTimeout a maximum time a request may spend in the queue
+	 * @return this {@link ConcurrencyLimiter}
+	 */
+	public ConcurrencyLimiter withQueue(int maxQueueSize, @NotNull Duration queueTimeout) {
+		checkArgument(maxQueueSize >= 0, "Queue size cannot be negative");
+		this.maxQueueSize = maxQueueSize;
+		this.queueTimeoutMillis = queueTimeout.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets how many times recent servlet latency may exceed the long-term latency
+	 * before the limit starts to decrease
+	 *
+	 * @param latencyTolerance a tolerance, at least 1
+	 * @return this {@link ConcurrencyLimiter}
+	 */
+	public ConcurrencyLimiter withLatencyTolerance(double latencyTolerance) {
+		checkArgument(latencyTolerance >= 1, "Latency tolerance should not be less than 1");
+		this.latencyTolerance = latencyTolerance;
+		return this;
+	}
+
+	/**
+	 * Sets a ratio the limit is multiplied by whenever a servlet fails with a server error
+	 *
+	 * @param backoffRatio a ratio in range {@code (0, 1]}
+	 * @return this {@link ConcurrencyLimiter}
+	 */
+	public ConcurrencyLimiter withBackoffRatio(double backoffRatio) {
+		checkArgument(backoffRatio > 0 && backoffRatio <= 1, "Backoff ratio should be in range (0, 1]");
+		this.backoffRatio = backoffRatio;
+		return this;
+	}
+
+	/**
+	 * Assigns a priority to requests whose path starts with a given prefix.
+	 * Prefixes are matched in the order they were added
+	 *
+	 * @param pathPrefix a prefix of a request path
+	 * @param priority   a priority of matching requests
+	 * @return this {@link ConcurrencyLimiter}
+	 */
+	public ConcurrencyLimiter withPriority(@NotNull String pathPrefix, @NotNull Priority priority) {
+		priorityRoutes.add(new PriorityRoute(pathPrefix, priority));
+		return this;
+	}
+
+	/**
+	 * Sets a function which assigns priorities to requests which do not match
+	 * any of the {@link #withPriority path prefixes}
+	 *
+	 * @param priorityClassifier a function that returns a priority of a request
+	 * @return this {@link ConcurrencyLimiter}
+	 */
+	public ConcurrencyLimiter withPriorityClassifier(@NotNull Function<HttpRequest, Priority> priorityClassifier) {
+		this.priorityClassifier = priorityClassifier;
+		return this;
+	}
+	// endregion
+
+	Promise<HttpResponse> serve(HttpRequest request, AsyncServlet servlet) {
+		Priority priority = getPriority(request);
+		if (inFlight < (int) limit && (priority == Priority.CRITICAL || criticalQueue.isEmpty() && normalQueue.isEmpty())) {
+			return execute(request, servlet);
+		}
+		if (priority == Priority.SHEDDABLE) {
+			return reject();
+		}
+		if (criticalQueue.size() + normalQueue.size() >= maxQueueSize) {
+			if (priority == Priority.NORMAL || normalQueue.isEmpty()) {
+				return reject();
+			}
+			QueuedRequest pushedOut = normalQueue.pollLast();
+			pushedOut.timeout.cancel();
+			pushedOut.cb.set(rejectResponse());
+			rejectedRequests.recordEvent();
+		}
+		QueuedRequest queuedRequest = new QueuedRequest(request, servlet);
+		ArrayDeque<QueuedRequest> queue = priority == Priority.CRITICAL ? criticalQueue : normalQueue;
+		queue.addLast(queuedRequest);
+		queuedRequest.timeout = eventloop.delay(queueTimeoutMillis, () -> {
+			queue.remove(queuedRequest);
+			queuedRequest.cb.set(rejectResponse());
+			queueTimeouts.recordEvent();
+		});
+		queuedRequests.recordEvent();
+		return queuedRequest.cb;
+	}
+
+	private Priority getPriority(HttpRequest request) {
+		if (!priorityRoutes.isEmpty()) {
+			String path = request.getPath();
+			for (PriorityRoute route : priorityRoutes) {
+				if (path.startsWith(route.pathPrefix)) {
+					return route.priority;
+				}
+			}
+		}
+		return priorityClassifier.apply(request);
+	}
+
+	private Promise<HttpResponse> execute(HttpRequest request, AsyncServlet servlet) {
+		inFlight++;
+		servedRequests.recordEvent();
+		long start = nanoTime.getAsLong();
+		Promise<HttpResponse> servletResult;
+		try {
+			servletResult = servlet.serveAsync(request);
+		} catch (Exception e) {
+			handleError(e, this);
+			servletResult = Promise.ofException(e);
+		}
+		return servletResult
+				.whenComplete((response, e) -> {
+					int concurrency = inFlight--;
+					if (isOverloadError(response, e)) {
+						limit = Math.max(minLimit, limit * backoffRatio);
+					} else if (e == null || e instanceof HttpError) {
+						updateLimit(nanoTime.getAsLong() - start, concurrency);
+					}
+					serveQueued();
+				});
+	}
+
+	private void serveQueued() {
+		while (inFlight < (int) limit) {
+			QueuedRequest queuedRequest = criticalQueue.pollFirst();
+			if (queuedRequest == null) {
+				queuedRequest = normalQueue.pollFirst();
+				if (queuedRequest == null) return;
+			}
+			queuedRequest.timeout.cancel();
+			HttpServerConnection connection = queuedRequest.request.getConnection();
+			if (connection != null && connection.isClosed()) {
+				queuedRequest.cb.set(rejectResponse());
+				droppedRequests.recordEvent();
+				continue;
+			}
+			execute(queuedRequest.request, queuedRequest.servlet)
+					.run(queuedRequest.cb);
+		}
+	}
+
+	private void updateLimit(long latency, int concurrency) {
+		if (longLatency == 0) {
+			shortLatency = longLatency = latency;
+			return;
+		}
+		shortLatency += (latency - shortLatency) * SHORT_LATENCY_SMOOTHING;
+		longLatency += (latency - longLatency) * LONG_LATENCY_SMOOTHING;
+		if (longLatency > shortLatency * 2) {
+			// latency has dropped for good, let the long-term latency catch up faster
+			longLatency *= 0.95;
+		}
+
+		if (concurrency * 2 < limit) {
+			// the limit is not actually used, there is no reason to grow it
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1.0, latencyTolerance * longLatency / shortLatency));
+		double newLimit = limit * gradient + Math.sqrt(limit);
+		limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+	}
+
+	private static boolean isOverloadError(@Nullable HttpResponse response, @Nullable Exception e) {
+		if (e == null) {
+			return response != null && response.getCode() == 503;
+		}
+		if (e instanceof HttpError) {
+			return ((HttpError) e).getCode() >= 500;
+		}
+		return !(e instanceof HttpException || e instanceof MalformedDataException || e instanceof AsyncCloseException);
+	}
+
+	private Promise<HttpResponse> reject() {
+		rejectedRequests.recordEvent();
+		return Promise.of(rejectResponse());
+	}
+
+	private static HttpResponse rejectResponse() {
+		return HttpResponse.ofCode(503)
+				.withHeader(RETRY_AFTER, "1");
+	}
+
+	private static final class PriorityRoute {
+		final String pathPrefix;
+		final Priority priority;
+
+		PriorityRoute(String pathPrefix, Priority priority) {
+			this.pathPrefix = pathPrefix;
+			this.priority = priority;
+		}
+	}
+
+	private static final class QueuedRequest {
+		final HttpRequest request;
+		final AsyncServlet servlet;
+		final SettablePromise<HttpResponse> cb = new SettablePromise<>();
+		ScheduledRunnable timeout;
+
+		QueuedRequest(HttpRequest request, AsyncServlet servlet) {
+			this.request = request;
+			this.servlet = servlet;
+		}
+	}
+
+	// region JMX
+	@JmxAttribute
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	@JmxAttribute
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	@JmxAttribute
+	public int getQueueSize() {
+		return criticalQueue.size() + normalQueue.size();
+	}
+
+	@JmxAttribute(description = "smoothed recent latency of a servlet")
+	public Duration getShortLatency() {
+		return Duration.ofNanos((long) shortLatency);
+	}
+
+	@JmxAttribute(description = "smoothed long-term latency of a servlet")
+	public Duration getLongLatency() {
+		return Duration.ofNanos((long) longLatency);
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getServedRequests() {
+		return servedRequests;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getQueuedRequests() {
+		return queuedRequests;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getRejectedRequests() {
+		return rejectedRequests;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getQueueTimeouts() {
+		return queueTimeouts;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount",
+			description = "queued requests whose connections were closed before they were served")
+	public EventStats getDroppedRequests() {
+		return droppedRequests;
+	}
+	// endregion
+}
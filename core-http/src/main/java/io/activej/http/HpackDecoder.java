@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import java.util.Arrays;
+
+/**
+ * A decoder of HPACK header blocks (RFC 7541).
+ * <p>
+ * A decoder keeps a dynamic table which spans the whole connection,
+ * so header blocks must be decoded in the order they were received.
+ */
+final class HpackDecoder {
+	interface HeaderListener {
+		void onHeader(byte[] name, byte[] value) throws MalformedHttpException;
+	}
+
+	private final HpackTable table;
+	private final int maxTableSize;
+
+	private int position;
+
+	HpackDecoder(int maxTableSize) {
+		this.table = new HpackTable(maxTableSize);
+		this.maxTableSize = maxTableSize;
+	}
+
+	void decode(byte[] array, int offset, int limit, HeaderListener listener) throws MalformedHttpException {
+		position = offset;
+		boolean headerDecoded = false;
+		while (position < limit) {
+			int b = array[position] & 0xFF;
+			if ((b & 0x80) != 0) {
+				int index = readInt(array, limit, 7);
+				if (index == 0 || index > table.getLength()) {
+					throw new MalformedHttpException("Invalid HPACK index: " + index);
+				}
+				listener.onHeader(table.getName(index), table.getValue(index));
+				headerDecoded = true;
+			} else if ((b & 0x40) != 0) {
+				byte[] name = readName(array, limit, 6);
+				byte[] value = readString(array, limit);
+				table.add(name, value);
+				listener.onHeader(name, value);
+				headerDecoded = true;
+			} else if ((b & 0x20) != 0) {
+				if (headerDecoded) {
+					throw new MalformedHttpException("Dynamic table size update after a header field");
+				}
+				int size = readInt(array, limit, 5);
+				if (size > maxTableSize) {
+					throw new MalformedHttpException("Dynamic table size update exceeds the limit: " + size);
+				}
+				table.setMaxSize(size);
+			} else {
+				byte[] name = readName(array, limit, 4);
+				byte[] value = readString(array, limit);
+				listener.onHeader(name, value);
+				headerDecoded = true;
+			}
+		}
+	}
+
+	private byte[] readName(byte[] array, int limit, int prefixBits) throws MalformedHttpException {
+		int index = readInt(array, limit, prefixBits);
+		if (index == 0) {
+			return readString(array, limit);
+		}
+		if (index > table.getLength()) {
+			throw new MalformedHttpException("Invalid HPACK index: " + index);
+		}
+		return table.getName(index);
+	}
+
+	private byte[] readString(byte[] array, int limit) throws MalformedHttpException {
+		if (position == limit) {
+			throw new MalformedHttpException("Incomplete HPACK string literal");
+		}
+		boolean huffman = (array[position] & 0x80) != 0;
+		int length = readInt(array, limit, 7);
+		if (length > limit - position) {
+			throw new MalformedHttpException("Incomplete HPACK string literal");
+		}
+		byte[] result = huffman ?
+				HpackHuffman.decode(array, position, length) :
+				Arrays.copyOfRange(array, position, position + length);
+		position += length;
+		return result;
+	}
+
+	private int readInt(byte[] array, int limit, int prefixBits) throws MalformedHttpException {
+		int prefixMask = (1 << prefixBits) - 1;
+		int value = array[position++] & prefixMask;
+		if (value < prefixMask) return value;
+		for (int shift = 0; ; shift += 7) {
+			if (position == limit) {
+				throw new MalformedHttpException("Incomplete HPACK integer");
+			}
+			if (shift > 21) {
+				throw new MalformedHttpException("HPACK integer is too large");
+			}
+			int b = array[position++] & 0xFF;
+			value += (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+
+/**
+ * An encoder of HPACK header blocks (RFC 7541).
+ * <p>
+ * Header fields are indexed in a dynamic table unless an encoder is asked not to,
+ * string literals are Huffman encoded whenever it makes them shorter.
+ * A caller is responsible for ensuring that a buffer has enough space,
+ * see {@link #estimateSize(int, int)}.
+ */
+final class HpackEncoder {
+	static final int SIZE_UPDATE_ESTIMATE = 12;
+
+	private final HpackTable table;
+	private final int maxTableSizeLimit;
+
+	private int minPendingSize = -1;
+
+	HpackEncoder(int maxTableSize) {
+		this.table = new HpackTable(maxTableSize);
+		this.maxTableSizeLimit = maxTableSize;
+	}
+
+	/**
+	 * Applies a {@code SETTINGS_HEADER_TABLE_SIZE} setting received from a peer.
+	 * A dynamic table size update is emitted at the beginning of a next header block.
+	 */
+	void setMaxTableSize(int maxTableSize) {
+		int size = Math.min(maxTableSize, maxTableSizeLimit);
+		if (size == table.getMaxSize() && minPendingSize == -1) return;
+		minPendingSize = minPendingSize == -1 ? size : Math.min(minPendingSize, size);
+		table.setMaxSize(size);
+	}
+
+	static int estimateSize(int nameLength, int valueLength) {
+		return nameLength + valueLength + 11;
+	}
+
+	void beginHeaderBlock(ByteBuf buf) {
+		if (minPendingSize == -1) return;
+		if (minPendingSize < table.getMaxSize()) {
+			writeInt(buf, 0x20, 5, minPendingSize);
+		}
+		writeInt(buf, 0x20, 5, table.getMaxSize());
+		minPendingSize = -1;
+	}
+
+	void encode(ByteBuf buf, byte[] name, byte[] value, boolean indexing) {
+		int found = table.find(name, value);
+		if (found > 0) {
+			writeInt(buf, 0x80, 7, found);
+			return;
+		}
+		int nameIndex = -found;
+		if (indexing) {
+			writeInt(buf, 0x40, 6, nameIndex);
+		} else {
+			writeInt(buf, 0x00, 4, nameIndex);
+		}
+		if (nameIndex == 0) {
+			writeString(buf, name);
+		}
+		writeString(buf, value);
+		if (indexing) {
+			table.add(name, value);
+		}
+	}
+
+	private static void writeString(ByteBuf buf, byte[] string) {
+		int huffmanLength = HpackHuffman.encodedLength(string, 0, string.length);
+		if (huffmanLength < string.length) {
+			writeInt(buf, 0x80, 7, huffmanLength);
+			buf.tail(HpackHuffman.encode(string, 0, string.length, buf.array(), buf.tail()));
+		} else {
+			writeInt(buf, 0x00, 7, string.length);
+			buf.put(string);
+		}
+	}
+
+	private static void writeInt(ByteBuf buf, int mask, int prefixBits, int value) {
+		int prefixMask = (1 << prefixBits) - 1;
+		if (value < prefixMask) {
+			buf.writeByte((byte) (mask | value));
+			return;
+		}
+		buf.writeByte((byte) (mask | prefixMask));
+		value -= prefixMask;
+		while (value >= 0x80) {
+			buf.writeByte((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		buf.writeByte((byte) value);
+	}
+}
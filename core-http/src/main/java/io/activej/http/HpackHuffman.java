@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import java.util.Arrays;
+
+/**
+ * A Huffman code which is used by HPACK to encode string literals (RFC 7541, Appendix B).
+ * <p>
+ * The code is canonical, so it is fully defined by code lengths of all the symbols.
+ */
+final class HpackHuffman {
+	private static final int EOS = 256;
+	private static final int MAX_CODE_LENGTH = 30;
+
+	private static final byte[] CODE_LENGTHS = {
+			13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+			28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+			6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+			5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+			13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+			7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+			15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+			6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+			20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+			24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+			22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+			21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+			26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+			19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+			20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+			26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+			30
+	};
+
+	private static final int[] CODES = new int[EOS + 1];
+
+	// decoding tables: codes of the same length are consecutive, symbols are sorted by code
+	private static final int[] FIRST_CODE = new int[MAX_CODE_LENGTH + 1];
+	private static final int[] FIRST_SYMBOL = new int[MAX_CODE_LENGTH + 1];
+	private static final int[] COUNT = new int[MAX_CODE_LENGTH + 1];
+	private static final short[] SYMBOLS = new short[EOS + 1];
+
+	static {
+		for (byte length : CODE_LENGTHS) {
+			COUNT[length]++;
+		}
+		int code = 0;
+		int symbols = 0;
+		for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+			FIRST_CODE[length] = code;
+			FIRST_SYMBOL[length] = symbols;
+			for (int symbol = 0; symbol <= EOS; symbol++) {
+				if (CODE_LENGTHS[symbol] == length) {
+					CODES[symbol] = code++;
+					SYMBOLS[symbols++] = (short) symbol;
+				}
+			}
+			code <<= 1;
+		}
+	}
+
+	private HpackHuffman() {
+	}
+
+	static int encodedLength(byte[] array, int offset, int length) {
+		long bits = 0;
+		for (int i = offset; i < offset + length; i++) {
+			bits += CODE_LENGTHS[array[i] & 0xFF];
+		}
+		return (int) ((bits + 7) >>> 3);
+	}
+
+	/**
+	 * Encodes given bytes, the last byte is padded with the most significant bits of EOS code
+	 *
+	 * @return an offset in a destination array after the encoded bytes
+	 */
+	static int encode(byte[] array, int offset, int length, byte[] dst, int dstOffset) {
+		long bits = 0;
+		int bitsCount = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int symbol = array[i] & 0xFF;
+			int codeLength = CODE_LENGTHS[symbol];
+			bits = (bits << codeLength) | CODES[symbol];
+			bitsCount += codeLength;
+			while (bitsCount >= 8) {
+				bitsCount -= 8;
+				dst[dstOffset++] = (byte) (bits >>> bitsCount);
+			}
+		}
+		if (bitsCount != 0) {
+			dst[dstOffset++] = (byte) ((bits << (8 - bitsCount)) | (0xFF >>> bitsCount));
+		}
+		return dstOffset;
+	}
+
+	static byte[] decode(byte[] array, int offset, int length) throws MalformedHttpException {
+		byte[] result = new byte[length * 8 / 5];
+		int size = 0;
+		int code = 0;
+		int codeLength = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int b = array[i];
+			for (int bit = 7; bit >= 0; bit--) {
+				code = (code << 1) | ((b >>> bit) & 1);
+				codeLength++;
+				int index = code - FIRST_CODE[codeLength];
+				if (index >= 0 && index < COUNT[codeLength]) {
+					int symbol = SYMBOLS[FIRST_SYMBOL[codeLength] + index];
+					if (symbol == EOS) throw new MalformedHttpException("EOS symbol in Huffman encoded string");
+					result[size++] = (byte) symbol;
+					code = 0;
+					codeLength = 0;
+				} else if (codeLength == MAX_CODE_LENGTH) {
+					throw new MalformedHttpException("Invalid Huffman code");
+				}
+			}
+		}
+		if (codeLength > 7 || code != (1 << codeLength) - 1) {
+			throw new MalformedHttpException("Invalid padding of Huffman encoded string");
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import java.util.Arrays;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+
+/**
+ * An HPACK indexing table (RFC 7541, section 2.3), which consists of a static table
+ * followed by a dynamic table.
+ * <p>
+ * The dynamic table is a ring buffer of header fields, the most recently added field has the lowest index.
+ * Indexes in this class are 1-based, as they are on the wire.
+ */
+final class HpackTable {
+	static final int ENTRY_OVERHEAD = 32;
+
+	private static final String[][] STATIC_TABLE = {
+			{":authority", ""},
+			{":method", "GET"},
+			{":method", "POST"},
+			{":path", "/"},
+			{":path", "/index.html"},
+			{":scheme", "http"},
+			{":scheme", "https"},
+			{":status", "200"},
+			{":status", "204"},
+			{":status", "206"},
+			{":status", "304"},
+			{":status", "400"},
+			{":status", "404"},
+			{":status", "500"},
+			{"accept-charset", ""},
+			{"accept-encoding", "gzip, deflate"},
+			{"accept-language", ""},
+			{"accept-ranges", ""},
+			{"accept", ""},
+			{"access-control-allow-origin", ""},
+			{"age", ""},
+			{"allow", ""},
+			{"authorization", ""},
+			{"cache-control", ""},
+			{"content-disposition", ""},
+			{"content-encoding", ""},
+			{"content-language", ""},
+			{"content-length", ""},
+			{"content-location", ""},
+			{"content-range", ""},
+			{"content-type", ""},
+			{"cookie", ""},
+			{"date", ""},
+			{"etag", ""},
+			{"expect", ""},
+			{"expires", ""},
+			{"from", ""},
+			{"host", ""},
+			{"if-match", ""},
+			{"if-modified-since", ""},
+			{"if-none-match", ""},
+			{"if-range", ""},
+			{"if-unmodified-since", ""},
+			{"last-modified", ""},
+			{"link", ""},
+			{"location", ""},
+			{"max-forwards", ""},
+			{"proxy-authenticate", ""},
+			{"proxy-authorization", ""},
+			{"range", ""},
+			{"referer", ""},
+			{"refresh", ""},
+			{"retry-after", ""},
+			{"server", ""},
+			{"set-cookie", ""},
+			{"strict-transport-security", ""},
+			{"transfer-encoding", ""},
+			{"user-agent", ""},
+			{"vary", ""},
+			{"via", ""},
+			{"www-authenticate", ""}
+	};
+
+	static final int STATIC_TABLE_LENGTH = STATIC_TABLE.length;
+
+	private static final byte[][] STATIC_NAMES = new byte[STATIC_TABLE_LENGTH + 1][];
+	private static final byte[][] STATIC_VALUES = new byte[STATIC_TABLE_LENGTH + 1][];
+
+	// open addressing index of static names, a slot holds an index of the first entry with a name
+	private static final int[] STATIC_NAME_SLOTS = new int[128];
+
+	static {
+		for (int i = 0; i < STATIC_TABLE_LENGTH; i++) {
+			STATIC_NAMES[i + 1] = encodeAscii(STATIC_TABLE[i][0]);
+			STATIC_VALUES[i + 1] = encodeAscii(STATIC_TABLE[i][1]);
+		}
+		for (int index = 1; index <= STATIC_TABLE_LENGTH; index++) {
+			if (index > 1 && Arrays.equals(STATIC_NAMES[index - 1], STATIC_NAMES[index])) continue;
+			byte[] name = STATIC_NAMES[index];
+			int slot = hashCode(name, 0, name.length) & (STATIC_NAME_SLOTS.length - 1);
+			while (STATIC_NAME_SLOTS[slot] != 0) {
+				slot = (slot + 1) & (STATIC_NAME_SLOTS.length - 1);
+			}
+			STATIC_NAME_SLOTS[slot] = index;
+		}
+	}
+
+	private byte[][] names = new byte[16][];
+	private byte[][] values = new byte[16][];
+	private int[] hashCodes = new int[16];
+	private int head; // a position of the most recently added entry
+	private int length;
+	private int size;
+	private int maxSize;
+
+	HpackTable(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	int getLength() {
+		return STATIC_TABLE_LENGTH + length;
+	}
+
+	int getSize() {
+		return size;
+	}
+
+	int getMaxSize() {
+		return maxSize;
+	}
+
+	byte[] getName(int index) {
+		return index <= STATIC_TABLE_LENGTH ? STATIC_NAMES[index] : names[position(index)];
+	}
+
+	byte[] getValue(int index) {
+		return index <= STATIC_TABLE_LENGTH ? STATIC_VALUES[index] : values[position(index)];
+	}
+
+	private int position(int index) {
+		return (head - (index - STATIC_TABLE_LENGTH - 1)) & (names.length - 1);
+	}
+
+	void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		evict(0);
+	}
+
+	void add(byte[] name, byte[] value) {
+		int entrySize = name.length + value.length + ENTRY_OVERHEAD;
+		if (entrySize > maxSize) {
+			evict(maxSize);
+			return;
+		}
+		evict(entrySize);
+		if (length == names.length) {
+			grow();
+		}
+		head = (head + 1) & (names.length - 1);
+		names[head] = name;
+		values[head] = value;
+		hashCodes[head] = hashCode(name, 0, name.length);
+		length++;
+		size += entrySize;
+	}
+
+	/**
+	 * Finds an index of a header field in this table
+	 *
+	 * @return an index of a matching field if there is one,
+	 * a negated index of a field with a matching name if there is one,
+	 * or {@code 0} otherwise
+	 */
+	int find(byte[] name, byte[] value) {
+		int hashCode = hashCode(name, 0, name.length);
+		int nameIndex = 0;
+
+		int slot = hashCode & (STATIC_NAME_SLOTS.length - 1);
+		for (int index; (index = STATIC_NAME_SLOTS[slot]) != 0; slot = (slot + 1) & (STATIC_NAME_SLOTS.length - 1)) {
+			if (!Arrays.equals(STATIC_NAMES[index], name)) continue;
+			for (int i = index; i <= STATIC_TABLE_LENGTH && Arrays.equals(STATIC_NAMES[i], name); i++) {
+				if (Arrays.equals(STATIC_VALUES[i], value)) return i;
+			}
+			nameIndex = index;
+			break;
+		}
+
+		for (int i = 0; i < length; i++) {
+			int position = (head - i) & (names.length - 1);
+			if (hashCodes[position] != hashCode || !Arrays.equals(names[position], name)) continue;
+			if (Arrays.equals(values[position], value)) return STATIC_TABLE_LENGTH + 1 + i;
+			if (nameIndex == 0) nameIndex = STATIC_TABLE_LENGTH + 1 + i;
+		}
+
+		return -nameIndex;
+	}
+
+	private void evict(int required) {
+		while (size + required > maxSize && length != 0) {
+			int tail = (head - length + 1) & (names.length - 1);
+			size -= names[tail].length + values[tail].length + ENTRY_OVERHEAD;
+			names[tail] = null;
+			values[tail] = null;
+			length--;
+		}
+	}
+
+	private void grow() {
+		int capacity = names.length;
+		byte[][] newNames = new byte[capacity * 2][];
+		byte[][] newValues = new byte[capacity * 2][];
+		int[] newHashCodes = new int[capacity * 2];
+		for (int i = 0; i < length; i++) {
+			int position = (head - length + 1 + i) & (capacity - 1);
+			newNames[i] = names[position];
+			newValues[i] = values[position];
+			newHashCodes[i] = hashCodes[position];
+		}
+		names = newNames;
+		values = newValues;
+		hashCodes = newHashCodes;
+		head = length - 1;
+	}
+
+	private static int hashCode(byte[] array, int offset, int length) {
+		int hashCode = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hashCode = 31 * hashCode + array[i];
+		}
+		return hashCode ^ (hashCode >>> 16);
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.http;
+
+import io.activej.async.exception.AsyncCloseException;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AsyncHttpClient.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.Http2Constants.*;
+import static io.activej.http.HttpHeaders.HOST;
+import static io.activej.http.HttpVersion.HTTP_2_0;
+
+/**
+ * A client side of HTTP/2 connection.
+ * <p>
+ * Requests to the same address are multiplexed over a single connection,
+ * requests which exceed a concurrent streams limit of a server are queued.
+ */
+final class Http2ClientConnection extends Http2Connection {
+	private static final int MAX_STREAM_ID = Integer.MAX_VALUE;
+
+	private final AsyncHttpClient client;
+	private final @Nullable Inspector inspector;
+
+	final InetSocketAddress remoteAddress;
+
+	private int nextStreamId = 1;
+	private final ArrayDeque<PendingRequest> pendingRequests = new ArrayDeque<>();
+
+	Http2ClientConnection(Eventloop eventloop, AsyncHttpClient client, AsyncTcpSocket asyncTcpSocket, InetSocketAddress remoteAddress) {
+		super(eventloop, asyncTcpSocket, client.maxBodySize);
+		this.client = client;
+		this.inspector = client.inspector;
+		this.remoteAddress = remoteAddress;
+	}
+
+	void connect() {
+		(pool = client.poolReadWrite).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		writeConnectionPreface();
+		start(null);
+	}
+
+	/**
+	 * Checks whether new requests may be sent over this connection
+	 */
+	boolean isAvailable() {
+		return !isClosed() && !goAwaySent && !goAwayReceived && nextStreamId < MAX_STREAM_ID - 2 * pendingRequests.size();
+	}
+
+	/**
+	 * Sends a request over a new stream, or queues it if a concurrent streams limit of a server is reached
+	 */
+	Promise<HttpResponse> send(HttpRequest request) {
+		assert isAvailable();
+		SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		if (streams.size() >= peerMaxConcurrentStreams) {
+			pendingRequests.add(new PendingRequest(request, promise));
+		} else {
+			sendRequest(request, promise);
+		}
+		return promise;
+	}
+
+	private void sendRequest(HttpRequest request, SettablePromise<HttpResponse> promise) {
+		if (pool != client.poolReadWrite) {
+			switchPool(client.poolReadWrite);
+		}
+		Stream stream = openStream(nextStreamId);
+		nextStreamId += 2;
+		stream.responsePromise = promise;
+		numberOfRequests++;
+
+		UrlParser url = request.getUrl();
+		String authority = request.getHeader(HOST);
+		if (authority == null) authority = url.getHostAndPort();
+		byte[][] pseudoHeaders = {
+				METHOD, request.getMethod().bytes(),
+				SCHEME, url.getProtocol().lowercaseBytes(),
+				AUTHORITY, authority != null ? encodeAscii(authority) : new byte[0],
+				PATH, encodeAscii(url.getPathAndQuery())
+		};
+		writeMessage(stream, request, pseudoHeaders);
+		request.recycle();
+	}
+
+	@Override
+	protected boolean isIdle(int streamId) {
+		return (streamId & 1) == 0 || streamId >= nextStreamId;
+	}
+
+	@Override
+	protected void onHeaders(int streamId, boolean endStream, byte[] array, int offset, int length) throws Http2Exception {
+		decodeHeaderBlock(array, offset, length);
+		Stream stream = streams.get(streamId);
+		if (stream == null) {
+			if (isIdle(streamId)) throw new Http2Exception(PROTOCOL_ERROR, "HEADERS frame on an idle stream");
+			writeResetStream(streamId, STREAM_CLOSED);
+			return;
+		}
+		if (stream.remoteEnd) {
+			resetStream(stream, STREAM_CLOSED, "Headers after END_STREAM flag");
+			return;
+		}
+		SettablePromise<HttpResponse> promise = stream.responsePromise;
+		if (promise == null) {
+			// trailers
+			if (!endStream) {
+				resetStream(stream, PROTOCOL_ERROR, "Trailers without END_STREAM flag");
+				return;
+			}
+			onRemoteEnd(stream);
+			return;
+		}
+		int code = parseStatus(headerBlock.status);
+		if (headerBlock.malformed != null || code == -1 || headerBlock.method != null || headerBlock.path != null) {
+			resetStream(stream, PROTOCOL_ERROR, headerBlock.malformed != null ? headerBlock.malformed : "Malformed response headers");
+			return;
+		}
+		if (code < 200) {
+			if (endStream) {
+				resetStream(stream, PROTOCOL_ERROR, "Informational response with END_STREAM flag");
+			}
+			return;
+		}
+		HttpResponse response = new HttpResponse(HTTP_2_0, code, null);
+		response.maxBodySize = maxBodySize;
+		boolean gzipped = addHeaders(response);
+		setInboundBody(response, stream, endStream, gzipped);
+		stream.responsePromise = null;
+		stream.response = response;
+		if (inspector != null) inspector.onHttpResponse(response);
+		promise.set(response);
+		if (endStream && !stream.closed) {
+			onRemoteEnd(stream);
+		}
+	}
+
+	private static int parseStatus(byte @Nullable [] status) {
+		if (status == null || status.length != 3) return -1;
+		int code = 0;
+		for (byte b : status) {
+			if (b < '0' || b > '9') return -1;
+			code = code * 10 + b - '0';
+		}
+		return code >= 100 ? code : -1;
+	}
+
+	@Override
+	protected void onStreamClosed(Stream stream, @Nullable Exception e) {
+		SettablePromise<HttpResponse> promise = stream.responsePromise;
+		if (promise != null) {
+			stream.responsePromise = null;
+			promise.setException(e != null ? e : new HttpException("Stream closed without a response"));
+		}
+		HttpResponse response = stream.response;
+		if (response != null) {
+			stream.response = null;
+			// a gzipped body is inflated asynchronously, so it may still be loading
+			if (e == null && stream.inflater != null) {
+				stream.inflater.getProcessCompletion().whenComplete(response::recycle);
+			} else {
+				response.recycle();
+			}
+		}
+		if (isClosed()) return;
+		while (!pendingRequests.isEmpty() && streams.size() < peerMaxConcurrentStreams && !goAwayReceived) {
+			PendingRequest pending = pendingRequests.poll();
+			sendRequest(pending.request, pending.promise);
+		}
+		if (!streams.isEmpty()) return;
+		if (goAwayReceived || client.keepAliveTimeoutMillis == 0 ||
+				numberOfRequests >= client.maxKeepAliveRequests && client.maxKeepAliveRequests != 0) {
+			client.onHttp2ConnectionUnavailable(this);
+			goAway(null);
+		} else {
+			switchPool(client.poolKeepAlive);
+		}
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		client.onHttp2ConnectionUnavailable(this);
+		failPendingRequests(new Http2Exception(REFUSED_STREAM, "Connection is shutting down"));
+		for (Stream stream : streams.values().toArray(new Stream[0])) {
+			if (stream.id > lastStreamId) {
+				closeStream(stream, new Http2Exception(REFUSED_STREAM, "Stream was not processed by server"));
+			}
+		}
+		if (streams.isEmpty()) {
+			goAway(null);
+		}
+	}
+
+	@Override
+	protected void onConnectionClosed(@NotNull Exception e) {
+		client.onHttp2ConnectionUnavailable(this);
+		failPendingRequests(e);
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		client.onConnectionClosed();
+	}
+
+	private void failPendingRequests(Exception e) {
+		while (!pendingRequests.isEmpty()) {
+			PendingRequest pending = pendingRequests.poll();
+			pending.request.recycleBody();
+			pending.promise.setException(e instanceof AsyncCloseException ? new AsyncCloseException("Connection closed") : e);
+		}
+	}
+
+	public InetSocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ClientConnection{" +
+				"remoteAddress=" + remoteAddress +
+				", pendingRequests=" + pendingRequests.size() +
+				super.toString() +
+				'}';
+	}
+
+	private static final class PendingRequest {
+		final HttpRequest request;
+		final SettablePromise<HttpResponse> promise;
+
+		PendingRequest(HttpRequest request, SettablePromise<HttpResponse> promise) {
+			this.request = request;
+			this.promise = promise;
+		}
+	}
+}
@@ -0,0 +1,1104 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.http;
+
+import io.activej.async.exception.AsyncCloseException;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.common.recycle.Recyclable;
+import io.activej.csp.AbstractChannelSupplier;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.stream.BufsConsumerGzipDeflater;
+import io.activej.http.stream.BufsConsumerGzipInflater;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufStrings.equalsLowerCaseAscii;
+import static io.activej.common.Utils.nullify;
+import static io.activej.http.Http2Constants.*;
+import static io.activej.http.HttpHeaderValue.ofBytes;
+import static io.activej.http.HttpHeaderValue.ofDecimal;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
+import static io.activej.http.HttpUtils.hashCodeCI;
+import static io.activej.http.HttpUtils.translateToHttpException;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A base class of HTTP/2 connections (RFC 7540).
+ * <p>
+ * A single connection multiplexes many concurrent streams. Frames that are written
+ * during a single eventloop tick are coalesced into a single socket write.
+ * Both connection-level and stream-level flow control is enforced in both directions:
+ * a stream body is pulled from its supplier only when previous data has been sent,
+ * and received data is acknowledged to a peer only as it is consumed by an application.
+ * <p>
+ * HTTP/2 connections reuse connection pools of HTTP/1 connections, so they extend
+ * {@link AbstractHttpConnection}, though none of HTTP/1 parsing is used.
+ */
+abstract class Http2Connection extends AbstractHttpConnection {
+	static final int MAX_CONCURRENT_STREAMS = ApplicationSettings.getInt(Http2Connection.class, "maxConcurrentStreams", 100);
+	static final int INITIAL_WINDOW_SIZE = ApplicationSettings.getMemSize(Http2Connection.class, "initialWindowSize", MemSize.kilobytes(256)).toInt();
+	static final int CONNECTION_WINDOW_SIZE = ApplicationSettings.getMemSize(Http2Connection.class, "connectionWindowSize", MemSize.megabytes(1)).toInt();
+	static final int MAX_HEADER_LIST_SIZE = ApplicationSettings.getMemSize(Http2Connection.class, "maxHeaderListSize", MemSize.kilobytes(64)).toInt();
+	static final int MAX_WRITE_BUFFER_SIZE = ApplicationSettings.getMemSize(Http2Connection.class, "maxWriteBufferSize", MemSize.kilobytes(256)).toInt();
+	private static final int INITIAL_WRITE_BUFFER_SIZE = 16384;
+
+	private static final HttpHeader KEEP_ALIVE_HEADER = HttpHeaders.of("Keep-Alive");
+	private static final HttpHeader PROXY_CONNECTION_HEADER = HttpHeaders.of("Proxy-Connection");
+
+	protected final HpackDecoder hpackDecoder = new HpackDecoder(DEFAULT_HEADER_TABLE_SIZE);
+	protected final HpackEncoder hpackEncoder = new HpackEncoder(DEFAULT_HEADER_TABLE_SIZE);
+	protected final HeaderBlock headerBlock = new HeaderBlock();
+
+	protected final HashMap<Integer, Stream> streams = new HashMap<>();
+
+	protected int peerMaxConcurrentStreams = Integer.MAX_VALUE;
+	private int peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+	private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+	private int sendWindow = DEFAULT_WINDOW_SIZE;
+	private int receiveWindow = DEFAULT_WINDOW_SIZE;
+	private boolean settingsReceived;
+
+	protected int lastPeerStreamId;
+	protected boolean goAwaySent;
+	protected boolean goAwayReceived;
+
+	// a header block which is split into HEADERS and CONTINUATION frames
+	private @Nullable ByteBuf headerFragments;
+	private int headerFragmentsStreamId;
+	private boolean headerFragmentsEndStream;
+
+	private @Nullable ByteBuf writeBuf;
+	private int headersFrameOffset;
+	private boolean flushPosted;
+	private int unflushedBytes;
+
+	private final ArrayDeque<Stream> blockedStreams = new ArrayDeque<>();
+	private final ArrayDeque<Stream> flushWaiters = new ArrayDeque<>();
+
+	private @Nullable Exception closeError;
+
+	protected Http2Connection(Eventloop eventloop, AsyncTcpSocket socket, int maxBodySize) {
+		super(eventloop, socket, maxBodySize);
+	}
+
+	// region hooks
+	protected abstract void onHeaders(int streamId, boolean endStream, byte[] array, int offset, int length) throws Http2Exception;
+
+	/**
+	 * Checks whether a given stream identifier belongs to a stream that has not been opened yet
+	 */
+	protected abstract boolean isIdle(int streamId);
+
+	protected abstract void onStreamClosed(Stream stream, @Nullable Exception e);
+
+	protected abstract void onGoAway(int lastStreamId);
+
+	protected abstract void onConnectionClosed(@NotNull Exception e);
+	// endregion
+
+	protected final void start(@Nullable ByteBuf readBuf) {
+		writeSettings();
+		writeWindowUpdate(0, CONNECTION_WINDOW_SIZE - DEFAULT_WINDOW_SIZE);
+		receiveWindow = CONNECTION_WINDOW_SIZE;
+		this.readBuf = readBuf;
+		if (readBuf != null) {
+			processFrames();
+		}
+		if (!isClosed()) {
+			socket.read().run(this::onRead);
+		}
+	}
+
+	public final int getActiveStreams() {
+		return streams.size();
+	}
+
+	// region reading
+	private void onRead(@Nullable ByteBuf buf, @Nullable Exception e) {
+		if (isClosed()) {
+			if (buf != null) buf.recycle();
+			return;
+		}
+		if (e != null) {
+			closeEx(translateToHttpException(e));
+			return;
+		}
+		if (buf == null) {
+			if (streams.isEmpty()) {
+				close();
+			} else {
+				closeEx(new AsyncCloseException("Connection closed by peer"));
+			}
+			return;
+		}
+		readBuf = readBuf == null ? buf : ByteBufPool.append(readBuf, buf);
+		if (pool != null) {
+			switchPool(pool);
+		}
+		processFrames();
+		if (!isClosed()) {
+			socket.read().run(this::onRead);
+		}
+	}
+
+	private void processFrames() {
+		try {
+			while (readBuf != null && !goAwaySent) {
+				int remaining = readBuf.readRemaining();
+				if (remaining < FRAME_HEADER_SIZE) break;
+				byte[] array = readBuf.array();
+				int head = readBuf.head();
+				int length = (array[head] & 0xFF) << 16 | (array[head + 1] & 0xFF) << 8 | (array[head + 2] & 0xFF);
+				if (length > DEFAULT_MAX_FRAME_SIZE) {
+					throw new Http2Exception(FRAME_SIZE_ERROR, "Frame size exceeds the limit: " + length);
+				}
+				if (remaining < FRAME_HEADER_SIZE + length) break;
+				byte type = array[head + 3];
+				byte flags = array[head + 4];
+				int streamId = readInt(array, head + 5) & 0x7FFFFFFF;
+				readBuf.moveHead(FRAME_HEADER_SIZE + length);
+				onFrame(type, flags, streamId, array, head + FRAME_HEADER_SIZE, length);
+				if (isClosed()) return;
+			}
+			if (readBuf != null && !readBuf.canRead()) {
+				readBuf.recycle();
+				readBuf = null;
+			}
+		} catch (Http2Exception e) {
+			goAway(e);
+		}
+	}
+
+	private void onFrame(byte type, byte flags, int streamId, byte[] array, int offset, int length) throws Http2Exception {
+		if (!settingsReceived && type != SETTINGS) {
+			throw new Http2Exception(PROTOCOL_ERROR, "SETTINGS frame expected");
+		}
+		if (headerFragments != null && type != CONTINUATION) {
+			throw new Http2Exception(PROTOCOL_ERROR, "CONTINUATION frame expected");
+		}
+		switch (type) {
+			case DATA:
+				onDataFrame(flags, streamId, array, offset, length);
+				break;
+			case HEADERS:
+				onHeadersFrame(flags, streamId, array, offset, length);
+				break;
+			case PRIORITY:
+				if (streamId == 0) throw new Http2Exception(PROTOCOL_ERROR, "PRIORITY frame on a connection");
+				if (length != 5) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid PRIORITY frame size");
+				break;
+			case RST_STREAM:
+				onResetStreamFrame(streamId, array, offset, length);
+				break;
+			case SETTINGS:
+				onSettingsFrame(flags, streamId, array, offset, length);
+				break;
+			case PUSH_PROMISE:
+				throw new Http2Exception(PROTOCOL_ERROR, "Server push is disabled");
+			case PING:
+				if (streamId != 0) throw new Http2Exception(PROTOCOL_ERROR, "PING frame on a stream");
+				if (length != 8) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid PING frame size");
+				if ((flags & FLAG_ACK) == 0) {
+					writeFrame(PING, FLAG_ACK, 0, array, offset, 8);
+				}
+				break;
+			case GOAWAY:
+				if (streamId != 0) throw new Http2Exception(PROTOCOL_ERROR, "GOAWAY frame on a stream");
+				if (length < 8) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid GOAWAY frame size");
+				goAwayReceived = true;
+				onGoAway(readInt(array, offset) & 0x7FFFFFFF);
+				break;
+			case WINDOW_UPDATE:
+				onWindowUpdateFrame(streamId, array, offset, length);
+				break;
+			case CONTINUATION:
+				onContinuationFrame(flags, streamId, array, offset, length);
+				break;
+			default:
+				// unknown frame types must be ignored
+		}
+	}
+
+	private void onDataFrame(byte flags, int streamId, byte[] array, int offset, int length) throws Http2Exception {
+		if (streamId == 0) throw new Http2Exception(PROTOCOL_ERROR, "DATA frame on a connection");
+		int dataOffset = offset;
+		int dataLength = length;
+		if ((flags & FLAG_PADDED) != 0) {
+			if (length == 0) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid DATA frame size");
+			int padding = array[offset] & 0xFF;
+			dataOffset++;
+			dataLength -= padding + 1;
+			if (dataLength < 0) throw new Http2Exception(PROTOCOL_ERROR, "Padding exceeds frame size");
+		}
+
+		receiveWindow -= length;
+		if (receiveWindow < 0) throw new Http2Exception(FLOW_CONTROL_ERROR, "Connection flow control window exceeded");
+		if (receiveWindow <= CONNECTION_WINDOW_SIZE / 2) {
+			writeWindowUpdate(0, CONNECTION_WINDOW_SIZE - receiveWindow);
+			receiveWindow = CONNECTION_WINDOW_SIZE;
+		}
+
+		Stream stream = streams.get(streamId);
+		if (stream == null || stream.remoteEnd) {
+			if (stream == null && isIdle(streamId)) throw new Http2Exception(PROTOCOL_ERROR, "DATA frame on an idle stream");
+			writeResetStream(streamId, STREAM_CLOSED);
+			return;
+		}
+		BodySupplier inbound = stream.inbound;
+		if (inbound == null) {
+			resetStream(stream, PROTOCOL_ERROR, "Unexpected DATA frame");
+			return;
+		}
+		stream.receiveWindow -= length;
+		if (stream.receiveWindow < 0) {
+			resetStream(stream, FLOW_CONTROL_ERROR, "Stream flow control window exceeded");
+			return;
+		}
+		stream.receivedBytes += dataLength;
+		if (stream.maxBodySize != 0 && stream.receivedBytes > stream.maxBodySize) {
+			writeResetStream(streamId, CANCEL);
+			closeStream(stream, new MalformedHttpException("Too big HttpMessage"));
+			return;
+		}
+		onConsumed(stream, length - dataLength);
+		if (dataLength != 0) {
+			inbound.onData(readBuf.slice(dataOffset, dataLength));
+		}
+		if ((flags & FLAG_END_STREAM) != 0) {
+			onRemoteEnd(stream);
+		}
+	}
+
+	private void onHeadersFrame(byte flags, int streamId, byte[] array, int offset, int length) throws Http2Exception {
+		if (streamId == 0) throw new Http2Exception(PROTOCOL_ERROR, "HEADERS frame on a connection");
+		int blockOffset = offset;
+		int blockLimit = offset + length;
+		if ((flags & FLAG_PADDED) != 0) {
+			if (length == 0) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid HEADERS frame size");
+			blockLimit -= array[blockOffset++] & 0xFF;
+		}
+		if ((flags & FLAG_PRIORITY) != 0) {
+			blockOffset += 5;
+		}
+		if (blockOffset > blockLimit) throw new Http2Exception(PROTOCOL_ERROR, "Padding exceeds frame size");
+		boolean endStream = (flags & FLAG_END_STREAM) != 0;
+		if ((flags & FLAG_END_HEADERS) != 0) {
+			onHeaders(streamId, endStream, array, blockOffset, blockLimit - blockOffset);
+			return;
+		}
+		headerFragments = ByteBufPool.allocate(max(blockLimit - blockOffset, DEFAULT_MAX_FRAME_SIZE));
+		headerFragments.put(array, blockOffset, blockLimit - blockOffset);
+		headerFragmentsStreamId = streamId;
+		headerFragmentsEndStream = endStream;
+	}
+
+	private void onContinuationFrame(byte flags, int streamId, byte[] array, int offset, int length) throws Http2Exception {
+		ByteBuf fragments = headerFragments;
+		if (fragments == null || streamId != headerFragmentsStreamId) {
+			throw new Http2Exception(PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+		}
+		if (fragments.readRemaining() + length > MAX_HEADER_LIST_SIZE) {
+			throw new Http2Exception(ENHANCE_YOUR_CALM, "Header block exceeds the limit");
+		}
+		fragments = ByteBufPool.append(fragments, array, offset, length);
+		if ((flags & FLAG_END_HEADERS) == 0) {
+			headerFragments = fragments;
+			return;
+		}
+		headerFragments = null;
+		try {
+			onHeaders(streamId, headerFragmentsEndStream, fragments.array(), fragments.head(), fragments.readRemaining());
+		} finally {
+			fragments.recycle();
+		}
+	}
+
+	private void onResetStreamFrame(int streamId, byte[] array, int offset, int length) throws Http2Exception {
+		if (streamId == 0) throw new Http2Exception(PROTOCOL_ERROR, "RST_STREAM frame on a connection");
+		if (length != 4) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid RST_STREAM frame size");
+		Stream stream = streams.get(streamId);
+		if (stream == null) {
+			if (isIdle(streamId)) throw new Http2Exception(PROTOCOL_ERROR, "RST_STREAM frame on an idle stream");
+			return;
+		}
+		int errorCode = readInt(array, offset);
+		closeStream(stream, new Http2Exception(errorCode, "Stream reset by peer, error code: " + errorCode));
+	}
+
+	private void onSettingsFrame(byte flags, int streamId, byte[] array, int offset, int length) throws Http2Exception {
+		if (streamId != 0) throw new Http2Exception(PROTOCOL_ERROR, "SETTINGS frame on a stream");
+		if ((flags & FLAG_ACK) != 0) {
+			if (length != 0) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid SETTINGS frame size");
+			return;
+		}
+		if (length % 6 != 0) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid SETTINGS frame size");
+		settingsReceived = true;
+		int windowDelta = 0;
+		for (int p = offset; p < offset + length; p += 6) {
+			int id = (array[p] & 0xFF) << 8 | (array[p + 1] & 0xFF);
+			int value = readInt(array, p + 2);
+			switch (id) {
+				case SETTINGS_HEADER_TABLE_SIZE:
+					hpackEncoder.setMaxTableSize(value < 0 ? Integer.MAX_VALUE : value);
+					break;
+				case SETTINGS_ENABLE_PUSH:
+					if (value != 0 && value != 1) throw new Http2Exception(PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH");
+					break;
+				case SETTINGS_MAX_CONCURRENT_STREAMS:
+					peerMaxConcurrentStreams = value < 0 ? Integer.MAX_VALUE : value;
+					break;
+				case SETTINGS_INITIAL_WINDOW_SIZE:
+					if (value < 0) throw new Http2Exception(FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE");
+					windowDelta += value - peerInitialWindowSize;
+					peerInitialWindowSize = value;
+					break;
+				case SETTINGS_MAX_FRAME_SIZE:
+					if (value < DEFAULT_MAX_FRAME_SIZE || value > 0xFFFFFF) {
+						throw new Http2Exception(PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE");
+					}
+					peerMaxFrameSize = value;
+					break;
+				default:
+					// SETTINGS_MAX_HEADER_LIST_SIZE is advisory, unknown settings must be ignored
+			}
+		}
+		if (windowDelta != 0) {
+			for (Stream stream : streams.values()) {
+				long window = (long) stream.sendWindow + windowDelta;
+				if (window > MAX_WINDOW_SIZE) throw new Http2Exception(FLOW_CONTROL_ERROR, "Stream window overflow");
+				stream.sendWindow = (int) window;
+			}
+		}
+		ensureWriteBuffer(FRAME_HEADER_SIZE);
+		writeFrameHeader(0, SETTINGS, FLAG_ACK, 0);
+		if (windowDelta > 0) {
+			resumeBlockedStreams();
+		}
+	}
+
+	private void onWindowUpdateFrame(int streamId, byte[] array, int offset, int length) throws Http2Exception {
+		if (length != 4) throw new Http2Exception(FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE frame size");
+		int increment = readInt(array, offset) & 0x7FFFFFFF;
+		if (streamId == 0) {
+			if (increment == 0) throw new Http2Exception(PROTOCOL_ERROR, "Zero window increment");
+			if ((long) sendWindow + increment > MAX_WINDOW_SIZE) {
+				throw new Http2Exception(FLOW_CONTROL_ERROR, "Connection window overflow");
+			}
+			sendWindow += increment;
+			resumeBlockedStreams();
+			return;
+		}
+		Stream stream = streams.get(streamId);
+		if (stream == null) {
+			if (isIdle(streamId)) throw new Http2Exception(PROTOCOL_ERROR, "WINDOW_UPDATE frame on an idle stream");
+			return;
+		}
+		if (increment == 0) {
+			resetStream(stream, PROTOCOL_ERROR, "Zero window increment");
+			return;
+		}
+		if ((long) stream.sendWindow + increment > MAX_WINDOW_SIZE) {
+			resetStream(stream, FLOW_CONTROL_ERROR, "Stream window overflow");
+			return;
+		}
+		stream.sendWindow += increment;
+		if (stream.blocked && sendWindow > 0) {
+			stream.blocked = false;
+			if (writePendingData(stream)) {
+				pull(stream);
+			}
+		}
+	}
+
+	protected final void decodeHeaderBlock(byte[] array, int offset, int length) throws Http2Exception {
+		headerBlock.reset();
+		try {
+			hpackDecoder.decode(array, offset, offset + length, headerBlock);
+		} catch (MalformedHttpException e) {
+			throw new Http2Exception(COMPRESSION_ERROR, e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds regular headers of a decoded header block to a given message
+	 *
+	 * @return whether a message body is gzipped
+	 */
+	protected final boolean addHeaders(HttpMessage message) {
+		boolean gzipped = false;
+		List<byte[]> fields = headerBlock.fields;
+		for (int i = 0; i < fields.size(); i += 2) {
+			byte[] name = fields.get(i);
+			byte[] value = fields.get(i + 1);
+			HttpHeader header = HttpHeaders.of(hashCodeCI(name, 0, name.length), name, 0, name.length);
+			if (isConnectionSpecific(header) && header != HOST) continue;
+			if (header == CONTENT_ENCODING && equalsLowerCaseAscii(CONTENT_ENCODING_GZIP, value, 0, value.length)) {
+				gzipped = true;
+			}
+			message.addHeader(header, value, 0, value.length);
+		}
+		return gzipped;
+	}
+
+	protected final void setInboundBody(HttpMessage message, Stream stream, boolean endStream, boolean gzipped) {
+		message.flags |= MUST_LOAD_BODY;
+		if (endStream) {
+			message.body = ByteBuf.empty();
+			return;
+		}
+		BodySupplier inbound = new BodySupplier(stream);
+		stream.inbound = inbound;
+		stream.maxBodySize = message.maxBodySize;
+		if (gzipped) {
+			BufsConsumerGzipInflater inflater = BufsConsumerGzipInflater.create();
+			inbound.bindTo(inflater.getInput());
+			message.bodyStream = inflater.getOutput().getSupplier();
+			stream.inflater = inflater;
+		} else {
+			message.bodyStream = inbound;
+		}
+	}
+	// endregion
+
+	// region streams
+	protected final Stream openStream(int streamId) {
+		Stream stream = new Stream(streamId);
+		streams.put(streamId, stream);
+		return stream;
+	}
+
+	protected final void onRemoteEnd(Stream stream) {
+		stream.remoteEnd = true;
+		if (stream.inbound != null) {
+			stream.inbound.onEndOfStream();
+		}
+		if (stream.localEnd) {
+			closeStream(stream, null);
+		}
+	}
+
+	private void onLocalEnd(Stream stream) {
+		stream.localEnd = true;
+		if (stream.remoteEnd) {
+			closeStream(stream, null);
+		}
+	}
+
+	protected final void resetStream(Stream stream, int errorCode, String message) {
+		writeResetStream(stream.id, errorCode);
+		closeStream(stream, new Http2Exception(errorCode, message));
+	}
+
+	protected final void closeStream(Stream stream, @Nullable Exception e) {
+		if (stream.closed) return;
+		stream.closed = true;
+		streams.remove(stream.id);
+		if (e != null) {
+			if (stream.inbound != null) {
+				stream.inbound.closeEx(e);
+			}
+			stream.outboundBuf = nullify(stream.outboundBuf, ByteBuf::recycle);
+			stream.outbound = nullify(stream.outbound, supplier -> supplier.closeEx(e));
+		}
+		onStreamClosed(stream, e);
+	}
+
+	private void onConsumed(Stream stream, int size) {
+		if (size == 0 || stream.remoteEnd || stream.closed) return;
+		stream.consumedBytes += size;
+		if (stream.consumedBytes >= INITIAL_WINDOW_SIZE / 2) {
+			writeWindowUpdate(stream.id, stream.consumedBytes);
+			stream.receiveWindow += stream.consumedBytes;
+			stream.consumedBytes = 0;
+		}
+	}
+	// endregion
+
+	// region writing
+	/**
+	 * Writes a HEADERS frame (followed by CONTINUATION frames if needed) of a given message
+	 * and starts sending its body
+	 *
+	 * @param pseudoHeaders names and values of pseudo headers
+	 */
+	protected final void writeMessage(Stream stream, HttpMessage message, byte[][] pseudoHeaders) {
+		ByteBuf body = message.body;
+		ChannelSupplier<ByteBuf> bodyStream = message.bodyStream;
+		message.body = null;
+		message.bodyStream = null;
+		if ((message.flags & HttpMessage.USE_GZIP) != 0 && (body != null || bodyStream != null)) {
+			message.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
+			if (body != null) {
+				body = GzipProcessorUtils.toGzip(body);
+			} else {
+				BufsConsumerGzipDeflater deflater = BufsConsumerGzipDeflater.create();
+				bodyStream.bindTo(deflater.getInput());
+				bodyStream = deflater.getOutput().getSupplier();
+			}
+		}
+		if (body != null) {
+			message.addHeader(CONTENT_LENGTH, ofDecimal(body.readRemaining()));
+		} else if (bodyStream == null && message.isContentLengthExpected()) {
+			message.addHeader(CONTENT_LENGTH, ofDecimal(0));
+		}
+
+		boolean endStream = body == null && bodyStream == null || body != null && !body.canRead();
+		writeHeaders(stream.id, message, pseudoHeaders, endStream);
+
+		if (endStream) {
+			if (body != null) body.recycle();
+			onLocalEnd(stream);
+		} else if (body != null) {
+			stream.outboundBuf = body;
+			writePendingData(stream);
+		} else {
+			stream.outbound = bodyStream;
+			pull(stream);
+		}
+	}
+
+	private void writeHeaders(int streamId, HttpMessage message, byte[][] pseudoHeaders, boolean endStream) {
+		int estimatedSize = 0;
+		for (int i = 0; i < pseudoHeaders.length; i += 2) {
+			estimatedSize += HpackEncoder.estimateSize(pseudoHeaders[i].length, pseudoHeaders[i + 1].length);
+		}
+		message.decodeRawHeaders();
+		Object[] kvPairs = message.headers.kvPairs;
+		for (int i = 0; i < kvPairs.length - 1; i += 2) {
+			HttpHeader header = (HttpHeader) kvPairs[i];
+			if (header != null) {
+				estimatedSize += HpackEncoder.estimateSize(header.size(), ((HttpHeaderValue) kvPairs[i + 1]).estimateSize());
+			}
+		}
+
+		ByteBuf buf = ensureWriteBuffer(FRAME_HEADER_SIZE + HpackEncoder.SIZE_UPDATE_ESTIMATE + estimatedSize);
+		headersFrameOffset = buf.tail();
+		buf.tail(headersFrameOffset + FRAME_HEADER_SIZE);
+		hpackEncoder.beginHeaderBlock(buf);
+		for (int i = 0; i < pseudoHeaders.length; i += 2) {
+			hpackEncoder.encode(buf, pseudoHeaders[i], pseudoHeaders[i + 1], pseudoHeaders[i] != PATH);
+		}
+		for (int i = 0; i < kvPairs.length - 1; i += 2) {
+			HttpHeader header = (HttpHeader) kvPairs[i];
+			if (header == null || isConnectionSpecific(header)) continue;
+			byte[] value = toBytes((HttpHeaderValue) kvPairs[i + 1]);
+			hpackEncoder.encode(buf, header.toLowerCaseBytes(), value, isIndexable(header));
+		}
+		endHeaders(streamId, endStream);
+	}
+
+	private void endHeaders(int streamId, boolean endStream) {
+		assert writeBuf != null;
+		byte[] array = writeBuf.array();
+		int blockOffset = headersFrameOffset + FRAME_HEADER_SIZE;
+		int blockLength = writeBuf.tail() - blockOffset;
+		byte endStreamFlag = endStream ? FLAG_END_STREAM : 0;
+		if (blockLength <= peerMaxFrameSize) {
+			writeFrameHeader(array, headersFrameOffset, blockLength, HEADERS, (byte) (FLAG_END_HEADERS | endStreamFlag), streamId);
+			unflushedBytes += FRAME_HEADER_SIZE + blockLength;
+			flush();
+			return;
+		}
+		byte[] block = Arrays.copyOfRange(array, blockOffset, blockOffset + blockLength);
+		writeBuf.tail(headersFrameOffset);
+		writeFrame(HEADERS, endStreamFlag, streamId, block, 0, peerMaxFrameSize);
+		for (int offset = peerMaxFrameSize; offset < blockLength; offset += peerMaxFrameSize) {
+			int length = min(peerMaxFrameSize, blockLength - offset);
+			writeFrame(CONTINUATION, offset + length == blockLength ? FLAG_END_HEADERS : 0, streamId, block, offset, length);
+		}
+	}
+
+	private void pull(Stream stream) {
+		while (true) {
+			ChannelSupplier<ByteBuf> outbound = stream.outbound;
+			assert outbound != null && stream.outboundBuf == null;
+			Promise<ByteBuf> promise = outbound.get();
+			if (!promise.isComplete()) {
+				promise.run((buf, e) -> {
+					if (onPulled(stream, buf, e)) {
+						pull(stream);
+					}
+				});
+				return;
+			}
+			if (!onPulled(stream, promise.getResult(), promise.getException())) return;
+		}
+	}
+
+	/**
+	 * @return whether a next buffer of a stream body should be pulled right away
+	 */
+	private boolean onPulled(Stream stream, @Nullable ByteBuf buf, @Nullable Exception e) {
+		if (stream.closed || isClosed()) {
+			if (buf != null) buf.recycle();
+			return false;
+		}
+		if (e != null) {
+			resetStream(stream, INTERNAL_ERROR, "Failed to send a body: " + e.getMessage());
+			return false;
+		}
+		if (buf == null) {
+			stream.outbound = null;
+			buf = ByteBuf.empty();
+		}
+		stream.outboundBuf = buf;
+		return writePendingData(stream);
+	}
+
+	/**
+	 * Writes as much of pending stream data as flow control windows allow
+	 *
+	 * @return whether pending data has been fully written and a next buffer may be pulled
+	 */
+	private boolean writePendingData(Stream stream) {
+		ByteBuf buf = stream.outboundBuf;
+		assert buf != null;
+		boolean last = stream.outbound == null;
+		while (buf.canRead() || last) {
+			int size = min(buf.readRemaining(), min(min(sendWindow, stream.sendWindow), peerMaxFrameSize));
+			if (size <= 0 && buf.canRead()) {
+				stream.blocked = true;
+				if (!stream.queued) {
+					stream.queued = true;
+					blockedStreams.add(stream);
+				}
+				return false;
+			}
+			boolean endStream = last && size == buf.readRemaining();
+			writeDataFrame(stream.id, buf, size, endStream);
+			sendWindow -= size;
+			stream.sendWindow -= size;
+			if (endStream) break;
+		}
+		buf.recycle();
+		stream.outboundBuf = null;
+		if (last) {
+			onLocalEnd(stream);
+			return false;
+		}
+		if (unflushedBytes >= MAX_WRITE_BUFFER_SIZE) {
+			flushWaiters.add(stream);
+			return false;
+		}
+		return true;
+	}
+
+	private void resumeBlockedStreams() {
+		for (int i = blockedStreams.size(); i > 0 && sendWindow > 0; i--) {
+			Stream stream = blockedStreams.poll();
+			stream.queued = false;
+			if (!stream.blocked || stream.closed) continue;
+			stream.blocked = false;
+			if (writePendingData(stream)) {
+				pull(stream);
+			}
+		}
+	}
+
+	private void resumeFlushWaiters() {
+		while (unflushedBytes < MAX_WRITE_BUFFER_SIZE && !flushWaiters.isEmpty() && !isClosed()) {
+			Stream stream = flushWaiters.poll();
+			if (!stream.closed) {
+				pull(stream);
+			}
+		}
+	}
+
+	protected final void writeConnectionPreface() {
+		ByteBuf buf = ensureWriteBuffer(CONNECTION_PREFACE.length);
+		buf.put(CONNECTION_PREFACE);
+		unflushedBytes += CONNECTION_PREFACE.length;
+		flush();
+	}
+
+	private void writeSettings() {
+		ByteBuf buf = ensureWriteBuffer(FRAME_HEADER_SIZE + 6 * 4);
+		writeFrameHeader(6 * 4, SETTINGS, (byte) 0, 0);
+		writeSetting(buf, SETTINGS_ENABLE_PUSH, 0);
+		writeSetting(buf, SETTINGS_MAX_CONCURRENT_STREAMS, MAX_CONCURRENT_STREAMS);
+		writeSetting(buf, SETTINGS_INITIAL_WINDOW_SIZE, INITIAL_WINDOW_SIZE);
+		writeSetting(buf, SETTINGS_MAX_HEADER_LIST_SIZE, MAX_HEADER_LIST_SIZE);
+	}
+
+	private static void writeSetting(ByteBuf buf, int id, int value) {
+		buf.writeShort((short) id);
+		buf.writeInt(value);
+	}
+
+	protected final void writeWindowUpdate(int streamId, int increment) {
+		if (increment <= 0) return;
+		ByteBuf buf = ensureWriteBuffer(FRAME_HEADER_SIZE + 4);
+		writeFrameHeader(4, WINDOW_UPDATE, (byte) 0, streamId);
+		buf.writeInt(increment);
+	}
+
+	protected final void writeResetStream(int streamId, int errorCode) {
+		ByteBuf buf = ensureWriteBuffer(FRAME_HEADER_SIZE + 4);
+		writeFrameHeader(4, RST_STREAM, (byte) 0, streamId);
+		buf.writeInt(errorCode);
+	}
+
+	private void writeDataFrame(int streamId, ByteBuf data, int size, boolean endStream) {
+		writeFrame(DATA, endStream ? FLAG_END_STREAM : 0, streamId, data.array(), data.head(), size);
+		data.moveHead(size);
+	}
+
+	private void writeFrame(byte type, byte flags, int streamId, byte[] array, int offset, int length) {
+		ByteBuf buf = ensureWriteBuffer(FRAME_HEADER_SIZE + length);
+		writeFrameHeader(length, type, flags, streamId);
+		buf.put(array, offset, length);
+		unflushedBytes += length;
+	}
+
+	private void writeFrameHeader(int length, byte type, byte flags, int streamId) {
+		assert writeBuf != null;
+		writeFrameHeader(writeBuf.array(), writeBuf.tail(), length, type, flags, streamId);
+		writeBuf.moveTail(FRAME_HEADER_SIZE);
+		unflushedBytes += FRAME_HEADER_SIZE;
+		flush();
+	}
+
+	private static void writeFrameHeader(byte[] array, int offset, int length, byte type, byte flags, int streamId) {
+		array[offset] = (byte) (length >>> 16);
+		array[offset + 1] = (byte) (length >>> 8);
+		array[offset + 2] = (byte) length;
+		array[offset + 3] = type;
+		array[offset + 4] = flags;
+		array[offset + 5] = (byte) (streamId >>> 24);
+		array[offset + 6] = (byte) (streamId >>> 16);
+		array[offset + 7] = (byte) (streamId >>> 8);
+		array[offset + 8] = (byte) streamId;
+	}
+
+	private ByteBuf ensureWriteBuffer(int size) {
+		writeBuf = writeBuf == null ?
+				ByteBufPool.allocate(max(size, INITIAL_WRITE_BUFFER_SIZE)) :
+				ByteBufPool.ensureWriteRemaining(writeBuf, size);
+		return writeBuf;
+	}
+
+	private void flush() {
+		if (flushPosted) return;
+		flushPosted = true;
+		eventloop.postLast(this::doFlush);
+	}
+
+	private void doFlush() {
+		flushPosted = false;
+		if (writeBuf == null || isClosed()) return;
+		ByteBuf buf = writeBuf;
+		writeBuf = null;
+		int size = buf.readRemaining();
+		socket.write(buf)
+				.run(($, e) -> {
+					if (isClosed()) return;
+					if (e != null) {
+						closeEx(translateToHttpException(e));
+						return;
+					}
+					unflushedBytes -= size;
+					resumeFlushWaiters();
+				});
+	}
+
+	/**
+	 * Sends a GOAWAY frame and closes this connection once the frame is written
+	 */
+	protected final void goAway(@Nullable Http2Exception e) {
+		if (isClosed()) return;
+		if (goAwaySent) {
+			if (e != null) closeEx(e);
+			return;
+		}
+		goAwaySent = true;
+		ByteBuf buf = ensureWriteBuffer(FRAME_HEADER_SIZE + 8);
+		writeFrameHeader(8, GOAWAY, (byte) 0, 0);
+		buf.writeInt(lastPeerStreamId);
+		buf.writeInt(e == null ? NO_ERROR : e.getErrorCode());
+		writeBuf = null;
+		socket.write(buf)
+				.whenComplete(() -> {
+					if (e == null) {
+						close();
+					} else {
+						closeEx(e);
+					}
+				});
+	}
+	// endregion
+
+	@Override
+	protected final void onClosedWithError(@NotNull Exception e) {
+		closeError = e;
+	}
+
+	@Override
+	protected final void onClosed() {
+		Exception e = closeError != null ? closeError : new AsyncCloseException("Connection closed");
+		for (Stream stream : new ArrayList<>(streams.values())) {
+			closeStream(stream, e);
+		}
+		readBuf = nullify(readBuf, ByteBuf::recycle);
+		writeBuf = nullify(writeBuf, ByteBuf::recycle);
+		headerFragments = nullify(headerFragments, ByteBuf::recycle);
+		stashedBufs = nullify(stashedBufs, Recyclable::recycle);
+		blockedStreams.clear();
+		flushWaiters.clear();
+		onConnectionClosed(e);
+	}
+
+	// region HTTP/1 hooks, unused
+	@Override
+	protected final void onStartLine(byte[] line, int pos, int limit) {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+
+	@Override
+	protected final void onHeader(HttpHeader header, byte[] array, int off, int len) {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+
+	@Override
+	protected final void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier) {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+
+	@Override
+	protected final void onBodyReceived() {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+
+	@Override
+	protected final void onBodySent() {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+
+	@Override
+	protected final void onNoContentLength() {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+
+	@Override
+	protected final void readMessage() {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+
+	@Override
+	protected final void onMalformedHttpException(@NotNull MalformedHttpException e) {
+		throw new AssertionError("This method should not be called on HTTP/2 connection");
+	}
+	// endregion
+
+	private static boolean isConnectionSpecific(HttpHeader header) {
+		return header == CONNECTION || header == TRANSFER_ENCODING || header == UPGRADE || header == TE || header == HOST ||
+				header.equals(KEEP_ALIVE_HEADER) || header.equals(PROXY_CONNECTION_HEADER);
+	}
+
+	private static boolean isIndexable(HttpHeader header) {
+		return header != CONTENT_LENGTH && header != DATE && header != ETAG && header != LAST_MODIFIED &&
+				header != AUTHORIZATION && header != PROXY_AUTHORIZATION && header != SET_COOKIE && header != COOKIE;
+	}
+
+	private static byte[] toBytes(HttpHeaderValue value) {
+		byte[] bytes = new byte[value.estimateSize()];
+		int length = value.writeTo(bytes, 0);
+		return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+	}
+
+	private static int readInt(byte[] array, int offset) {
+		return (array[offset] & 0xFF) << 24 | (array[offset + 1] & 0xFF) << 16 | (array[offset + 2] & 0xFF) << 8 | (array[offset + 3] & 0xFF);
+	}
+
+	@Override
+	public String toString() {
+		return ", streams=" + streams.size() +
+				", goAwaySent=" + goAwaySent +
+				", goAwayReceived=" + goAwayReceived +
+				super.toString();
+	}
+
+	/**
+	 * Pseudo headers and regular header fields of a decoded header block.
+	 * Malformed header blocks are not rejected right away, as a whole block
+	 * has to be decoded to keep HPACK state in sync.
+	 */
+	protected static final class HeaderBlock implements HpackDecoder.HeaderListener {
+		byte @Nullable [] method;
+		byte @Nullable [] scheme;
+		byte @Nullable [] authority;
+		byte @Nullable [] path;
+		byte @Nullable [] status;
+		final List<byte[]> fields = new ArrayList<>();
+		@Nullable String malformed;
+
+		void reset() {
+			method = scheme = authority = path = status = null;
+			fields.clear();
+			malformed = null;
+		}
+
+		@Override
+		public void onHeader(byte[] name, byte[] value) {
+			if (name.length != 0 && name[0] == ':') {
+				if (!fields.isEmpty()) {
+					malformed = "Pseudo header after regular header";
+				} else if (Arrays.equals(name, METHOD)) {
+					method = checkPseudoHeader(method, value);
+				} else if (Arrays.equals(name, SCHEME)) {
+					scheme = checkPseudoHeader(scheme, value);
+				} else if (Arrays.equals(name, AUTHORITY)) {
+					authority = checkPseudoHeader(authority, value);
+				} else if (Arrays.equals(name, PATH)) {
+					path = checkPseudoHeader(path, value);
+				} else if (Arrays.equals(name, STATUS)) {
+					status = checkPseudoHeader(status, value);
+				} else {
+					malformed = "Unknown pseudo header";
+				}
+				return;
+			}
+			for (byte b : name) {
+				if (b >= 'A' && b <= 'Z') {
+					malformed = "Uppercase header name";
+					return;
+				}
+			}
+			if (fields.size() >= MAX_HEADERS * 2) {
+				malformed = "Too many headers";
+				return;
+			}
+			fields.add(name);
+			fields.add(value);
+		}
+
+		private byte[] checkPseudoHeader(byte @Nullable [] current, byte[] value) {
+			if (current != null) {
+				malformed = "Duplicate pseudo header";
+			}
+			return value;
+		}
+	}
+
+	protected final class Stream {
+		final int id;
+		int sendWindow = peerInitialWindowSize;
+		int receiveWindow = INITIAL_WINDOW_SIZE;
+		int consumedBytes;
+		long receivedBytes;
+		int maxBodySize;
+
+		boolean localEnd;
+		boolean remoteEnd;
+		boolean closed;
+
+		@Nullable BodySupplier inbound;
+		@Nullable ChannelSupplier<ByteBuf> outbound;
+		@Nullable ByteBuf outboundBuf;
+		boolean blocked;
+		boolean queued;
+
+		@Nullable SettablePromise<HttpResponse> responsePromise;
+		@Nullable HttpResponse response;
+		@Nullable BufsConsumerGzipInflater inflater;
+
+		Stream(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * A supplier of received DATA frames of a stream,
+	 * a peer is allowed to send more data only as this supplier is consumed
+	 */
+	private final class BodySupplier extends AbstractChannelSupplier<ByteBuf> {
+		private final Stream stream;
+		private final ArrayDeque<ByteBuf> queue = new ArrayDeque<>();
+		private @Nullable SettablePromise<ByteBuf> pending;
+		private boolean endOfStream;
+
+		BodySupplier(Stream stream) {
+			this.stream = stream;
+		}
+
+		void onData(ByteBuf buf) {
+			if (isClosed()) {
+				onConsumed(stream, buf.readRemaining());
+				buf.recycle();
+				return;
+			}
+			if (pending != null) {
+				SettablePromise<ByteBuf> pending = this.pending;
+				this.pending = null;
+				onConsumed(stream, buf.readRemaining());
+				pending.set(buf);
+				return;
+			}
+			queue.add(buf);
+		}
+
+		void onEndOfStream() {
+			endOfStream = true;
+			if (pending != null) {
+				SettablePromise<ByteBuf> pending = this.pending;
+				this.pending = null;
+				pending.set(null);
+			}
+		}
+
+		@Override
+		protected Promise<ByteBuf> doGet() {
+			ByteBuf buf = queue.poll();
+			if (buf != null) {
+				onConsumed(stream, buf.readRemaining());
+				return Promise.of(buf);
+			}
+			if (endOfStream) return Promise.of(null);
+			pending = new SettablePromise<>();
+			return pending;
+		}
+
+		@Override
+		protected void onClosed(@NotNull Exception e) {
+			queue.forEach(ByteBuf::recycle);
+			queue.clear();
+			if (pending != null) {
+				SettablePromise<ByteBuf> pending = this.pending;
+				this.pending = null;
+				pending.setException(e);
+			}
+			if (!stream.closed && !stream.remoteEnd && !Http2Connection.this.isClosed()) {
+				resetStream(stream, CANCEL, "Body stream closed");
+			}
+		}
+	}
+}
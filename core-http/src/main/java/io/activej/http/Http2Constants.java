@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.http;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+
+final class Http2Constants {
+	static final byte[] CONNECTION_PREFACE = encodeAscii("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n");
+
+	static final int FRAME_HEADER_SIZE = 9;
+	static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+	static final int DEFAULT_WINDOW_SIZE = 65535;
+	static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
+	static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+	// region frame types
+	static final byte DATA = 0x0;
+	static final byte HEADERS = 0x1;
+	static final byte PRIORITY = 0x2;
+	static final byte RST_STREAM = 0x3;
+	static final byte SETTINGS = 0x4;
+	static final byte PUSH_PROMISE = 0x5;
+	static final byte PING = 0x6;
+	static final byte GOAWAY = 0x7;
+	static final byte WINDOW_UPDATE = 0x8;
+	static final byte CONTINUATION = 0x9;
+	// endregion
+
+	// region flags
+	static final byte FLAG_END_STREAM = 0x1;
+	static final byte FLAG_ACK = 0x1;
+	static final byte FLAG_END_HEADERS = 0x4;
+	static final byte FLAG_PADDED = 0x8;
+	static final byte FLAG_PRIORITY = 0x20;
+	// endregion
+
+	// region settings
+	static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+	static final int SETTINGS_ENABLE_PUSH = 0x2;
+	static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+	static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+	static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+	// endregion
+
+	// region error codes
+	static final int NO_ERROR = 0x0;
+	static final int PROTOCOL_ERROR = 0x1;
+	static final int INTERNAL_ERROR = 0x2;
+	static final int FLOW_CONTROL_ERROR = 0x3;
+	static final int STREAM_CLOSED = 0x5;
+	static final int FRAME_SIZE_ERROR = 0x6;
+	static final int REFUSED_STREAM = 0x7;
+	static final int CANCEL = 0x8;
+	static final int COMPRESSION_ERROR = 0x9;
+	static final int ENHANCE_YOUR_CALM = 0xb;
+	// endregion
+
+	// region pseudo headers
+	static final byte[] METHOD = encodeAscii(":method");
+	static final byte[] SCHEME = encodeAscii(":scheme");
+	static final byte[] AUTHORITY = encodeAscii(":authority");
+	static final byte[] PATH = encodeAscii(":path");
+	static final byte[] STATUS = encodeAscii(":status");
+	// endregion
+
+	private Http2Constants() {
+	}
+}
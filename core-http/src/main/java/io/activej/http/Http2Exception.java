@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.http;
+
+/**
+ * An HTTP/2 error that corresponds to a {@code RST_STREAM} or a {@code GOAWAY} frame
+ * that has been sent or received.
+ * <p>
+ * Error codes are defined in RFC 7540, section 7.
+ */
+public final class Http2Exception extends HttpException {
+	private final int errorCode;
+
+	public Http2Exception(int errorCode, String message) {
+		super(message);
+		this.errorCode = errorCode;
+	}
+
+	public int getErrorCode() {
+		return errorCode;
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.Checks;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AsyncHttpServer.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketSsl;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.common.Checks.checkState;
+import static io.activej.common.exception.FatalErrorHandlers.handleError;
+import static io.activej.http.Http2Constants.*;
+import static io.activej.http.HttpHeaders.HOST;
+import static io.activej.http.HttpVersion.HTTP_2_0;
+import static io.activej.http.Protocol.HTTP;
+import static io.activej.http.Protocol.HTTPS;
+
+/**
+ * A server side of HTTP/2 connection.
+ * <p>
+ * Each stream carries a single {@link HttpRequest}, which is served by a servlet
+ * concurrently with other streams of the same connection.
+ */
+final class Http2ServerConnection extends Http2Connection {
+	private static final boolean CHECK = Checks.isEnabled(Http2ServerConnection.class);
+
+	private final InetAddress remoteAddress;
+
+	private final AsyncHttpServer server;
+	private final AsyncServlet servlet;
+	private final @Nullable Inspector inspector;
+
+	Http2ServerConnection(Eventloop eventloop, AsyncTcpSocket asyncTcpSocket, InetAddress remoteAddress,
+			AsyncHttpServer server, AsyncServlet servlet) {
+		super(eventloop, asyncTcpSocket, server.maxBodySize);
+		this.remoteAddress = remoteAddress;
+		this.server = server;
+		this.servlet = servlet;
+		this.inspector = server.inspector;
+	}
+
+	/**
+	 * Starts serving this connection
+	 *
+	 * @param readBuf data which has already been read from a socket
+	 *                after a connection preface, if any
+	 */
+	void serve(@Nullable ByteBuf readBuf) {
+		(pool = server.poolKeepAlive).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		start(readBuf);
+	}
+
+	@Override
+	protected boolean isIdle(int streamId) {
+		return (streamId & 1) == 0 || streamId > lastPeerStreamId;
+	}
+
+	@Override
+	protected void onHeaders(int streamId, boolean endStream, byte[] array, int offset, int length) throws Http2Exception {
+		decodeHeaderBlock(array, offset, length);
+		Stream existing = streams.get(streamId);
+		if (existing != null) {
+			// trailers
+			if (existing.remoteEnd) {
+				resetStream(existing, STREAM_CLOSED, "Headers after END_STREAM flag");
+				return;
+			}
+			if (!endStream) {
+				resetStream(existing, PROTOCOL_ERROR, "Trailers without END_STREAM flag");
+				return;
+			}
+			onRemoteEnd(existing);
+			return;
+		}
+		if ((streamId & 1) == 0 || streamId <= lastPeerStreamId) {
+			throw new Http2Exception(PROTOCOL_ERROR, "Invalid stream identifier: " + streamId);
+		}
+		lastPeerStreamId = streamId;
+		if (goAwaySent || streams.size() >= MAX_CONCURRENT_STREAMS) {
+			writeResetStream(streamId, REFUSED_STREAM);
+			return;
+		}
+		if (headerBlock.malformed != null || headerBlock.method == null || headerBlock.scheme == null ||
+				headerBlock.path == null || headerBlock.status != null) {
+			writeResetStream(streamId, PROTOCOL_ERROR);
+			return;
+		}
+		HttpMethod method = getHttpMethod(headerBlock.method);
+		if (method == null) {
+			writeResetStream(streamId, PROTOCOL_ERROR);
+			return;
+		}
+		HttpRequest request;
+		try {
+			request = new HttpRequest(HTTP_2_0, method, UrlParser.parse(headerBlock.path, 0, headerBlock.path.length), null);
+		} catch (MalformedHttpException e) {
+			writeResetStream(streamId, PROTOCOL_ERROR);
+			return;
+		}
+		request.maxBodySize = maxBodySize;
+		if (headerBlock.authority != null) {
+			request.addHeader(HOST, headerBlock.authority);
+		}
+		boolean gzipped = addHeaders(request);
+
+		Stream stream = openStream(streamId);
+		setInboundBody(request, stream, endStream, gzipped);
+		request.setProtocol(socket instanceof AsyncTcpSocketSsl ? HTTPS : HTTP);
+		request.setRemoteAddress(remoteAddress);
+		numberOfRequests++;
+		if (endStream) {
+			stream.remoteEnd = true;
+		}
+		if (inspector != null) inspector.onHttpRequest(request);
+
+		switchPool(server.poolServing);
+
+		Promise<HttpResponse> servletResult;
+		try {
+			servletResult = server.concurrencyLimiter == null ?
+					servlet.serveAsync(request) :
+					server.concurrencyLimiter.serve(request, servlet);
+		} catch (Exception e) {
+			handleError(e, this);
+			servletResult = Promise.ofException(e);
+		}
+		servletResult.run((response, e) -> {
+			if (CHECK) checkState(eventloop.inEventloopThread());
+			if (isClosed() || stream.closed) {
+				request.recycle();
+				if (response != null) {
+					response.recycleBody();
+				}
+				return;
+			}
+			if (e == null) {
+				if (inspector != null) {
+					inspector.onHttpResponse(request, response);
+				}
+			} else {
+				if (inspector != null) {
+					inspector.onServletException(request, e);
+				}
+				response = server.formatHttpError(e);
+			}
+			request.recycle();
+			writeMessage(stream, response, new byte[][]{STATUS, encodeAscii(Integer.toString(response.getCode()))});
+		});
+	}
+
+	private static @Nullable HttpMethod getHttpMethod(byte[] method) {
+		for (HttpMethod httpMethod : HttpMethod.values()) {
+			if (httpMethod.compareTo(method, 0, method.length)) {
+				return httpMethod;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected void onStreamClosed(Stream stream, @Nullable Exception e) {
+		if (isClosed() || !streams.isEmpty()) return;
+		if (server.keepAliveTimeoutMillis == 0 ||
+				numberOfRequests >= server.maxKeepAliveRequests && server.maxKeepAliveRequests != 0) {
+			goAway(null);
+		} else {
+			switchPool(server.poolKeepAlive);
+		}
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		if (streams.isEmpty()) {
+			goAway(null);
+		}
+	}
+
+	@Override
+	protected void onConnectionClosed(@NotNull Exception e) {
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		server.onConnectionClosed();
+	}
+
+	public InetAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ServerConnection{" +
+				"remoteAddress=" + remoteAddress +
+				super.toString() +
+				'}';
+	}
+}
@@ -33,12 +33,14 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
 
 import static io.activej.bytebuf.ByteBufStrings.SP;
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.common.Utils.nullify;
 import static io.activej.csp.ChannelSuppliers.concat;
 import static io.activej.http.HttpHeaders.CONNECTION;
+import static io.activej.http.HttpHeaders.SEC_WEBSOCKET_EXTENSIONS;
 import static io.activej.http.HttpHeaders.SEC_WEBSOCKET_KEY;
 import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
 import static io.activej.http.HttpUtils.*;
@@ -97,18 +99,22 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 
 	private @Nullable SettablePromise<HttpResponse> promise;
 	private @Nullable HttpResponse response;
+	private @Nullable ArrayDeque<SettablePromise<HttpResponse>> pipeline;
 	private final AsyncHttpClient client;
 	private final @Nullable Inspector inspector;
 
+	final AddressPool addressPool;
 	final InetSocketAddress remoteAddress;
+	@Nullable AddressLinkedList addressList;
 	@Nullable HttpClientConnection addressPrev;
 	HttpClientConnection addressNext;
 
-	HttpClientConnection(Eventloop eventloop, AsyncHttpClient client, AsyncTcpSocket asyncTcpSocket, InetSocketAddress remoteAddress) {
+	HttpClientConnection(Eventloop eventloop, AsyncHttpClient client, AsyncTcpSocket asyncTcpSocket, AddressPool addressPool) {
 		super(eventloop, asyncTcpSocket, client.maxBodySize);
 		this.client = client;
 		this.inspector = client.inspector;
-		this.remoteAddress = remoteAddress;
+		this.addressPool = addressPool;
+		this.remoteAddress = addressPool.address;
 	}
 
 	public PoolLabel getCurrentPool() {
@@ -121,6 +127,13 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 		return remoteAddress;
 	}
 
+	/**
+	 * Returns a number of pipelined requests which wait for responses after the current one
+	 */
+	public int getPipelinedRequests() {
+		return pipeline == null ? 0 : pipeline.size();
+	}
+
 	@Override
 	protected void readMessage() throws MalformedHttpException {
 		readStartLine();
@@ -134,6 +147,7 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 			this.promise = null;
 			promise.setException(e);
 		}
+		failPipeline(e);
 	}
 
 	@Override
@@ -278,6 +292,10 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 
 		byte[] encodedKey = generateWebSocketKey();
 		request.addHeader(SEC_WEBSOCKET_KEY, encodedKey);
+		WebSocketCompression compression = client.webSocketCompression;
+		if (compression != null) {
+			request.addHeader(SEC_WEBSOCKET_EXTENSIONS, compression.offer());
+		}
 
 		ChannelZeroBuffer<ByteBuf> buffer = new ChannelZeroBuffer<>();
 		request.bodyStream = sanitize(buffer.getSupplier());
@@ -294,14 +312,30 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 						closeEx(HANDSHAKE_FAILED);
 						return Promise.ofException(HANDSHAKE_FAILED);
 					}
+					String extensions = res.getHeader(SEC_WEBSOCKET_EXTENSIONS);
+					PerMessageDeflate deflate;
+					if (compression != null) {
+						try {
+							deflate = compression.validate(extensions);
+						} catch (HttpException e) {
+							closeEx(e);
+							return Promise.ofException(e);
+						}
+					} else if (extensions != null && !extensions.trim().isEmpty()) {
+						closeEx(HANDSHAKE_FAILED);
+						return Promise.ofException(HANDSHAKE_FAILED);
+					} else {
+						deflate = null;
+					}
 					int maxWebSocketMessageSize = client.maxWebSocketMessageSize;
 
-					WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(true);
+					WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(true, deflate);
 					WebSocketBufsToFrames decoder = WebSocketBufsToFrames.create(
 							maxWebSocketMessageSize,
 							encoder::sendPong,
 							ByteBuf::recycle,
-							false);
+							false,
+							deflate);
 
 					bindWebSocketTransformers(encoder, decoder);
 
@@ -311,7 +345,9 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 							res.takeBodyStream().transformWith(decoder),
 							buffer.getConsumer().transformWith(encoder),
 							decoder::onProtocolError,
-							maxWebSocketMessageSize
+							maxWebSocketMessageSize,
+							true,
+							deflate
 					));
 				})
 				.whenException(e -> closeEx(translateToHttpException(e)));
@@ -368,27 +404,43 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 		if ((flags & KEEP_ALIVE) != 0 &&
 				client.keepAliveTimeoutMillis != 0 &&
 				((flags & CHUNKED) != 0 || contentLength != UNSET_CONTENT_LENGTH)) {
-			flags = 0;
-			socket.read()
-					.run((buf, e) -> {
-						if (e == null) {
-							if (buf != null) {
-								buf.recycle();
-								closeEx(new HttpException("Unexpected read data"));
-							} else {
-								close();
-							}
-						} else {
-							closeEx(translateToHttpException(e));
-						}
-					});
-			if (isClosed()) return;
-			client.returnToKeepAlivePool(this);
+			if (pipeline != null && !pipeline.isEmpty()) {
+				// a pipelined request has already been sent, proceed with reading its response
+				promise = pipeline.poll();
+				flags = BODY_SENT;
+				poolTimestamp = eventloop.currentTimeMillis();
+				readHttpResponse();
+				return;
+			}
+			returnToKeepAlive();
 		} else {
 			close();
 		}
 	}
 
+	/**
+	 * Puts an idle connection to keep-alive pool, the connection is closed
+	 * if it receives any data or end of stream while being idle
+	 */
+	void returnToKeepAlive() {
+		flags = 0;
+		socket.read()
+				.run((buf, e) -> {
+					if (e == null) {
+						if (buf != null) {
+							buf.recycle();
+							closeEx(new HttpException("Unexpected read data"));
+						} else {
+							close();
+						}
+					} else {
+						closeEx(translateToHttpException(e));
+					}
+				});
+		if (isClosed()) return;
+		client.returnToKeepAlivePool(this);
+	}
+
 	/**
 	 * Sends the request, recycles it and closes connection in case of timeout
 	 *
@@ -400,12 +452,10 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 		this.promise = promise;
 		(pool = client.poolReadWrite).addLastNode(this);
 		poolTimestamp = eventloop.currentTimeMillis();
-		HttpHeaderValue connectionHeader = CONNECTION_KEEP_ALIVE_HEADER;
-		if (++numberOfRequests >= client.maxKeepAliveRequests && client.maxKeepAliveRequests != 0
-				|| client.keepAliveTimeoutMillis == 0) {
-			connectionHeader = CONNECTION_CLOSE_HEADER;
-		}
-		request.addHeader(CONNECTION, connectionHeader);
+		request.addHeader(CONNECTION, ++numberOfRequests >= client.maxKeepAliveRequests && client.maxKeepAliveRequests != 0
+				|| client.keepAliveTimeoutMillis == 0 ?
+				CONNECTION_CLOSE_HEADER :
+				CONNECTION_KEEP_ALIVE_HEADER);
 		ByteBuf buf = renderHttpMessage(request);
 		if (buf != null) {
 			writeBuf(buf);
@@ -418,6 +468,53 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 		return promise;
 	}
 
+	/**
+	 * Checks whether a request may be pipelined after the requests which are in progress on this connection.
+	 * Only connections which have already been kept alive by a server and which are not going to be closed
+	 * after the next request may pipeline requests. A request is never pipelined while the body
+	 * of the current request is still being streamed, as it would be interleaved with the body.
+	 */
+	boolean canPipeline() {
+		return !isClosed() && !isWebSocket() && promise != null &&
+				(flags & BODY_SENT) != 0 &&
+				numberOfRequests > 1 &&
+				client.keepAliveTimeoutMillis != 0 &&
+				(client.maxKeepAliveRequests == 0 || numberOfRequests + 1 < client.maxKeepAliveRequests);
+	}
+
+	/**
+	 * Sends a request without waiting for responses to the previous requests,
+	 * the responses are received in the order the requests have been sent
+	 *
+	 * @param request request without a body
+	 */
+	Promise<HttpResponse> sendPipelined(HttpRequest request) {
+		assert canPipeline();
+		SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		if (pipeline == null) {
+			pipeline = new ArrayDeque<>();
+		}
+		pipeline.add(promise);
+		numberOfRequests++;
+		request.addHeader(CONNECTION, CONNECTION_KEEP_ALIVE_HEADER);
+		ByteBuf buf = renderHttpMessage(request);
+		assert buf != null;
+		socket.write(buf)
+				.whenException(e -> {
+					if (isClosed()) return;
+					closeEx(translateToHttpException(e));
+				});
+		return promise;
+	}
+
+	private void failPipeline(Exception e) {
+		if (pipeline == null) return;
+		SettablePromise<HttpResponse> pipelined;
+		while ((pipelined = pipeline.poll()) != null) {
+			pipelined.setException(e);
+		}
+	}
+
 	/**
 	 * After closing this connection it removes it from its connections cache and recycles
 	 * Http response.
@@ -430,12 +527,9 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 			this.promise = null;
 			promise.setException(new AsyncCloseException("Connection closed"));
 		}
-		if (pool == client.poolKeepAlive) {
-			AddressLinkedList addresses = client.addresses.get(remoteAddress);
-			addresses.removeNode(this);
-			if (addresses.isEmpty()) {
-				client.addresses.remove(remoteAddress);
-			}
+		failPipeline(new AsyncCloseException("Connection closed"));
+		if (addressList != null) {
+			addressList.removeNode(this);
 		}
 
 		// pool will be null if socket was closed by the value just before connection.send() invocation
@@ -444,6 +538,7 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 		pool.removeNode(this);
 
 		client.onConnectionClosed();
+		client.onAddressConnectionClosed(addressPool);
 		response = nullify(response, HttpMessage::recycle);
 		readBuf = nullify(readBuf, ByteBuf::recycle);
 		stashedBufs = nullify(stashedBufs, Recyclable::recycle);
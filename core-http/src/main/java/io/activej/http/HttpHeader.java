@@ -40,6 +40,31 @@ public final class HttpHeader extends Token {
 		return length + offset;
 	}
 
+	byte[] toLowerCaseBytes() {
+		if (lowerCase != null) return lowerCase;
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			byte b = bytes[offset + i];
+			result[i] = (b >= 'A' && b <= 'Z') ? (byte) (b + 'a' - 'A') : b;
+		}
+		return result;
+	}
+
+	boolean equalsIgnoreCase(byte[] array, int offset, int length) {
+		if (this.length != length) return false;
+		for (int i = 0; i < length; i++) {
+			byte thisChar = this.bytes[this.offset + i];
+			byte thatChar = array[offset + i];
+			if (thisChar >= 'A' && thisChar <= 'Z')
+				thisChar += 'a' - 'A';
+			if (thatChar >= 'A' && thatChar <= 'Z')
+				thatChar += 'a' - 'A';
+			if (thisChar != thatChar)
+				return false;
+		}
+		return true;
+	}
+
 	@Override
 	public int hashCode() {
 		return hashCodeCI;
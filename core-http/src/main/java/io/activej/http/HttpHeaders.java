@@ -17,6 +17,7 @@
 package io.activej.http;
 
 import io.activej.common.ApplicationSettings;
+import org.jetbrains.annotations.Nullable;
 
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 
@@ -116,6 +117,7 @@ public final class HttpHeaders {
 	public static final HttpHeader SEC_WEBSOCKET_KEY = headers.register("Sec-WebSocket-Key");
 	public static final HttpHeader SEC_WEBSOCKET_ACCEPT = headers.register("Sec-WebSocket-Accept");
 	public static final HttpHeader SEC_WEBSOCKET_VERSION = headers.register("Sec-WebSocket-Version");
+	public static final HttpHeader SEC_WEBSOCKET_EXTENSIONS = headers.register("Sec-WebSocket-Extensions");
 
 	public static HttpHeader register(String headerName){
 		return headers.register(headerName);
@@ -125,6 +127,14 @@ public final class HttpHeaders {
 		return headers.getOrCreate(hashCodeCI, array, offset, length);
 	}
 
+	/**
+	 * Returns a registered header for given input, or null if no such header was registered.
+	 * Unlike {@link #of(int, byte[], int, int)}, never creates a new header
+	 */
+	static @Nullable HttpHeader getRegistered(int hashCodeCI, byte[] array, int offset, int length) {
+		return headers.get(hashCodeCI, array, offset, length);
+	}
+
 	public static HttpHeader of(String string) {
 		byte[] array = encodeAscii(string);
 		return headers.getOrCreate(array, 0, array.length);
@@ -43,6 +43,7 @@ import static java.util.Collections.emptySet;
 @SuppressWarnings({"unused", "WeakerAccess", "PointlessBitwiseExpression"})
 public abstract class HttpMessage {
 	private static final boolean CHECK = Checks.isEnabled(HttpMessage.class);
+	private static final int RAW_HEADER_FIELDS = 5;
 
 	/**
 	 * This flag means that the body of this message should not be streamed
@@ -68,6 +69,16 @@ public abstract class HttpMessage {
 	byte flags;
 
 	final HttpHeadersMultimap<HttpHeader, HttpHeaderValue> headers = new HttpHeadersMultimap<>();
+
+	/**
+	 * Received headers which are not decoded yet, kept as groups of
+	 * {@code RAW_HEADER_FIELDS} ints (case-insensitive hash code of a name,
+	 * name offset, name length, value offset, value length) within {@code rawHeadersArray}
+	 */
+	private int @Nullable [] rawHeaders;
+	private byte @Nullable [] rawHeadersArray;
+	private int rawHeadersSize;
+
 	@Nullable ByteBuf body;
 	@Nullable ChannelSupplier<ByteBuf> bodyStream;
 
@@ -99,16 +110,76 @@ public abstract class HttpMessage {
 
 	public void addHeader(@NotNull HttpHeader header, @NotNull HttpHeaderValue value) {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawHeaders();
 		headers.add(header, value);
 	}
 
+	/**
+	 * Adds a received header whose name and value are kept as offsets within a given array.
+	 * The header is decoded into {@link HttpHeader} and {@link HttpHeaderValue} only once
+	 * it is requested by anything but {@link #getHeader(HttpHeader)} and {@link #getHeaderBuf(HttpHeader)}
+	 */
+	void addRawHeader(int hashCodeCI, byte[] array, int nameOffset, int nameLength, int valueOffset, int valueLength) {
+		if (rawHeadersArray != array) {
+			decodeRawHeaders();
+			rawHeadersArray = array;
+		}
+		int offset = rawHeadersSize * RAW_HEADER_FIELDS;
+		if (rawHeaders == null) {
+			rawHeaders = new int[HttpHeadersMultimap.INITIAL_SIZE * RAW_HEADER_FIELDS];
+		} else if (offset == rawHeaders.length) {
+			rawHeaders = Arrays.copyOf(rawHeaders, offset * 2);
+		}
+		rawHeaders[offset] = hashCodeCI;
+		rawHeaders[offset + 1] = nameOffset;
+		rawHeaders[offset + 2] = nameLength;
+		rawHeaders[offset + 3] = valueOffset;
+		rawHeaders[offset + 4] = valueLength;
+		rawHeadersSize++;
+	}
+
+	void decodeRawHeaders() {
+		if (rawHeadersSize == 0) return;
+		assert rawHeaders != null && rawHeadersArray != null;
+		for (int i = 0; i < rawHeadersSize * RAW_HEADER_FIELDS; i += RAW_HEADER_FIELDS) {
+			HttpHeader header = HttpHeaders.of(rawHeaders[i], rawHeadersArray, rawHeaders[i + 1], rawHeaders[i + 2]);
+			headers.add(header, HttpHeaderValue.ofBytes(rawHeadersArray, rawHeaders[i + 3], rawHeaders[i + 4]));
+		}
+		rawHeadersSize = 0;
+		rawHeadersArray = null;
+	}
+
+	/**
+	 * Returns an offset of the first raw header with a given name within raw headers, or -1 if there is no such header
+	 */
+	private int findRawHeader(HttpHeader header) {
+		int hashCodeCI = header.hashCode();
+		for (int i = 0; i < rawHeadersSize * RAW_HEADER_FIELDS; i += RAW_HEADER_FIELDS) {
+			//noinspection ConstantConditions
+			if (rawHeaders[i] == hashCodeCI && header.equalsIgnoreCase(rawHeadersArray, rawHeaders[i + 1], rawHeaders[i + 2])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	int getHeadersCount() {
+		return headers.size() + rawHeadersSize;
+	}
+
+	boolean containsHeader(@NotNull HttpHeader header) {
+		return findRawHeader(header) != -1 || headers.get(header) != null;
+	}
+
 	public final Collection<Map.Entry<HttpHeader, HttpHeaderValue>> getHeaders() {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawHeaders();
 		return headers.getEntries();
 	}
 
 	public final <T> @NotNull List<T> getHeader(@NotNull HttpHeader header, @NotNull HttpHeaderValue.DecoderIntoList<T> decoder) {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawHeaders();
 		List<T> list = new ArrayList<>();
 		for (int i = header.hashCode() & (headers.kvPairs.length - 2); ; i = (i + 2) & (headers.kvPairs.length - 2)) {
 			HttpHeader k = (HttpHeader) headers.kvPairs[i];
@@ -140,14 +211,21 @@ public abstract class HttpMessage {
 
 	public final @Nullable String getHeader(@NotNull HttpHeader header) {
 		if (CHECK) checkState(!isRecycled());
+		// decoded headers always precede raw ones
 		HttpHeaderValue headerValue = headers.get(header);
-		return headerValue != null ? headerValue.toString() : null;
+		if (headerValue != null) return headerValue.toString();
+		int raw = findRawHeader(header);
+		//noinspection ConstantConditions
+		return raw != -1 ? decodeAscii(rawHeadersArray, rawHeaders[raw + 3], rawHeaders[raw + 4]) : null;
 	}
 
 	public final @Nullable ByteBuf getHeaderBuf(@NotNull HttpHeader header) {
 		if (CHECK) checkState(!isRecycled());
 		HttpHeaderValue headerBuf = headers.get(header);
-		return headerBuf != null ? headerBuf.getBuf() : null;
+		if (headerBuf != null) return headerBuf.getBuf();
+		int raw = findRawHeader(header);
+		//noinspection ConstantConditions
+		return raw != -1 ? ByteBuf.wrap(rawHeadersArray, rawHeaders[raw + 3], rawHeaders[raw + 3] + rawHeaders[raw + 4]) : null;
 	}
 
 	public void addCookies(HttpCookie... cookies) {
@@ -447,6 +525,7 @@ public abstract class HttpMessage {
 
 	protected void writeHeaders(@NotNull ByteBuf buf) {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawHeaders();
 		byte[] array = buf.array();
 		int offset = buf.tail();
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
@@ -470,6 +549,7 @@ public abstract class HttpMessage {
 
 	protected int estimateSize(int firstLineSize) {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawHeaders();
 		int size = firstLineSize;
 		// CR,LF,header,": ",value
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
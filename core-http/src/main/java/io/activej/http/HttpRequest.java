@@ -28,6 +28,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -68,6 +69,9 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 	private final HttpServerConnection connection;
 	private InetAddress remoteAddress;
 	private Map<String, String> pathParameters;
+	private String[] rawPathParameterKeys;
+	private int[] rawPathParameterBounds;
+	private int rawPathParametersSize;
 	private Map<String, String> queryParameters;
 	private Map<String, String> postParameters;
 
@@ -311,11 +315,13 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 
 	public @NotNull Map<String, String> getPathParameters() {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawPathParameters();
 		return pathParameters != null ? pathParameters : emptyMap();
 	}
 
 	public @NotNull String getPathParameter(@NotNull String key) {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawPathParameters();
 		if (pathParameters != null) {
 			String pathParameter = pathParameters.get(key);
 			if (pathParameter != null) {
@@ -362,17 +368,60 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 
 	void removePathParameter(String key) {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawPathParameters();
 		pathParameters.remove(key);
 	}
 
 	void putPathParameter(String key, @NotNull String value) {
 		if (CHECK) checkState(!isRecycled());
+		decodeRawPathParameters();
 		if (pathParameters == null) {
 			pathParameters = new HashMap<>();
 		}
 		pathParameters.put(key, value);
 	}
 
+	/**
+	 * Puts a path parameter whose value is a part of the raw url between given indices.
+	 * The value is decoded only once path parameters are requested
+	 */
+	void putRawPathParameter(String key, int start, int end) {
+		if (CHECK) checkState(!isRecycled());
+		if (rawPathParameterKeys == null) {
+			rawPathParameterKeys = new String[4];
+			rawPathParameterBounds = new int[8];
+		} else if (rawPathParametersSize == rawPathParameterKeys.length) {
+			rawPathParameterKeys = Arrays.copyOf(rawPathParameterKeys, rawPathParametersSize * 2);
+			rawPathParameterBounds = Arrays.copyOf(rawPathParameterBounds, rawPathParametersSize * 4);
+		}
+		rawPathParameterKeys[rawPathParametersSize] = key;
+		rawPathParameterBounds[rawPathParametersSize * 2] = start;
+		rawPathParameterBounds[rawPathParametersSize * 2 + 1] = end;
+		rawPathParametersSize++;
+	}
+
+	void removeRawPathParameter(String key) {
+		if (CHECK) checkState(!isRecycled());
+		if (rawPathParametersSize != 0) {
+			rawPathParameterKeys[--rawPathParametersSize] = null;
+		} else {
+			pathParameters.remove(key);
+		}
+	}
+
+	private void decodeRawPathParameters() {
+		if (rawPathParametersSize == 0) return;
+		if (pathParameters == null) {
+			pathParameters = new HashMap<>();
+		}
+		for (int i = 0; i < rawPathParametersSize; i++) {
+			String value = url.decodeUrlPart(rawPathParameterBounds[i * 2], rawPathParameterBounds[i * 2 + 1]);
+			pathParameters.put(rawPathParameterKeys[i], value);
+			rawPathParameterKeys[i] = null;
+		}
+		rawPathParametersSize = 0;
+	}
+
 	@Override
 	protected int estimateSize() {
 		return estimateSize(LONGEST_HTTP_METHOD_SIZE
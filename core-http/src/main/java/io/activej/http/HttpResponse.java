@@ -239,8 +239,11 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 			offset = 0;
 		}
 		response.addHeader(CONTENT_LENGTH, Long.toString(contentLength));
-		response.setBodyStream(ChannelSupplier.ofPromise(downloader.getFileSlice(offset, contentLength)));
-		return Promise.of(response);
+		return downloader.getFileSlice(offset, contentLength)
+				.map(supplier -> {
+					response.setBodyStream(supplier);
+					return response;
+				});
 	}
 
 	public static @NotNull Promise<HttpResponse> file(FileSliceSupplier downloader, String name, long size) {
@@ -39,6 +39,7 @@ import static io.activej.common.Checks.checkState;
 import static io.activej.common.Utils.nullify;
 import static io.activej.common.exception.FatalErrorHandlers.handleError;
 import static io.activej.csp.ChannelSuppliers.concat;
+import static io.activej.http.Http2Constants.CONNECTION_PREFACE;
 import static io.activej.http.HttpHeaderValue.ofBytes;
 import static io.activej.http.HttpHeaderValue.ofDecimal;
 import static io.activej.http.HttpHeaders.*;
@@ -130,6 +131,7 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 
 	@Override
 	protected void readMessage() throws MalformedHttpException {
+		if (server.http2 && numberOfRequests == 0 && switchToHttp2()) return;
 		do {
 			contentLength = 0L; // RFC 7230, section 3.3.3: if no Content-Length header is set, server can assume that a length of a message is 0
 			flags = READING_MESSAGES;
@@ -146,6 +148,40 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		}
 	}
 
+	/**
+	 * Hands this connection over to {@link Http2ServerConnection}
+	 * if it starts with HTTP/2 connection preface
+	 *
+	 * @return {@code false} if this is not an HTTP/2 connection
+	 */
+	private boolean switchToHttp2() {
+		byte[] array = readBuf.array();
+		int head = readBuf.head();
+		int size = min(readBuf.readRemaining(), CONNECTION_PREFACE.length);
+		for (int i = 0; i < size; i++) {
+			if (array[head + i] != CONNECTION_PREFACE[i]) return false;
+		}
+		if (size < CONNECTION_PREFACE.length) {
+			socket.read().run(readMessageConsumer);
+			return true;
+		}
+		readBuf.moveHead(CONNECTION_PREFACE.length);
+		ByteBuf readBuf = this.readBuf;
+		this.readBuf = null;
+		if (!readBuf.canRead()) {
+			readBuf.recycle();
+			readBuf = null;
+		}
+		stashedBufs = nullify(stashedBufs, Recyclable::recycle);
+		flags |= CLOSED;
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		pool = null;
+		if (inspector != null) inspector.onDisconnect(this);
+		new Http2ServerConnection(eventloop, socket, remoteAddress, server, servlet).serve(readBuf);
+		return true;
+	}
+
 	@Override
 	protected void onClosedWithError(@NotNull Exception e) {
 		if (inspector != null) {
@@ -257,14 +293,36 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 	 */
 	@Override
 	protected void onHeader(HttpHeader header, byte[] array, int off, int len) throws MalformedHttpException {
+		checkHeader(header, array, off, len);
+		//noinspection ConstantConditions
+		request.addHeader(header, array, off, len);
+	}
+
+	/**
+	 * In lazy headers mode, keeps received header as offsets within a read buffer
+	 *
+	 * @see AsyncHttpServer#withLazyHeaders()
+	 */
+	@Override
+	protected void onRawHeader(@Nullable HttpHeader header, int hashCodeCI, byte[] array,
+			int nameOffset, int nameLength, int valueOffset, int valueLength) throws MalformedHttpException {
+		if (!server.lazyHeaders) {
+			super.onRawHeader(header, hashCodeCI, array, nameOffset, nameLength, valueOffset, valueLength);
+			return;
+		}
+		checkHeader(header, array, valueOffset, valueLength);
+		//noinspection ConstantConditions
+		request.addRawHeader(hashCodeCI, array, nameOffset, nameLength, valueOffset, valueLength);
+	}
+
+	private void checkHeader(@Nullable HttpHeader header, byte[] array, int off, int len) throws MalformedHttpException {
 		if (header == HttpHeaders.EXPECT && equalsLowerCaseAscii(EXPECT_100_CONTINUE, array, off, len)) {
 			socket.write(ByteBuf.wrapForReading(EXPECT_RESPONSE_CONTINUE));
 		}
 		//noinspection ConstantConditions
-		if (request.headers.size() >= MAX_HEADERS) {
+		if (request.getHeadersCount() >= MAX_HEADERS) {
 			throw new MalformedHttpException("Too many headers");
 		}
-		request.addHeader(header, array, off, len);
 	}
 
 	private void writeHttpResponse(HttpResponse httpResponse) {
@@ -362,11 +420,17 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		HttpRequest request = this.request;
 		Promise<HttpResponse> servletResult;
 		try {
-			servletResult = servlet.serveAsync(request);
+			servletResult = server.concurrencyLimiter == null ?
+					servlet.serveAsync(request) :
+					server.concurrencyLimiter.serve(request, servlet);
 		} catch (Exception e) {
 			handleError(e, this);
 			servletResult = Promise.ofException(e);
 		}
+		if (server.compressor != null) {
+			ResponseCompressor compressor = server.compressor;
+			servletResult = servletResult.then(response -> compressor.compress(request, response));
+		}
 		servletResult.run((response, e) -> {
 			if (CHECK) checkState(eventloop.inEventloopThread());
 			if (isClosed()) {
@@ -409,6 +473,10 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		request.recycle();
 	}
 
+	@Nullable WebSocketCompression getWebSocketCompression() {
+		return server.webSocketCompression;
+	}
+
 	@SuppressWarnings("ConstantConditions")
 	private boolean processWebSocketRequest(@Nullable ByteBuf body) {
 		if (body != null && body.readRemaining() == 0) {
@@ -396,6 +396,32 @@ public final class HttpUtils {
 		return header == null || !getWebSocketAnswer(new String(key, ISO_8859_1)).equals(header.trim());
 	}
 
+	/**
+	 * Masks or unmasks web socket payload in place
+	 *
+	 * @param mask      a 4-byte masking key
+	 * @param maskIndex an index of a masking key byte which corresponds to the first byte of a range
+	 * @return an index of a masking key byte which corresponds to the byte following a range
+	 */
+	static int applyMask(byte[] array, int from, int to, byte[] mask, int maskIndex) {
+		int i = from;
+		while (i < to && maskIndex != 0) {
+			array[i++] ^= mask[maskIndex];
+			maskIndex = (maskIndex + 1) & 3;
+		}
+		byte m0 = mask[0], m1 = mask[1], m2 = mask[2], m3 = mask[3];
+		for (int end = to - 3; i < end; i += 4) {
+			array[i] ^= m0;
+			array[i + 1] ^= m1;
+			array[i + 2] ^= m2;
+			array[i + 3] ^= m3;
+		}
+		for (; i < to; i++) {
+			array[i] ^= mask[maskIndex++];
+		}
+		return maskIndex;
+	}
+
 	static boolean isReservedCloseCode(int closeCode) {
 		return closeCode < 1000 ||
 				(closeCode >= 1004 && closeCode < 1007) ||
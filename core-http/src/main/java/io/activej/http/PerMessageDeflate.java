@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static io.activej.http.WebSocketConstants.MESSAGE_TOO_BIG;
+import static io.activej.http.WebSocketConstants.NOT_A_VALID_DEFLATE_DATA;
+import static java.util.zip.Deflater.SYNC_FLUSH;
+
+/**
+ * A negotiated {@code permessage-deflate} extension of a single web socket connection,
+ * which holds compression and decompression state of the connection.
+ * <p>
+ * {@link Deflater} and {@link Inflater} are created lazily, so a connection which has
+ * not sent or received any compressed message does not hold native compression memory.
+ */
+final class PerMessageDeflate {
+	// rfc 7692 section 7.2.1
+	private static final byte[] TAIL = {0, 0, (byte) 0xff, (byte) 0xff};
+
+	final int level;
+	final int minSize;
+	final boolean noContextTakeover;
+	final @Nullable String responseHeader;
+
+	private @Nullable Deflater deflater;
+	private @Nullable Inflater inflater;
+	private long inflatedSize;
+
+	PerMessageDeflate(int level, int minSize, boolean noContextTakeover, @Nullable String responseHeader) {
+		this.level = level;
+		this.minSize = minSize;
+		this.noContextTakeover = noContextTakeover;
+		this.responseHeader = responseHeader;
+	}
+
+	/**
+	 * Compresses a payload of a frame, compressed frames of a message may be concatenated and inflated as a whole.
+	 * A payload is recycled.
+	 */
+	ByteBuf deflate(ByteBuf payload, boolean isLastFrame) {
+		if (deflater == null) {
+			deflater = new Deflater(level, true);
+		}
+		ByteBuf result = deflate(deflater, payload, isLastFrame);
+		if (isLastFrame && noContextTakeover) {
+			deflater.reset();
+		}
+		return result;
+	}
+
+	/**
+	 * Compresses a whole message with a given deflater.
+	 * A payload is not recycled, so that the same message may be compressed for different connections.
+	 */
+	static ByteBuf deflateMessage(Deflater deflater, ByteBuf payload) {
+		ByteBuf result = deflate(deflater, payload.slice(), true);
+		deflater.reset();
+		return result;
+	}
+
+	private static ByteBuf deflate(Deflater deflater, ByteBuf payload, boolean isLastFrame) {
+		deflater.setInput(payload.array(), payload.head(), payload.readRemaining());
+		ByteBuf buf = ByteBufPool.allocate(payload.readRemaining() + (payload.readRemaining() >>> 3) + 64);
+		while (true) {
+			int n = deflater.deflate(buf.array(), buf.tail(), buf.writeRemaining(), SYNC_FLUSH);
+			buf.moveTail(n);
+			if (buf.canWrite()) break;
+			buf = ByteBufPool.ensureWriteRemaining(buf, buf.readRemaining());
+		}
+		payload.recycle();
+		if (isLastFrame) {
+			assert buf.readRemaining() >= TAIL.length;
+			buf.moveTail(-TAIL.length);
+		}
+		return buf;
+	}
+
+	/**
+	 * Decompresses a payload of a frame of a compressed message. A payload is recycled.
+	 *
+	 * @param maxMessageSize a maximum size of a decompressed message
+	 * @throws WebSocketException if decompressed message is too big or compressed data is malformed
+	 */
+	ByteBuf inflate(ByteBuf payload, boolean isLastFrame, long maxMessageSize) throws WebSocketException {
+		if (inflater == null) {
+			inflater = new Inflater(true);
+		}
+		ByteBuf buf = ByteBufPool.allocate(Math.max(payload.readRemaining() * 2, 256));
+		try {
+			buf = inflate(inflater, payload.array(), payload.head(), payload.readRemaining(), buf, maxMessageSize);
+			if (isLastFrame) {
+				buf = inflate(inflater, TAIL, 0, TAIL.length, buf, maxMessageSize);
+				inflatedSize = 0;
+				if (inflater.finished()) {
+					// a final deflate block has been received, the next message starts from a new stream
+					inflater.reset();
+				}
+			}
+		} catch (WebSocketException e) {
+			buf.recycle();
+			throw e;
+		} finally {
+			payload.recycle();
+		}
+		return buf;
+	}
+
+	private ByteBuf inflate(Inflater inflater, byte[] array, int offset, int length, ByteBuf buf, long maxMessageSize) throws WebSocketException {
+		inflater.setInput(array, offset, length);
+		try {
+			while (true) {
+				if (!buf.canWrite()) {
+					buf = ByteBufPool.ensureWriteRemaining(buf, buf.readRemaining());
+				}
+				int n = inflater.inflate(buf.array(), buf.tail(), buf.writeRemaining());
+				buf.moveTail(n);
+				inflatedSize += n;
+				if (inflatedSize > maxMessageSize) {
+					throw MESSAGE_TOO_BIG;
+				}
+				if (n == 0 && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary())) {
+					return buf;
+				}
+			}
+		} catch (DataFormatException e) {
+			throw NOT_A_VALID_DEFLATE_DATA;
+		}
+	}
+
+	void closeDeflater() {
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+	}
+
+	void closeInflater() {
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+}
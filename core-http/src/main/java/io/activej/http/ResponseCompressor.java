@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.MemSize;
+import io.activej.common.initializer.WithInitializer;
+import io.activej.http.stream.BufsConsumerGzipDeflater;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
+import io.activej.jmx.stats.ValueStats;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.http.HttpHeaders.*;
+import static java.util.Arrays.asList;
+
+/**
+ * A server-level compression stage for HTTP responses, see {@link AsyncHttpServer#withCompression}.
+ * <p>
+ * A response is compressed with {@code gzip} or {@code deflate} content coding, whichever is more
+ * acceptable to a client according to its {@code Accept-Encoding} header ({@code gzip} is preferred
+ * when both are equally acceptable). Responses which are already encoded, which are smaller
+ * than a minimum size or whose content type is not worth compressing are sent as is.
+ * <p>
+ * Bodies which are set as a whole are compressed at once, those which are larger than an offload
+ * threshold are compressed on an executor, if one is set, before the response is sent. Streamed bodies are compressed incrementally
+ * as they are being sent. {@link Deflater} instances are pooled per thread, so each eventloop
+ * (and each thread of an executor) reuses its own deflaters.
+ * <p>
+ * Compression statistics are not thread-safe, so an instance should not be shared between servers
+ * which run in different eventloops.
+ */
+public final class ResponseCompressor implements WithInitializer<ResponseCompressor> {
+	public static final MemSize DEFAULT_MIN_SIZE = MemSize.kilobytes(1);
+	public static final MemSize DEFAULT_OFFLOAD_SIZE = MemSize.kilobytes(256);
+	public static final int DEFAULT_MAX_POOLED_DEFLATERS = 16;
+	public static final List<String> DEFAULT_SKIPPED_CONTENT_TYPES = asList(
+			"image/png", "image/jpeg", "image/gif", "image/webp", "image/avif",
+			"audio/", "video/", "font/woff",
+			"application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+			"application/x-rar-compressed", "application/x-bzip2", "application/zstd");
+
+	static final int NONE = 0;
+	static final int GZIP = 1;
+	static final int DEFLATE = 2;
+
+	private static final HttpHeaderValue GZIP_VALUE = HttpHeaderValue.ofBytes(encodeAscii("gzip"));
+	private static final HttpHeaderValue DEFLATE_VALUE = HttpHeaderValue.ofBytes(encodeAscii("deflate"));
+	private static final HttpHeaderValue ACCEPT_ENCODING_VALUE = HttpHeaderValue.ofBytes(encodeAscii("Accept-Encoding"));
+
+	// rfc 1952 section 2.3.1
+	private static final byte[] GZIP_HEADER = {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+	private static final int GZIP_FOOTER_SIZE = 8;
+
+	private static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private int minSize = DEFAULT_MIN_SIZE.toInt();
+	private int offloadSize = DEFAULT_OFFLOAD_SIZE.toInt();
+	private @Nullable Executor executor;
+	private int maxPooledDeflaters = DEFAULT_MAX_POOLED_DEFLATERS;
+	private List<String> skippedContentTypes = DEFAULT_SKIPPED_CONTENT_TYPES;
+
+	private final ThreadLocal<ArrayDeque<Deflater>> gzipDeflaters = ThreadLocal.withInitial(ArrayDeque::new);
+	private final ThreadLocal<ArrayDeque<Deflater>> zlibDeflaters = ThreadLocal.withInitial(ArrayDeque::new);
+
+	// region JMX
+	private final EventStats compressedResponses = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats offloadedResponses = EventStats.create(SMOOTHING_WINDOW);
+	private final ValueStats compressionTime = ValueStats.create(SMOOTHING_WINDOW).withUnit("microseconds");
+	private long totalBytesIn;
+	private long totalBytesOut;
+	// endregion
+
+	// region builders
+	private ResponseCompressor() {
+	}
+
+	public static ResponseCompressor create() {
+		return new ResponseCompressor();
+	}
+
+	/**
+	 * Sets a compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+	 *
+	 * @param level a compression level
+	 * @return this {@link ResponseCompressor}
+	 */
+	public ResponseCompressor withLevel(int level) {
+		checkArgument(level == Deflater.DEFAULT_COMPRESSION || level >= 0 && level <= 9, "Invalid compression level");
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Sets a minimum size of a response body to be compressed
+	 *
+	 * @param minSize a minimum size of a body
+	 * @return this {@link ResponseCompressor}
+	 */
+	public ResponseCompressor withMinSize(@NotNull MemSize minSize) {
+		this.minSize = minSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Sets an executor which compresses response bodies that are at least {@code offloadSize} large,
+	 * so that an eventloop is not blocked by compression of large bodies
+	 *
+	 * @param executor    an executor for compression of large bodies
+	 * @param offloadSize a minimum size of a body to be compressed on the executor
+	 * @return this {@link ResponseCompressor}
+	 */
+	public ResponseCompressor withExecutor(@NotNull Executor executor, @NotNull MemSize offloadSize) {
+		this.executor = executor;
+		this.offloadSize = offloadSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of idle deflaters which are kept in a pool of each thread
+	 *
+	 * @param maxPooledDeflaters a maximum number of pooled deflaters per thread
+	 * @return this {@link ResponseCompressor}
+	 */
+	public ResponseCompressor withMaxPooledDeflaters(int maxPooledDeflaters) {
+		checkArgument(maxPooledDeflaters >= 0, "Number of pooled deflaters cannot be negative");
+		this.maxPooledDeflaters = maxPooledDeflaters;
+		return this;
+	}
+
+	/**
+	 * Sets prefixes of content types which are not compressed, such as already compressed images or archives
+	 *
+	 * @param skippedContentTypes prefixes of content types
+	 * @return this {@link ResponseCompressor}
+	 */
+	public ResponseCompressor withSkippedContentTypes(@NotNull List<String> skippedContentTypes) {
+		this.skippedContentTypes = skippedContentTypes;
+		return this;
+	}
+	// endregion
+
+	/**
+	 * Compresses a response body if it is worth compressing and
+	 * a request accepts any of the supported content codings
+	 *
+	 * @return a promise of the same response, which completes once its body is compressed
+	 */
+	Promise<HttpResponse> compress(HttpRequest request, HttpResponse response) {
+		if (request.getMethod() == HttpMethod.HEAD || !isCompressible(response)) return Promise.of(response);
+		response.addHeader(VARY, ACCEPT_ENCODING_VALUE);
+
+		int encoding = negotiate(request.getHeader(ACCEPT_ENCODING));
+		if (encoding == NONE) return Promise.of(response);
+		response.addHeader(CONTENT_ENCODING, encoding == GZIP ? GZIP_VALUE : DEFLATE_VALUE);
+		compressedResponses.recordEvent();
+
+		ByteBuf body = response.body;
+		if (body != null) {
+			if (executor != null && body.readRemaining() >= offloadSize) {
+				offloadedResponses.recordEvent();
+				response.body = null;
+				return Promise.ofBlocking(executor, () -> compress(body, encoding))
+						.whenException(body::recycle)
+						.map(compressed -> {
+							recordStats(compressed.bytesIn, compressed.buf.readRemaining(), compressed.nanos);
+							response.body = compressed.buf;
+							return response;
+						});
+			}
+			Compressed compressed = compress(body, encoding);
+			recordStats(compressed.bytesIn, compressed.buf.readRemaining(), compressed.nanos);
+			response.body = compressed.buf;
+			return Promise.of(response);
+		}
+
+		assert response.bodyStream != null;
+		Deflater deflater = takeDeflater(encoding);
+		BufsConsumerGzipDeflater deflaterProcess = BufsConsumerGzipDeflater.create()
+				.withReusableDeflater(deflater)
+				.withGzipFormat(encoding == GZIP);
+		response.bodyStream.bindTo(deflaterProcess.getInput());
+		response.bodyStream = deflaterProcess.getOutput().getSupplier();
+		deflaterProcess.getProcessCompletion()
+				.whenComplete((v, e) -> {
+					if (e == null) {
+						recordStats(deflater.getBytesRead(), deflater.getBytesWritten(), deflaterProcess.getDeflateNanos());
+					}
+					releaseDeflater(encoding, deflater);
+				});
+		return Promise.of(response);
+	}
+
+	private boolean isCompressible(HttpResponse response) {
+		int code = response.getCode();
+		if (code < 200 || code == 204 || code == 304) return false;
+		if ((response.flags & HttpMessage.USE_GZIP) != 0 || response.containsHeader(CONTENT_ENCODING)) return false;
+		if (response.body != null) {
+			if (response.body.readRemaining() < minSize) return false;
+		} else if (response.bodyStream == null || response.containsHeader(CONTENT_LENGTH)) {
+			// the length of a compressed stream is not known beforehand
+			return false;
+		}
+		String contentType = response.getHeader(CONTENT_TYPE);
+		if (contentType != null) {
+			for (String skipped : skippedContentTypes) {
+				if (contentType.regionMatches(true, 0, skipped, 0, skipped.length())) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Chooses a content coding according to a value of {@code Accept-Encoding} header
+	 *
+	 * @return {@link #GZIP}, {@link #DEFLATE} or {@link #NONE} if none of them is acceptable
+	 */
+	static int negotiate(@Nullable String acceptEncoding) {
+		if (acceptEncoding == null) return NONE;
+		float gzipQ = -1;
+		float deflateQ = -1;
+		float anyQ = -1;
+		int length = acceptEncoding.length();
+		int pos = 0;
+		while (pos < length) {
+			int end = acceptEncoding.indexOf(',', pos);
+			if (end == -1) end = length;
+			int semicolon = acceptEncoding.indexOf(';', pos);
+			int nameEnd = semicolon != -1 && semicolon < end ? semicolon : end;
+
+			int nameStart = pos;
+			while (nameStart < nameEnd && acceptEncoding.charAt(nameStart) == ' ') nameStart++;
+			while (nameEnd > nameStart && acceptEncoding.charAt(nameEnd - 1) == ' ') nameEnd--;
+			float q = semicolon != -1 && semicolon < end ? parseQuality(acceptEncoding, semicolon + 1, end) : 1;
+
+			if (matches(acceptEncoding, nameStart, nameEnd, "gzip") || matches(acceptEncoding, nameStart, nameEnd, "x-gzip")) {
+				gzipQ = q;
+			} else if (matches(acceptEncoding, nameStart, nameEnd, "deflate")) {
+				deflateQ = q;
+			} else if (matches(acceptEncoding, nameStart, nameEnd, "*")) {
+				anyQ = q;
+			}
+			pos = end + 1;
+		}
+		if (gzipQ == -1) gzipQ = anyQ;
+		if (deflateQ == -1) deflateQ = anyQ;
+		if (gzipQ <= 0 && deflateQ <= 0) return NONE;
+		return gzipQ >= deflateQ ? GZIP : DEFLATE;
+	}
+
+	private static boolean matches(String s, int start, int end, String token) {
+		return end - start == token.length() && s.regionMatches(true, start, token, 0, token.length());
+	}
+
+	private static float parseQuality(String s, int start, int end) {
+		int eq = s.indexOf('=', start);
+		if (eq == -1 || eq >= end) return 1;
+		int nameStart = start;
+		while (nameStart < eq && s.charAt(nameStart) == ' ') nameStart++;
+		if (eq - nameStart < 1 || Character.toLowerCase(s.charAt(nameStart)) != 'q') return 1;
+		try {
+			return Float.parseFloat(s.substring(eq + 1, end).trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private Compressed compress(ByteBuf body, int encoding) {
+		long start = System.nanoTime();
+		Deflater deflater = takeDeflater(encoding);
+		int size = body.readRemaining();
+		ByteBuf buf = ByteBufPool.allocate(GZIP_HEADER.length + size + (size >>> 12) + (size >>> 14) + 64 + GZIP_FOOTER_SIZE);
+		if (encoding == GZIP) {
+			buf.put(GZIP_HEADER);
+		}
+		deflater.setInput(body.array(), body.head(), size);
+		deflater.finish();
+		while (!deflater.finished()) {
+			buf = ByteBufPool.ensureWriteRemaining(buf, buf.writeRemaining() == 0 ? size / 8 + 64 : 0);
+			buf.moveTail(deflater.deflate(buf.array(), buf.tail(), buf.writeRemaining()));
+		}
+		if (encoding == GZIP) {
+			CRC32 crc32 = new CRC32();
+			crc32.update(body.array(), body.head(), size);
+			buf = ByteBufPool.ensureWriteRemaining(buf, GZIP_FOOTER_SIZE);
+			buf.writeInt(Integer.reverseBytes((int) crc32.getValue()));
+			buf.writeInt(Integer.reverseBytes(size));
+		}
+		body.recycle();
+		releaseDeflater(encoding, deflater);
+		return new Compressed(buf, size, System.nanoTime() - start);
+	}
+
+	private Deflater takeDeflater(int encoding) {
+		Deflater deflater = (encoding == GZIP ? gzipDeflaters : zlibDeflaters).get().pollLast();
+		return deflater != null ? deflater : new Deflater(level, encoding == GZIP);
+	}
+
+	private void releaseDeflater(int encoding, Deflater deflater) {
+		ArrayDeque<Deflater> pool = (encoding == GZIP ? gzipDeflaters : zlibDeflaters).get();
+		if (pool.size() < maxPooledDeflaters) {
+			deflater.reset();
+			pool.addLast(deflater);
+		} else {
+			deflater.end();
+		}
+	}
+
+	private void recordStats(long bytesIn, long bytesOut, long nanos) {
+		totalBytesIn += bytesIn;
+		totalBytesOut += bytesOut;
+		compressionTime.recordValue((int) (nanos / 1000));
+	}
+
+	private static final class Compressed {
+		final ByteBuf buf;
+		final int bytesIn;
+		final long nanos;
+
+		Compressed(ByteBuf buf, int bytesIn, long nanos) {
+			this.buf = buf;
+			this.bytesIn = bytesIn;
+			this.nanos = nanos;
+		}
+	}
+
+	// region JMX
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getCompressedResponses() {
+		return compressedResponses;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getOffloadedResponses() {
+		return offloadedResponses;
+	}
+
+	@JmxAttribute(description = "CPU time spent compressing a single response body")
+	public ValueStats getCompressionTime() {
+		return compressionTime;
+	}
+
+	@JmxAttribute
+	public long getTotalBytesIn() {
+		return totalBytesIn;
+	}
+
+	@JmxAttribute
+	public long getTotalBytesOut() {
+		return totalBytesOut;
+	}
+
+	@JmxAttribute(description = "ratio of compressed size to original size of response bodies")
+	public double getCompressionRatio() {
+		return totalBytesIn != 0 ? (double) totalBytesOut / totalBytesIn : 0;
+	}
+	// endregion
+}
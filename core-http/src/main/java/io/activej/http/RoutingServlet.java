@@ -43,14 +43,14 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 	private static final String STAR = "*";
 	private static final String WILDCARD = "/" + STAR;
 
-	private static final int WS_ORDINAL = HttpMethod.values().length;
-	private static final int ANY_HTTP_ORDINAL = WS_ORDINAL + 1;
+	static final int WS_ORDINAL = HttpMethod.values().length;
+	static final int ANY_HTTP_ORDINAL = WS_ORDINAL + 1;
 
-	private final AsyncServlet[] rootServlets = new AsyncServlet[ANY_HTTP_ORDINAL + 1];
-	private final AsyncServlet[] fallbackServlets = new AsyncServlet[ANY_HTTP_ORDINAL + 1];
+	final AsyncServlet[] rootServlets = new AsyncServlet[ANY_HTTP_ORDINAL + 1];
+	final AsyncServlet[] fallbackServlets = new AsyncServlet[ANY_HTTP_ORDINAL + 1];
 
-	private final Map<String, RoutingServlet> routes = new HashMap<>();
-	private final Map<String, RoutingServlet> parameters = new HashMap<>();
+	final Map<String, RoutingServlet> routes = new HashMap<>();
+	final Map<String, RoutingServlet> parameters = new HashMap<>();
 
 	private RoutingServlet() {
 	}
@@ -153,6 +153,22 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 		return merged;
 	}
 
+	/**
+	 * Compiles a snapshot of this servlet tree into a servlet which matches
+	 * request paths directly on the raw url bytes.
+	 * <p>
+	 * A compiled servlet routes requests exactly as this servlet does,
+	 * but it does not decode path parts unless they are percent-encoded
+	 * and it does not allocate strings for captured path parameters
+	 * until they are requested.
+	 * Further changes of this servlet tree are not reflected in a compiled servlet.
+	 *
+	 * @return a compiled routing servlet
+	 */
+	public AsyncServlet compile() {
+		return CompiledRoutingServlet.create(this);
+	}
+
 	@Override
 	public @NotNull Promise<HttpResponse> serve(@NotNull HttpRequest request) throws Exception {
 		Promise<HttpResponse> processed = tryServe(request);
@@ -294,7 +310,7 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 				}));
 	}
 
-	private static @Nullable AsyncServlet getOrDefault(AsyncServlet[] servlets, int ordinal) {
+	static @Nullable AsyncServlet getOrDefault(AsyncServlet[] servlets, int ordinal) {
 		AsyncServlet maybeResult = servlets[ordinal];
 		if (maybeResult != null || ordinal == WS_ORDINAL) {
 			return maybeResult;
@@ -18,18 +18,23 @@ package io.activej.http;
 
 import io.activej.async.function.AsyncSupplier;
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufs;
 import io.activej.common.initializer.WithInitializer;
+import io.activej.csp.file.ChannelFileSupplier;
 import io.activej.http.loader.ResourceIsADirectoryException;
 import io.activej.http.loader.ResourceNotFoundException;
 import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticResource;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -37,11 +42,16 @@ import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static io.activej.bytebuf.ByteBuf.wrapForReading;
 import static io.activej.http.HttpHeaderValue.ofContentType;
-import static io.activej.http.HttpHeaders.CONTENT_TYPE;
+import static io.activej.http.HttpHeaders.*;
 
 /**
  * This servlet allows return HTTP responses by HTTP paths from some predefined storage, mainly the filesystem.
+ * <p>
+ * Responses are supplied with {@code ETag} and {@code Last-Modified} headers if a loader provides them
+ * (see {@link StaticLoader#loadResource}), and conditional requests are answered with {@code 304 Not Modified}.
+ * If a loader provides a precompressed variant of a resource, it is served to the clients which accept gzip encoding.
  */
 public final class StaticServlet implements AsyncServlet, WithInitializer<StaticServlet> {
 	public static final Charset DEFAULT_TXT_ENCODING = StandardCharsets.UTF_8;
@@ -53,6 +63,7 @@ public final class StaticServlet implements AsyncServlet, WithInitializer<Static
 	private final Set<String> indexResources = new LinkedHashSet<>();
 
 	private @Nullable String defaultResource;
+	private boolean zeroCopy;
 
 	private StaticServlet(StaticLoader resourceLoader) {
 		this.resourceLoader = resourceLoader;
@@ -117,6 +128,16 @@ public final class StaticServlet implements AsyncServlet, WithInitializer<Static
 		return this;
 	}
 
+	/**
+	 * Sets whether resources are loaded as streams, see {@link StaticLoader#loadStream}.
+	 * If so, files are not loaded into memory and are sent directly to a socket,
+	 * using {@link java.nio.channels.FileChannel#transferTo} where possible.
+	 */
+	public StaticServlet withZeroCopy(boolean zeroCopy) {
+		this.zeroCopy = zeroCopy;
+		return this;
+	}
+
 	public static ContentType getContentType(String path) {
 		int pos = path.lastIndexOf('.');
 		if (pos == -1) {
@@ -146,6 +167,91 @@ public final class StaticServlet implements AsyncServlet, WithInitializer<Static
 				.withHeader(CONTENT_TYPE, ofContentType(contentType));
 	}
 
+	private HttpResponse createHttpResponse(HttpRequest request, StaticResource resource, ContentType contentType) {
+		String etag = resource.getEtag();
+		long lastModified = resource.getLastModified();
+		byte[] gzipContent = resource.getGzipContent();
+		boolean gzip = gzipContent != null &&
+				ResponseCompressor.negotiate(request.getHeader(ACCEPT_ENCODING)) == ResponseCompressor.GZIP;
+		// each representation of a resource has its own entity tag
+		String gzipEtag = gzipContent != null && etag != null ? toGzipEtag(etag) : null;
+		String responseEtag = gzip ? gzipEtag : etag;
+		HttpResponse response;
+		if (isNotModified(request, etag, gzipEtag, lastModified)) {
+			response = HttpResponse.ofCode(304);
+		} else {
+			response = createHttpResponse(wrapForReading(gzip ? gzipContent : resource.getContent()), contentType);
+			if (gzip) response.addHeader(CONTENT_ENCODING, "gzip");
+		}
+		if (gzipContent != null) response.addHeader(VARY, "Accept-Encoding");
+		return withValidators(response, responseEtag, lastModified);
+	}
+
+	private static String toGzipEtag(String etag) {
+		return etag.endsWith("\"") ?
+				etag.substring(0, etag.length() - 1) + "-gzip\"" :
+				etag + "-gzip";
+	}
+
+	private static HttpResponse withValidators(HttpResponse response, @Nullable String etag, long lastModified) {
+		if (etag != null) response.addHeader(ETAG, etag);
+		if (lastModified != 0) response.addHeader(LAST_MODIFIED, HttpHeaderValue.ofTimestamp(lastModified));
+		return response;
+	}
+
+	private static boolean isNotModified(HttpRequest request, @Nullable String etag, @Nullable String gzipEtag, long lastModified) {
+		String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			// If-Modified-Since is ignored when If-None-Match is present
+			return etag != null && matchesEtag(ifNoneMatch, etag) ||
+					gzipEtag != null && matchesEtag(ifNoneMatch, gzipEtag);
+		}
+		if (lastModified == 0) return false;
+		Instant ifModifiedSince = request.getHeader(IF_MODIFIED_SINCE, HttpHeaderValue::toInstant);
+		// HTTP dates have a precision of a second
+		return ifModifiedSince != null && lastModified / 1000 <= ifModifiedSince.getEpochSecond();
+	}
+
+	private static boolean matchesEtag(String ifNoneMatch, String etag) {
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/")) {
+				// weak comparison is used for If-None-Match
+				candidate = candidate.substring(2);
+			}
+			if (candidate.equals("*") || candidate.equals(etag) ||
+					etag.startsWith("W/") && candidate.equals(etag.substring(2))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Promise<HttpResponse> loadHttpResponse(HttpRequest request, String path, ContentType contentType) {
+		if (!zeroCopy) {
+			return resourceLoader.loadResource(path)
+					.map(resource -> createHttpResponse(request, resource, contentType));
+		}
+		return resourceLoader.loadStream(path)
+				.then(supplier -> {
+					if (!(supplier instanceof ChannelFileSupplier)) {
+						return supplier.toCollector(ByteBufs.collector())
+								.map(buf -> createHttpResponse(buf, contentType));
+					}
+					long size;
+					try {
+						size = ((ChannelFileSupplier) supplier).getRemaining();
+					} catch (IOException e) {
+						supplier.closeEx(e);
+						throw e;
+					}
+					return Promise.of(responseSupplier.get()
+							.withHeader(CONTENT_LENGTH, Long.toString(size))
+							.withBodyStream(supplier)
+							.withHeader(CONTENT_TYPE, ofContentType(contentType)));
+				});
+	}
+
 	@Override
 	public @NotNull Promise<HttpResponse> serve(@NotNull HttpRequest request) {
 		String mappedPath = pathMapper.apply(request);
@@ -153,36 +259,33 @@ public final class StaticServlet implements AsyncServlet, WithInitializer<Static
 		ContentType contentType = contentTypeResolver.apply(mappedPath);
 		return Promise.complete()
 				.then(() -> (mappedPath.endsWith("/") || mappedPath.isEmpty()) ?
-						tryLoadIndexResource(mappedPath) :
-						resourceLoader.load(mappedPath)
-								.map(byteBuf -> createHttpResponse(byteBuf, contentType))
+						tryLoadIndexResource(request, mappedPath) :
+						loadHttpResponse(request, mappedPath, contentType)
 								.then((value, e) -> {
 									if (e instanceof ResourceIsADirectoryException) {
-										return tryLoadIndexResource(mappedPath);
+										return tryLoadIndexResource(request, mappedPath);
 									} else {
 										return Promise.of(value, e);
 									}
 								}))
 				.then(Promise::of,
 						e -> e instanceof ResourceNotFoundException ?
-								tryLoadDefaultResource() :
+								tryLoadDefaultResource(request) :
 								Promise.ofException(HttpError.ofCode(400, e)));
 	}
 
-	private @NotNull Promise<HttpResponse> tryLoadIndexResource(String mappedPath) {
+	private @NotNull Promise<HttpResponse> tryLoadIndexResource(HttpRequest request, String mappedPath) {
 		String dirPath = mappedPath.endsWith("/") || mappedPath.isEmpty() ? mappedPath : (mappedPath + '/');
 		return Promises.first(
 						indexResources.stream()
 								.map(indexResource -> (AsyncSupplier<HttpResponse>) () ->
-										resourceLoader.load(dirPath + indexResource)
-												.map(byteBuf -> createHttpResponse(byteBuf, contentTypeResolver.apply(indexResource)))))
+										loadHttpResponse(request, dirPath + indexResource, contentTypeResolver.apply(indexResource))))
 				.mapException(e -> new ResourceNotFoundException("Could not find '" + mappedPath + '\'', e));
 	}
 
-	private @NotNull Promise<? extends HttpResponse> tryLoadDefaultResource() {
+	private @NotNull Promise<? extends HttpResponse> tryLoadDefaultResource(HttpRequest request) {
 		return defaultResource != null ?
-				resourceLoader.load(defaultResource)
-						.map(buf -> createHttpResponse(buf, contentTypeResolver.apply(defaultResource))) :
+				loadHttpResponse(request, defaultResource, contentTypeResolver.apply(defaultResource)) :
 				Promise.ofException(HttpError.notFound404());
 	}
 }
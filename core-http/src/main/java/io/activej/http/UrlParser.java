@@ -482,6 +482,30 @@ public final class UrlParser {
 		}
 	}
 
+	byte[] getRaw() {
+		return raw;
+	}
+
+	int getPathEnd() {
+		return pathEnd;
+	}
+
+	/**
+	 * Moves current position past the url part which ends at a given index,
+	 * exactly as {@link #pollUrlPart()} would do
+	 */
+	void skipUrlPart(int end) {
+		if (end < pathEnd) {
+			pos = (short) end;
+		} else {
+			pos = indexOf(SLASH, pathEnd) == -1 ? limit : pathEnd;
+		}
+	}
+
+	@Nullable String decodeUrlPart(int start, int end) {
+		return urlParse(raw, start, end);
+	}
+
 	private boolean isEqual(@NotNull String key, int start, int end) {
 		if (end - start != key.length()) {
 			return false;
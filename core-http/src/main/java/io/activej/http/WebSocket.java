@@ -26,6 +26,8 @@ import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+
 import static io.activej.common.Checks.checkNotNull;
 import static io.activej.http.WebSocket.Frame.FrameType.CONTINUATION;
 import static io.activej.http.WebSocket.Message.MessageType.BINARY;
@@ -167,6 +169,25 @@ public interface WebSocket extends AsyncCloseable {
 	 */
 	boolean isClosed();
 
+	/**
+	 * Sends a message to each of the given web sockets.
+	 * <p>
+	 * A message is encoded into a frame only once and the encoded frame is shared by all the web sockets
+	 * on a server side, unless they compress messages with context takeover. Other web sockets receive
+	 * their own copy of a message. A binary payload of a message is recycled.
+	 * <p>
+	 * All the web sockets should belong to the current eventloop. The same as with {@link #writeMessage},
+	 * there should be no other pending writes to the web sockets.
+	 *
+	 * @param webSockets web sockets to send a message to
+	 * @param message    a message to be sent
+	 * @return a promise which is completed once a message has been sent to all the web sockets
+	 * or some of them have failed
+	 */
+	static Promise<Void> broadcast(@NotNull Collection<? extends WebSocket> webSockets, @NotNull Message message) {
+		return WebSocketImpl.broadcast(webSockets, message);
+	}
+
 	/**
 	 * Representation of a complete web socket message. It may contain either text or binary data.
 	 */
@@ -221,11 +242,24 @@ public interface WebSocket extends AsyncCloseable {
 		private final FrameType type;
 		private final ByteBuf payload;
 		private final boolean isLastFrame;
+		private final boolean encoded;
 
 		Frame(FrameType type, ByteBuf payload, boolean isLastFrame) {
+			this(type, payload, isLastFrame, false);
+		}
+
+		private Frame(FrameType type, ByteBuf payload, boolean isLastFrame, boolean encoded) {
 			this.type = type;
 			this.payload = payload;
 			this.isLastFrame = isLastFrame;
+			this.encoded = encoded;
+		}
+
+		/**
+		 * A complete message frame, which is already encoded along with its header
+		 */
+		static Frame encoded(FrameType type, ByteBuf encodedFrame) {
+			return new Frame(type, encodedFrame, true, true);
 		}
 
 		public static Frame text(ByteBuf buf) {
@@ -260,6 +294,10 @@ public interface WebSocket extends AsyncCloseable {
 			return isLastFrame;
 		}
 
+		boolean isEncoded() {
+			return encoded;
+		}
+
 		@Override
 		public void recycle() {
 			payload.recycle();
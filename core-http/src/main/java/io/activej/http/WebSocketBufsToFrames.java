@@ -30,6 +30,7 @@ import io.activej.csp.process.AbstractCommunicatingProcess;
 import io.activej.http.WebSocket.Frame;
 import io.activej.promise.Promise;
 import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.charset.CharacterCodingException;
 import java.util.function.Consumer;
@@ -45,6 +46,7 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 
 	private static final byte OP_CODE_MASK = 0b00001111;
 	private static final byte RSV_MASK = 0b01110000;
+	private static final byte RSV1_MASK = 0b01000000;
 	private static final byte LAST_7_BITS_MASK = 0b01111111;
 
 	private static final ByteBufsDecoder<Byte> SINGLE_BYTE_DECODER = bufs -> bufs.hasRemainingBytes(1) ? bufs.getByte() : null;
@@ -54,6 +56,7 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 	private final Consumer<ByteBuf> onPong;
 	private final byte[] mask = new byte[4];
 	private final boolean masked;
+	private final @Nullable PerMessageDeflate deflate;
 	private final SettablePromise<WebSocketException> closeReceivedPromise = new SettablePromise<>();
 
 	private ByteBufs bufs;
@@ -63,21 +66,32 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 	private int maskIndex;
 	private boolean isFin;
 	private boolean waitingForFin;
+	private boolean compressed;
 	private WebSocketConstants.OpCode currentOpCode;
 
 	private final ByteBufs frameBufs = new ByteBufs();
 	private final ByteBufs controlMessageBufs = new ByteBufs();
 
 	// region creators
-	WebSocketBufsToFrames(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean masked) {
+	WebSocketBufsToFrames(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean masked,
+			@Nullable PerMessageDeflate deflate) {
 		this.maxMessageSize = maxMessageSize;
 		this.onPing = onPing;
 		this.onPong = onPong;
 		this.masked = masked;
+		this.deflate = deflate;
 	}
 
 	public static WebSocketBufsToFrames create(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean maskRequired) {
-		return new WebSocketBufsToFrames(maxMessageSize, onPing, onPong, maskRequired);
+		return new WebSocketBufsToFrames(maxMessageSize, onPing, onPong, maskRequired, null);
+	}
+
+	/**
+	 * Creates a decoder of frames which may be compressed with a negotiated {@code permessage-deflate} extension
+	 */
+	public static WebSocketBufsToFrames create(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean maskRequired,
+			@Nullable PerMessageDeflate deflate) {
+		return new WebSocketBufsToFrames(maxMessageSize, onPing, onPong, maskRequired, deflate);
 	}
 
 	@Override
@@ -120,11 +134,6 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 	private void processOpCode() {
 		input.decode(SINGLE_BYTE_DECODER)
 				.whenResult(firstByte -> {
-					if ((firstByte & RSV_MASK) != 0) {
-						onProtocolError(RESERVED_BITS_SET);
-						return;
-					}
-
 					byte opCodeByte = (byte) (firstByte & OP_CODE_MASK);
 					currentOpCode = fromOpCodeByte(opCodeByte);
 					if (currentOpCode == null) {
@@ -132,6 +141,14 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 						return;
 					}
 
+					int rsv = firstByte & RSV_MASK;
+					if (rsv != 0 && (rsv != RSV1_MASK || deflate == null ||
+							currentOpCode.isControlCode() || currentOpCode == OP_CONTINUATION)) {
+						// RSV1 marks the first frame of a compressed message
+						onProtocolError(RESERVED_BITS_SET);
+						return;
+					}
+
 					isFin = firstByte < 0;
 					if (currentOpCode.isControlCode()) {
 						if (!isFin) {
@@ -152,7 +169,7 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 							onProtocolError(UNEXPECTED_CONTINUATION);
 							return;
 						}
-
+						compressed = rsv != 0;
 					}
 					waitingForFin = !isFin;
 
@@ -241,7 +258,17 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 		if (currentOpCode.isControlCode()) {
 			processControlPayload();
 		} else {
-			output.accept(new Frame(opToFrameType(currentOpCode), frameBufs.takeRemaining(), isFin))
+			ByteBuf payload = frameBufs.takeRemaining();
+			if (compressed) {
+				assert deflate != null;
+				try {
+					payload = deflate.inflate(payload, isFin, maxMessageSize);
+				} catch (WebSocketException e) {
+					onProtocolError(e);
+					return;
+				}
+			}
+			output.accept(new Frame(opToFrameType(currentOpCode), payload, isFin))
 					.whenResult(this::processOpCode);
 		}
 	}
@@ -296,9 +323,7 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 		if (maskIndex == -1 || !buf.canRead()) {
 			return;
 		}
-		for (int head = buf.head(); head < buf.tail(); head++) {
-			buf.set(head, (byte) (buf.at(head) ^ mask[maskIndex++ % 4]));
-		}
+		maskIndex = applyMask(buf.array(), buf.head(), buf.tail(), mask, maskIndex);
 	}
 
 	private void onCloseReceived(WebSocketException e) {
@@ -318,6 +343,9 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 		}
 		frameBufs.recycle();
 		controlMessageBufs.recycle();
+		if (deflate != null) {
+			deflate.closeInflater();
+		}
 	}
 
 }
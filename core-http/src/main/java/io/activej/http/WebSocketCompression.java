@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.initializer.WithInitializer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.zip.Deflater;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * Settings of {@code permessage-deflate} web socket extension (RFC 7692), see
+ * {@link AsyncHttpServer#withWebSocketCompression} and {@link AsyncHttpClient#withWebSocketCompression}.
+ * <p>
+ * Context takeover lets a compressor reuse the history of previous messages of a connection,
+ * which improves compression of similar messages at the cost of keeping compression state
+ * between messages. Without server context takeover each message is compressed independently,
+ * which also allows {@link WebSocket#broadcast} to compress a message once for all the recipients.
+ * <p>
+ * Window sizes other than the default 32KB are not supported, as they cannot be configured
+ * for {@link Deflater}, so offers which require a smaller server window are declined.
+ */
+public final class WebSocketCompression implements WithInitializer<WebSocketCompression> {
+	public static final int DEFAULT_MIN_SIZE = 64;
+
+	static final String EXTENSION_NAME = "permessage-deflate";
+	private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+	private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+	private static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+	private static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+	private static final int MAX_WINDOW_BITS = 15;
+
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private int minSize = DEFAULT_MIN_SIZE;
+	private boolean serverNoContextTakeover;
+	private boolean clientNoContextTakeover;
+
+	private WebSocketCompression() {
+	}
+
+	public static WebSocketCompression create() {
+		return new WebSocketCompression();
+	}
+
+	public WebSocketCompression withLevel(int level) {
+		checkArgument(level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION, "Invalid compression level");
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Sets a minimum size of a message to be compressed, smaller messages are sent as is
+	 */
+	public WebSocketCompression withMinSize(int minSize) {
+		this.minSize = minSize;
+		return this;
+	}
+
+	/**
+	 * Sets whether a server compresses each message independently of the previous ones.
+	 * A server also agrees to it if a client asks so.
+	 */
+	public WebSocketCompression withServerNoContextTakeover(boolean serverNoContextTakeover) {
+		this.serverNoContextTakeover = serverNoContextTakeover;
+		return this;
+	}
+
+	/**
+	 * Sets whether a client compresses each message independently of the previous ones.
+	 * A client also agrees to it if a server asks so.
+	 */
+	public WebSocketCompression withClientNoContextTakeover(boolean clientNoContextTakeover) {
+		this.clientNoContextTakeover = clientNoContextTakeover;
+		return this;
+	}
+
+	// region negotiation
+	/**
+	 * Returns a client offer of the extension
+	 */
+	String offer() {
+		StringBuilder sb = new StringBuilder(EXTENSION_NAME);
+		if (serverNoContextTakeover) sb.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+		if (clientNoContextTakeover) sb.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+		return sb.toString();
+	}
+
+	/**
+	 * Chooses the first acceptable offer of the extension among client offers
+	 *
+	 * @param extensions a value of {@code Sec-WebSocket-Extensions} header of a client request
+	 * @return negotiated server-side extension or {@code null} if none of the offers is acceptable
+	 */
+	@Nullable PerMessageDeflate accept(@Nullable String extensions) {
+		if (extensions == null) return null;
+		for (String extension : extensions.split(",")) {
+			String[] params = extension.split(";");
+			if (!params[0].trim().equalsIgnoreCase(EXTENSION_NAME)) continue;
+			boolean serverNoContextTakeover = this.serverNoContextTakeover;
+			boolean clientNoContextTakeover = this.clientNoContextTakeover;
+			boolean acceptable = true;
+			for (int i = 1; i < params.length && acceptable; i++) {
+				String name = paramName(params[i]);
+				String value = paramValue(params[i]);
+				if (name.equals(SERVER_NO_CONTEXT_TAKEOVER) && value == null) {
+					serverNoContextTakeover = true;
+				} else if (name.equals(CLIENT_NO_CONTEXT_TAKEOVER) && value == null) {
+					// a client will not use context takeover anyway
+				} else if (name.equals(SERVER_MAX_WINDOW_BITS)) {
+					acceptable = parseWindowBits(value) == MAX_WINDOW_BITS;
+				} else if (name.equals(CLIENT_MAX_WINDOW_BITS)) {
+					acceptable = value == null || parseWindowBits(value) != -1;
+				} else {
+					acceptable = false;
+				}
+			}
+			if (!acceptable) continue;
+
+			StringBuilder response = new StringBuilder(EXTENSION_NAME);
+			if (serverNoContextTakeover) response.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+			if (clientNoContextTakeover) response.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+			return new PerMessageDeflate(level, minSize, serverNoContextTakeover, response.toString());
+		}
+		return null;
+	}
+
+	/**
+	 * Validates a server response to the offer
+	 *
+	 * @param extensions a value of {@code Sec-WebSocket-Extensions} header of a server response
+	 * @return negotiated client-side extension or {@code null} if a server has not accepted the offer
+	 * @throws HttpException if a server response does not match the offer
+	 */
+	@Nullable PerMessageDeflate validate(@Nullable String extensions) throws HttpException {
+		if (extensions == null || extensions.trim().isEmpty()) return null;
+		String[] accepted = extensions.split(",");
+		String[] params = accepted[0].split(";");
+		if (accepted.length != 1 || !params[0].trim().equalsIgnoreCase(EXTENSION_NAME)) {
+			throw new HttpException("Unexpected web socket extensions: " + extensions);
+		}
+		boolean clientNoContextTakeover = this.clientNoContextTakeover;
+		for (int i = 1; i < params.length; i++) {
+			String name = paramName(params[i]);
+			String value = paramValue(params[i]);
+			if (name.equals(CLIENT_NO_CONTEXT_TAKEOVER) && value == null) {
+				clientNoContextTakeover = true;
+			} else if (name.equals(SERVER_NO_CONTEXT_TAKEOVER) && value == null ||
+					name.equals(SERVER_MAX_WINDOW_BITS) && parseWindowBits(value) != -1 ||
+					name.equals(CLIENT_MAX_WINDOW_BITS) && parseWindowBits(value) == MAX_WINDOW_BITS) {
+				// does not affect a client compressor
+			} else {
+				throw new HttpException("Unexpected parameter of web socket extension: " + params[i].trim());
+			}
+		}
+		return new PerMessageDeflate(level, minSize, clientNoContextTakeover, null);
+	}
+
+	private static String paramName(String param) {
+		int eq = param.indexOf('=');
+		return (eq == -1 ? param : param.substring(0, eq)).trim().toLowerCase();
+	}
+
+	private static @Nullable String paramValue(String param) {
+		int eq = param.indexOf('=');
+		if (eq == -1) return null;
+		String value = param.substring(eq + 1).trim();
+		if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+			value = value.substring(1, value.length() - 1);
+		}
+		return value;
+	}
+
+	private static int parseWindowBits(@Nullable String value) {
+		if (value == null) return -1;
+		try {
+			int bits = Integer.parseInt(value);
+			return bits >= 8 && bits <= MAX_WINDOW_BITS ? bits : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return "WebSocketCompression{" +
+				"level=" + level +
+				", minSize=" + minSize +
+				", serverNoContextTakeover=" + serverNoContextTakeover +
+				", clientNoContextTakeover=" + clientNoContextTakeover +
+				'}';
+	}
+}
@@ -35,6 +35,7 @@ public final class WebSocketConstants {
 	static final WebSocketException STATUS_CODE_MISSING = new WebSocketException(1005, "Status code missing");
 	static final WebSocketException CLOSE_FRAME_MISSING = new WebSocketException(1006, "Peer did not send CLOSE frame");
 	static final WebSocketException NOT_A_VALID_UTF_8 = new WebSocketException(1007, "Received TEXT message is not a valid UTF-8 message");
+	static final WebSocketException NOT_A_VALID_DEFLATE_DATA = new WebSocketException(1007, "Received compressed message is not a valid deflate data");
 	static final WebSocketException MESSAGE_TOO_BIG = new WebSocketException(1009, "Received message is too big");
 	static final WebSocketException SERVER_ERROR = new WebSocketException(1011, "Unexpected server error");
 
@@ -20,7 +20,9 @@ import io.activej.async.exception.AsyncCloseException;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
 import io.activej.bytebuf.ByteBufStrings;
+import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
+import io.activej.common.MemSize;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelInput;
 import io.activej.csp.ChannelOutput;
@@ -36,6 +38,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static io.activej.common.Checks.checkState;
+import static io.activej.http.HttpUtils.applyMask;
 import static io.activej.http.HttpUtils.frameToOpType;
 import static io.activej.http.WebSocket.Frame.FrameType.*;
 import static io.activej.http.WebSocketConstants.*;
@@ -47,8 +50,13 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 	private static final boolean CHECK = Checks.isEnabled(WebSocketFramesToBufs.class);
 
 	private static final ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
+	static final int ZERO_COPY_THRESHOLD = ApplicationSettings.getMemSize(WebSocketFramesToBufs.class, "zeroCopyThreshold", MemSize.kilobytes(16)).toInt();
+
+	private static final byte FIN = (byte) 0x80;
+	private static final byte RSV1 = 0x40;
 
 	private final boolean masked;
+	private final @Nullable PerMessageDeflate deflate;
 	private final SettablePromise<Void> closeSentPromise = new SettablePromise<>();
 
 	private ChannelSupplier<Frame> input;
@@ -57,14 +65,23 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 	private @Nullable Promise<Void> pendingPromise;
 	private boolean closing;
 	private boolean waitingForFin;
+	private boolean compressing;
 
 	// region creators
-	private WebSocketFramesToBufs(boolean masked) {
+	private WebSocketFramesToBufs(boolean masked, @Nullable PerMessageDeflate deflate) {
 		this.masked = masked;
+		this.deflate = deflate;
 	}
 
 	public static WebSocketFramesToBufs create(boolean masked) {
-		return new WebSocketFramesToBufs(masked);
+		return new WebSocketFramesToBufs(masked, null);
+	}
+
+	/**
+	 * Creates an encoder which compresses messages with a negotiated {@code permessage-deflate} extension
+	 */
+	public static WebSocketFramesToBufs create(boolean masked, @Nullable PerMessageDeflate deflate) {
+		return new WebSocketFramesToBufs(masked, deflate);
 	}
 
 	@SuppressWarnings("ConstantConditions") //check input for clarity
@@ -101,44 +118,88 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 				frame -> {
 					if (CHECK) checkFrameOrder(frame);
 
-					return doAccept(encodeData(frame));
+					return encodeData(frame);
 				}))
 				.then(() -> sendCloseFrame(REGULAR_CLOSE))
 				.whenResult(this::completeProcess);
 	}
 
+	/**
+	 * Encodes a frame header and a payload into a single buffer. A payload is recycled.
+	 */
 	private ByteBuf doEncode(ByteBuf payload, OpCode opCode, boolean isLastFrame) {
+		return doEncode(payload, opCode, isLastFrame, false, masked);
+	}
+
+	static ByteBuf doEncode(ByteBuf payload, OpCode opCode, boolean isLastFrame, boolean compressed, boolean masked) {
 		int bufSize = payload.readRemaining();
-		int lenSize = bufSize < 126 ? 1 : bufSize < 65536 ? 3 : 9;
-
-		ByteBuf framedBuf = ByteBufPool.allocate(1 + lenSize + (masked ? 4 : 0) + bufSize);
-		framedBuf.writeByte(isLastFrame ? (byte) (opCode.getCode() | 0x80) : opCode.getCode());
-		if (lenSize == 1) {
-			framedBuf.writeByte((byte) bufSize);
-		} else if (lenSize == 3) {
-			framedBuf.writeByte((byte) 126);
-			framedBuf.writeShort((short) bufSize);
-		} else {
-			framedBuf.writeByte((byte) 127);
-			framedBuf.writeLong(bufSize);
-		}
-		if (masked) {
-			int idx = framedBuf.head() + 1;
-			framedBuf.set(idx, (byte) (framedBuf.at(idx) | 0x80));
-			byte[] mask = new byte[4];
-			RANDOM.nextBytes(mask);
-			framedBuf.put(mask);
-			for (int i = 0, head = payload.head(); head < payload.tail(); head++) {
-				payload.set(head, (byte) (payload.at(head) ^ mask[i++ % 4]));
-			}
-		}
+		ByteBuf framedBuf = ByteBufPool.allocate(headerSize(bufSize, masked) + bufSize);
+		byte[] mask = writeHeader(framedBuf, opCode, isLastFrame, compressed, bufSize, masked);
+		int payloadOffset = framedBuf.tail();
 		framedBuf.put(payload);
 		payload.recycle();
+		if (mask != null) {
+			applyMask(framedBuf.array(), payloadOffset, framedBuf.tail(), mask, 0);
+		}
 		return framedBuf;
 	}
 
-	private ByteBuf encodeData(Frame frame) {
-		return doEncode(frame.getPayload(), frameToOpType(frame.getType()), frame.isLastFrame());
+	private static int headerSize(int payloadSize, boolean masked) {
+		int lenSize = payloadSize < 126 ? 1 : payloadSize < 65536 ? 3 : 9;
+		return 1 + lenSize + (masked ? 4 : 0);
+	}
+
+	private static byte @Nullable [] writeHeader(ByteBuf buf, OpCode opCode, boolean isLastFrame, boolean compressed,
+			int payloadSize, boolean masked) {
+		byte firstByte = opCode.getCode();
+		if (isLastFrame) firstByte |= FIN;
+		if (compressed) firstByte |= RSV1;
+		buf.writeByte(firstByte);
+		byte maskBit = masked ? FIN : 0;
+		if (payloadSize < 126) {
+			buf.writeByte((byte) (payloadSize | maskBit));
+		} else if (payloadSize < 65536) {
+			buf.writeByte((byte) (126 | maskBit));
+			buf.writeShort((short) payloadSize);
+		} else {
+			buf.writeByte((byte) (127 | maskBit));
+			buf.writeLong(payloadSize);
+		}
+		if (!masked) return null;
+		byte[] mask = new byte[4];
+		RANDOM.nextBytes(mask);
+		buf.put(mask);
+		return mask;
+	}
+
+	private Promise<Void> encodeData(Frame frame) {
+		if (frame.isEncoded()) {
+			return doAccept(frame.getPayload());
+		}
+		ByteBuf payload = frame.getPayload();
+		FrameType type = frame.getType();
+		boolean isLastFrame = frame.isLastFrame();
+		if (type != CONTINUATION) {
+			compressing = deflate != null && (!isLastFrame || payload.readRemaining() >= deflate.minSize);
+		}
+		boolean compressed = compressing && type != CONTINUATION;
+		if (compressing) {
+			assert deflate != null;
+			payload = deflate.deflate(payload, isLastFrame);
+		}
+		OpCode opCode = frameToOpType(type);
+		int payloadSize = payload.readRemaining();
+		if (payloadSize < ZERO_COPY_THRESHOLD) {
+			return doAccept(doEncode(payload, opCode, isLastFrame, compressed, masked));
+		}
+		// a large payload is sent as is, after a separate header
+		ByteBuf header = ByteBufPool.allocate(headerSize(payloadSize, masked));
+		byte[] mask = writeHeader(header, opCode, isLastFrame, compressed, payloadSize, masked);
+		if (mask != null) {
+			applyMask(payload.array(), payload.head(), payload.tail(), mask, 0);
+		}
+		doAccept(header);
+		return doAccept(payload);
 	}
 
 	private ByteBuf encodePong(ByteBuf buf) {
@@ -203,6 +264,9 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 
 	@Override
 	protected void doClose(Exception e) {
+		if (deflate != null) {
+			deflate.closeDeflater();
+		}
 		if (output == null || input == null) return;
 
 		WebSocketException exception;
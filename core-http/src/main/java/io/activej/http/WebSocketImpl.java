@@ -20,15 +20,19 @@ import io.activej.async.function.AsyncRunnable;
 import io.activej.async.function.AsyncSupplier;
 import io.activej.async.process.AbstractAsyncCloseable;
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
 import io.activej.bytebuf.ByteBufs;
 import io.activej.common.Checks;
+import io.activej.common.collection.Try;
 import io.activej.common.recycle.Recyclable;
 import io.activej.common.ref.Ref;
 import io.activej.csp.AbstractChannelConsumer;
 import io.activej.csp.AbstractChannelSupplier;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
+import io.activej.http.WebSocket.Frame.FrameType;
 import io.activej.http.WebSocket.Message.MessageType;
+import io.activej.http.WebSocketConstants.OpCode;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import io.activej.promise.SettablePromise;
@@ -36,13 +40,19 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.charset.CharacterCodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.zip.Deflater;
 
 import static io.activej.bytebuf.ByteBuf.wrapForReading;
+import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
 import static io.activej.common.Checks.checkState;
 import static io.activej.common.Utils.nullify;
 import static io.activej.csp.ChannelSuppliers.prefetch;
 import static io.activej.http.HttpUtils.frameToMessageType;
+import static io.activej.http.HttpUtils.frameToOpType;
 import static io.activej.http.HttpUtils.getUTF8;
 import static io.activej.http.WebSocket.Message.MessageType.TEXT;
 import static io.activej.http.WebSocketConstants.*;
@@ -57,6 +67,8 @@ final class WebSocketImpl extends AbstractAsyncCloseable implements WebSocket {
 	private final ChannelSupplier<Frame> frameInput;
 	private final ChannelConsumer<Frame> frameOutput;
 	private final int maxMessageSize;
+	private final boolean masked;
+	private final @Nullable PerMessageDeflate deflate;
 
 	private @Nullable SettablePromise<?> readPromise;
 	private @Nullable SettablePromise<Void> writePromise;
@@ -67,13 +79,70 @@ final class WebSocketImpl extends AbstractAsyncCloseable implements WebSocket {
 			ChannelSupplier<Frame> frameInput,
 			ChannelConsumer<Frame> frameOutput,
 			Consumer<WebSocketException> onProtocolError,
-			int maxMessageSize) {
+			int maxMessageSize,
+			boolean masked,
+			@Nullable PerMessageDeflate deflate) {
 		this.request = request;
 		this.response = response;
 		this.frameInput = prefetch(sanitize(frameInput));
 		this.frameOutput = sanitize(frameOutput);
 		this.onProtocolError = onProtocolError;
 		this.maxMessageSize = maxMessageSize;
+		this.masked = masked;
+		this.deflate = deflate;
+	}
+
+	/**
+	 * @see WebSocket#broadcast
+	 */
+	static Promise<Void> broadcast(Collection<? extends WebSocket> webSockets, Message message) {
+		ByteBuf payload = message.getType() == TEXT ? wrapUtf8(message.getText()) : message.getBuf();
+		FrameType type = message.getType() == TEXT ? FrameType.TEXT : FrameType.BINARY;
+		OpCode opCode = frameToOpType(type);
+		List<Promise<Try<Void>>> promises = new ArrayList<>(webSockets.size());
+		ByteBuf plainFrame = null;
+		ByteBuf compressedFrame = null;
+		try {
+			for (WebSocket webSocket : webSockets) {
+				ByteBuf encodedFrame = null;
+				if (webSocket instanceof WebSocketImpl && !((WebSocketImpl) webSocket).masked) {
+					// frames sent by a server are not masked, so the same encoded frame may be sent to every client
+					PerMessageDeflate deflate = ((WebSocketImpl) webSocket).deflate;
+					if (deflate == null || payload.readRemaining() < deflate.minSize) {
+						if (plainFrame == null) {
+							plainFrame = WebSocketFramesToBufs.doEncode(payload.slice(), opCode, true, false, false);
+						}
+						encodedFrame = plainFrame;
+					} else if (deflate.noContextTakeover) {
+						if (compressedFrame == null) {
+							Deflater deflater = new Deflater(deflate.level, true);
+							try {
+								compressedFrame = WebSocketFramesToBufs.doEncode(PerMessageDeflate.deflateMessage(deflater, payload),
+										opCode, true, true, false);
+							} finally {
+								deflater.end();
+							}
+						}
+						encodedFrame = compressedFrame;
+					}
+				}
+				Frame frame;
+				if (encodedFrame != null) {
+					frame = Frame.encoded(type, encodedFrame.slice());
+				} else {
+					// a payload may be masked or compressed in place, so each web socket receives its own copy
+					ByteBuf copy = ByteBufPool.allocate(payload.readRemaining());
+					copy.put(payload.array(), payload.head(), payload.readRemaining());
+					frame = new Frame(type, copy, true);
+				}
+				promises.add(webSocket.writeFrame(frame).toTry());
+			}
+		} finally {
+			payload.recycle();
+			if (plainFrame != null) plainFrame.recycle();
+			if (compressedFrame != null) compressedFrame.recycle();
+		}
+		return Promises.all(promises);
 	}
 
 	@Override
@@ -23,6 +23,7 @@ import io.activej.csp.queue.ChannelZeroBuffer;
 import io.activej.promise.Promisable;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 
@@ -80,12 +81,19 @@ public abstract class WebSocketServlet implements AsyncServlet {
 										.withHeader(CONNECTION, "Upgrade")
 										.withHeader(SEC_WEBSOCKET_ACCEPT, answer);
 
-								WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(false);
+								PerMessageDeflate deflate = negotiateCompression(request);
+								if (deflate != null) {
+									assert deflate.responseHeader != null;
+									response.addHeader(SEC_WEBSOCKET_EXTENSIONS, deflate.responseHeader);
+								}
+
+								WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(false, deflate);
 								WebSocketBufsToFrames decoder = WebSocketBufsToFrames.create(
 										request.maxBodySize,
 										encoder::sendPong,
 										ByteBuf::recycle,
-										true);
+										true,
+										deflate);
 
 								bindWebSocketTransformers(rawStream, encoder, decoder);
 
@@ -95,7 +103,9 @@ public abstract class WebSocketServlet implements AsyncServlet {
 										rawStream.transformWith(decoder),
 										buffer.getConsumer().transformWith(encoder),
 										decoder::onProtocolError,
-										request.maxBodySize
+										request.maxBodySize,
+										false,
+										deflate
 								));
 
 								return response;
@@ -114,6 +124,12 @@ public abstract class WebSocketServlet implements AsyncServlet {
                 .whenException(encoder::closeEx);
     }
 
+	private static @Nullable PerMessageDeflate negotiateCompression(HttpRequest request) {
+		HttpServerConnection connection = request.getConnection();
+		WebSocketCompression compression = connection != null ? connection.getWebSocketCompression() : null;
+		return compression != null ? compression.accept(request.getHeader(SEC_WEBSOCKET_EXTENSIONS)) : null;
+	}
+
 	private static boolean isUpgradeHeaderMissing(HttpMessage message) {
 		String headerValue = message.getHeader(HttpHeaders.CONNECTION);
 		if (headerValue != null) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.loader;
+
+/**
+ * A count-min sketch of access frequencies with 4-bit counters, which are periodically
+ * halved so that the sketch reflects recent popularity of the items (TinyLFU).
+ * <p>
+ * Each {@code long} of the table holds 16 counters, an item is counted in 4 counters
+ * of a different {@code long}s.
+ */
+final class FrequencySketch {
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+	private static final int MAX_COUNT = 15;
+
+	private final long[] table;
+	private final int tableMask;
+	private final int sampleSize;
+	private int size;
+
+	FrequencySketch(int expectedItems) {
+		int length = Integer.highestOneBit(Math.max(16, Math.min(expectedItems, 1 << 24)) - 1) << 1;
+		this.table = new long[length];
+		this.tableMask = length - 1;
+		this.sampleSize = 10 * length;
+	}
+
+	int frequency(int hashCode) {
+		int hash = spread(hashCode);
+		int start = (hash & 3) << 2;
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	void increment(int hashCode) {
+		int hash = spread(hashCode);
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && ++size == sampleSize) {
+			reset();
+		}
+	}
+
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xFL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	private void reset() {
+		int odd = 0;
+		for (int i = 0; i < table.length; i++) {
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size >>> 1) - (odd >>> 2);
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return (int) h & tableMask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
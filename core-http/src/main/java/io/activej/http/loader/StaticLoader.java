@@ -17,6 +17,8 @@
 package io.activej.http.loader;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.csp.ChannelSupplier;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 
@@ -36,14 +38,71 @@ public interface StaticLoader {
 
 	Promise<ByteBuf> load(String path);
 
+	/**
+	 * Loads a resource as a stream of data, so that large resources
+	 * do not need to be fully loaded into memory.
+	 * By default, a resource is loaded with {@link #load(String)}.
+	 */
+	default Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+		return load(path).map(buf -> ChannelSupplier.of(buf));
+	}
+
+	/**
+	 * Loads a resource along with its metadata, such as a last modification time.
+	 * By default, a resource is loaded with {@link #load(String)} and has no metadata.
+	 * A loaded buffer may be pooled, so it is copied, loaders which read resources
+	 * into byte arrays should override this method to wrap the arrays instead.
+	 */
+	default Promise<StaticResource> loadResource(String path) {
+		return load(path).map(buf -> StaticResource.of(buf.asArray()));
+	}
+
 	default StaticLoader filter(Predicate<String> predicate) {
-		return path -> predicate.test(path) ?
-				load(path) :
-				Promise.ofException(new ResourceNotFoundException("Resource '" + path + "' has been filtered out"));
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return predicate.test(path) ?
+						StaticLoader.this.load(path) :
+						Promise.ofException(filteredOut(path));
+			}
+
+			@Override
+			public Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+				return predicate.test(path) ?
+						StaticLoader.this.loadStream(path) :
+						Promise.ofException(filteredOut(path));
+			}
+
+			@Override
+			public Promise<StaticResource> loadResource(String path) {
+				return predicate.test(path) ?
+						StaticLoader.this.loadResource(path) :
+						Promise.ofException(filteredOut(path));
+			}
+
+			private ResourceNotFoundException filteredOut(String path) {
+				return new ResourceNotFoundException("Resource '" + path + "' has been filtered out");
+			}
+		};
 	}
 
 	default StaticLoader map(UnaryOperator<String> fn) {
-		return path -> this.load(fn.apply(path));
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return StaticLoader.this.load(fn.apply(path));
+			}
+
+			@Override
+			public Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+				return StaticLoader.this.loadStream(fn.apply(path));
+			}
+
+			@Override
+			public Promise<StaticResource> loadResource(String path) {
+				return StaticLoader.this.loadResource(fn.apply(path));
+			}
+		};
 	}
 
 	default StaticLoader subdirectory(String subdirectory) {
@@ -59,6 +118,15 @@ public interface StaticLoader {
 		return cacheOf(this, map);
 	}
 
+	/**
+	 * Caches loaded resources in memory, up to a given total size.
+	 *
+	 * @see StaticLoaderBoundedCache
+	 */
+	default StaticLoaderBoundedCache cached(MemSize maxSize) {
+		return StaticLoaderBoundedCache.create(this).withMaxSize(maxSize);
+	}
+
 	static StaticLoader cacheOf(StaticLoader loader) {
 		return cacheOf(loader, new HashMap<>());
 	}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.loader;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.common.initializer.WithInitializer;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.GzipProcessorUtils;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
+import static io.activej.bytebuf.ByteBuf.wrapForReading;
+import static io.activej.common.Checks.checkArgument;
+import static java.nio.file.StandardWatchEventKinds.*;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A {@link StaticLoader} which caches loaded resources in memory, up to a given total size in bytes.
+ * <p>
+ * Cached resources are evicted according to W-TinyLFU policy: recently loaded resources are kept in a small LRU window,
+ * a resource evicted from the window is admitted to the main region only if it has been requested more often
+ * than the resources it would displace. Access frequencies are approximated with a compact count-min sketch,
+ * so that a scan of rarely requested resources does not flush the popular ones. The admission may be disabled,
+ * in which case the cache is a plain LRU cache.
+ * <p>
+ * Each cached resource is supplied with an {@code ETag} computed from its content and, optionally,
+ * with a precompressed gzip variant, so that neither loading nor compression are repeated on cache hits.
+ * Concurrent requests for a resource which is being loaded share a single load.
+ * <p>
+ * This class is not thread-safe and should be used within a single eventloop.
+ */
+public final class StaticLoaderBoundedCache implements StaticLoader, WithInitializer<StaticLoaderBoundedCache> {
+	private static final Logger logger = getLogger(StaticLoaderBoundedCache.class);
+
+	public static final MemSize DEFAULT_MAX_SIZE = MemSize.megabytes(64);
+	public static final MemSize DEFAULT_MAX_RESOURCE_SIZE = MemSize.megabytes(4);
+	public static final MemSize DEFAULT_MIN_COMPRESSION_SIZE = MemSize.bytes(1024);
+
+	private static final int ENTRY_OVERHEAD = 128;
+	private static final int AVERAGE_RESOURCE_SIZE = 4096;
+	private static final double WINDOW_RATIO = 0.01;
+	private static final double PROTECTED_RATIO = 0.8;
+	// a compressed variant is kept only if it saves at least 1/8 of the size
+	private static final int MIN_COMPRESSION_GAIN_SHIFT = 3;
+
+	private final StaticLoader loader;
+
+	private long maxSize = DEFAULT_MAX_SIZE.toLong();
+	private long maxResourceSize = DEFAULT_MAX_RESOURCE_SIZE.toLong();
+	private boolean admission = true;
+	private boolean precompression = true;
+	private int minCompressionSize = DEFAULT_MIN_COMPRESSION_SIZE.toInt();
+	private @Nullable Executor compressionExecutor;
+
+	private final HashMap<String, Node> nodes = new HashMap<>();
+	private final HashMap<String, Promise<StaticResource>> loading = new HashMap<>();
+	private final Region window = new Region();
+	private final Region probation = new Region();
+	private final Region protectedRegion = new Region();
+	private long maxWindowSize;
+	private long maxProtectedSize;
+	private FrequencySketch sketch;
+
+	private @Nullable FileWatcher fileWatcher;
+
+	// region JMX
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long rejections;
+	private long invalidations;
+	// endregion
+
+	// region builders
+	private StaticLoaderBoundedCache(StaticLoader loader) {
+		this.loader = loader;
+		resize();
+	}
+
+	public static StaticLoaderBoundedCache create(@NotNull StaticLoader loader) {
+		return new StaticLoaderBoundedCache(loader);
+	}
+
+	/**
+	 * Sets a maximum total size of cached resources, including their compressed variants
+	 */
+	public StaticLoaderBoundedCache withMaxSize(@NotNull MemSize maxSize) {
+		checkArgument(maxSize.toLong() > 0, "Cache size should be positive");
+		this.maxSize = maxSize.toLong();
+		resize();
+		return this;
+	}
+
+	/**
+	 * Sets a maximum size of a single cached resource, larger resources are loaded on each request
+	 */
+	public StaticLoaderBoundedCache withMaxResourceSize(@NotNull MemSize maxResourceSize) {
+		this.maxResourceSize = maxResourceSize.toLong();
+		return this;
+	}
+
+	/**
+	 * Sets whether resources evicted from the LRU window are admitted to the main region
+	 * only if they are requested more often than the resources they displace.
+	 * Without admission the cache behaves as a plain LRU cache.
+	 */
+	public StaticLoaderBoundedCache withAdmission(boolean admission) {
+		this.admission = admission;
+		resize();
+		return this;
+	}
+
+	/**
+	 * Sets whether a gzip-compressed variant of a resource is prepared once the resource is loaded
+	 *
+	 * @param precompression     whether compressed variants are prepared
+	 * @param minCompressionSize a minimum size of a resource to be compressed
+	 */
+	public StaticLoaderBoundedCache withPrecompression(boolean precompression, @NotNull MemSize minCompressionSize) {
+		this.precompression = precompression;
+		this.minCompressionSize = minCompressionSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Sets an executor on which loaded resources are compressed, by default they are compressed in place
+	 */
+	public StaticLoaderBoundedCache withCompressionExecutor(@NotNull Executor compressionExecutor) {
+		this.compressionExecutor = compressionExecutor;
+		return this;
+	}
+
+	/**
+	 * Watches a directory tree for changes and invalidates cached resources once their files
+	 * are modified or removed. Resource paths are considered to be relative to the given directory,
+	 * the same way as they are in a loader created with {@link StaticLoader#ofPath}.
+	 * <p>
+	 * Changes are watched in a separate daemon thread, which is stopped by {@link #close()}.
+	 *
+	 * @param eventloop an eventloop this cache is used in
+	 * @param root      a root directory of resources
+	 */
+	public StaticLoaderBoundedCache withFileWatching(@NotNull Eventloop eventloop, @NotNull Path root) throws IOException {
+		if (fileWatcher != null) {
+			fileWatcher.close();
+		}
+		fileWatcher = new FileWatcher(eventloop, root.toAbsolutePath().normalize());
+		fileWatcher.start();
+		return this;
+	}
+	// endregion
+
+	private void resize() {
+		maxWindowSize = admission ? Math.max(1, (long) (maxSize * WINDOW_RATIO)) : maxSize;
+		maxProtectedSize = (long) ((maxSize - maxWindowSize) * PROTECTED_RATIO);
+		sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maxSize / AVERAGE_RESOURCE_SIZE));
+	}
+
+	@Override
+	public Promise<ByteBuf> load(String path) {
+		return loadResource(path)
+				.map(resource -> wrapForReading(resource.getContent()));
+	}
+
+	@Override
+	public Promise<StaticResource> loadResource(String path) {
+		sketch.increment(path.hashCode());
+		Node node = nodes.get(path);
+		if (node != null) {
+			hits++;
+			onHit(node);
+			return Promise.of(node.resource);
+		}
+		misses++;
+		Promise<StaticResource> pending = loading.get(path);
+		if (pending != null) {
+			return pending;
+		}
+		return doLoad(path);
+	}
+
+	private Promise<StaticResource> doLoad(String path) {
+		Promise<StaticResource> promise = loader.loadResource(path)
+				.then(this::prepare);
+		if (promise.isComplete()) {
+			if (promise.isResult()) {
+				put(path, promise.getResult());
+			}
+			return promise;
+		}
+		loading.put(path, promise);
+		promise.whenComplete((resource, e) -> {
+			// a resource which has been invalidated while being loaded is not cached
+			if (loading.remove(path, promise) && e == null) {
+				put(path, resource);
+			}
+		});
+		return promise;
+	}
+
+	private Promise<StaticResource> prepare(StaticResource resource) {
+		byte[] content = resource.getContent();
+		if (resource.getEtag() == null) {
+			resource = resource.withEtag(computeEtag(content));
+		}
+		if (!precompression || resource.getGzipContent() != null || content.length < minCompressionSize ||
+				content.length + ENTRY_OVERHEAD > maxResourceSize) {
+			return Promise.of(resource);
+		}
+		StaticResource finalResource = resource;
+		return compressionExecutor == null ?
+				Promise.of(resource.withGzipContent(compress(content))) :
+				Promise.ofBlocking(compressionExecutor, () -> finalResource.withGzipContent(compress(content)));
+	}
+
+	private static byte @Nullable [] compress(byte[] content) {
+		byte[] compressed = GzipProcessorUtils.toGzip(wrapForReading(content)).asArray();
+		return compressed.length <= content.length - (content.length >>> MIN_COMPRESSION_GAIN_SHIFT) ? compressed : null;
+	}
+
+	/**
+	 * Computes a strong entity tag of a content as a 64-bit FNV-1a hash along with the content length
+	 */
+	static String computeEtag(byte[] content) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : content) {
+			hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+		}
+		return "\"" + Integer.toHexString(content.length) + '-' + Long.toHexString(hash) + '"';
+	}
+
+	// region cache policy
+	private void put(String path, StaticResource resource) {
+		long size = resource.getSize() + ENTRY_OVERHEAD + 2L * path.length();
+		if (size > maxResourceSize || size > maxSize - maxWindowSize && admission) return;
+
+		Node old = nodes.remove(path);
+		if (old != null) {
+			old.region.remove(old);
+		}
+		Node node = new Node(path, resource, size);
+		nodes.put(path, node);
+		window.addLast(node);
+		evict();
+	}
+
+	private void onHit(Node node) {
+		Region region = node.region;
+		region.remove(node);
+		if (region == probation) {
+			protectedRegion.addLast(node);
+			while (protectedRegion.size > maxProtectedSize) {
+				Node demoted = protectedRegion.first;
+				protectedRegion.remove(demoted);
+				probation.addLast(demoted);
+			}
+		} else {
+			region.addLast(node);
+		}
+	}
+
+	private void evict() {
+		while (window.size > maxWindowSize) {
+			Node candidate = window.first;
+			window.remove(candidate);
+			if (!admission) {
+				nodes.remove(candidate.path);
+				evictions++;
+			} else if (admit(candidate)) {
+				probation.addLast(candidate);
+			} else {
+				nodes.remove(candidate.path);
+				rejections++;
+			}
+		}
+	}
+
+	/**
+	 * Makes room in the main region for a candidate evicted from the window, evicting least recently
+	 * used resources which are requested less often than the candidate
+	 *
+	 * @return whether the candidate should be admitted to the main region
+	 */
+	private boolean admit(Node candidate) {
+		long maxMainSize = maxSize - maxWindowSize;
+		int candidateFrequency = -1;
+		while (probation.size + protectedRegion.size + candidate.size > maxMainSize) {
+			Node victim = probation.first != null ? probation.first : protectedRegion.first;
+			if (victim == null) return false;
+			if (candidateFrequency == -1) {
+				candidateFrequency = sketch.frequency(candidate.path.hashCode());
+			}
+			if (sketch.frequency(victim.path.hashCode()) >= candidateFrequency) return false;
+			victim.region.remove(victim);
+			nodes.remove(victim.path);
+			evictions++;
+		}
+		return true;
+	}
+	// endregion
+
+	/**
+	 * Removes a resource from this cache, so that it is loaded again on the next request
+	 */
+	public void invalidate(String path) {
+		loading.remove(path);
+		Node node = nodes.remove(path);
+		if (node != null) {
+			node.region.remove(node);
+			invalidations++;
+		}
+	}
+
+	@JmxOperation
+	public void invalidateAll() {
+		loading.clear();
+		invalidations += nodes.size();
+		nodes.clear();
+		window.clear();
+		probation.clear();
+		protectedRegion.clear();
+	}
+
+	/**
+	 * Stops watching files, if file watching is enabled
+	 */
+	public void close() {
+		if (fileWatcher != null) {
+			fileWatcher.close();
+			fileWatcher = null;
+		}
+	}
+
+	// region JMX
+	@JmxAttribute
+	public int getResourcesCount() {
+		return nodes.size();
+	}
+
+	@JmxAttribute
+	public long getTotalSize() {
+		return window.size + probation.size + protectedRegion.size;
+	}
+
+	@JmxAttribute
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	@JmxAttribute
+	public long getHits() {
+		return hits;
+	}
+
+	@JmxAttribute
+	public long getMisses() {
+		return misses;
+	}
+
+	@JmxAttribute
+	public long getEvictions() {
+		return evictions;
+	}
+
+	@JmxAttribute(description = "resources which were not admitted to the cache as they are requested less often than the cached ones")
+	public long getRejections() {
+		return rejections;
+	}
+
+	@JmxAttribute
+	public long getInvalidations() {
+		return invalidations;
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return "StaticLoaderBoundedCache{" +
+				"resources=" + nodes.size() +
+				", size=" + getTotalSize() +
+				", maxSize=" + maxSize +
+				'}';
+	}
+
+	private static final class Node {
+		final String path;
+		final StaticResource resource;
+		final long size;
+
+		Region region;
+		@Nullable Node prev;
+		@Nullable Node next;
+
+		Node(String path, StaticResource resource, long size) {
+			this.path = path;
+			this.resource = resource;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * A doubly-linked list of cached resources, from the least recently used to the most recently used one
+	 */
+	private static final class Region {
+		@Nullable Node first;
+		@Nullable Node last;
+		long size;
+
+		void addLast(Node node) {
+			node.region = this;
+			node.prev = last;
+			node.next = null;
+			if (last == null) {
+				first = node;
+			} else {
+				last.next = node;
+			}
+			last = node;
+			size += node.size;
+		}
+
+		void remove(Node node) {
+			assert node.region == this;
+			if (node.prev == null) {
+				first = node.next;
+			} else {
+				node.prev.next = node.next;
+			}
+			if (node.next == null) {
+				last = node.prev;
+			} else {
+				node.next.prev = node.prev;
+			}
+			node.prev = null;
+			node.next = null;
+			size -= node.size;
+		}
+
+		void clear() {
+			first = null;
+			last = null;
+			size = 0;
+		}
+	}
+
+	private final class FileWatcher implements Runnable {
+		private final Eventloop eventloop;
+		private final Path root;
+		private final WatchService watchService;
+		private final Thread thread;
+
+		FileWatcher(Eventloop eventloop, Path root) throws IOException {
+			this.eventloop = eventloop;
+			this.root = root;
+			this.watchService = root.getFileSystem().newWatchService();
+			this.thread = new Thread(this, "static-loader-watcher");
+			this.thread.setDaemon(true);
+			registerAll(root);
+		}
+
+		void start() {
+			thread.start();
+		}
+
+		void close() {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				logger.warn("Failed to close watch service of {}", root, e);
+			}
+		}
+
+		private void registerAll(Path dir) throws IOException {
+			Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				WatchKey key;
+				try {
+					key = watchService.take();
+				} catch (InterruptedException | ClosedWatchServiceException e) {
+					return;
+				}
+				Path dir = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						eventloop.execute(StaticLoaderBoundedCache.this::invalidateAll);
+						continue;
+					}
+					Path file = dir.resolve((Path) event.context());
+					if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+						try {
+							registerAll(file);
+						} catch (IOException | ClosedWatchServiceException e) {
+							logger.warn("Failed to watch directory {}", file, e);
+						}
+					}
+					String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+					eventloop.execute(() -> invalidate(path));
+				}
+				key.reset();
+			}
+		}
+	}
+}
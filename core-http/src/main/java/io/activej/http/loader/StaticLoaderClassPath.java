@@ -61,6 +61,15 @@ class StaticLoaderClassPath implements StaticLoader {
 
 	@Override
 	public Promise<ByteBuf> load(String name) {
+		return loadBytes(name).map(ByteBuf::wrapForReading);
+	}
+
+	@Override
+	public Promise<StaticResource> loadResource(String name) {
+		return loadBytes(name).map(bytes -> StaticResource.of(bytes));
+	}
+
+	private Promise<byte[]> loadBytes(String name) {
 		String path = root;
 		int begin = 0;
 		if (name.startsWith(ROOT)) {
@@ -92,7 +101,7 @@ class StaticLoaderClassPath implements StaticLoader {
 					}
 				}
 			}
-			return ByteBuf.wrapForReading(loadResource(connection));
+			return loadResource(connection);
 		});
 	}
 
@@ -18,6 +18,7 @@ package io.activej.http.loader;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufs;
+import io.activej.csp.ChannelSupplier;
 import io.activej.csp.file.ChannelFileReader;
 import io.activej.promise.Promise;
 
@@ -40,7 +41,37 @@ class StaticLoaderFileReader implements StaticLoader {
 
 	@Override
 	public Promise<ByteBuf> load(String path) {
-		Path file = root.resolve(path).normalize();
+		return open(path)
+				.then(cfr -> cfr.toCollector(ByteBufs.collector()));
+	}
+
+	@Override
+	public Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+		return open(path)
+				.map(cfr -> cfr.withLimit(cfr.getRemaining()));
+	}
+
+	@Override
+	public Promise<StaticResource> loadResource(String path) {
+		// a file is read into an array of its size at once, with no intermediate buffers
+		return check(path)
+				.then(file -> Promise.ofBlocking(executor, () -> {
+					long lastModified = Files.getLastModifiedTime(file).toMillis();
+					return StaticResource.of(Files.readAllBytes(file), lastModified);
+				}));
+	}
+
+	private Path resolve(String path) {
+		return root.resolve(path).normalize();
+	}
+
+	private Promise<ChannelFileReader> open(String path) {
+		return check(path)
+				.then(file -> ChannelFileReader.open(executor, file));
+	}
+
+	private Promise<Path> check(String path) {
+		Path file = resolve(path);
 
 		if (!file.startsWith(root)) {
 			return Promise.ofException(new ResourceNotFoundException("Could not find '" + path + '\''));
@@ -49,15 +80,13 @@ class StaticLoaderFileReader implements StaticLoader {
 		return Promise.ofBlocking(executor,
 				() -> {
 					if (Files.isRegularFile(file)) {
-						return;
+						return file;
 					}
 					if (Files.isDirectory(file)) {
 						throw new ResourceIsADirectoryException("Resource '" + path + "' is a directory");
 					} else {
 						throw new ResourceNotFoundException("Could not find '" + path + '\'');
 					}
-				})
-				.then(() -> ChannelFileReader.open(executor, file))
-				.then(cfr -> cfr.toCollector(ByteBufs.collector()));
+				});
 	}
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.loader;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A loaded static resource along with its metadata, which is used
+ * by {@link io.activej.http.StaticServlet StaticServlet} to serve conditional requests
+ */
+public final class StaticResource {
+	private final byte[] content;
+	private final byte @Nullable [] gzipContent;
+	private final @Nullable String etag;
+	private final long lastModified;
+
+	private StaticResource(byte[] content, byte @Nullable [] gzipContent, @Nullable String etag, long lastModified) {
+		this.content = content;
+		this.gzipContent = gzipContent;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	public static StaticResource of(byte @NotNull [] content) {
+		return new StaticResource(content, null, null, 0L);
+	}
+
+	/**
+	 * @param content      content of a resource
+	 * @param lastModified a timestamp of the last modification of a resource in milliseconds, or 0 if it is unknown
+	 */
+	public static StaticResource of(byte @NotNull [] content, long lastModified) {
+		return new StaticResource(content, null, null, lastModified);
+	}
+
+	public StaticResource withEtag(@Nullable String etag) {
+		return new StaticResource(content, gzipContent, etag, lastModified);
+	}
+
+	public StaticResource withGzipContent(byte @Nullable [] gzipContent) {
+		return new StaticResource(content, gzipContent, etag, lastModified);
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+
+	/**
+	 * Returns content of this resource compressed with gzip, if a compressed variant is available
+	 */
+	public byte @Nullable [] getGzipContent() {
+		return gzipContent;
+	}
+
+	public @Nullable String getEtag() {
+		return etag;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Returns a total size of this resource, including its compressed variant
+	 */
+	public int getSize() {
+		return content.length + (gzipContent != null ? gzipContent.length : 0);
+	}
+
+	@Override
+	public String toString() {
+		return "StaticResource{" +
+				"size=" + content.length +
+				", gzipSize=" + (gzipContent != null ? gzipContent.length : -1) +
+				", etag=" + etag +
+				", lastModified=" + lastModified +
+				'}';
+	}
+}
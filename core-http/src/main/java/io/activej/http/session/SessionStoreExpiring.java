@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.session;
+
+import io.activej.common.initializer.WithInitializer;
+import io.activej.common.time.CurrentTimeProvider;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.jmx.EventloopJmxBeanWithStats;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.jmx.stats.EventStats;
+import io.activej.promise.Promise;
+import io.activej.serializer.BinarySerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * A session storage which expires idle sessions in the background and bounds the number of stored sessions.
+ * <p>
+ * Sessions are kept in access order, so that the least recently used sessions are the first ones to expire.
+ * Expiration is performed periodically by the eventloop and stops at the first session which is still alive,
+ * so the amortized cost of expiration is constant per session, and dead sessions do not accumulate
+ * until they are touched. Once the number of sessions exceeds the limit, the least recently used ones are evicted.
+ * <p>
+ * Optionally, session objects may be stored in a serialized form with a given {@link BinarySerializer},
+ * which is considerably more compact for a large number of sessions and keeps the heap free of
+ * long-living object graphs. Each lookup then returns a fresh copy of a session object,
+ * so a modified session object should be saved again.
+ */
+public final class SessionStoreExpiring<T> implements SessionStore<T>, EventloopJmxBeanWithStats, WithInitializer<SessionStoreExpiring<T>> {
+	public static final Duration DEFAULT_EXPIRATION_INTERVAL = Duration.ofSeconds(1);
+	private static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+	private static final int INITIAL_BUFFER_SIZE = 256;
+
+	private final Eventloop eventloop;
+	private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+	private @Nullable Duration sessionLifetime;
+	private long sessionLifetimeMillis = Long.MAX_VALUE;
+	private long expirationIntervalMillis = DEFAULT_EXPIRATION_INTERVAL.toMillis();
+	private int maxSessions = Integer.MAX_VALUE;
+	private @Nullable BinarySerializer<T> serializer;
+	private byte[] buffer = new byte[0];
+
+	private CurrentTimeProvider now;
+	private @Nullable ScheduledRunnable expiration;
+
+	// region JMX
+	private final EventStats created = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats expired = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats evicted = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats removed = EventStats.create(SMOOTHING_WINDOW);
+	// endregion
+
+	// region builders
+	private SessionStoreExpiring(Eventloop eventloop) {
+		this.eventloop = eventloop;
+		this.now = eventloop;
+	}
+
+	public static <T> SessionStoreExpiring<T> create(@NotNull Eventloop eventloop) {
+		return new SessionStoreExpiring<>(eventloop);
+	}
+
+	/**
+	 * Sets a lifetime of a session since it has been last saved or accessed
+	 */
+	public SessionStoreExpiring<T> withLifetime(@NotNull Duration sessionLifetime) {
+		checkArgument(!sessionLifetime.isNegative() && !sessionLifetime.isZero(), "Session lifetime should be positive");
+		this.sessionLifetime = sessionLifetime;
+		this.sessionLifetimeMillis = sessionLifetime.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets how often expired sessions are removed in the background
+	 */
+	public SessionStoreExpiring<T> withExpirationInterval(@NotNull Duration expirationInterval) {
+		checkArgument(!expirationInterval.isNegative() && !expirationInterval.isZero(), "Expiration interval should be positive");
+		this.expirationIntervalMillis = expirationInterval.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of stored sessions, once it is exceeded the least recently used sessions are evicted
+	 */
+	public SessionStoreExpiring<T> withMaxSessions(int maxSessions) {
+		checkArgument(maxSessions > 0, "Maximum number of sessions should be positive");
+		this.maxSessions = maxSessions;
+		return this;
+	}
+
+	/**
+	 * Stores session objects in a serialized form
+	 */
+	public SessionStoreExpiring<T> withSerializer(@NotNull BinarySerializer<T> serializer) {
+		this.serializer = serializer;
+		this.buffer = new byte[INITIAL_BUFFER_SIZE];
+		return this;
+	}
+
+	public SessionStoreExpiring<T> withCurrentTimeProvider(@NotNull CurrentTimeProvider now) {
+		this.now = now;
+		return this;
+	}
+	// endregion
+
+	@Override
+	public Promise<Void> save(String sessionId, T sessionObject) {
+		Object value = serializer != null ? serialize(serializer, sessionObject) : sessionObject;
+		Session session = sessions.get(sessionId);
+		if (session != null) {
+			session.value = value;
+			session.timestamp = now.currentTimeMillis();
+			return Promise.complete();
+		}
+		sessions.put(sessionId, new Session(value, now.currentTimeMillis()));
+		created.recordEvent();
+		if (sessions.size() > maxSessions) {
+			Iterator<Session> iterator = sessions.values().iterator();
+			iterator.next();
+			iterator.remove();
+			evicted.recordEvent();
+		}
+		ensureExpiration();
+		return Promise.complete();
+	}
+
+	@Override
+	public Promise<@Nullable T> get(String sessionId) {
+		Session session = sessions.get(sessionId);
+		if (session == null) {
+			return Promise.of(null);
+		}
+		long timestamp = now.currentTimeMillis();
+		if (timestamp - session.timestamp > sessionLifetimeMillis) {
+			sessions.remove(sessionId);
+			expired.recordEvent();
+			return Promise.of(null);
+		}
+		session.timestamp = timestamp;
+		if (serializer == null) {
+			//noinspection unchecked
+			return Promise.of((T) session.value);
+		}
+		try {
+			return Promise.of(serializer.decode((byte[]) session.value, 0));
+		} catch (Exception e) {
+			sessions.remove(sessionId);
+			return Promise.ofException(e);
+		}
+	}
+
+	@Override
+	public Promise<Void> remove(String sessionId) {
+		if (sessions.remove(sessionId) != null) {
+			removed.recordEvent();
+		}
+		return Promise.complete();
+	}
+
+	@Override
+	public @Nullable Duration getSessionLifetimeHint() {
+		return sessionLifetime;
+	}
+
+	private byte[] serialize(BinarySerializer<T> serializer, T sessionObject) {
+		while (true) {
+			try {
+				int size = serializer.encode(buffer, 0, sessionObject);
+				return Arrays.copyOf(buffer, size);
+			} catch (ArrayIndexOutOfBoundsException e) {
+				buffer = new byte[buffer.length * 2];
+			}
+		}
+	}
+
+	private void ensureExpiration() {
+		if (expiration != null || sessionLifetime == null) return;
+		expiration = eventloop.delayBackground(expirationIntervalMillis, () -> {
+			expiration = null;
+			expire();
+			if (!sessions.isEmpty()) {
+				ensureExpiration();
+			}
+		});
+	}
+
+	/**
+	 * Removes expired sessions, starting from the least recently used one
+	 *
+	 * @return number of removed sessions
+	 */
+	@JmxOperation
+	public int expire() {
+		long timestamp = now.currentTimeMillis();
+		int count = 0;
+		for (Iterator<Session> iterator = sessions.values().iterator(); iterator.hasNext(); ) {
+			Session session = iterator.next();
+			if (timestamp - session.timestamp <= sessionLifetimeMillis) break;
+			iterator.remove();
+			count++;
+		}
+		expired.recordEvents(count);
+		return count;
+	}
+
+	@JmxOperation
+	public void clear() {
+		sessions.clear();
+	}
+
+	// region JMX
+	@Override
+	public @NotNull Eventloop getEventloop() {
+		return eventloop;
+	}
+
+	@JmxAttribute(description = "number of stored sessions, including expired ones which have not been removed yet")
+	public int getSessions() {
+		return sessions.size();
+	}
+
+	@JmxAttribute
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	@JmxAttribute
+	public EventStats getCreated() {
+		return created;
+	}
+
+	@JmxAttribute
+	public EventStats getExpired() {
+		return expired;
+	}
+
+	@JmxAttribute(description = "sessions removed as the maximum number of sessions has been exceeded")
+	public EventStats getEvicted() {
+		return evicted;
+	}
+
+	@JmxAttribute
+	public EventStats getRemoved() {
+		return removed;
+	}
+	// endregion
+
+	private static final class Session {
+		Object value;
+		long timestamp;
+
+		Session(Object value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -28,6 +28,7 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.csp.dsl.WithChannelTransformer;
 import io.activej.csp.process.AbstractCommunicatingProcess;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
@@ -41,6 +42,8 @@ import static io.activej.common.Checks.checkState;
  * <p>
  * It is used in HTTP when {@link io.activej.http.HttpMessage#setBodyGzipCompression HttpMessage#setBodyGzipCompression}
  * method is used.
+ * <p>
+ * By default, the data is framed in gzip format (RFC 1952), see {@link #withGzipFormat(boolean)}.
  */
 public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 		implements WithChannelTransformer<BufsConsumerGzipDeflater, ByteBuf, ByteBuf>,
@@ -50,10 +53,13 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 	private static final byte[] GZIP_HEADER = {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
 	private static final int GZIP_FOOTER_SIZE = 8;
 
-	private final CRC32 crc32 = new CRC32();
+	private @Nullable CRC32 crc32 = new CRC32();
 
 	private Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private boolean endDeflater = true;
 	private int maxBufSize = DEFAULT_MAX_BUF_SIZE;
+	private long deflateNanos;
+
 	private ChannelSupplier<ByteBuf> input;
 	private ChannelConsumer<ByteBuf> output;
 
@@ -67,6 +73,27 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 
 	public BufsConsumerGzipDeflater withDeflater(@NotNull Deflater deflater) {
 		this.deflater = deflater;
+		this.endDeflater = true;
+		return this;
+	}
+
+	/**
+	 * Sets a deflater which is not ended by this process,
+	 * so that it may be reset and reused once the process completes
+	 */
+	public BufsConsumerGzipDeflater withReusableDeflater(@NotNull Deflater deflater) {
+		this.deflater = deflater;
+		this.endDeflater = false;
+		return this;
+	}
+
+	/**
+	 * Sets whether the compressed data is framed with gzip header and trailer.
+	 * A deflater for gzip format should be created with {@code nowrap} parameter set to {@code true}.
+	 * Otherwise, the format is defined by the deflater itself: zlib (RFC 1950) or raw DEFLATE (RFC 1951)
+	 */
+	public BufsConsumerGzipDeflater withGzipFormat(boolean gzipFormat) {
+		this.crc32 = gzipFormat ? new CRC32() : null;
 		return this;
 	}
 
@@ -98,6 +125,17 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 	}
 	// endregion
 
+	public Deflater getDeflater() {
+		return deflater;
+	}
+
+	/**
+	 * Returns total time spent compressing the data, in nanoseconds
+	 */
+	public long getDeflateNanos() {
+		return deflateNanos;
+	}
+
 	@Override
 	protected void beforeProcess() {
 		checkState(input != null, "Input was not set");
@@ -106,17 +144,19 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 
 	@Override
 	protected void doProcess() {
-		writeHeader();
-	}
-
-	private void writeHeader() {
-		output.accept(ByteBuf.wrapForReading(GZIP_HEADER))
-				.whenResult(this::writeBody);
+		if (crc32 != null) {
+			output.accept(ByteBuf.wrapForReading(GZIP_HEADER))
+					.whenResult(this::writeBody);
+		} else {
+			writeBody();
+		}
 	}
 
 	private void writeBody() {
 		input.streamTo(ChannelConsumer.of(buf -> {
-					crc32.update(buf.array(), buf.head(), buf.readRemaining());
+					if (crc32 != null) {
+						crc32.update(buf.array(), buf.head(), buf.readRemaining());
+					}
 					deflater.setInput(buf.array(), buf.head(), buf.readRemaining());
 					ByteBufs bufs = deflate();
 					buf.recycle();
@@ -128,16 +168,20 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 	private void writeFooter() {
 		deflater.finish();
 		ByteBufs bufs = deflate();
-		ByteBuf footer = ByteBufPool.allocate(GZIP_FOOTER_SIZE);
-		footer.writeInt(Integer.reverseBytes((int) crc32.getValue()));
-		footer.writeInt(Integer.reverseBytes(deflater.getTotalIn()));
-		bufs.add(footer);
+		if (crc32 != null) {
+			ByteBuf footer = ByteBufPool.allocate(GZIP_FOOTER_SIZE);
+			footer.writeInt(Integer.reverseBytes((int) crc32.getValue()));
+			// ISIZE is the size of the original input modulo 2^32
+			footer.writeInt(Integer.reverseBytes((int) deflater.getBytesRead()));
+			bufs.add(footer);
+		}
 		output.acceptAll(bufs.asIterator())
 				.then(output::acceptEndOfStream)
 				.whenResult(this::completeProcess);
 	}
 
 	private ByteBufs deflate() {
+		long start = System.nanoTime();
 		ByteBufs bufs = new ByteBufs();
 		while (true) {
 			ByteBuf out = ByteBufPool.allocate(maxBufSize);
@@ -147,6 +191,7 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 				bufs.add(out);
 			} else {
 				out.recycle();
+				deflateNanos += System.nanoTime() - start;
 				return bufs;
 			}
 		}
@@ -154,7 +199,9 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 
 	@Override
 	protected void doClose(Exception e) {
-		deflater.end();
+		if (endDeflater) {
+			deflater.end();
+		}
 		input.closeEx(e);
 		output.closeEx(e);
 	}
@@ -0,0 +1,151 @@
+package io.activej.dns;
+
+import io.activej.dns.protocol.*;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.dns.protocol.DnsProtocol.ResponseErrorCode.SERVER_FAILURE;
+import static org.junit.Assert.*;
+
+public final class CachedAsyncDnsClientTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	private static final DnsQuery QUERY = DnsQuery.ipv4("www.example.com");
+
+	private final List<SettablePromise<DnsResponse>> requests = new ArrayList<>();
+	private long currentTime;
+	private DnsCache cache;
+	private CachedAsyncDnsClient client;
+
+	@Before
+	public void setUp() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		cache = DnsCache.create(eventloop);
+		cache.now = () -> currentTime;
+		client = CachedAsyncDnsClient.create(eventloop, new AsyncDnsClient() {
+			@Override
+			public Promise<DnsResponse> resolve(DnsQuery query) {
+				SettablePromise<DnsResponse> request = new SettablePromise<>();
+				requests.add(request);
+				return request;
+			}
+
+			@Override
+			public void close() {
+			}
+		}, cache);
+	}
+
+	@Test
+	public void testCoalescing() throws UnknownHostException {
+		Promise<DnsResponse> first = client.resolve(QUERY);
+		Promise<DnsResponse> second = client.resolve(QUERY);
+		Promise<DnsResponse> third = client.resolve(QUERY);
+		assertEquals(1, requests.size());
+
+		DnsResponse response = response("1.1.1.1", 10);
+		requests.get(0).set(response);
+
+		assertSame(response, first.getResult());
+		assertSame(response, second.getResult());
+		assertSame(response, third.getResult());
+		assertEquals(2, client.getCoalescedQueries());
+		assertEquals(3, client.getCacheMisses());
+
+		assertSame(response, client.resolve(QUERY).getResult());
+		assertEquals(1, requests.size());
+		assertEquals(1, client.getCacheHits());
+	}
+
+	@Test
+	public void testRefreshAhead() throws UnknownHostException {
+		cache.withRefreshAheadRatio(0.5);
+		DnsResponse response = response("1.1.1.1", 10);
+		cache.add(QUERY, response);
+
+		currentTime += 4_000;
+		assertSame(response, client.resolve(QUERY).getResult());
+		assertTrue(requests.isEmpty());
+
+		currentTime += 2_000;
+		assertSame(response, client.resolve(QUERY).getResult());
+		assertSame(response, client.resolve(QUERY).getResult());
+		assertEquals(1, requests.size());
+		assertEquals(1, client.getRefreshes());
+		assertEquals(0, client.getStaleHits());
+
+		DnsResponse refreshed = response("2.2.2.2", 10);
+		requests.get(0).set(refreshed);
+		assertSame(refreshed, client.resolve(QUERY).getResult());
+		assertEquals(1, requests.size());
+	}
+
+	@Test
+	public void testStaleServedOnFailedRefresh() throws UnknownHostException {
+		DnsResponse response = response("1.1.1.1", 10);
+		cache.add(QUERY, response);
+
+		currentTime += 11_000;
+		assertSame(response, client.resolve(QUERY).getResult());
+		assertEquals(1, client.getStaleHits());
+		assertEquals(1, requests.size());
+
+		requests.get(0).setException(new DnsQueryException(failure()));
+		assertSame(response, client.resolve(QUERY).getResult());
+		assertEquals(2, requests.size());
+
+		currentTime += DnsCache.DEFAULT_HARD_EXPIRATION_DELTA.toMillis();
+		Promise<DnsResponse> promise = client.resolve(QUERY);
+		assertFalse(promise.isComplete());
+	}
+
+	@Test
+	public void testNegativeCaching() {
+		cache.withErrorCacheExpiration(Duration.ofSeconds(5));
+
+		Promise<DnsResponse> promise = client.resolve(QUERY);
+		requests.get(0).setException(new DnsQueryException(failure()));
+		assertTrue(promise.isException());
+
+		assertTrue(client.resolve(QUERY).isException());
+		assertEquals(1, requests.size());
+
+		// failed responses are not served after expiration
+		currentTime += 5_000;
+		assertFalse(client.resolve(QUERY).isComplete());
+		assertEquals(2, requests.size());
+	}
+
+	@Test
+	public void testNegativeCachingDisabled() {
+		cache.withNegativeCaching(false);
+
+		Promise<DnsResponse> promise = client.resolve(QUERY);
+		requests.get(0).setException(new DnsQueryException(failure()));
+		assertTrue(promise.isException());
+
+		assertFalse(client.resolve(QUERY).isComplete());
+		assertEquals(2, requests.size());
+	}
+
+	private static DnsResponse response(String ip, int ttlSeconds) throws UnknownHostException {
+		InetAddress[] ips = {InetAddress.getByName(ip)};
+		return DnsResponse.of(DnsTransaction.of((short) 0, QUERY), DnsResourceRecord.of(ips, ttlSeconds));
+	}
+
+	private static DnsResponse failure() {
+		return DnsResponse.ofFailure(DnsTransaction.of((short) 0, QUERY), SERVER_FAILURE);
+	}
+}
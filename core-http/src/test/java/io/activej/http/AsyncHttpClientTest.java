@@ -5,6 +5,7 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
 import io.activej.common.ref.Ref;
 import io.activej.csp.ChannelSupplier;
+import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
 import io.activej.csp.binary.ByteBufsDecoder;
 import io.activej.eventloop.Eventloop;
@@ -31,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static io.activej.bytebuf.ByteBufStrings.*;
 import static io.activej.https.SslUtils.createTestSslContext;
@@ -38,6 +40,7 @@ import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static io.activej.test.TestUtils.*;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.instanceOf;
@@ -318,6 +321,169 @@ public final class AsyncHttpClientTest {
 		assertTrue(serverResponse.startsWith(context));
 	}
 
+	@Test
+	public void testMaxConnectionsPerAddress() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> HttpResponse.ok200().withBody(wrapUtf8(request.getPath())))
+				.withListenPort(port);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(1)
+				.withInspector(inspector);
+
+		List<String> bodies = await(Promises.toList(IntStream.range(0, 3)
+				.mapToObj(i -> client.request(HttpRequest.get("http://127.0.0.1:" + port + "/" + i))
+						.then(response -> response.loadBody())
+						.map(body -> body.getString(UTF_8))))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(asList("/0", "/1", "/2"), bodies);
+		assertEquals(1, inspector.getConnected().getTotalCount());
+		assertEquals(3, inspector.getTotalResponses());
+	}
+
+	@Test
+	public void testMaxPendingRequestsPerAddress() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> HttpResponse.ok200())
+				.withListenPort(port);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(1)
+				.withMaxPendingRequestsPerAddress(1)
+				.withInspector(inspector);
+
+		Promise<HttpResponse> first = client.request(HttpRequest.get("http://127.0.0.1:" + port));
+		Promise<HttpResponse> second = client.request(HttpRequest.get("http://127.0.0.1:" + port));
+		Promise<HttpResponse> third = client.request(HttpRequest.get("http://127.0.0.1:" + port));
+
+		await(Promises.all(first, second)
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+		Exception e = third.getException();
+		assertThat(e, instanceOf(HttpException.class));
+		assertThat(e.getMessage(), containsString("Too many pending requests"));
+		assertEquals(1, inspector.getRejectedRequests().getTotalCount());
+		assertEquals(0, inspector.getActiveRequests());
+	}
+
+	@Test
+	public void testPipelining() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> HttpResponse.ok200().withBody(wrapUtf8(request.getPath())))
+				.withListenPort(port);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(1)
+				.withPipelining(4)
+				.withInspector(inspector);
+
+		List<String> bodies = await(client.request(HttpRequest.get("http://127.0.0.1:" + port + "/0"))
+				.then(response -> response.loadBody().async())
+				.then(() -> {
+					List<Promise<HttpResponse>> responses = new ArrayList<>();
+					for (int i = 1; i <= 4; i++) {
+						responses.add(client.request(HttpRequest.get("http://127.0.0.1:" + port + "/" + i)));
+					}
+					assertEquals(1, client.getConnectionsCount());
+					AddressPool addressPool = client.addresses.values().iterator().next();
+					assertEquals(0, addressPool.pending.size());
+					assertEquals(3, addressPool.active.getFirstNode().getPipelinedRequests());
+					return Promises.toList(responses.stream()
+							.map(promise -> promise
+									.then(response -> response.loadBody())
+									.map(body -> body.getString(UTF_8))));
+				})
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(asList("/1", "/2", "/3", "/4"), bodies);
+		assertEquals(1, inspector.getConnected().getTotalCount());
+	}
+
+	@Test
+	public void testNoPipeliningBehindStreamedBody() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> request.loadBody()
+						.map(body -> HttpResponse.ok200().withBody(wrapUtf8(request.getPath() + body.getString(UTF_8)))))
+				.withListenPort(port);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(1)
+				.withPipelining(4);
+
+		List<String> bodies = await(client.request(HttpRequest.get("http://127.0.0.1:" + port + "/0"))
+				.then(response -> response.loadBody().async())
+				.then(() -> {
+					ChannelSupplier<ByteBuf> bodyStream = ChannelSuppliers.concat(
+							ChannelSupplier.of(wrapUtf8(":first")),
+							ChannelSupplier.ofPromise(Promises.delay(10L, ChannelSupplier.of(wrapUtf8(":second")))));
+					Promise<HttpResponse> postResponse = client.request(HttpRequest.post("http://127.0.0.1:" + port + "/post")
+							.withBodyStream(bodyStream));
+					Promise<HttpResponse> getResponse = client.request(HttpRequest.get("http://127.0.0.1:" + port + "/get"));
+
+					AddressPool addressPool = client.addresses.values().iterator().next();
+					assertEquals(0, addressPool.active.getFirstNode().getPipelinedRequests());
+					assertEquals(1, addressPool.pending.size());
+					return Promises.toList(Stream.of(postResponse, getResponse)
+							.map(promise -> promise
+									.then(response -> response.loadBody())
+									.map(body -> body.getString(UTF_8))));
+				})
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(asList("/post:first:second", "/get"), bodies);
+	}
+
+	@Test
+	public void testPrewarm() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> HttpResponse.ok200())
+				.withListenPort(port);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withInspector(inspector);
+
+		await(client.prewarm("http://127.0.0.1:" + port, 2)
+				.whenResult(() -> assertEquals(2, client.getConnectionsKeepAliveCount()))
+				.then(() -> client.request(HttpRequest.get("http://127.0.0.1:" + port)))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(2, inspector.getConnected().getTotalCount());
+	}
+
 	private static final ByteBufsDecoder<ByteBuf> REQUEST_DECODER = bufs -> {
 		for (int i = 0; i < bufs.remainingBytes() - 3; i++) {
 			if (bufs.peekByte(i) == CR &&
@@ -282,6 +282,90 @@ public final class AsyncHttpServerTest {
 		resetPort();
 	}
 
+	@Test
+	public void testLazyHeaders() throws Exception {
+		HttpHeader customHeader = HttpHeaders.of("X-Custom-Header");
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+						request -> HttpResponse.ok200().withBody(encodeAscii(
+								request.getHeader(customHeader) + "," +
+										request.getHeader(HttpHeaders.USER_AGENT) + "," +
+										request.getHeader(HttpHeaders.ACCEPT) + "," +
+										request.getHeaders().size())))
+				.withListenPort(port)
+				.withLazyHeaders();
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress("localhost", port));
+
+			for (int i = 0; i < 100; i++) {
+				writeByRandomParts(socket, "" +
+						"GET /abc HTTP/1.1\r\nHost: localhost\r\nx-custom-header: value" + i + "\r\nUser-Agent:  test\r\n\r\n" +
+
+						"POST /post HTTP/1.1\r\n" +
+						"Host: localhost\r\n" +
+						"Content-Length: 8\r\n" +
+						"X-CUSTOM-HEADER: first\r\n" +
+						"X-Custom-Header: second\r\n" +
+						"Accept: */*\r\n\r\n" +
+						"{\"at\":2}");
+			}
+
+			for (int i = 0; i < 100; i++) {
+				String body = "value" + i + ",test,null,3";
+				readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: " + body.length() + "\r\n\r\n" + body);
+				readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 16\r\n\r\nfirst,null,*/*,5");
+			}
+		}
+
+		server.closeFuture().get();
+		thread.join();
+		resetPort();
+	}
+
+	@Test
+	public void testLazyHeadersSplitAcrossReadBuffers() throws Exception {
+		HttpHeader firstHeader = HttpHeaders.of("X-First");
+		HttpHeader splitHeader = HttpHeaders.of("X-Split");
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+						request -> HttpResponse.ok200().withBody(encodeAscii(
+								request.getHeader(firstHeader) + "," +
+										request.getHeader(splitHeader) + "," +
+										request.getHeaders().size())))
+				.withListenPort(port)
+				.withLazyHeaders();
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		// padding does not fit into the first read buffer, so the rest of headers are received into another array
+		StringBuilder padding = new StringBuilder();
+		for (int i = 0; i < 3; i++) {
+			padding.append("X-Padding: ");
+			for (int j = 0; j < 7000; j++) {
+				padding.append('x');
+			}
+			padding.append("\r\n");
+		}
+
+		try (Socket socket = new Socket()) {
+			socket.setTcpNoDelay(true);
+			socket.connect(new InetSocketAddress("localhost", port));
+
+			socket.getOutputStream().write(encodeAscii("GET /abc HTTP/1.1\r\nHost: localhost\r\nX-First: first\r\nX-Split: spl"));
+			Thread.sleep(100);
+			socket.getOutputStream().write(encodeAscii("it\r\n" + padding + "X-First: second\r\nConnection: close\r\n\r\n"));
+
+			readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 13\r\n\r\nfirst,split,8");
+		}
+
+		server.closeFuture().get();
+		thread.join();
+		resetPort();
+	}
+
 	@Test
 	public void testBigHttpMessage() throws Exception {
 		byte[] body = encodeAscii("Test big HTTP message body");
@@ -0,0 +1,234 @@
+package io.activej.http;
+
+import io.activej.async.exception.AsyncCloseException;
+import io.activej.common.exception.TruncatedDataException;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.ConcurrencyLimiter.Priority;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.http.HttpHeaders.RETRY_AFTER;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public final class ConcurrencyLimiterTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private final Eventloop eventloop = Eventloop.getCurrentEventloop();
+	private final List<SettablePromise<HttpResponse>> served = new ArrayList<>();
+	private final List<String> servedPaths = new ArrayList<>();
+	private long nanoTime;
+
+	private final AsyncServlet servlet = request -> {
+		SettablePromise<HttpResponse> cb = new SettablePromise<>();
+		served.add(cb);
+		servedPaths.add(request.getPath());
+		return cb;
+	};
+
+	@Test
+	public void testQueueing() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.create(eventloop)
+				.withFixedLimit(2)
+				.withQueue(1, Duration.ofSeconds(10));
+
+		Promise<HttpResponse> first = limiter.serve(HttpRequest.get("http://localhost/1"), servlet);
+		Promise<HttpResponse> second = limiter.serve(HttpRequest.get("http://localhost/2"), servlet);
+		Promise<HttpResponse> third = limiter.serve(HttpRequest.get("http://localhost/3"), servlet);
+		Promise<HttpResponse> fourth = limiter.serve(HttpRequest.get("http://localhost/4"), servlet);
+
+		assertEquals(2, served.size());
+		assertEquals(2, limiter.getInFlight());
+		assertEquals(1, limiter.getQueueSize());
+		assertEquals(503, fourth.getResult().getCode());
+		assertEquals("1", fourth.getResult().getHeader(RETRY_AFTER));
+
+		served.get(0).set(HttpResponse.ok200());
+		assertEquals(200, first.getResult().getCode());
+		assertEquals(3, served.size());
+		assertEquals(0, limiter.getQueueSize());
+
+		served.get(1).set(HttpResponse.ok200());
+		served.get(2).set(HttpResponse.ok200());
+		assertEquals(200, second.getResult().getCode());
+		assertEquals(200, third.getResult().getCode());
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(1, limiter.getRejectedRequests().getTotalCount());
+	}
+
+	@Test
+	public void testPriorities() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.create(eventloop)
+				.withFixedLimit(1)
+				.withQueue(2, Duration.ofSeconds(10))
+				.withPriority("/health", Priority.CRITICAL)
+				.withPriority("/reports", Priority.SHEDDABLE);
+
+		limiter.serve(HttpRequest.get("http://localhost/first"), servlet);
+		Promise<HttpResponse> normal1 = limiter.serve(HttpRequest.get("http://localhost/normal1"), servlet);
+		Promise<HttpResponse> normal2 = limiter.serve(HttpRequest.get("http://localhost/normal2"), servlet);
+		Promise<HttpResponse> sheddable = limiter.serve(HttpRequest.get("http://localhost/reports/daily"), servlet);
+		assertEquals(503, sheddable.getResult().getCode());
+
+		// critical request pushes the most recent normal request out of the full queue
+		Promise<HttpResponse> critical = limiter.serve(HttpRequest.get("http://localhost/health"), servlet);
+		assertEquals(503, normal2.getResult().getCode());
+		assertFalse(critical.isComplete());
+
+		served.get(0).set(HttpResponse.ok200());
+		served.get(1).set(HttpResponse.ok200());
+		served.get(2).set(HttpResponse.ok200());
+
+		assertEquals(200, critical.getResult().getCode());
+		assertEquals(200, normal1.getResult().getCode());
+		assertEquals(asList("/first", "/health", "/normal1"), servedPaths);
+	}
+
+	@Test
+	public void testQueueTimeout() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.create(eventloop)
+				.withFixedLimit(1)
+				.withQueue(10, Duration.ofMillis(10));
+
+		limiter.serve(HttpRequest.get("http://localhost/first"), servlet);
+		HttpResponse response = await(limiter.serve(HttpRequest.get("http://localhost/second"), servlet));
+
+		assertEquals(503, response.getCode());
+		assertEquals(1, limiter.getQueueTimeouts().getTotalCount());
+		assertEquals(0, limiter.getQueueSize());
+		assertEquals(1, served.size());
+	}
+
+	@Test
+	public void testAdaptiveLimit() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.create(eventloop)
+				.withLimit(10, 2, 100);
+		limiter.nanoTime = () -> nanoTime;
+
+		// requests are served at full concurrency with a stable latency
+		for (int round = 0; round < 20; round++) {
+			int limit = limiter.getLimit();
+			for (int i = 0; i < limit; i++) {
+				limiter.serve(HttpRequest.get("http://localhost/"), servlet);
+			}
+			nanoTime += Duration.ofMillis(1).toNanos();
+			served.forEach(cb -> cb.set(HttpResponse.ok200()));
+			served.clear();
+		}
+		int grownLimit = limiter.getLimit();
+		assertTrue(grownLimit > 10);
+
+		// failures back the limit off
+		for (int i = 0; i < 10; i++) {
+			limiter.serve(HttpRequest.get("http://localhost/"), request -> Promise.ofException(new Exception("Overloaded")));
+		}
+		assertTrue(limiter.getLimit() < grownLimit);
+		assertTrue(limiter.getLimit() >= 2);
+	}
+
+	@Test
+	public void testClientErrorsDoNotBackOff() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.create(eventloop)
+				.withLimit(10, 2, 100);
+		List<Exception> clientErrors = asList(
+				new MalformedHttpException("Malformed request"),
+				HttpError.ofCode(400),
+				new TruncatedDataException("Request body is truncated"),
+				new AsyncCloseException("Connection closed"));
+
+		for (int i = 0; i < 10; i++) {
+			for (Exception e : clientErrors) {
+				limiter.serve(HttpRequest.get("http://localhost/"), request -> Promise.ofException(e));
+			}
+		}
+		assertEquals(10, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+
+		limiter.serve(HttpRequest.get("http://localhost/"), request -> Promise.ofException(HttpError.ofCode(500)));
+		assertTrue(limiter.getLimit() < 10);
+	}
+
+	@Test
+	public void testDropsClosedConnections() throws IOException {
+		int port = getFreePort();
+		SettablePromise<HttpResponse> blocked = new SettablePromise<>();
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.create(eventloop)
+				.withFixedLimit(1)
+				.withQueue(10, Duration.ofSeconds(10));
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+						request -> {
+							servedPaths.add(request.getPath());
+							return request.getPath().equals("/blocked") ? blocked : Promise.of(HttpResponse.ok200());
+						})
+				.withConcurrencyLimiter(limiter)
+				.withServeTimeoutShutdown(Duration.ofMillis(1))
+				.withListenPort(port);
+		server.listen();
+
+		Promise<HttpResponse> blockedResponse = AsyncHttpClient.create(eventloop)
+				.request(HttpRequest.get("http://127.0.0.1:" + port + "/blocked"));
+		SettablePromise<HttpResponse> queuedResponse = new SettablePromise<>();
+		await(Promises.delay(100L)
+				.then(() -> {
+					AsyncHttpClient.create(eventloop)
+							.request(HttpRequest.get("http://127.0.0.1:" + port + "/queued"))
+							.run(queuedResponse);
+					return Promises.delay(100L);
+				})
+				.whenResult(() -> assertEquals(1, limiter.getQueueSize()))
+				.then(() -> {
+					// connections which are still being served are closed on shutdown
+					server.close();
+					return Promises.delay(100L);
+				})
+				.whenResult(() -> blocked.set(HttpResponse.ok200()))
+				.then(() -> Promises.all(blockedResponse.toTry(), queuedResponse.toTry())));
+
+		assertEquals(singletonList("/blocked"), servedPaths);
+		assertEquals(0, limiter.getQueueSize());
+		assertEquals(1, limiter.getDroppedRequests().getTotalCount());
+	}
+
+	@Test
+	public void testServer() throws IOException {
+		int port = getFreePort();
+		SettablePromise<HttpResponse> blocked = new SettablePromise<>();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+						request -> request.getPath().equals("/blocked") ? blocked : Promise.of(HttpResponse.ok200()))
+				.withConcurrencyLimiter(ConcurrencyLimiter.create(eventloop)
+						.withFixedLimit(1)
+						.withQueue(0, Duration.ZERO))
+				.withListenPort(port);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop);
+		Promise<HttpResponse> blockedResponse = client.request(HttpRequest.get("http://127.0.0.1:" + port + "/blocked"));
+		int code = await(Promises.delay(100L)
+				.then(() -> client.request(HttpRequest.post("http://127.0.0.1:" + port + "/other")
+						.withBody("ignored body".getBytes())))
+				.map(HttpResponse::getCode)
+				.whenComplete(() -> blocked.set(HttpResponse.ok200()))
+				.then(rejected -> blockedResponse.map(response -> rejected))
+				.whenComplete(server::close));
+
+		assertEquals(503, code);
+		assertEquals(1, server.getConcurrencyLimiter().getRejectedRequests().getTotalCount());
+	}
+}
@@ -0,0 +1,124 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.test.rules.ByteBufRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+/**
+ * Examples are taken from RFC 7541, Appendix C
+ */
+public final class HpackTest {
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Test
+	public void testRequestsWithHuffmanCoding() throws MalformedHttpException {
+		HpackDecoder decoder = new HpackDecoder(4096);
+
+		assertEquals(asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+				decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+		assertEquals(asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+						"cache-control", "no-cache"),
+				decode(decoder, "828684be5886a8eb10649cbf"));
+		assertEquals(asList(":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+						"custom-key", "custom-value"),
+				decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+	}
+
+	@Test
+	public void testResponsesWithEviction() throws MalformedHttpException {
+		HpackDecoder decoder = new HpackDecoder(256);
+
+		assertEquals(asList(":status", "302", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+						"location", "https://www.example.com"),
+				decode(decoder, "488264025885aec3771a4b6196d07abe941054d444a8200595040b8166e082a62d1bff6e919d29ad171863c78f0b97c8e9ae82ae43d3"));
+		assertEquals(asList(":status", "307", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+						"location", "https://www.example.com"),
+				decode(decoder, "4883640effc1c0bf"));
+		assertEquals(asList(":status", "200", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:22 GMT",
+						"location", "https://www.example.com", "content-encoding", "gzip",
+						"set-cookie", "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1"),
+				decode(decoder, "88c16196d07abe941054d444a8200595040b8166e084a62d1bffc05a839bd9ab77ad94e7821dd7f2e6c7b335dfdfcd5b3960d5af27087f3672c1ab270fb5291f9587316065c003ed4ee5b1063d5007"));
+	}
+
+	@Test
+	public void testEncoderMatchesReferenceEncoding() {
+		HpackEncoder encoder = new HpackEncoder(4096);
+
+		assertEquals("828684418cf1e3c2e5f23a6ba0ab90f4ff",
+				encode(encoder, ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"));
+		assertEquals("828684be5886a8eb10649cbf",
+				encode(encoder, ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+						"cache-control", "no-cache"));
+		assertEquals("828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf",
+				encode(encoder, ":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+						"custom-key", "custom-value"));
+	}
+
+	@Test
+	public void testRoundTripWithTableSizeUpdate() throws MalformedHttpException {
+		HpackEncoder encoder = new HpackEncoder(4096);
+		HpackDecoder decoder = new HpackDecoder(4096);
+
+		String[] headers = {":status", "200", "content-type", "text/plain", "x-custom", "ÿ value with non-ascii bytes"};
+		for (int i = 0; i < 3; i++) {
+			assertEquals(asList(headers), decode(decoder, encode(encoder, headers)));
+			encoder.setMaxTableSize(i == 0 ? 0 : 64);
+		}
+	}
+
+	@Test
+	public void testInvalidIndex() {
+		HpackDecoder decoder = new HpackDecoder(4096);
+		MalformedHttpException e = assertThrows(MalformedHttpException.class, () -> decode(decoder, "be"));
+		assertTrue(e.getMessage().contains("Invalid HPACK index"));
+	}
+
+	@Test
+	public void testTableSizeUpdateExceedsLimit() {
+		HpackDecoder decoder = new HpackDecoder(256);
+		assertThrows(MalformedHttpException.class, () -> decode(decoder, "3fe11f"));
+	}
+
+	private static List<String> decode(HpackDecoder decoder, String hex) throws MalformedHttpException {
+		byte[] bytes = fromHex(hex);
+		List<String> result = new ArrayList<>();
+		decoder.decode(bytes, 0, bytes.length, (name, value) -> {
+			result.add(decodeAscii(name));
+			result.add(decodeAscii(value));
+		});
+		return result;
+	}
+
+	private static String encode(HpackEncoder encoder, String... headers) {
+		ByteBuf buf = ByteBufPool.allocate(1024);
+		encoder.beginHeaderBlock(buf);
+		for (int i = 0; i < headers.length; i += 2) {
+			encoder.encode(buf, encodeAscii(headers[i]), encodeAscii(headers[i + 1]), !headers[i].equals(":path"));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = buf.head(); i < buf.tail(); i++) {
+			sb.append(String.format("%02x", buf.array()[i]));
+		}
+		buf.recycle();
+		return sb.toString();
+	}
+
+	private static byte[] fromHex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,260 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufs;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static io.activej.https.SslUtils.createTestSslContext;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public final class Http2Test {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private final Executor executor = Executors.newSingleThreadExecutor();
+
+	private int port;
+
+	@Before
+	public void setUp() {
+		port = getFreePort();
+	}
+
+	@Test
+	public void testMultiplexedRequests() throws IOException {
+		AsyncHttpServer.JmxInspector inspector = new AsyncHttpServer.JmxInspector();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> HttpResponse.ok200()
+								.withHeader(HttpHeaders.of("X-Version"), request.getVersion().name())
+								.withBody((request.getPath() + "?" + request.getQuery()).getBytes(UTF_8)))
+				.withHttp2()
+				.withInspector(inspector)
+				.withListenPort(port);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2PriorKnowledge();
+
+		List<String> result = await(Promises.toList(IntStream.range(0, 50)
+						.mapToObj(i -> client.request(HttpRequest.get("http://127.0.0.1:" + port + "/path/" + i + "?q=" + i))
+								.then(response -> {
+									assertEquals(200, response.getCode());
+									assertEquals(HttpVersion.HTTP_2_0, response.getVersion());
+									assertEquals("HTTP_2_0", response.getHeader(HttpHeaders.of("X-Version")));
+									return response.loadBody();
+								})
+								.map(body -> body.getString(UTF_8))))
+				.whenComplete(server::close));
+
+		assertEquals(IntStream.range(0, 50).mapToObj(i -> "/path/" + i + "?q=" + i).collect(toList()), result);
+		assertEquals(1, inspector.getTotalConnections().getTotalCount());
+	}
+
+	@Test
+	public void testLargeBodiesWithFlowControl() throws IOException {
+		byte[] data = new byte[5 * 1024 * 1024 + 17];
+		new Random(0).nextBytes(data);
+
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> HttpResponse.ok200().withBodyStream(request.takeBodyStream()))
+				.withHttp2()
+				.withListenPort(port);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2PriorKnowledge();
+
+		List<ByteBuf> bodies = await(Promises.toList(IntStream.range(0, 3)
+						.mapToObj(i -> client.request(HttpRequest.post("http://127.0.0.1:" + port)
+										.withBodyStream(ChannelSupplier.ofStream(IntStream.range(0, data.length / 10000 + 1)
+												.mapToObj(n -> ByteBuf.wrap(data, n * 10000, Math.min((n + 1) * 10000, data.length)))))
+										.withHeader(HttpHeaders.CONTENT_TYPE, "application/octet-stream"))
+								.then(response -> response.takeBodyStream().toCollector(ByteBufs.collector()))))
+				.whenComplete(server::close));
+
+		for (ByteBuf body : bodies) {
+			assertArrayEquals(data, body.asArray());
+		}
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		String text = String.join(" ", IntStream.range(0, 10_000).mapToObj(Integer::toString).collect(toList()));
+
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> request.loadBody()
+								.map(body -> HttpResponse.ok200()
+										.withBody(body.getString(UTF_8).getBytes(UTF_8))
+										.withBodyGzipCompression()))
+				.withHttp2()
+				.withListenPort(port);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2PriorKnowledge();
+
+		String result = await(client.request(HttpRequest.post("http://127.0.0.1:" + port)
+								.withBody(text.getBytes(UTF_8))
+								.withBodyGzipCompression())
+						.then(response -> {
+							assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+							return response.loadBody();
+						})
+						.map(body -> body.getString(UTF_8))
+						.whenComplete(server::close));
+
+		assertEquals(text, result);
+	}
+
+	@Test
+	public void testAlpn() throws Exception {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> HttpResponse.ok200().withBody(request.getVersion().name().getBytes(UTF_8)))
+				.withHttp2()
+				.withSslListenAddress(createTestSslContext(), executor, new InetSocketAddress(port));
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withSslEnabled(createTestSslContext(), executor)
+				.withHttp2();
+
+		List<String> result = await(Promises.toList(IntStream.range(0, 5)
+						.mapToObj(i -> client.request(HttpRequest.get("https://127.0.0.1:" + port))
+								.then(response -> response.loadBody())
+								.map(body -> body.getString(UTF_8))))
+				.whenComplete(server::close));
+
+		for (String version : result) {
+			assertEquals("HTTP_2_0", version);
+		}
+	}
+
+	@Test
+	public void testAlpnFallbackToHttp1() throws Exception {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> HttpResponse.ok200().withBody(request.getVersion().name().getBytes(UTF_8)))
+				.withSslListenAddress(createTestSslContext(), executor, new InetSocketAddress(port));
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withSslEnabled(createTestSslContext(), executor)
+				.withKeepAliveTimeout(Duration.ofSeconds(10))
+				.withHttp2();
+
+		String result = await(client.request(HttpRequest.get("https://127.0.0.1:" + port))
+				.then(response -> response.loadBody())
+				.map(body -> body.getString(UTF_8))
+				.then(version -> Promises.delay(10L, version))
+				.whenResult(() -> assertEquals(1, client.getConnectionsKeepAliveCount()))
+				.then(version -> server.close()
+						.then(() -> Promises.delay(100L, version))));
+
+		assertEquals("HTTP_1_1", result);
+		// an idle connection notices that it is closed by a server
+		assertEquals(0, client.getConnectionsCount());
+	}
+
+	@Test
+	public void testAlpnFallbackRespectsMaxConnectionsPerAddress() throws Exception {
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withSslEnabled(createTestSslContext(), executor)
+				.withKeepAliveTimeout(Duration.ofSeconds(10))
+				.withMaxConnectionsPerAddress(1)
+				.withHttp2();
+
+		SettablePromise<Void> blockedReceived = new SettablePromise<>();
+		SettablePromise<HttpResponse> blocked = new SettablePromise<>();
+		Set<HttpServerConnection> connections = new HashSet<>();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> {
+							connections.add(request.getConnection());
+							if (request.getPath().equals("/blocked")) {
+								blockedReceived.set(null);
+								return blocked;
+							}
+							return Promise.of(HttpResponse.ok200());
+						})
+				.withSslListenAddress(createTestSslContext(), executor, new InetSocketAddress(port));
+		server.listen();
+
+		Promise<Integer> blockedCode = client.request(HttpRequest.get("https://127.0.0.1:" + port + "/blocked"))
+				.map(HttpResponse::getCode);
+		List<Integer> codes = await(blockedReceived
+				.then(() -> {
+					Promise<List<Integer>> others = Promises.toList(IntStream.range(0, 3)
+							.mapToObj(i -> client.request(HttpRequest.get("https://127.0.0.1:" + port + "/" + i))
+									.map(HttpResponse::getCode)));
+					return Promises.delay(200L)
+							.whenResult(() -> blocked.set(HttpResponse.ok200()))
+							.then(() -> others);
+				})
+				.then(others -> blockedCode.map(code -> others))
+				.whenComplete(server::close));
+
+		assertEquals(asList(200, 200, 200), codes);
+		assertEquals(1, connections.size());
+	}
+
+	@Test
+	public void testHttp1ClientIsServed() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> HttpResponse.ok200().withBody(request.getVersion().name().getBytes(UTF_8)))
+				.withHttp2()
+				.withListenPort(port);
+		server.listen();
+
+		String result = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.request(HttpRequest.get("http://127.0.0.1:" + port))
+				.then(response -> response.loadBody())
+				.map(body -> body.getString(UTF_8))
+				.whenComplete(server::close));
+
+		assertEquals("HTTP_1_1", result);
+	}
+
+	@Test
+	public void testServletException() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						request -> Promise.ofException(HttpError.ofCode(403, "Forbidden")))
+				.withHttp2()
+				.withListenPort(port);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2PriorKnowledge();
+
+		int code = await(client.request(HttpRequest.get("http://127.0.0.1:" + port))
+				.map(HttpResponse::getCode)
+				.whenComplete(server::close));
+
+		assertEquals(403, code);
+	}
+}
@@ -0,0 +1,191 @@
+package io.activej.http;
+
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static io.activej.bytebuf.ByteBufStrings.wrapAscii;
+import static io.activej.common.MemSize.kilobytes;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.ResponseCompressor.*;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public final class ResponseCompressorTest {
+	private static final String TEXT = generateText();
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private int port;
+
+	@Before
+	public void setUp() {
+		port = getFreePort();
+	}
+
+	@Test
+	public void testNegotiate() {
+		assertEquals(NONE, negotiate(null));
+		assertEquals(NONE, negotiate(""));
+		assertEquals(NONE, negotiate("identity"));
+		assertEquals(NONE, negotiate("br"));
+		assertEquals(GZIP, negotiate("gzip"));
+		assertEquals(GZIP, negotiate("gzip, deflate, br"));
+		assertEquals(GZIP, negotiate("deflate, GZIP"));
+		assertEquals(DEFLATE, negotiate("deflate"));
+		assertEquals(DEFLATE, negotiate("gzip;q=0.5, deflate"));
+		assertEquals(DEFLATE, negotiate("gzip;q=0, deflate;q=0.1"));
+		assertEquals(NONE, negotiate("gzip;q=0, deflate;q=0"));
+		assertEquals(GZIP, negotiate("*"));
+		assertEquals(DEFLATE, negotiate("gzip;q=0, *"));
+		assertEquals(NONE, negotiate("*;q=0"));
+		assertEquals(NONE, negotiate("gzip;q=abc"));
+		assertEquals(GZIP, negotiate(" x-gzip ; q=0.8 , deflate ; q=0.7"));
+	}
+
+	@Test
+	public void testGzipBody() {
+		Response response = request(ResponseCompressor.create(),
+				request -> HttpResponse.ok200().withBody(wrapAscii(TEXT)), "gzip, deflate");
+
+		assertEquals("gzip", response.contentEncoding);
+		assertEquals("Accept-Encoding", response.vary);
+		assertEquals(TEXT, response.getBody());
+	}
+
+	@Test
+	public void testDeflateBody() throws DataFormatException {
+		Response response = request(ResponseCompressor.create(),
+				request -> HttpResponse.ok200().withBody(wrapAscii(TEXT)), "deflate");
+
+		assertEquals("deflate", response.contentEncoding);
+		assertEquals(TEXT, inflate(response.body));
+	}
+
+	@Test
+	public void testGzipStream() {
+		ResponseCompressor compressor = ResponseCompressor.create();
+		Response response = request(compressor,
+				request -> HttpResponse.ok200().withBodyStream(ChannelSupplier.of(
+						wrapAscii(TEXT.substring(0, 10_000)),
+						wrapAscii(TEXT.substring(10_000)))),
+				"gzip");
+
+		assertEquals("gzip", response.contentEncoding);
+		assertEquals(TEXT, response.getBody());
+		assertEquals(1, compressor.getCompressedResponses().getTotalCount());
+		assertEquals(TEXT.length(), compressor.getTotalBytesIn());
+		assertTrue(compressor.getCompressionRatio() < 0.5);
+	}
+
+	@Test
+	public void testOffloadedBody() throws DataFormatException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			ResponseCompressor compressor = ResponseCompressor.create()
+					.withExecutor(executor, kilobytes(16));
+			Response response = request(compressor,
+					request -> HttpResponse.ok200().withBody(wrapAscii(TEXT)), "deflate");
+
+			assertEquals("deflate", response.contentEncoding);
+			assertEquals(String.valueOf(response.body.length), response.contentLength);
+			assertEquals(TEXT, inflate(response.body));
+			assertEquals(1, compressor.getOffloadedResponses().getTotalCount());
+			assertEquals(TEXT.length(), compressor.getTotalBytesIn());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSkipped() {
+		ResponseCompressor compressor = ResponseCompressor.create();
+
+		Response response = request(compressor, request -> HttpResponse.ok200().withBody(wrapAscii("small")), "gzip");
+		assertNull(response.contentEncoding);
+		assertEquals("small", response.getBody());
+
+		response = request(compressor, request -> HttpResponse.ok200()
+				.withHeader(CONTENT_TYPE, "image/png")
+				.withBody(wrapAscii(TEXT)), "gzip");
+		assertNull(response.contentEncoding);
+		assertEquals(TEXT, response.getBody());
+
+		response = request(compressor, request -> HttpResponse.ok200().withBody(wrapAscii(TEXT)), "identity");
+		assertNull(response.contentEncoding);
+		assertEquals("Accept-Encoding", response.vary);
+		assertEquals(TEXT, response.getBody());
+
+		assertEquals(0, compressor.getCompressedResponses().getTotalCount());
+	}
+
+	private Response request(ResponseCompressor compressor, AsyncServlet servlet, String acceptEncoding) {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop, servlet)
+				.withCompression(compressor)
+				.withListenPort(port);
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop);
+		try {
+			server.listen();
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+		return await(client.request(HttpRequest.get("http://127.0.0.1:" + port)
+						.withHeader(ACCEPT_ENCODING, acceptEncoding))
+				.then(response -> response.loadBody()
+						.map(body -> new Response(response.getHeader(CONTENT_ENCODING), response.getHeader(VARY),
+								response.getHeader(CONTENT_LENGTH), body.getArray())))
+				.whenComplete(server::close));
+	}
+
+	private static String inflate(byte[] body) throws DataFormatException {
+		Inflater inflater = new Inflater();
+		inflater.setInput(body);
+		byte[] result = new byte[TEXT.length()];
+		int length = inflater.inflate(result);
+		assertTrue(inflater.finished());
+		inflater.end();
+		return new String(result, 0, length, UTF_8);
+	}
+
+	private static final class Response {
+		final String contentEncoding;
+		final String vary;
+		final String contentLength;
+		final byte[] body;
+
+		Response(String contentEncoding, String vary, String contentLength, byte[] body) {
+			this.contentEncoding = contentEncoding;
+			this.vary = vary;
+			this.contentLength = contentLength;
+			this.body = body;
+		}
+
+		String getBody() {
+			return new String(body, UTF_8);
+		}
+	}
+
+	private static String generateText() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 100_000; i++) {
+			sb.append("line ").append(i).append(": the quick brown fox jumps over the lazy dog\n");
+		}
+		return sb.toString();
+	}
+}
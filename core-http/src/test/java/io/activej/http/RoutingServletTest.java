@@ -471,4 +471,77 @@ public final class RoutingServletTest {
 			assertEquals("Pattern contains bad percent encoding", e.getMessage());
 		}
 	}
+
+	@Test
+	public void testCompiled() throws Exception {
+		AsyncServlet printParameters = request -> {
+			String body = new TreeMap<>(request.getPathParameters()) + " " + request.getRelativePath();
+			return HttpResponse.ofCode(200).withBody(wrapUtf8(body));
+		};
+
+		AsyncServlet compiled = RoutingServlet.create()
+				.map(GET, "/", printParameters)
+				.map(GET, "/api/v1/users/:id", printParameters)
+				.map(GET, "/api/v1/users/:id/posts/:post", printParameters)
+				.map(POST, "/api/v1/users", printParameters)
+				.map(GET, "/api/v2/*", printParameters)
+				.map(GET, "/a%2fb", printParameters)
+				.map(GET, "/абв/:val", printParameters)
+				.mapWebSocket("/web/socket", request -> HttpResponse.ok200())
+				.compile();
+
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE)), "{} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1/users/42")), "{id=42} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1/users/42/")), "{id=42} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1/users/4%202/posts/1+1?q=1")), "{id=4 2, post=1 1} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1/use%72s/42")), "{id=42} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1/users/42/posts")), "", 404);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1/users")), "", 404);
+		check(compiled.serveAsync(HttpRequest.post(TEMPLATE + "/api/v1/users")), "{} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1")), "", 404);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v2/first/second")), "{} first/second", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v2")), "{} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/a%2Fb")), "{} ", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/a/b")), "", 404);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/%D0%B0%D0%B1%D0%B2/x")), "{val=x} ", 200);
+		checkWebSocket(compiled.serveAsync(HttpRequest.get(TEMPLATE_WS + "/web/socket")));
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/web/socket")), "", 404);
+
+		try {
+			compiled.serveAsync(HttpRequest.get(TEMPLATE + "/api/v1/users/%2"));
+			fail();
+		} catch (HttpError e) {
+			assertEquals("HTTP code 400: Path contains bad percent encoding", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCompiledRoutesAsTree() throws Exception {
+		RoutingServlet main = RoutingServlet.create();
+		String[] paths = {"/", "/a", "/a/b/c/d", "/a/:x/c", "/a/:y/e/*", "/b/:x/:y", "/b/c/d", "/c/*", "/c/d/e", "/d/%41/e"};
+		for (int i = 0; i < paths.length; i++) {
+			String path = paths[i];
+			String name = String.valueOf(i);
+			main.map(GET, path, request -> HttpResponse.ok200().withBody(wrapUtf8(name + " " +
+					new TreeMap<>(request.getPathParameters()) + " " + request.getRelativePath())));
+		}
+		AsyncServlet compiled = main.compile();
+
+		String[] urls = {"", "/", "/a", "/a/", "/a//", "/a/b", "/a/b/c", "/a/b/c/d", "/a/b/c/d/e", "/a/q/c", "/a/b/e",
+				"/a/b/e/f/g", "/a/b%2fc/c", "/b/c/d", "/b/c/e", "/b/c", "/b/c/d/e", "/c", "/c/d", "/c/d/e", "/c/d/e/f",
+				"/d/A/e", "/d/%41/e", "/d/B/e", "/a/&/c", "/a/b?c=d", "/x", "/a/%D0%B0/c"};
+		for (String url : urls) {
+			String expected = getBody(main.serve(HttpRequest.get(TEMPLATE + url)));
+			String actual = getBody(compiled.serveAsync(HttpRequest.get(TEMPLATE + url)));
+			assertEquals(url, expected, actual);
+		}
+	}
+
+	private static String getBody(Promise<HttpResponse> promise) {
+		assertTrue(promise.isComplete());
+		if (promise.isException()) {
+			return "HTTP " + ((HttpError) promise.getException()).getCode();
+		}
+		return promise.getResult().getBody().asString(UTF_8);
+	}
 }
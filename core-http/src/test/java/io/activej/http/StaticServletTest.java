@@ -1,6 +1,8 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.eventloop.Eventloop;
 import io.activej.http.loader.StaticLoader;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
@@ -12,15 +14,18 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
 
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.http.loader.StaticLoader.ofClassPath;
 import static io.activej.http.loader.StaticLoader.ofPath;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.test.TestUtils.getFreePort;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.Executors.newCachedThreadPool;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public final class StaticServletTest {
 	public static final String EXPECTED_CONTENT = "Test";
@@ -127,4 +132,91 @@ public final class StaticServletTest {
 		assertEquals(customContent, body.asString(UTF_8));
 		assertEquals(customType, response.getHeader(HttpHeaders.CONTENT_TYPE));
 	}
+
+	@Test
+	public void testZeroCopy() throws IOException {
+		byte[] content = new byte[1024 * 1024 + 1];
+		new Random(0).nextBytes(content);
+		Files.write(resourcesPath.resolve("large.bin"), content);
+
+		int port = getFreePort();
+		AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+						StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath))
+								.withZeroCopy(true))
+				.withListenPort(port)
+				.withAcceptOnce()
+				.listen();
+
+		byte[] body = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.request(HttpRequest.get("http://127.0.0.1:" + port + "/large.bin"))
+				.then(response -> {
+					assertEquals(String.valueOf(content.length), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+					assertNull(response.getHeader(HttpHeaders.TRANSFER_ENCODING));
+					return response.loadBody(Integer.MAX_VALUE)
+							.map(ByteBuf::getArray);
+				}));
+
+		assertArrayEquals(content, body);
+	}
+
+	@Test
+	public void testNotModified() {
+		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath));
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+		assertNotNull(lastModified);
+		response.getBody().recycle();
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified)));
+		assertEquals(304, response.getCode());
+		assertEquals(lastModified, response.getHeader(HttpHeaders.LAST_MODIFIED));
+	}
+
+	@Test
+	public void testEtagAndGzipVariant() throws IOException, MalformedHttpException {
+		byte[] content = new byte[10_000];
+		Arrays.fill(content, (byte) 'a');
+		Files.write(resourcesPath.resolve("compressible.txt"), content);
+
+		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath)
+				.cached(MemSize.megabytes(1)));
+
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/compressible.txt")));
+		String etag = response.getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+		assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals("Accept-Encoding", response.getHeader(HttpHeaders.VARY));
+		assertArrayEquals(content, response.getBody().asArray());
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/compressible.txt")
+				.withHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")));
+		String gzipEtag = response.getHeader(HttpHeaders.ETAG);
+		assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"", gzipEtag);
+		assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(content, GzipProcessorUtils.fromGzip(response.getBody(), content.length * 2).asArray());
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/compressible.txt")
+				.withHeader(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, gzipEtag)));
+		assertEquals(304, response.getCode());
+		assertEquals(gzipEtag, response.getHeader(HttpHeaders.ETAG));
+		assertEquals("Accept-Encoding", response.getHeader(HttpHeaders.VARY));
+
+		// an entity tag of any representation matches
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/compressible.txt")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, gzipEtag)));
+		assertEquals(304, response.getCode());
+		assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/compressible.txt")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag)));
+		assertEquals(304, response.getCode());
+		assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/compressible.txt")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"")));
+		assertEquals(200, response.getCode());
+		response.getBody().recycle();
+	}
 }
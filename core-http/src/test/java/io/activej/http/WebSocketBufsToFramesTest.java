@@ -13,6 +13,7 @@ import static io.activej.bytebuf.ByteBuf.wrapForReading;
 import static io.activej.http.TestUtils.*;
 import static io.activej.http.WebSocket.Frame.FrameType.*;
 import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.*;
 
@@ -140,4 +141,79 @@ public final class WebSocketBufsToFramesTest {
 
 		assertEquals("Hello", pongMessage.takeRemaining().asString(UTF_8));
 	}
+
+	@Test
+	public void decodeCompressedMessagesWithContextTakeover() {
+		// "Hello" compressed twice using the same context, RFC 7692 - 7.2.3.2
+		byte[] frame1 = new byte[]{(byte) 0xc1, (byte) 0x07, (byte) 0xf2, (byte) 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, (byte) 0x07, (byte) 0x00};
+		byte[] frame2 = new byte[]{(byte) 0xc1, (byte) 0x05, (byte) 0xf2, (byte) 0x00, (byte) 0x11, (byte) 0x00, (byte) 0x00};
+
+		PerMessageDeflate deflate = new PerMessageDeflate(-1, 0, false, null);
+		ChannelSupplier<Frame> supplier = ChannelSupplier.of(wrapForReading(frame1), wrapForReading(frame2))
+				.transformWith(chunker())
+				.transformWith(WebSocketBufsToFrames.create(MAX_MESSAGE_SIZE, failOnItem(), failOnItem(), false, deflate));
+
+		Frame firstFrame = await(supplier.get());
+		assertEquals(TEXT, firstFrame.getType());
+		assertEquals("Hello", firstFrame.getPayload().asString(UTF_8));
+
+		Frame secondFrame = await(supplier.get());
+		assertEquals(TEXT, secondFrame.getType());
+		assertEquals("Hello", secondFrame.getPayload().asString(UTF_8));
+		deflate.closeInflater();
+	}
+
+	@Test
+	public void decodeFragmentedCompressedMessage() {
+		// "Hello" compressed and fragmented, RFC 7692 - 7.2.3.1
+		byte[] frame1 = new byte[]{(byte) 0x41, (byte) 0x03, (byte) 0xf2, (byte) 0x48, (byte) 0xcd};
+		byte[] frame2 = new byte[]{(byte) 0x80, (byte) 0x04, (byte) 0xc9, (byte) 0xc9, (byte) 0x07, (byte) 0x00};
+
+		PerMessageDeflate deflate = new PerMessageDeflate(-1, 0, false, null);
+		ChannelSupplier<Frame> supplier = ChannelSupplier.of(wrapForReading(frame1), wrapForReading(frame2))
+				.transformWith(chunker())
+				.transformWith(WebSocketBufsToFrames.create(MAX_MESSAGE_SIZE, failOnItem(), failOnItem(), false, deflate));
+
+		Frame firstFrame = await(supplier.get());
+		assertEquals(TEXT, firstFrame.getType());
+		assertFalse(firstFrame.isLastFrame());
+		String first = firstFrame.getPayload().asString(UTF_8);
+
+		Frame secondFrame = await(supplier.get());
+		assertEquals(CONTINUATION, secondFrame.getType());
+		assertTrue(secondFrame.isLastFrame());
+		assertEquals("Hello", first + secondFrame.getPayload().asString(UTF_8));
+		deflate.closeInflater();
+	}
+
+	@Test
+	public void rejectCompressedMessageIfNotNegotiated() {
+		byte[] frame = new byte[]{(byte) 0xc1, (byte) 0x07, (byte) 0xf2, (byte) 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, (byte) 0x07, (byte) 0x00};
+
+		Exception e = awaitException(ChannelSupplier.of(wrapForReading(frame))
+				.transformWith(chunker())
+				.transformWith(WebSocketBufsToFrames.create(MAX_MESSAGE_SIZE, failOnItem(), failOnItem(), false))
+				.get());
+
+		assertSame(WebSocketConstants.RESERVED_BITS_SET, e);
+	}
+
+	@Test
+	public void applyMask() {
+		byte[] mask = {(byte) 0x37, (byte) 0xfa, (byte) 0x21, (byte) 0x3d};
+		byte[] data = new byte[1001];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		byte[] masked = data.clone();
+		// mask in uneven chunks, as payload may be split across several buffers
+		int maskIndex = 0;
+		for (int from = 0, to; from < masked.length; from = to) {
+			to = Math.min(masked.length, from + 1 + from % 7);
+			maskIndex = HttpUtils.applyMask(masked, from, to, mask, maskIndex);
+		}
+		for (int i = 0; i < data.length; i++) {
+			assertEquals((byte) (data[i] ^ mask[i % 4]), masked[i]);
+		}
+	}
 }
@@ -1,6 +1,7 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufStrings;
 import io.activej.common.exception.MalformedDataException;
 import io.activej.common.function.RunnableEx;
 import io.activej.common.ref.Ref;
@@ -10,6 +11,7 @@ import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.WebSocket.Message;
+import io.activej.http.WebSocket.Message.MessageType;
 import io.activej.promise.Promisable;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
@@ -22,6 +24,7 @@ import org.junit.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
@@ -33,6 +36,7 @@ import static io.activej.https.SslUtils.createTestSslContext;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
@@ -371,6 +375,127 @@ public final class WebSocketClientServerTest {
 		assertEquals(404, responseCode);
 	}
 
+	@Test
+	public void testLargeMessagesEcho() throws IOException {
+		startTestServer(ws -> ws.messageReadChannel().streamTo(ws.messageWriteChannel()));
+
+		List<String> messages = asList("short", largeText(100_000, 0), largeText(100_000, 1));
+		List<String> result = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + port))
+				.then(ws -> {
+					ChannelSupplier.ofList(messages)
+							.map(Message::text)
+							.streamTo(ws.messageWriteChannel());
+					return ws.messageReadChannel()
+							.map(Message::getText)
+							.toCollector(toList());
+				}));
+
+		assertEquals(messages, result);
+	}
+
+	@Test
+	public void testCompressedEcho() throws IOException {
+		AsyncHttpServer.create(Eventloop.getCurrentEventloop(), RoutingServlet.create()
+						.mapWebSocket("/", ws -> ws.frameReadChannel().streamTo(ws.frameWriteChannel())))
+				.withWebSocketCompression(WebSocketCompression.create())
+				.withListenPort(port)
+				.withAcceptOnce()
+				.listen();
+
+		String large = largeText(100_000, 0);
+		List<String> result = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketCompression(WebSocketCompression.create())
+				.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + port))
+				.then(ws -> {
+					assertEquals("permessage-deflate", ws.getResponse().getHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS));
+					ChannelSupplier.of(
+									WebSocket.Frame.text(ByteBufStrings.wrapUtf8("short")),
+									WebSocket.Frame.text(ByteBufStrings.wrapUtf8(large)),
+									WebSocket.Frame.text(ByteBufStrings.wrapUtf8("fragmented "), false),
+									WebSocket.Frame.next(ByteBufStrings.wrapUtf8(large), false),
+									WebSocket.Frame.next(ByteBufStrings.wrapUtf8(" message"), true),
+									WebSocket.Frame.text(ByteBufStrings.wrapUtf8(large)))
+							.streamTo(ws.frameWriteChannel());
+					return ws.messageReadChannel()
+							.map(Message::getText)
+							.toCollector(toList());
+				}));
+
+		assertEquals(asList("short", large, "fragmented " + large + " message", large), result);
+	}
+
+	@Test
+	public void testCompressionNotNegotiated() throws IOException {
+		startTestServer(ws -> ws.messageReadChannel().streamTo(ws.messageWriteChannel()));
+
+		List<String> result = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketCompression(WebSocketCompression.create())
+				.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + port))
+				.then(ws -> {
+					assertNull(ws.getResponse().getHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS));
+					ChannelSupplier.of(Message.text(largeText(1000, 0)))
+							.streamTo(ws.messageWriteChannel());
+					return ws.messageReadChannel()
+							.map(Message::getText)
+							.toCollector(toList());
+				}));
+
+		assertEquals(asList(largeText(1000, 0)), result);
+	}
+
+	@Test
+	public void testBroadcast() throws IOException {
+		List<WebSocket> webSockets = new ArrayList<>();
+		SettablePromise<Void> allConnected = new SettablePromise<>();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(), RoutingServlet.create()
+						.mapWebSocket("/", ws -> {
+							webSockets.add(ws);
+							if (webSockets.size() == 3) allConnected.set(null);
+						}))
+				.withWebSocketCompression(WebSocketCompression.create())
+				.withListenPort(port);
+		server.listen();
+
+		// a plain client, a client which asks for no context takeover and a client which does not
+		List<AsyncHttpClient> clients = asList(
+				AsyncHttpClient.create(Eventloop.getCurrentEventloop()),
+				AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+						.withWebSocketCompression(WebSocketCompression.create().withServerNoContextTakeover(true)),
+				AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+						.withWebSocketCompression(WebSocketCompression.create()));
+		List<Promise<List<String>>> received = new ArrayList<>();
+		for (AsyncHttpClient client : clients) {
+			received.add(client.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + port))
+					.then(ws -> ws.messageReadChannel()
+							.map(message -> message.getType() == MessageType.TEXT ?
+									message.getText() :
+									message.getBuf().asString(UTF_8))
+							.toCollector(toList())));
+		}
+
+		String large = largeText(100_000, 0);
+		List<List<String>> results = await(allConnected
+				.then(() -> WebSocket.broadcast(webSockets, Message.text("hello")))
+				.then(() -> WebSocket.broadcast(webSockets, Message.text(large)))
+				.then(() -> WebSocket.broadcast(webSockets, Message.binary(ByteBufStrings.wrapUtf8("binary"))))
+				.then(() -> Promises.all(webSockets.stream().map(ws -> ws.writeMessage(null))))
+				.then(() -> Promises.toList(received))
+				.whenComplete(server::close));
+		for (List<String> result : results) {
+			assertEquals(asList("hello", large, "binary"), result);
+		}
+	}
+
+	private static String largeText(int size, int seed) {
+		StringBuilder sb = new StringBuilder(size);
+		Random random = new Random(seed);
+		while (sb.length() < size) {
+			sb.append("word").append(random.nextInt(1000)).append(' ');
+		}
+		return sb.toString();
+	}
+
 	private void startTestServer(Consumer<WebSocket> webSocketConsumer) throws IOException {
 		AsyncHttpServer.create(Eventloop.getCurrentEventloop(), RoutingServlet.create()
 				.mapWebSocket("/", webSocketConsumer))
@@ -0,0 +1,99 @@
+package io.activej.http.session;
+
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promises;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.serializer.BinarySerializers.UTF8_SERIALIZER;
+import static org.junit.Assert.*;
+
+public final class SessionStoreExpiringTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	private long currentTime;
+	private SessionStoreExpiring<String> store;
+
+	@Before
+	public void setUp() {
+		currentTime = 0;
+		store = SessionStoreExpiring.<String>create(Eventloop.getCurrentEventloop())
+				.withCurrentTimeProvider(() -> currentTime)
+				.withLifetime(Duration.ofSeconds(10));
+	}
+
+	@Test
+	public void testExpiration() {
+		await(store.save("a", "value a"));
+		currentTime = 5_000;
+		await(store.save("b", "value b"));
+		currentTime = 8_000;
+		assertEquals("value a", await(store.get("a")));
+
+		// "b" is the least recently used one now
+		currentTime = 15_001;
+		assertEquals(1, store.expire());
+		assertEquals(1, store.getSessions());
+		assertNull(await(store.get("b")));
+		assertEquals("value a", await(store.get("a")));
+
+		currentTime = 30_000;
+		assertNull(await(store.get("a")));
+		assertEquals(0, store.getSessions());
+		assertEquals(2, store.getExpired().getTotalCount());
+	}
+
+	@Test
+	public void testBackgroundExpiration() {
+		store = SessionStoreExpiring.<String>create(Eventloop.getCurrentEventloop())
+				.withLifetime(Duration.ofMillis(10))
+				.withExpirationInterval(Duration.ofMillis(10));
+		for (int i = 0; i < 1000; i++) {
+			await(store.save("session" + i, "value" + i));
+		}
+		assertEquals(1000, store.getSessions());
+
+		await(Promises.delay(Duration.ofMillis(100)));
+		assertEquals(0, store.getSessions());
+		assertEquals(1000, store.getExpired().getTotalCount());
+	}
+
+	@Test
+	public void testEviction() {
+		store.withMaxSessions(2);
+		await(store.save("a", "value a"));
+		await(store.save("b", "value b"));
+		await(store.get("a"));
+		await(store.save("c", "value c"));
+
+		assertEquals(2, store.getSessions());
+		assertNull(await(store.get("b")));
+		assertEquals("value a", await(store.get("a")));
+		assertEquals("value c", await(store.get("c")));
+		assertEquals(1, store.getEvicted().getTotalCount());
+	}
+
+	@Test
+	public void testSerializedValues() {
+		store.withSerializer(UTF8_SERIALIZER);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append(i);
+		}
+		String large = sb.toString();
+
+		await(store.save("a", "value a"));
+		await(store.save("b", large));
+		assertEquals("value a", await(store.get("a")));
+		assertEquals(large, await(store.get("b")));
+
+		await(store.remove("a"));
+		assertNull(await(store.get("a")));
+	}
+}
@@ -2,6 +2,7 @@ package io.activej.http.stream;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufs;
 import io.activej.csp.ChannelSupplier;
 import io.activej.http.TestUtils.AssertingConsumer;
 import io.activej.test.rules.ByteBufRule;
@@ -15,11 +16,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 import static io.activej.http.GzipProcessorUtils.toGzip;
 import static io.activej.promise.TestUtils.await;
 import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
 
 public final class BufsConsumerGzipDeflaterTest {
 
@@ -126,6 +131,32 @@ public final class BufsConsumerGzipDeflaterTest {
 		doTest();
 	}
 
+	@Test
+	public void testZlibFormat() throws DataFormatException {
+		byte[] data = new byte[10_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 100);
+		}
+		for (int i = 0; i < data.length; i += 1000) {
+			list.add(ByteBuf.wrap(data, i, i + 1000));
+		}
+		BufsConsumerGzipDeflater zlib = BufsConsumerGzipDeflater.create()
+				.withDeflater(new Deflater(Deflater.DEFAULT_COMPRESSION))
+				.withGzipFormat(false);
+
+		ByteBuf compressed = await(ChannelSupplier.ofList(list)
+				.transformWith(zlib)
+				.toCollector(ByteBufs.collector()));
+
+		Inflater inflater = new Inflater();
+		inflater.setInput(compressed.asArray());
+		byte[] result = new byte[data.length];
+		assertEquals(data.length, inflater.inflate(result));
+		assertTrue(inflater.finished());
+		inflater.end();
+		assertArrayEquals(data, result);
+	}
+
 	private void doTest() {
 		gzip.getInput().set(ChannelSupplier.ofList(list));
 		await(gzip.getProcessCompletion());
@@ -0,0 +1,225 @@
+package io.activej.loader;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.loader.ResourceNotFoundException;
+import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticLoaderBoundedCache;
+import io.activej.http.loader.StaticResource;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.activej.bytebuf.ByteBuf.wrapForReading;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.*;
+
+public class StaticLoaderBoundedCacheTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@ClassRule
+	public static final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	@Test
+	public void testHitsAndCoalescing() {
+		CountingLoader loader = new CountingLoader(1000);
+		StaticLoaderBoundedCache cache = StaticLoaderBoundedCache.create(loader);
+
+		await(Promises.all(cache.loadResource("a"), cache.loadResource("a"), cache.loadResource("a")));
+		assertEquals(1, loader.getLoads("a"));
+
+		StaticResource resource = await(cache.loadResource("a"));
+		assertEquals(1, loader.getLoads("a"));
+		assertArrayEquals(loader.contentOf("a"), resource.getContent());
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testNotFoundIsNotCached() {
+		CountingLoader loader = new CountingLoader(1000);
+		StaticLoaderBoundedCache cache = StaticLoaderBoundedCache.create(loader);
+
+		Exception e = awaitException(cache.loadResource("unknown"));
+		assertThat(e, instanceOf(ResourceNotFoundException.class));
+		awaitException(cache.loadResource("unknown"));
+		assertEquals(2, loader.getLoads("unknown"));
+		assertEquals(0, cache.getResourcesCount());
+	}
+
+	@Test
+	public void testLruEviction() {
+		CountingLoader loader = new CountingLoader(1000);
+		StaticLoaderBoundedCache cache = StaticLoaderBoundedCache.create(loader)
+				.withAdmission(false)
+				.withPrecompression(false, MemSize.ZERO)
+				.withMaxSize(MemSize.of(3500));
+
+		load(cache, "a", "b", "c", "a", "d");
+		assertEquals(3, cache.getResourcesCount());
+		assertEquals(1, cache.getEvictions());
+
+		// "b" is the least recently used one
+		load(cache, "a", "c", "d");
+		assertEquals(1, loader.getLoads("a"));
+		assertEquals(1, loader.getLoads("c"));
+		assertEquals(1, loader.getLoads("d"));
+		load(cache, "b");
+		assertEquals(2, loader.getLoads("b"));
+		assertTrue(cache.getTotalSize() <= 3500);
+	}
+
+	@Test
+	public void testAdmissionProtectsFrequentResources() {
+		CountingLoader loader = new CountingLoader(12_000);
+		StaticLoaderBoundedCache cache = StaticLoaderBoundedCache.create(loader)
+				.withPrecompression(false, MemSize.ZERO)
+				.withMaxSize(MemSize.kilobytes(50));
+
+		for (int i = 0; i < 3; i++) {
+			load(cache, "hot0", "hot1", "hot2", "hot3");
+		}
+		for (int i = 0; i < 20; i++) {
+			load(cache, "cold" + i);
+		}
+		load(cache, "hot0", "hot1", "hot2", "hot3");
+
+		for (int i = 0; i < 4; i++) {
+			assertEquals(1, loader.getLoads("hot" + i));
+		}
+		assertEquals(20, cache.getRejections());
+		assertTrue(cache.getTotalSize() <= MemSize.kilobytes(50).toLong());
+	}
+
+	@Test
+	public void testScanEvictsFrequentResourcesWithoutAdmission() {
+		CountingLoader loader = new CountingLoader(12_000);
+		StaticLoaderBoundedCache cache = StaticLoaderBoundedCache.create(loader)
+				.withAdmission(false)
+				.withPrecompression(false, MemSize.ZERO)
+				.withMaxSize(MemSize.kilobytes(50));
+
+		for (int i = 0; i < 3; i++) {
+			load(cache, "hot0", "hot1", "hot2", "hot3");
+		}
+		for (int i = 0; i < 20; i++) {
+			load(cache, "cold" + i);
+		}
+		load(cache, "hot0");
+
+		assertEquals(2, loader.getLoads("hot0"));
+	}
+
+	@Test
+	public void testEtagAndPrecompression() {
+		CountingLoader loader = new CountingLoader(4096);
+		StaticLoaderBoundedCache cache = StaticLoaderBoundedCache.create(loader);
+
+		StaticResource resource = await(cache.loadResource("compressible"));
+		assertNotNull(resource.getEtag());
+		assertTrue(resource.getEtag().startsWith("\""));
+		assertNotNull(resource.getGzipContent());
+		assertTrue(resource.getGzipContent().length < resource.getContent().length);
+
+		StaticResource other = await(cache.loadResource("other"));
+		assertNotEquals(resource.getEtag(), other.getEtag());
+	}
+
+	@Test
+	public void testInvalidate() {
+		CountingLoader loader = new CountingLoader(1000);
+		StaticLoaderBoundedCache cache = StaticLoaderBoundedCache.create(loader);
+
+		load(cache, "a", "b");
+		cache.invalidate("a");
+		load(cache, "a", "b");
+		assertEquals(2, loader.getLoads("a"));
+		assertEquals(1, loader.getLoads("b"));
+
+		cache.invalidateAll();
+		assertEquals(0, cache.getResourcesCount());
+		assertEquals(0, cache.getTotalSize());
+	}
+
+	@Test
+	public void testFileWatching() throws IOException, InterruptedException {
+		Path root = tmpFolder.newFolder("watched").toPath();
+		Files.write(root.resolve("index.html"), "first".getBytes(UTF_8));
+
+		StaticLoaderBoundedCache cache = StaticLoader.ofPath(newCachedThreadPool(), root)
+				.cached(MemSize.megabytes(1))
+				.withFileWatching(Eventloop.getCurrentEventloop(), root);
+		try {
+			StaticResource resource = await(cache.loadResource("index.html"));
+			assertEquals("first", new String(resource.getContent(), UTF_8));
+			assertNotEquals(0, resource.getLastModified());
+
+			Files.write(root.resolve("index.html"), "second".getBytes(UTF_8));
+
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (cache.getInvalidations() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+				await();
+			}
+			resource = await(cache.loadResource("index.html"));
+			assertEquals("second", new String(resource.getContent(), UTF_8));
+		} finally {
+			cache.close();
+		}
+	}
+
+	private static void load(StaticLoader loader, String... paths) {
+		for (String path : paths) {
+			await(loader.loadResource(path));
+		}
+	}
+
+	private static final class CountingLoader implements StaticLoader {
+		private final int resourceSize;
+		private final Map<String, Integer> loads = new HashMap<>();
+
+		CountingLoader(int resourceSize) {
+			this.resourceSize = resourceSize;
+		}
+
+		int getLoads(String path) {
+			return loads.getOrDefault(path, 0);
+		}
+
+		byte[] contentOf(String path) {
+			byte[] content = new byte[resourceSize];
+			Arrays.fill(content, (byte) path.hashCode());
+			return content;
+		}
+
+		@Override
+		public Promise<ByteBuf> load(String path) {
+			loads.merge(path, 1, Integer::sum);
+			if (path.equals("unknown")) {
+				return Promise.<ByteBuf>ofException(new ResourceNotFoundException("Could not find '" + path + '\'')).async();
+			}
+			return Promise.of(wrapForReading(contentOf(path))).async();
+		}
+	}
+}
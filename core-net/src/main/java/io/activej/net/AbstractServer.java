@@ -90,6 +90,7 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 	private SSLContext sslContext;
 	private Executor sslExecutor;
 	protected List<InetSocketAddress> sslListenAddresses = new ArrayList<>();
+	private @Nullable List<String> sslApplicationProtocols;
 
 	private boolean running = false;
 	private List<ServerSocketChannel> serverSocketChannels;
@@ -166,6 +167,16 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		return withSslListenAddress(sslContext, sslExecutor, new InetSocketAddress(port));
 	}
 
+	/**
+	 * Sets application protocols that may be selected during SSL handshakes (ALPN),
+	 * in the order of preference
+	 */
+	@SuppressWarnings("unchecked")
+	public final Self withSslApplicationProtocols(@Nullable List<String> applicationProtocols) {
+		this.sslApplicationProtocols = applicationProtocols;
+		return (Self) this;
+	}
+
 	public final Self withAcceptOnce() {
 		return withAcceptOnce(true);
 	}
@@ -347,7 +358,11 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 			eventloop.closeChannel(socketChannel, null);
 			return;
 		}
-		asyncTcpSocket = ssl ? wrapServerSocket(asyncTcpSocket, sslContext, sslExecutor) : asyncTcpSocket;
+		if (ssl) {
+			asyncTcpSocket = sslApplicationProtocols == null ?
+					wrapServerSocket(asyncTcpSocket, sslContext, sslExecutor) :
+					wrapServerSocket(asyncTcpSocket, sslContext, sslExecutor, sslApplicationProtocols);
+		}
 		serve(asyncTcpSocket, remoteAddress);
 	}
 
@@ -18,6 +18,7 @@ package io.activej.net.socket.tcp;
 
 import io.activej.async.process.AsyncCloseable;
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufs;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -56,6 +57,19 @@ public interface AsyncTcpSocket extends AsyncCloseable {
 	 */
 	@NotNull Promise<Void> write(@Nullable ByteBuf buf);
 
+	/**
+	 * Operation to write all the data of a given {@link ByteBufs} queue to network.
+	 * <p>
+	 * Implementations may send buffers of the queue without merging them.
+	 * By default, the queue is merged into a single {@link ByteBuf}.
+	 *
+	 * @param bufs data to be sent to network, is drained by this method
+	 * @return promise that represents successful write operation
+	 */
+	default @NotNull Promise<Void> writeAll(@NotNull ByteBufs bufs) {
+		return write(bufs.takeRemaining());
+	}
+
 	boolean isReadAvailable();
 
 	boolean isClosed();
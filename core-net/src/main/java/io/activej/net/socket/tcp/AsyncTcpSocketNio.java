@@ -19,7 +19,9 @@ package io.activej.net.socket.tcp;
 import io.activej.async.exception.AsyncCloseException;
 import io.activej.async.exception.AsyncTimeoutException;
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufDirect;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufs;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
 import io.activej.common.inspector.AbstractInspector;
@@ -37,15 +39,19 @@ import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 import static io.activej.common.MemSize.kilobytes;
 import static io.activej.common.Utils.nullify;
@@ -58,6 +64,21 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private static final int DEBUG_READ_OFFSET = ApplicationSettings.getInt(AsyncTcpSocketNio.class, "debugReadOffset", 0);
 
 	public static final int DEFAULT_READ_BUFFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "readBufferSize", kilobytes(16)).toInt();
+
+	/**
+	 * Enables pooled off-heap {@link ByteBufDirect} buffers for channel I/O.
+	 * Data is read into a direct buffer and is copied into a heap {@link ByteBuf} of an exact size,
+	 * data to be written is copied into direct buffers of up to {@link #DIRECT_WRITE_BUFFER_SIZE} bytes,
+	 * so the JDK does not need its own temporary direct buffers, which are sized after heap buffers
+	 * and are cached per thread.
+	 */
+	private static final boolean USE_DIRECT_BUFFERS = ApplicationSettings.getBoolean(AsyncTcpSocketNio.class, "useDirectBuffers", false);
+	private static final int DIRECT_WRITE_BUFFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "directWriteBufferSize", kilobytes(256)).toInt();
+
+	/**
+	 * A maximum number of buffers passed to a single gathering write
+	 */
+	private static final int MAX_GATHERING_WRITE_BUFS = ApplicationSettings.getInt(AsyncTcpSocketNio.class, "maxGatheringWriteBufs", 64);
 	public static final int NO_TIMEOUT = 0;
 
 	private static final AtomicInteger CONNECTION_COUNT = new AtomicInteger(0);
@@ -68,7 +89,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private @Nullable SocketChannel channel;
 	private @Nullable ByteBuf readBuf;
 	private boolean readEndOfStream;
-	private @Nullable ByteBuf writeBuf;
+	private final ByteBufs writeBufs = new ByteBufs();
+	private @Nullable ByteBufs writeBufsAfterTransfer;
+	private @Nullable FileChannel transferFile;
+	private long transferPosition;
+	private long transferRemaining;
 	private boolean writeEndOfStream;
 
 	private @Nullable SettablePromise<ByteBuf> read;
@@ -88,6 +113,8 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private @Nullable Object userData;
 
+	private ByteBuffer @Nullable [] ioBuffers;
+
 	public interface Inspector extends BaseInspector<Inspector> {
 		void onConnect(AsyncTcpSocketNio socket);
 
@@ -105,6 +132,8 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 		void onWriteError(AsyncTcpSocketNio socket, IOException e);
 
+		void onTransfer(AsyncTcpSocketNio socket, long bytes);
+
 		void onDisconnect(AsyncTcpSocketNio socket);
 	}
 
@@ -120,6 +149,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		private final ExceptionStats writeErrors = ExceptionStats.create();
 		private final EventStats writeTimeouts = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats writeOverloaded = EventStats.create(SMOOTHING_WINDOW);
+		private final ValueStats transfers = ValueStats.create(SMOOTHING_WINDOW).withUnit("bytes").withRate();
 		private final EventStats disconnects = EventStats.create(SMOOTHING_WINDOW);
 
 		@Override
@@ -164,6 +194,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			writeErrors.recordException(e, socket.getRemoteAddress());
 		}
 
+		@Override
+		public void onTransfer(AsyncTcpSocketNio socket, long bytes) {
+			transfers.recordValue((double) bytes);
+		}
+
 		@Override
 		public void onDisconnect(AsyncTcpSocketNio socket) {
 			disconnects.recordEvent();
@@ -209,6 +244,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return writeOverloaded;
 		}
 
+		@JmxAttribute
+		public ValueStats getTransfers() {
+			return transfers;
+		}
+
 		@JmxAttribute
 		public EventStats getConnects() {
 			return connects;
@@ -319,7 +359,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void updateInterests() {
 		assert !isClosed() && ops >= 0;
-		byte newOps = (byte) (((readBuf == null && !readEndOfStream) ? SelectionKey.OP_READ : 0) | (writeBuf == null || writeEndOfStream ? 0 : SelectionKey.OP_WRITE));
+		byte newOps = (byte) (((readBuf == null && !readEndOfStream) ? SelectionKey.OP_READ : 0) | (!hasPendingWrites() || writeEndOfStream ? 0 : SelectionKey.OP_WRITE));
 		if (key == null) {
 			ops = newOps;
 			try {
@@ -380,16 +420,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void doRead() throws IOException {
 		assert channel != null;
-		ByteBuf buf;
-		if (DEBUG_READ_OFFSET == 0) {
-			buf = ByteBufPool.allocate(readBufferSize);
-		} else {
-			checkState(DEBUG_READ_OFFSET > 0);
-
-			buf = ByteBufPool.allocate(readBufferSize);
-			buf.tail(DEBUG_READ_OFFSET);
-			buf.head(DEBUG_READ_OFFSET);
+		if (USE_DIRECT_BUFFERS) {
+			doReadDirect();
+			return;
 		}
+		ByteBuf buf = allocateReadBuf(readBufferSize);
 		ByteBuffer buffer = buf.toWriteByteBuffer();
 
 		int numRead;
@@ -408,18 +443,74 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return;
 		}
 
-		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
-
 		if (numRead == -1) {
 			buf.recycle();
-			if (inspector != null) inspector.onReadEndOfStream(this);
-			readEndOfStream = true;
-			if (writeEndOfStream && writeBuf == null) {
-				doClose();
-			}
+			onReadEndOfStream();
+			return;
+		}
+
+		onRead(buf);
+	}
+
+	private void doReadDirect() throws IOException {
+		assert channel != null;
+		ByteBufDirect direct = ByteBufPool.allocateDirect(readBufferSize);
+		ByteBuffer buffer = direct.buffer();
+		buffer.limit(readBufferSize);
+
+		int numRead;
+		try {
+			numRead = channel.read(buffer);
+		} catch (IOException e) {
+			direct.recycle();
+			if (inspector != null) inspector.onReadError(this, e);
+			throw e;
+		}
+
+		if (numRead == 0) {
+			direct.recycle();
+			if (inspector != null) inspector.onRead(this, ByteBuf.empty());
 			return;
 		}
 
+		if (numRead == -1) {
+			direct.recycle();
+			onReadEndOfStream();
+			return;
+		}
+
+		ByteBuf buf = allocateReadBuf(numRead + DEBUG_READ_OFFSET);
+		buffer.flip();
+		direct.drainTo(buf);
+		direct.recycle();
+
+		onRead(buf);
+	}
+
+	private ByteBuf allocateReadBuf(int size) {
+		if (DEBUG_READ_OFFSET == 0) {
+			return ByteBufPool.allocate(size);
+		}
+		checkState(DEBUG_READ_OFFSET > 0);
+
+		ByteBuf buf = ByteBufPool.allocate(size);
+		buf.tail(DEBUG_READ_OFFSET);
+		buf.head(DEBUG_READ_OFFSET);
+		return buf;
+	}
+
+	private void onReadEndOfStream() {
+		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
+		if (inspector != null) inspector.onReadEndOfStream(this);
+		readEndOfStream = true;
+		if (writeEndOfStream && !hasPendingWrites()) {
+			doClose();
+		}
+	}
+
+	private void onRead(ByteBuf buf) {
+		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
+
 		if (inspector != null) inspector.onRead(this, buf);
 
 		if (readBuf == null) {
@@ -444,20 +535,85 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 		writeEndOfStream |= buf == null;
 
-		if (writeBuf == null) {
-			if (buf != null && !buf.canRead()) {
+		if (buf != null) {
+			if (!hasPendingWrites() && !buf.canRead()) {
 				buf.recycle();
 				return Promise.complete();
 			}
-			writeBuf = buf;
-		} else {
-			if (buf != null) {
-				writeBuf = ByteBufPool.ensureWriteRemaining(this.writeBuf, buf.readRemaining());
-				writeBuf.put(buf.array(), buf.head(), buf.readRemaining());
-				buf.recycle();
+			(transferFile == null ? writeBufs : writeBufsAfterTransfer).add(buf);
+		}
+
+		return doWritePending();
+	}
+
+	/**
+	 * Enqueues all the buffers of a given {@link ByteBufs} without merging them,
+	 * they are sent to the network with a single gathering write where possible
+	 *
+	 * @param bufs data to be sent to network, is drained by this method
+	 * @return promise that represents successful write operation
+	 */
+	@Override
+	public @NotNull Promise<Void> writeAll(@NotNull ByteBufs bufs) {
+		if (CHECK) {
+			checkState(eventloop.inEventloopThread());
+			checkState(!writeEndOfStream, "End of stream has already been sent");
+		}
+		if (isClosed()) {
+			while (!bufs.isEmpty()) {
+				bufs.take().recycle();
 			}
+			return Promise.ofException(new AsyncCloseException());
 		}
+		if (!hasPendingWrites() && bufs.isEmpty()) {
+			return Promise.complete();
+		}
+		bufs.drainTo(transferFile == null ? writeBufs : writeBufsAfterTransfer);
+		return doWritePending();
+	}
 
+	/**
+	 * Sends a region of a file to the network with {@link FileChannel#transferTo},
+	 * so that file contents are not copied through heap buffers
+	 * (sendfile-style zero-copy transfer, where it is supported by an OS).
+	 * <p>
+	 * The region is sent after all the previously written data,
+	 * data written while a transfer is in progress is sent after the region.
+	 * Note that file contents which are not in a page cache are read by an eventloop thread.
+	 * A file is not closed by this socket.
+	 *
+	 * @param file     a file to be transferred
+	 * @param position a starting position of a region within a file
+	 * @param count    a number of bytes to be transferred
+	 * @return promise that represents successful write operation
+	 */
+	public @NotNull Promise<Void> transferFrom(@NotNull FileChannel file, long position, long count) {
+		if (CHECK) {
+			checkState(eventloop.inEventloopThread());
+			checkState(!writeEndOfStream, "End of stream has already been sent");
+			checkState(transferFile == null, "Another file transfer is in progress");
+			checkArgument(position >= 0 && count >= 0, "Negative position or count");
+		}
+		if (isClosed()) {
+			return Promise.ofException(new AsyncCloseException());
+		}
+		if (count == 0) {
+			return hasPendingWrites() ? doWritePending() : Promise.complete();
+		}
+		transferFile = file;
+		transferPosition = position;
+		transferRemaining = count;
+		if (writeBufsAfterTransfer == null) {
+			writeBufsAfterTransfer = new ByteBufs();
+		}
+		return doWritePending();
+	}
+
+	private boolean hasPendingWrites() {
+		return !writeBufs.isEmpty() || transferFile != null;
+	}
+
+	private @NotNull Promise<Void> doWritePending() {
 		if (write != null) return write;
 
 		try {
@@ -467,7 +623,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return Promise.ofException(e);
 		}
 
-		if (this.writeBuf == null) {
+		if (!hasPendingWrites()) {
 			return Promise.complete();
 		}
 		SettablePromise<Void> write = new SettablePromise<>();
@@ -496,7 +652,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			closeEx(e);
 			return;
 		}
-		if (writeBuf == null) {
+		if (!hasPendingWrites()) {
 			SettablePromise<@Nullable Void> write = this.write;
 			this.write = null;
 			write.set(null);
@@ -508,26 +664,29 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void doWrite() throws IOException {
 		assert channel != null;
-		if (writeBuf != null) {
-			ByteBuf buf = this.writeBuf;
-			ByteBuffer buffer = buf.toReadByteBuffer();
-
-			try {
-				channel.write(buffer);
-			} catch (IOException e) {
-				if (inspector != null) inspector.onWriteError(this, e);
-				throw e;
+		while (hasPendingWrites()) {
+			if (!writeBufs.isEmpty()) {
+				if (USE_DIRECT_BUFFERS) {
+					doWriteDirect();
+				} else if (writeBufs.remainingBufs() == 1) {
+					doWriteSingle();
+				} else {
+					doWriteGathering();
+				}
+
+				if (!writeBufs.isEmpty()) {
+					return;
+				}
 			}
 
-			if (inspector != null) inspector.onWrite(this, buf, buffer.position() - buf.head());
-
-			buf.ofReadByteBuffer(buffer);
+			if (transferFile != null) {
+				doTransfer(transferFile);
 
-			if (buf.canRead()) {
-				return;
-			} else {
-				buf.recycle();
-				writeBuf = null;
+				if (transferFile != null) {
+					return;
+				}
+				assert writeBufsAfterTransfer != null;
+				writeBufsAfterTransfer.drainTo(writeBufs);
 			}
 		}
 
@@ -542,13 +701,145 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 	}
 
+	private void doWriteSingle() throws IOException {
+		assert channel != null;
+		ByteBuf buf = writeBufs.peekBuf();
+		ByteBuffer buffer = buf.toReadByteBuffer();
+
+		try {
+			channel.write(buffer);
+		} catch (IOException e) {
+			if (inspector != null) inspector.onWriteError(this, e);
+			throw e;
+		}
+
+		if (inspector != null) inspector.onWrite(this, buf, buffer.position() - buf.head());
+
+		buf.ofReadByteBuffer(buffer);
+
+		if (!buf.canRead()) {
+			writeBufs.take().recycle();
+		}
+	}
+
+	private void doWriteGathering() throws IOException {
+		assert channel != null;
+		while (!writeBufs.isEmpty()) {
+			int count = Math.min(writeBufs.remainingBufs(), MAX_GATHERING_WRITE_BUFS);
+			ByteBuffer[] buffers = ensureIoBuffers(count);
+			long length = 0;
+			for (int i = 0; i < count; i++) {
+				ByteBuf buf = writeBufs.peekBuf(i);
+				buffers[i] = buf.toReadByteBuffer();
+				length += buf.readRemaining();
+			}
+
+			long written;
+			try {
+				written = channel.write(buffers, 0, count);
+			} catch (IOException e) {
+				if (inspector != null) inspector.onWriteError(this, e);
+				throw e;
+			} finally {
+				Arrays.fill(buffers, 0, count, null);
+			}
+
+			onWritten(written);
+			if (written != length) break;
+		}
+	}
+
+	/**
+	 * Coalesces queued buffers into a direct buffer of up to {@link #DIRECT_WRITE_BUFFER_SIZE} bytes
+	 */
+	private void doWriteDirect() throws IOException {
+		assert channel != null;
+		ByteBufDirect direct = ByteBufPool.allocateDirect(Math.min(writeBufs.remainingBytes(), DIRECT_WRITE_BUFFER_SIZE));
+		ByteBuffer buffer = direct.buffer();
+		try {
+			while (!writeBufs.isEmpty()) {
+				buffer.clear();
+				for (int i = 0, count = writeBufs.remainingBufs(); i < count && buffer.hasRemaining(); i++) {
+					direct.put(writeBufs.peekBuf(i));
+				}
+				buffer.flip();
+				int length = buffer.remaining();
+
+				int written;
+				try {
+					written = channel.write(buffer);
+				} catch (IOException e) {
+					if (inspector != null) inspector.onWriteError(this, e);
+					throw e;
+				}
+
+				onWritten(written);
+				if (written != length) break;
+			}
+		} finally {
+			direct.recycle();
+		}
+	}
+
+	private void doTransfer(FileChannel file) throws IOException {
+		assert channel != null;
+		while (transferRemaining != 0) {
+			long transferred;
+			try {
+				transferred = file.transferTo(transferPosition, transferRemaining, channel);
+				if (transferred == 0 && transferPosition >= file.size()) {
+					throw new EOFException("File has been truncated during transfer");
+				}
+			} catch (IOException e) {
+				if (inspector != null) inspector.onWriteError(this, e);
+				throw e;
+			}
+
+			if (inspector != null) inspector.onTransfer(this, transferred);
+
+			if (transferred == 0) return;
+			transferPosition += transferred;
+			transferRemaining -= transferred;
+		}
+		transferFile = null;
+	}
+
+	private void onWritten(long written) {
+		if (inspector != null) {
+			long remaining = written;
+			int i = 0;
+			do {
+				ByteBuf buf = writeBufs.peekBuf(i++);
+				int bytes = (int) Math.min(remaining, buf.readRemaining());
+				inspector.onWrite(this, buf, bytes);
+				remaining -= bytes;
+			} while (remaining != 0);
+		}
+		writeBufs.skip((int) written);
+	}
+
+	private ByteBuffer[] ensureIoBuffers(int size) {
+		if (ioBuffers == null || ioBuffers.length < size) {
+			ioBuffers = new ByteBuffer[size];
+		}
+		return ioBuffers;
+	}
+
 	@Override
 	public void closeEx(@NotNull Exception e) {
 		if (CHECK) checkState(eventloop.inEventloopThread());
 		if (isClosed()) return;
 		doClose();
 		readBuf = nullify(readBuf, ByteBuf::recycle);
-		writeBuf = nullify(writeBuf, ByteBuf::recycle);
+		while (!writeBufs.isEmpty()) {
+			writeBufs.take().recycle();
+		}
+		if (writeBufsAfterTransfer != null) {
+			while (!writeBufsAfterTransfer.isEmpty()) {
+				writeBufsAfterTransfer.take().recycle();
+			}
+		}
+		transferFile = null;
 		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
 		scheduledWriteTimeout = nullify(scheduledWriteTimeout, ScheduledRunnable::cancel);
 		read = nullify(read, SettablePromise::setException, e);
@@ -576,7 +867,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		return "AsyncTcpSocketImpl{" +
 				"channel=" + (channel != null ? channel : "") +
 				", readBuf=" + readBuf +
-				", writeBuf=" + writeBuf +
+				", writeBufs=" + writeBufs +
 				", readEndOfStream=" + readEndOfStream +
 				", writeEndOfStream=" + writeEndOfStream +
 				", read=" + read +
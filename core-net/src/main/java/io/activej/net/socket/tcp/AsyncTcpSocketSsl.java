@@ -33,7 +33,9 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.Executor;
 
 import static javax.net.ssl.SSLEngineResult.HandshakeStatus.*;
@@ -61,6 +63,9 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket, WithInitializer<
 	private @Nullable SettablePromise<Void> write;
 	private @Nullable Promise<Void> pendingUpstreamWrite;
 
+	private boolean handshakeFinished;
+	private @Nullable SettablePromise<Void> handshake;
+
 	public static AsyncTcpSocketSsl wrapClientSocket(AsyncTcpSocket asyncTcpSocket,
 			String host, int port,
 			SSLContext sslContext, Executor executor) {
@@ -69,6 +74,21 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket, WithInitializer<
 		return create(asyncTcpSocket, sslEngine, executor);
 	}
 
+	/**
+	 * Wraps a client socket offering given application protocols
+	 * to a server during a handshake (ALPN)
+	 *
+	 * @see #getApplicationProtocol()
+	 */
+	public static AsyncTcpSocketSsl wrapClientSocket(AsyncTcpSocket asyncTcpSocket,
+			String host, int port,
+			SSLContext sslContext, Executor executor, List<String> applicationProtocols) {
+		SSLEngine sslEngine = sslContext.createSSLEngine(host, port);
+		sslEngine.setUseClientMode(true);
+		setApplicationProtocols(sslEngine, applicationProtocols);
+		return create(asyncTcpSocket, sslEngine, executor);
+	}
+
 	public static AsyncTcpSocketSsl wrapClientSocket(AsyncTcpSocket asyncTcpSocket,
 			SSLContext sslContext, Executor executor) {
 		SSLEngine sslEngine = sslContext.createSSLEngine();
@@ -83,6 +103,27 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket, WithInitializer<
 		return create(asyncTcpSocket, sslEngine, executor);
 	}
 
+	/**
+	 * Wraps a server socket which selects one of given application protocols
+	 * that is also supported by a client during a handshake (ALPN).
+	 * The protocols are listed in the order of server preference
+	 *
+	 * @see #getApplicationProtocol()
+	 */
+	public static AsyncTcpSocketSsl wrapServerSocket(AsyncTcpSocket asyncTcpSocket,
+			SSLContext sslContext, Executor executor, List<String> applicationProtocols) {
+		SSLEngine sslEngine = sslContext.createSSLEngine();
+		sslEngine.setUseClientMode(false);
+		setApplicationProtocols(sslEngine, applicationProtocols);
+		return create(asyncTcpSocket, sslEngine, executor);
+	}
+
+	private static void setApplicationProtocols(SSLEngine sslEngine, List<String> applicationProtocols) {
+		SSLParameters sslParameters = sslEngine.getSSLParameters();
+		sslParameters.setApplicationProtocols(applicationProtocols.toArray(new String[0]));
+		sslEngine.setSSLParameters(sslParameters);
+	}
+
 	private AsyncTcpSocketSsl(AsyncTcpSocket asyncTcpSocket, SSLEngine engine, Executor executor) {
 		this.engine = engine;
 		this.executor = executor;
@@ -95,6 +136,29 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket, WithInitializer<
 		return new AsyncTcpSocketSsl(asyncTcpSocket, engine, executor);
 	}
 
+	/**
+	 * Returns a promise of an initial handshake completion.
+	 * A negotiated application protocol is known once the handshake is finished
+	 */
+	public @NotNull Promise<Void> handshake() {
+		if (handshakeFinished) return Promise.complete();
+		if (isClosed()) return Promise.ofException(new AsyncCloseException());
+		if (handshake == null) {
+			handshake = new SettablePromise<>();
+		}
+		return handshake;
+	}
+
+	/**
+	 * Returns an application protocol negotiated during a handshake (ALPN)
+	 *
+	 * @return a negotiated application protocol, an empty string if no protocol was negotiated,
+	 * or {@code null} if a handshake is not finished yet
+	 */
+	public @Nullable String getApplicationProtocol() {
+		return handshakeFinished ? engine.getApplicationProtocol() : null;
+	}
+
 	@Override
 	public @NotNull Promise<ByteBuf> read() {
 		read = null;
@@ -316,6 +380,16 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket, WithInitializer<
 			return;
 		}
 
+		if (!handshakeFinished) {
+			handshakeFinished = true;
+			if (handshake != null) {
+				SettablePromise<Void> handshake = this.handshake;
+				this.handshake = null;
+				handshake.set(null);
+			}
+			if (isClosed()) return;
+		}
+
 		// write data to net
 		if (app2engine.canRead()) {
 			do {
@@ -417,6 +491,10 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket, WithInitializer<
 			write.setException(e);
 			write = null;
 		}
+		if (handshake != null) {
+			handshake.setException(e);
+			handshake = null;
+		}
 	}
 
 	@Override
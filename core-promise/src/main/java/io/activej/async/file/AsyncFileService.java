@@ -18,10 +18,45 @@ package io.activej.async.file;
 
 import io.activej.promise.Promise;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
 public interface AsyncFileService {
 	Promise<Integer> read(FileChannel channel, long position, byte[] array, int offset, int size);
 
 	Promise<Integer> write(FileChannel channel, long position, byte[] array, int offset, int size);
+
+	/**
+	 * Writes all the remaining bytes of a given {@link ByteBuffer}, which may be a direct one.
+	 * The position of the buffer is undefined after the write.
+	 * <p>
+	 * By default, the bytes of a direct buffer are copied into a byte array.
+	 */
+	default Promise<Integer> write(FileChannel channel, long position, ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			return write(channel, position, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		byte[] array = new byte[buffer.remaining()];
+		buffer.get(array);
+		return write(channel, position, array, 0, array.length);
+	}
+
+	/**
+	 * Maps a region of a file into memory in a read-only mode.
+	 * <p>
+	 * If {@code load} is {@code true}, contents of a region are also
+	 * loaded into physical memory, so that subsequent accesses do not block on disk reads.
+	 * By default, a region is mapped in a calling thread and is never loaded.
+	 */
+	default Promise<MappedByteBuffer> map(FileChannel channel, long position, long size, boolean load) {
+		try {
+			return Promise.of(channel.map(READ_ONLY, position, size));
+		} catch (IOException e) {
+			return Promise.ofException(e);
+		}
+	}
 }
@@ -20,10 +20,12 @@ import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.Executor;
 
 import static io.activej.promise.Promise.ofBlocking;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 
 public final class ExecutorAsyncFileService implements AsyncFileService {
 	private final Executor executor;
@@ -51,8 +53,12 @@ public final class ExecutorAsyncFileService implements AsyncFileService {
 
 	@Override
 	public Promise<Integer> write(FileChannel channel, long position, byte[] array, int offset, int size) {
+		return write(channel, position, ByteBuffer.wrap(array, offset, size));
+	}
+
+	@Override
+	public Promise<Integer> write(FileChannel channel, long position, ByteBuffer buffer) {
 		return ofBlocking(executor, () -> {
-			ByteBuffer buffer = ByteBuffer.wrap(array, offset, size);
 			long pos = position;
 
 			do {
@@ -61,4 +67,15 @@ public final class ExecutorAsyncFileService implements AsyncFileService {
 			return Math.toIntExact(pos - position);
 		});
 	}
+
+	@Override
+	public Promise<MappedByteBuffer> map(FileChannel channel, long position, long size, boolean load) {
+		return ofBlocking(executor, () -> {
+			MappedByteBuffer buffer = channel.map(READ_ONLY, position, size);
+			if (load) {
+				buffer.load();
+			}
+			return buffer;
+		});
+	}
 }
@@ -45,11 +45,15 @@ public final class ConfigConverters {
 				Duration timedOutExceptionTtl = config.get(ofDuration(), "timedOutExpiration", DEFAULT_TIMED_OUT_EXPIRATION);
 				Duration hardExpirationDelta = config.get(ofDuration(), "hardExpirationDelta", DEFAULT_HARD_EXPIRATION_DELTA);
 				Duration maxTtl = config.get(ofDuration(), "maxTtl", DEFAULT_MAX_TTL);
+				double refreshAheadRatio = config.get(ofDouble(), "refreshAheadRatio", DEFAULT_REFRESH_AHEAD_RATIO);
+				boolean negativeCaching = config.get(ofBoolean(), "negativeCaching", true);
 				return DnsCache.create(eventloop)
 						.withErrorCacheExpiration(errorCacheExpiration)
 						.withTimedOutExpiration(timedOutExceptionTtl)
 						.withHardExpirationDelta(hardExpirationDelta)
-						.withMaxTtl(maxTtl);
+						.withMaxTtl(maxTtl)
+						.withRefreshAheadRatio(refreshAheadRatio)
+						.withNegativeCaching(negativeCaching);
 			}
 
 			@Override
@@ -52,6 +52,7 @@ public final class ByteBufRule implements TestRule {
 			ByteBufPool.clear();
 			base.evaluate();
 			assertEquals(ByteBufPool.getStats().getPoolItemsString(), ByteBufPool.getStats().getCreatedItems(), ByteBufPool.getStats().getPoolItems());
+			assertEquals("Unrecycled direct buffers", ByteBufPool.getStats().getDirectCreatedItems(), ByteBufPool.getStats().getDirectPoolItems());
 		});
 	}
 